@@ -52,8 +52,13 @@ import com.antheminc.oss.nimbus.domain.model.state.builder.QuadModelBuilder;
 import com.antheminc.oss.nimbus.domain.model.state.builder.internal.DefaultEntityStateBuilder;
 import com.antheminc.oss.nimbus.domain.model.state.builder.internal.DefaultQuadModelBuilder;
 import com.antheminc.oss.nimbus.domain.model.state.extension.ChangeLogCommandEventHandler;
+import com.antheminc.oss.nimbus.domain.model.state.internal.DeferredEvaluator;
+import com.antheminc.oss.nimbus.domain.model.state.internal.NotificationDispatcher;
+import com.antheminc.oss.nimbus.domain.model.state.support.JsonParamSerializationConfig;
 import com.antheminc.oss.nimbus.support.DefaultLoggingInterceptor;
 import com.antheminc.oss.nimbus.support.SecurityUtils;
+import com.antheminc.oss.nimbus.support.metrics.MetricsInterceptor;
+import com.antheminc.oss.nimbus.support.metrics.MetricsRegistry;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -154,14 +159,39 @@ public class DefaultCoreBuilderConfig {
 		return new DefaultQuadModelBuilder(beanResolver);
 	} 
 	
+	@Bean
+	public NotificationDispatcher notificationDispatcher() {
+		return new NotificationDispatcher();
+	}
+	
+	@Bean
+	public DeferredEvaluator deferredEvaluator() {
+		return new DeferredEvaluator();
+	}
+	
+	@Bean
+	public JsonParamSerializationConfig jsonParamSerializationConfig() {
+		return new JsonParamSerializationConfig();
+	}
+	
 	@Bean
 	public SecurityUtils securityUtils() {
 		return new SecurityUtils(secureRegex);
 	}
 	
 	@Bean
-	public DefaultLoggingInterceptor defaultLoggingHandler() {
-		return new DefaultLoggingInterceptor();
+	public MetricsRegistry metricsRegistry() {
+		return new MetricsRegistry();
+	}
+	
+	@Bean
+	public MetricsInterceptor metricsInterceptor(MetricsRegistry metricsRegistry) {
+		return new MetricsInterceptor(metricsRegistry);
+	}
+	
+	@Bean
+	public DefaultLoggingInterceptor defaultLoggingHandler(MetricsRegistry metricsRegistry) {
+		return new DefaultLoggingInterceptor(metricsRegistry);
 	}
 
 }
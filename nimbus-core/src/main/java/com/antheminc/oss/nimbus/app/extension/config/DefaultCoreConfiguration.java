@@ -15,8 +15,9 @@
  */
 package com.antheminc.oss.nimbus.app.extension.config;
 
-
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -32,15 +33,19 @@ import com.antheminc.oss.nimbus.domain.defn.ClassPropertyConverter;
 import com.antheminc.oss.nimbus.domain.model.state.repo.DefaultModelRepositoryFactory;
 import com.antheminc.oss.nimbus.domain.model.state.repo.DefaultParamStateRepositoryDetached;
 import com.antheminc.oss.nimbus.domain.model.state.repo.DefaultParamStateRepositoryLocal;
+import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepositoryBatchWriter;
 import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepositoryFactory;
 import com.antheminc.oss.nimbus.domain.model.state.repo.ParamStateRepository;
 import com.antheminc.oss.nimbus.domain.model.state.repo.ParamStateRepositoryGateway;
 import com.antheminc.oss.nimbus.domain.model.state.repo.SpringSecurityAuditorAware;
 import com.antheminc.oss.nimbus.domain.model.state.repo.db.ParamStateAtomicPersistenceEventListener;
+import com.antheminc.oss.nimbus.domain.model.state.repo.db.ParamStateCoalescedPersistenceEventListener;
 import com.antheminc.oss.nimbus.domain.model.state.repo.ws.DefaultWSModelRepository;
 import com.antheminc.oss.nimbus.domain.rules.DefaultRulesEngineFactoryProducer;
 import com.antheminc.oss.nimbus.domain.rules.drools.DroolsRulesEngineFactory;
+import com.antheminc.oss.nimbus.support.metrics.MetricsRegistry;
 import com.antheminc.oss.nimbus.support.pojo.JavaBeanHandler;
+import com.antheminc.oss.nimbus.support.pojo.JavaBeanHandlerLambda;
 import com.antheminc.oss.nimbus.support.pojo.JavaBeanHandlerReflection;
 
 /**
@@ -56,7 +61,12 @@ public class DefaultCoreConfiguration {
 		return new DefaultModelRepositoryFactory(beanResolver);
 	}
 
-	@Bean(name="default.rep_ws")
+	@Bean(name="default.modelRepositoryBatchWriter", destroyMethod="shutdown")
+	public ModelRepositoryBatchWriter modelRepositoryBatchWriter(){
+		return new ModelRepositoryBatchWriter();
+	}
+
+	@Bean(name="default.rep_ws", destroyMethod="shutdown")
 	public DefaultWSModelRepository defaultWSModelRepository(BeanResolverStrategy beanResolver){
 		return new DefaultWSModelRepository(beanResolver);
 	}
@@ -66,6 +76,11 @@ public class DefaultCoreConfiguration {
 		return new ParamStateAtomicPersistenceEventListener(repoFactory);
 	}
 	
+	@Bean(name="default.paramStateCoalescedPersistenceEventListener", destroyMethod="shutdown")
+	public ParamStateCoalescedPersistenceEventListener paramStateCoalescedPersistenceEventListener(ModelRepositoryFactory repoFactory){
+		return new ParamStateCoalescedPersistenceEventListener(repoFactory);
+	}
+	
 //	@Bean(name="default.paramStateBatchPersistenceEventListener")
 //	public ParamStateBulkPersistenceEventListener paramStateBatchPersistenceEventListener(ModelRepositoryFactory repoFactory){
 //		return new ParamStateBulkPersistenceEventListener(repoFactory);
@@ -90,8 +105,10 @@ public class DefaultCoreConfiguration {
 	
 	//rules drools
 	@Bean(name="rules.factory.drools")
-	public DroolsRulesEngineFactory droolsRulesEngineFactory(){
-		return new DroolsRulesEngineFactory();
+	public DroolsRulesEngineFactory droolsRulesEngineFactory(@Value("${rules.drools.session:stateless}") String sessionType, MetricsRegistry metricsRegistry){
+		DroolsRulesEngineFactory factory = new DroolsRulesEngineFactory(StringUtils.equalsIgnoreCase("stateful", sessionType));
+		factory.setMetrics(metricsRegistry);
+		return factory;
 	}
 	
 	@Bean(name="default.rules.factory.producer")
@@ -100,7 +117,10 @@ public class DefaultCoreConfiguration {
 	}
 	
 	@Bean(name="default.java.bean.handler")
-	public JavaBeanHandler javaBeanHandler(){
+	public JavaBeanHandler javaBeanHandler(@Value("${model.bean.handler:reflection}") String handlerType){
+		if(StringUtils.equalsIgnoreCase("lambda", handlerType))
+			return new JavaBeanHandlerLambda();
+		
 		return new JavaBeanHandlerReflection();
 	}
 	
@@ -15,9 +15,12 @@
  */
 package com.antheminc.oss.nimbus.app.extension.config;
 
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.PropertyResolver;
+import org.springframework.expression.spel.SpelCompilerMode;
 
 import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
 import com.antheminc.oss.nimbus.domain.cmd.CommandMessageConverter;
@@ -26,6 +29,8 @@ import com.antheminc.oss.nimbus.domain.cmd.exec.CommandPathVariableResolver;
 import com.antheminc.oss.nimbus.domain.cmd.exec.CommandTransactionInterceptor;
 import com.antheminc.oss.nimbus.domain.cmd.exec.ExecutionContextLoader;
 import com.antheminc.oss.nimbus.domain.cmd.exec.ExecutionContextPathVariableResolver;
+import com.antheminc.oss.nimbus.domain.cmd.exec.internal.CommandDispatchTable;
+import com.antheminc.oss.nimbus.domain.cmd.exec.internal.CrossDomainCommandExecutor;
 import com.antheminc.oss.nimbus.domain.cmd.exec.internal.DefaultActionExecutorConfig;
 import com.antheminc.oss.nimbus.domain.cmd.exec.internal.DefaultActionExecutorDelete;
 import com.antheminc.oss.nimbus.domain.cmd.exec.internal.DefaultActionExecutorGet;
@@ -41,10 +46,18 @@ import com.antheminc.oss.nimbus.domain.cmd.exec.internal.DefaultCommandPathVaria
 import com.antheminc.oss.nimbus.domain.cmd.exec.internal.DefaultExecutionContextLoader;
 import com.antheminc.oss.nimbus.domain.cmd.exec.internal.DefaultExecutionContextPathVariableResolver;
 import com.antheminc.oss.nimbus.domain.cmd.exec.internal.HierarchyMatchBasedBeanFinder;
+import com.antheminc.oss.nimbus.domain.cmd.exec.internal.RootExecutionGuard;
+import com.antheminc.oss.nimbus.domain.model.state.builder.QuadModelBuilder;
 import com.antheminc.oss.nimbus.domain.model.state.repo.db.DBSearch;
 import com.antheminc.oss.nimbus.domain.model.state.repo.db.MongoSearchByExample;
 import com.antheminc.oss.nimbus.domain.model.state.repo.db.MongoSearchByQuery;
+import com.antheminc.oss.nimbus.domain.model.state.repo.db.QuerydslCriteriaCompiler;
+import com.antheminc.oss.nimbus.domain.session.QuadModelSessionStore;
+import com.antheminc.oss.nimbus.domain.session.SessionAttributeQuadModelStore;
+import com.antheminc.oss.nimbus.domain.session.SessionProvider;
+import com.antheminc.oss.nimbus.domain.session.SnapshotQuadModelSessionStore;
 import com.antheminc.oss.nimbus.support.expr.ExpressionEvaluator;
+import com.antheminc.oss.nimbus.support.metrics.MetricsRegistry;
 import com.antheminc.oss.nimbus.support.expr.SpelExpressionEvaluator;
 
 /**
@@ -54,9 +67,18 @@ import com.antheminc.oss.nimbus.support.expr.SpelExpressionEvaluator;
 @Configuration
 public class DefaultCoreExecutorConfig {
 	
+	@Value("${expression.spel.compilerMode:OFF}")
+	private SpelCompilerMode spelCompilerMode;
+	
+	@Value("${expression.spel.cacheMaxSize:"+SpelExpressionEvaluator.DEFAULT_MAX_CACHE_SIZE+"}")
+	private int spelCacheMaxSize;
+	
+	@Value("${expression.spel.cacheTtlMillis:"+SpelExpressionEvaluator.DEFAULT_CACHE_TTL_MILLIS+"}")
+	private long spelCacheTtlMillis;
+	
 	@Bean
 	public ExpressionEvaluator expressionEvaluator() {
-		return new SpelExpressionEvaluator();
+		return new SpelExpressionEvaluator(spelCompilerMode, spelCacheMaxSize, spelCacheTtlMillis);
 	}
 	
 	@Bean
@@ -85,6 +107,15 @@ public class DefaultCoreExecutorConfig {
 		return new DefaultExecutionContextLoader(beanResolver);
 	}
 	
+	@Bean(name="default.QuadModelSessionStore")
+	public QuadModelSessionStore defaultQuadModelSessionStore(@Value("${session.store.type:session}") String storeType, BeanResolverStrategy beanResolver) {
+		SessionProvider sessionProvider = beanResolver.get(SessionProvider.class);
+		if(StringUtils.equalsIgnoreCase("snapshot", storeType))
+			return new SnapshotQuadModelSessionStore(sessionProvider, beanResolver.get(QuadModelBuilder.class), beanResolver.get(MetricsRegistry.class));
+		
+		return new SessionAttributeQuadModelStore(sessionProvider);
+	}
+	
 	@Bean(name="default._new$execute")
 	public CommandExecutor<?> defaultActionExecutorNew(BeanResolverStrategy beanResolver){
 		return new DefaultActionExecutorNew(beanResolver);
@@ -141,6 +172,21 @@ public class DefaultCoreExecutorConfig {
 	}
 	
 	
+	@Bean(destroyMethod="shutdown")
+	public CrossDomainCommandExecutor crossDomainCommandExecutor() {
+		return new CrossDomainCommandExecutor();
+	}
+	
+	@Bean
+	public RootExecutionGuard rootExecutionGuard() {
+		return new RootExecutionGuard();
+	}
+	
+	@Bean
+	public CommandDispatchTable commandDispatchTable(BeanResolverStrategy beanResolver) {
+		return new CommandDispatchTable(beanResolver);
+	}
+	
 	@Bean(name="default.processGateway")
 	public DefaultCommandExecutorGateway defaultProcessGateway(BeanResolverStrategy beanResolver){
 		return new DefaultCommandExecutorGateway(beanResolver);
@@ -151,6 +197,11 @@ public class DefaultCoreExecutorConfig {
 		return new MongoSearchByExample(beanResolver);
 	}
 	
+	@Bean
+	public QuerydslCriteriaCompiler querydslCriteriaCompiler() {
+		return new QuerydslCriteriaCompiler();
+	}
+	
 	@Bean(name="searchByQuery")
 	public DBSearch searchByQuery(BeanResolverStrategy beanResolver) {
 		return new MongoSearchByQuery(beanResolver);
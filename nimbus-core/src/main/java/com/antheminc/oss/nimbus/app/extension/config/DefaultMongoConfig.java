@@ -47,8 +47,8 @@ public class DefaultMongoConfig {
 	}
 	
 	@Bean(name="default.rep_mongodb_handler")
-	public DefaultMongoModelPersistenceHandler defaultMongoModelPersistenceHandler(@Qualifier("default.rep_mongodb") ModelRepository rep){
-		return new DefaultMongoModelPersistenceHandler(rep);
+	public DefaultMongoModelPersistenceHandler defaultMongoModelPersistenceHandler(@Qualifier("default.rep_mongodb") ModelRepository rep, BeanResolverStrategy beanResolver){
+		return new DefaultMongoModelPersistenceHandler(rep, beanResolver);
 	}
 	
 	@Bean(name="default.rep_mongodb")
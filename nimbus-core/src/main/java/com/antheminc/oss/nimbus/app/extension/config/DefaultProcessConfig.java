@@ -38,8 +38,7 @@ import com.antheminc.oss.nimbus.domain.cmd.exec.internal.process.UpdateFunctionH
 import com.antheminc.oss.nimbus.domain.cmd.exec.internal.search.DefaultSearchFunctionHandlerExample;
 import com.antheminc.oss.nimbus.domain.cmd.exec.internal.search.DefaultSearchFunctionHandlerLookup;
 import com.antheminc.oss.nimbus.domain.cmd.exec.internal.search.DefaultSearchFunctionHandlerQuery;
-import com.antheminc.oss.nimbus.support.expr.ExpressionEvaluator;
-import com.antheminc.oss.nimbus.support.expr.SpelExpressionEvaluator;
+import com.antheminc.oss.nimbus.domain.cmd.exec.internal.search.StaticCodeValueCache;
 
 /**
  * @author Sandeep Mantha
@@ -50,6 +49,12 @@ public class DefaultProcessConfig {
 	
 	@Value("${process.supportStatefulProcesses:#{true}}")
 	private Boolean supportStatefulProcesses;	
+	
+	@Value("${process.activeTaskCache.ttlMillis:0}")
+	private long activeTaskCacheTtlMillis;
+	
+	@Value("${process.activeTaskCache.maxEntries:10000}")
+	private int activeTaskCacheMaxEntries;
 		
 	@Bean
 	public ActivitiExpressionManager activitiExpressionManager(){
@@ -58,7 +63,7 @@ public class DefaultProcessConfig {
 	
 	@Bean
 	public BPMGateway bpmGateway(BeanResolverStrategy beanResolver){
-		return new ActivitiBPMGateway(beanResolver,supportStatefulProcesses);
+		return new ActivitiBPMGateway(beanResolver,supportStatefulProcesses,activeTaskCacheTtlMillis,activeTaskCacheMaxEntries);
 	}		
 	
 	@Bean(name="default._new$execute?fn=_initEntity")
@@ -101,11 +106,6 @@ public class DefaultProcessConfig {
 		return new StatelessBPMFunctionHanlder<>(beanResolver);
 	}	
 	
-	@Bean(name="expressionEvaluator")
-	public ExpressionEvaluator expressionEvaluator(BeanResolverStrategy beanResolver){
-		return new SpelExpressionEvaluator();
-	}	
-	
 	@Bean(name="commandExecutorTaskDelegate")
 	public CommandExecutorTaskDelegate commandExecutorTaskDelegate(BeanResolverStrategy beanResolver){
 		return new CommandExecutorTaskDelegate(beanResolver);
@@ -116,6 +116,11 @@ public class DefaultProcessConfig {
 		return new DefaultSearchFunctionHandlerLookup<>();
 	}
 	
+	@Bean(name="default.staticCodeValueCache")
+	public StaticCodeValueCache staticCodeValueCache(BeanResolverStrategy beanResolver){
+		return new StaticCodeValueCache(beanResolver);
+	}
+	
 	@Bean(name="default._search$execute?fn=example")
 	public FunctionHandler<?, ?> exampleFunctionHandler(){
 		return new DefaultSearchFunctionHandlerExample<>();
@@ -22,7 +22,10 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.servlet.http.HttpSessionListener;
+
 import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.boot.web.servlet.ServletListenerRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
@@ -32,6 +35,8 @@ import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
 import com.antheminc.oss.nimbus.channel.web.WebSessionIdLoggerInterceptor;
+import com.antheminc.oss.nimbus.channel.web.WebSessionStoreEvictionListener;
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
 import com.antheminc.oss.nimbus.support.json.CustomDateDeserializer;
 import com.antheminc.oss.nimbus.support.json.CustomDateSerializer;
 import com.antheminc.oss.nimbus.support.json.CustomLocalDateDeserializer;
@@ -87,6 +92,11 @@ public class WebConfig extends WebMvcConfigurerAdapter {
 		registry.addInterceptor(new WebSessionIdLoggerInterceptor());
 	}
 	
+	@Bean
+	public ServletListenerRegistrationBean<HttpSessionListener> webSessionStoreEvictionListener(BeanResolverStrategy beanResolver) {
+		return new ServletListenerRegistrationBean<>(new WebSessionStoreEvictionListener(beanResolver));
+	}
+	
 	/**
 	 * 
 	 * Adds Custom LocalDate serializer and deserializer during spring bean initialization
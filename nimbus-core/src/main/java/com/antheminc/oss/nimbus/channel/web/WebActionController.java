@@ -15,9 +15,12 @@
  */
 package com.antheminc.oss.nimbus.channel.web;
 
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -32,15 +35,19 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.antheminc.oss.nimbus.domain.cmd.Action;
+import com.antheminc.oss.nimbus.domain.cmd.Behavior;
 import com.antheminc.oss.nimbus.domain.cmd.Command;
 import com.antheminc.oss.nimbus.domain.cmd.CommandBuilder;
+import com.antheminc.oss.nimbus.domain.cmd.CommandMessage;
 import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecution.MultiOutput;
 import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecution.Output;
+import com.antheminc.oss.nimbus.domain.cmd.exec.ExecutionContext;
 import com.antheminc.oss.nimbus.domain.cmd.exec.ExecutionContextLoader;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
 import com.antheminc.oss.nimbus.domain.model.state.ModelEvent;
 import com.antheminc.oss.nimbus.support.Holder;
 import com.antheminc.oss.nimbus.support.LoggingLevelService;
+import com.antheminc.oss.nimbus.support.metrics.MetricsRegistry;
 
 /**
  * STEPS to follow with examples. <br>
@@ -104,6 +111,8 @@ public class WebActionController {
 	
 	@Autowired ExecutionContextLoader ctxLoader;
 	
+	@Autowired MetricsRegistry metricsRegistry;
+	
 	@RequestMapping(value=URI_PATTERN_P+"/clear", produces="application/json", method=RequestMethod.GET)
 	public void clear() {
 		ctxLoader.clear();
@@ -121,6 +130,21 @@ public class WebActionController {
 		return LoggingLevelService.setLoggingLevel(level, packageName);
 	}
 	
+	/**
+	 * Usage Example: /client/org/p/metrics
+	 * 
+	 * @return latency timers (ms) and counters collected since startup or last reset
+	 */
+	@RequestMapping(value=URI_PATTERN_P+"/metrics", produces="application/json", method=RequestMethod.GET)
+	public Output<Map<String, Object>> metrics() {
+		String uri = URI_PATTERN_P+"/metrics";
+		Command cmd = CommandBuilder.withUri(uri).getCommand();
+		
+		Output<Map<String, Object>> output = new Output<>(uri, new ExecutionContext(cmd), Action._get, Behavior.$execute);
+		output.setValue(metricsRegistry.snapshot());
+		return output;
+	}
+	
 	@RequestMapping(value=URI_PATTERN_P_OPEN, produces="application/json", method=RequestMethod.GET)
 	public Object handleGet(HttpServletRequest req, @RequestParam(required=false) String a) {
 		return handleInternal(req, RequestMethod.GET, null, a);
@@ -154,27 +178,55 @@ public class WebActionController {
 		return output;
 	}
 	
+	/**
+	 * Usage Example: /client/org/p/event/notify/batch with an ordered array of events on the same domain root, 
+	 * which are executed within a single root command returning one merged output.
+	 */
+	@RequestMapping(value=URI_PATTERN_P+"/event/notify/batch", produces="application/json", method=RequestMethod.POST)
+	public Object handleEventNotifyBatch(HttpServletRequest req, @RequestBody List<ModelEvent<String>> events) {
+		List<CommandMessage> cmdMsgs = dispatcher.build(req, events);
+		MultiOutput mOut = dispatcher.handleBatch(cmdMsgs);
+		
+		Set<String> inputParamPaths = cmdMsgs.stream()
+				.map(cmdMsg->cmdMsg.getCommand().getAbsoluteDomainAlias())
+				.collect(Collectors.toSet());
+		filterInputParamFromOutput(mOut, inputParamPaths);
+		
+		Holder<Object> output = new Holder<>(mOut);
+		return output;
+	}
+	
 	private void filterInputParamFromOutput(Object obj) {
 		if(obj instanceof MultiOutput) {
 			MultiOutput multiOp = (MultiOutput) obj;
-			List<Output<?>> outputs = multiOp.getOutputs();
-			if(CollectionUtils.isEmpty(outputs))
-				return;
-			
-			Command cmd = CommandBuilder.withUri(multiOp.getInputCommandUri()).getCommand();
-			String inputParamPath = cmd.getAbsoluteDomainAlias();
-			
-			outputs.removeIf(o -> isRemove(inputParamPath, o));
+			filterInputParamFromOutput(multiOp, Collections.singleton(findInputParamPath(multiOp)));
 		}
 	}
+	
+	private void filterInputParamFromOutput(MultiOutput multiOp, Set<String> inputParamPaths) {
+		List<Output<?>> outputs = multiOp.getOutputs();
+		if(CollectionUtils.isEmpty(outputs))
+			return;
+		
+		outputs.removeIf(o -> isRemove(inputParamPaths, o));
+	}
+	
+	private String findInputParamPath(MultiOutput multiOp) {
+		// command executed is held by the context, parse input uri only when not available
+		Command cmd = multiOp.getContext() != null && multiOp.getContext().getCommandMessage() != null
+				? multiOp.getContext().getCommandMessage().getCommand()
+				: CommandBuilder.withUri(multiOp.getInputCommandUri()).getCommand();
+		
+		return cmd.getAbsoluteDomainAlias();
+	}
 
-	private boolean isRemove(String inputParamPath, Output<?> o) {
+	private boolean isRemove(Set<String> inputParamPaths, Output<?> o) {
 		if(o instanceof MultiOutput) {
 			filterInputParamFromOutput(o);
 		}
 		else if(o.getValue() instanceof Param) {
 			Param<?> param = (Param<?>) o.getValue();
-			if(inputParamPath.equals(param.getPath()) && notifyActionsToMatch.contains(o.getAction())) {
+			if(inputParamPaths.contains(param.getPath()) && notifyActionsToMatch.contains(o.getAction())) {
 				
 				if(param.hasContextStateChanged())
 					return false;
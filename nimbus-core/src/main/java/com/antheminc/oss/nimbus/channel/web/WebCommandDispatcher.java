@@ -18,10 +18,14 @@
  */
 package com.antheminc.oss.nimbus.channel.web;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 import javax.servlet.http.HttpServletRequest;
 
 import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
 import com.antheminc.oss.nimbus.domain.cmd.Command;
+import com.antheminc.oss.nimbus.domain.cmd.CommandMessage;
 import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecution.MultiOutput;
 import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecutorGateway;
 import com.antheminc.oss.nimbus.domain.model.state.ModelEvent;
@@ -59,5 +63,15 @@ public class WebCommandDispatcher {
 	public MultiOutput handle(Command cmd, String payload) {
 		return getGateway().execute(cmd, payload);
 	}
+	
+	public List<CommandMessage> build(HttpServletRequest httpReq, List<ModelEvent<String>> events) {
+		return events.stream()
+				.map(event->new CommandMessage(getBuilder().build(httpReq, event), event.getPayload()))
+				.collect(Collectors.toList());
+	}
+	
+	public MultiOutput handleBatch(List<CommandMessage> cmdMsgs) {
+		return getGateway().executeBatch(cmdMsgs);
+	}
 
 }
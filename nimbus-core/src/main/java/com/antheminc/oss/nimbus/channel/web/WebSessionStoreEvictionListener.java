@@ -0,0 +1,47 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.channel.web;
+
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
+import com.antheminc.oss.nimbus.domain.session.QuadModelSessionStore;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Evicts the quad models held by the {@link QuadModelSessionStore} for an http session once it is destroyed, e.g. on expiry. 
+ * The store is resolved on first use, so that registering this listener with the servlet context doesn't initialize it early.
+ */
+@RequiredArgsConstructor
+public class WebSessionStoreEvictionListener implements HttpSessionListener {
+
+	private final BeanResolverStrategy beanResolver;
+	
+	private QuadModelSessionStore sessionStore;
+	
+	@Override
+	public void sessionCreated(HttpSessionEvent se) {}
+
+	@Override
+	public void sessionDestroyed(HttpSessionEvent se) {
+		if(sessionStore == null)
+			sessionStore = beanResolver.get(QuadModelSessionStore.class);
+		
+		sessionStore.evictSession(se.getSession().getId());
+	}
+}
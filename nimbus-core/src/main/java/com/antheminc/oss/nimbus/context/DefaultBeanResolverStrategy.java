@@ -15,11 +15,22 @@
  */
 package com.antheminc.oss.nimbus.context;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationContextEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.env.Environment;
 
@@ -29,27 +40,125 @@ import com.antheminc.oss.nimbus.domain.defn.Constants;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.Value;
 
 /**
  * This class acts as BeanResolver for all the beans within the framework. 
  * BeanResolverStrategy should be used for resolving dependent beans within the framework instead of directly 
  * autowiring beans.
- * 
+ * <br>
+ * Resolved bean names are cached by (type, generics, qualifier), instances are still obtained from the context so that 
+ * non-singleton scopes are honored. Lookups made before the context is refreshed aren't cached, but are resolved again 
+ * once it is, warming the cache. The cache is cleared on context close and whenever the bean prefix changes.
  * 
  * @author Soham Chakravarti
  *
  */
 @Getter(value=AccessLevel.PROTECTED) @Setter 
-public class DefaultBeanResolverStrategy implements BeanResolverStrategy {
+public class DefaultBeanResolverStrategy implements BeanResolverStrategy, ApplicationListener<ApplicationContextEvent> {
 
+	private static final String[] NO_NAMES = new String[0];
+	
 	private String beanPrefix = Constants.PREFIX_DEFAULT.code;
 	
 	private final ApplicationContext applicationContext;
 	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final ConcurrentMap<ResolutionKey, String[]> resolvedBeanNames = new ConcurrentHashMap<>();
+	
+	/**
+	 * lookups made before the context was refreshed, resolved again on refresh
+	 */
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final Set<ResolutionKey> pendingWarmup = ConcurrentHashMap.newKeySet();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private volatile boolean cacheEnabled;
+	
+	@Value
+	static class ResolutionKey {
+		Class<?> type;
+		List<Class<?>> generics;
+		String qualifier;
+		
+		static ResolutionKey of(Class<?> type) {
+			return new ResolutionKey(type, Collections.emptyList(), null);
+		}
+		
+		static ResolutionKey of(Class<?> type, String qualifier) {
+			// qualifier is appended to the prefix as is, null included
+			return new ResolutionKey(type, Collections.emptyList(), String.valueOf(qualifier));
+		}
+		
+		static ResolutionKey of(Class<?> type, Class<?>...generics) {
+			return new ResolutionKey(type, Arrays.asList(generics), null);
+		}
+	}
+	
 	public DefaultBeanResolverStrategy(ApplicationContext applicationContext) {
 		this.applicationContext = applicationContext;
 	}
 	
+	public void setBeanPrefix(String beanPrefix) {
+		this.beanPrefix = beanPrefix;
+		resolvedBeanNames.clear();
+	}
+	
+	@Override
+	public void onApplicationEvent(ApplicationContextEvent event) {
+		if(event.getApplicationContext() != getApplicationContext())
+			return;
+		
+		if(event instanceof ContextRefreshedEvent) {
+			resolvedBeanNames.clear();
+			cacheEnabled = true;
+			
+			pendingWarmup.forEach(k->resolvedBeanNames.computeIfAbsent(k, this::resolveBeanNames));
+			pendingWarmup.clear();
+			
+		} else if(event instanceof ContextClosedEvent) {
+			cacheEnabled = false;
+			resolvedBeanNames.clear();
+		}
+	}
+	
+	private String[] lookupBeanNames(ResolutionKey key) {
+		if(cacheEnabled)
+			return resolvedBeanNames.computeIfAbsent(key, this::resolveBeanNames);
+		
+		pendingWarmup.add(key);
+		return resolveBeanNames(key);
+	}
+	
+	private String[] resolveBeanNames(ResolutionKey key) {
+		if(key.getQualifier() != null)
+			return Optional.ofNullable(resolveQualifiedBeanName(key.getQualifier())).map(nm->new String[] {nm}).orElse(NO_NAMES);
+		
+		if(key.getGenerics().isEmpty())
+			return getApplicationContext().getBeanNamesForType(key.getType());
+		
+		return getApplicationContext().getBeanNamesForType(ResolvableType.forClassWithGenerics(key.getType(), key.getGenerics().toArray(new Class<?>[0])));
+	}
+	
+	private String resolveQualifiedBeanName(String qualifier) {
+		// 1: find using configured prefix
+		String bNm = resolveBeanName(qualifier);
+		if(getApplicationContext().containsBean(bNm)) 
+			return bNm;
+		
+		// 2: check if prefix was overridden
+		if(Constants.PREFIX_DEFAULT.code.equals(getBeanPrefix()))
+			return null;
+		
+		// 3. find using initial default when bean not found using overridden prefix
+		String defaultBeanNm = defaultBeanName(qualifier);
+		return getApplicationContext().containsBean(defaultBeanNm) ? defaultBeanNm : null;
+	}
+	
+	private <T> T getBean(String[] bNmArr, Class<T> type, Function<String[], T> orElse) {
+		return bNmArr.length == 1 ? getApplicationContext().getBean(bNmArr[0], type) : orElse.apply(bNmArr);
+	}
+	
 	@Override
 	public Environment getEnvironment() {
 		return this.getApplicationContext().getEnvironment();
@@ -70,14 +179,11 @@ public class DefaultBeanResolverStrategy implements BeanResolverStrategy {
 	
 	@Override
 	public <T> T find(Class<T> type) {
-		String bNmArr[] = getApplicationContext().getBeanNamesForType(type);
+		String bNmArr[] = lookupBeanNames(ResolutionKey.of(type));
 		
 		// 1st: consider single bean declared with or without qualifier of given type
-		if(ArrayUtils.isNotEmpty(bNmArr) && bNmArr.length==1)
-			return getApplicationContext().getBean(bNmArr[0], type);
-		
 		// 2nd: if no bean OR multiple beans found by type, then use type's name as qualifier
-		return find(type, type.getSimpleName());
+		return getBean(bNmArr, type, nms->find(type, type.getSimpleName()));
 	}
 
 	@Override
@@ -91,18 +197,7 @@ public class DefaultBeanResolverStrategy implements BeanResolverStrategy {
 
 	@Override
 	public <T> T find(Class<T> type, String qualifier) {
-		// 1: find using configured prefix
-		String bNm = resolveBeanName(qualifier);
-		if(getApplicationContext().containsBean(bNm)) 
-			return getApplicationContext().getBean(bNm, type);
-		
-		// 2: check if prefix was overridden
-		if(Constants.PREFIX_DEFAULT.code.equals(getBeanPrefix()))
-			return null;
-		
-		// 3. find using initial default when bean not found using overridden prefix
-		String defaultBeanNm = defaultBeanName(qualifier);
-		return getApplicationContext().containsBean(defaultBeanNm) ? getApplicationContext().getBean(defaultBeanNm, type) : null;
+		return getBean(lookupBeanNames(ResolutionKey.of(type, qualifier)), type, nms->null);
 	}
 
 	@Override
@@ -116,13 +211,11 @@ public class DefaultBeanResolverStrategy implements BeanResolverStrategy {
 	
 	@Override
 	public <T> T find(Class<T> type, Class<?>...generics) {
-		String beanNames[] = getApplicationContext().getBeanNamesForType(ResolvableType.forClassWithGenerics(type, generics));
-		if(ArrayUtils.getLength(beanNames)!=1)
-			throw new InvalidConfigException("Only one bean expected for type+generic lookup, but found: "+beanNames.length
+		String beanNames[] = lookupBeanNames(ResolutionKey.of(type, generics));
+		return getBean(beanNames, type, nms->{
+			throw new InvalidConfigException("Only one bean expected for type+generic lookup, but found: "+nms.length
 					+" for type: "+type+" and generics: "+ArrayUtils.toString(generics));
-		
-		T bean = getApplicationContext().getBean(beanNames[0], type);
-		return bean;
+		});
 	}
 	
 	@Override
@@ -133,7 +226,7 @@ public class DefaultBeanResolverStrategy implements BeanResolverStrategy {
 	
 	@Override
 	public <T> Collection<T> findMultiple(Class<T> type) {
-		String bNmArr[] = getApplicationContext().getBeanNamesForType(type);
+		String bNmArr[] = lookupBeanNames(ResolutionKey.of(type));
 		
 		if(ArrayUtils.isNotEmpty(bNmArr))
 			return getApplicationContext().getBeansOfType(type).values();
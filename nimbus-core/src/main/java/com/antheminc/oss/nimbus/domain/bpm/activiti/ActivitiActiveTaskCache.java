@@ -0,0 +1,166 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.bpm.activiti;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.activiti.engine.TaskService;
+import org.activiti.engine.delegate.event.ActivitiEntityEvent;
+import org.activiti.engine.delegate.event.ActivitiEvent;
+import org.activiti.engine.delegate.event.ActivitiEventListener;
+import org.activiti.engine.delegate.event.ActivitiEventType;
+import org.activiti.engine.impl.cfg.TransactionContext;
+import org.activiti.engine.impl.cfg.TransactionState;
+import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.task.Task;
+
+import com.antheminc.oss.nimbus.support.pojo.TtlCache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Caches the active tasks of each process instance, so that continuing a process on ordinary state changes does not 
+ * query the task tables. <br>
+ * 
+ * Entries are invalidated on Activiti task and process events for their process instance, once when the event is 
+ * dispatched and again when the engine transaction dispatching it commits, so that a concurrent query which read the 
+ * tasks from before the commit isn't left cached. <br>
+ * 
+ * Those events are only dispatched by the engine of this JVM, tasks changed through another node are therefore only 
+ * picked up once the entry expires, {@code ttlMillis} after being loaded. Caching is off with a {@code ttlMillis} of 0 
+ * or less, it should only be turned on for single node deployments or where active tasks may be stale for that long. 
+ * Beyond {@code maxEntries} process instances, the least recently used entries are evicted.
+ */
+public class ActivitiActiveTaskCache implements ActivitiEventListener {
+
+	public static final ActivitiEventType[] INVALIDATING_EVENTS = {
+			ActivitiEventType.TASK_CREATED, 
+			ActivitiEventType.TASK_COMPLETED, 
+			ActivitiEventType.ENTITY_DELETED,
+			ActivitiEventType.PROCESS_COMPLETED,
+			ActivitiEventType.PROCESS_CANCELLED
+	};
+	
+	@Getter @RequiredArgsConstructor
+	public static class ActiveTask {
+		private final String id;
+		private final String definitionKey;
+	}
+	
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	
+	private final TaskService taskService;
+	
+	private final TtlCache<String, List<ActiveTask>> tasksByProcessInstance;
+	
+	/* bumped on every invalidation: a query racing with one isn't cached */
+	private long invalidations;
+	
+	public ActivitiActiveTaskCache(TaskService taskService, long ttlMillis) {
+		this(taskService, ttlMillis, DEFAULT_MAX_ENTRIES);
+	}
+	
+	public ActivitiActiveTaskCache(TaskService taskService, long ttlMillis, int maxEntries) {
+		this(taskService, ttlMillis, maxEntries, System::currentTimeMillis);
+	}
+	
+	public ActivitiActiveTaskCache(TaskService taskService, long ttlMillis, int maxEntries, LongSupplier clock) {
+		this.taskService = taskService;
+		this.tasksByProcessInstance = new TtlCache<>(ttlMillis, maxEntries, clock);
+	}
+	
+	public boolean isEnabled() {
+		return tasksByProcessInstance.isEnabled();
+	}
+	
+	public List<ActiveTask> get(String processInstanceId) {
+		List<ActiveTask> tasks = tasksByProcessInstance.get(processInstanceId);
+		if(tasks != null)
+			return tasks;
+		
+		final long invalidationsBefore = currentInvalidations();
+		
+		List<Task> fromDB = taskService.createTaskQuery().processInstanceId(processInstanceId).list();
+		List<ActiveTask> loaded = new ArrayList<>();
+		if(fromDB != null)
+			fromDB.forEach(t->loaded.add(new ActiveTask(t.getId(), t.getTaskDefinitionKey())));
+		
+		tasks = Collections.unmodifiableList(loaded);
+		putIfNotInvalidated(processInstanceId, tasks, invalidationsBefore);
+		return tasks;
+	}
+	
+	private synchronized long currentInvalidations() {
+		return invalidations;
+	}
+	
+	private synchronized void putIfNotInvalidated(String processInstanceId, List<ActiveTask> tasks, long invalidationsBefore) {
+		if(invalidations == invalidationsBefore)
+			tasksByProcessInstance.put(processInstanceId, tasks);
+	}
+	
+	public List<String> getDefinitionKeys(String processInstanceId) {
+		List<String> keys = new ArrayList<>();
+		get(processInstanceId).forEach(t->keys.add(t.getDefinitionKey()));
+		return keys;
+	}
+	
+	public synchronized void invalidate(String processInstanceId) {
+		invalidations++;
+		if(processInstanceId != null)
+			tasksByProcessInstance.invalidate(processInstanceId);
+	}
+	
+	public synchronized void clear() {
+		invalidations++;
+		tasksByProcessInstance.invalidateAll();
+	}
+	
+	@Override
+	public void onEvent(ActivitiEvent event) {
+		if(event.getType() == ActivitiEventType.ENTITY_DELETED 
+				&& !(((ActivitiEntityEvent)event).getEntity() instanceof Task))
+			return;
+		
+		final String processInstanceId = event.getProcessInstanceId();
+		invalidate(processInstanceId);
+		
+		TransactionContext txnCtx = Context.getTransactionContext();
+		if(txnCtx != null)
+			txnCtx.addTransactionListener(TransactionState.COMMITTED, commandContext->invalidate(processInstanceId));
+	}
+	
+	@Override
+	public boolean isFailOnException() {
+		return false;
+	}
+	
+	public int size() {
+		return tasksByProcessInstance.size();
+	}
+	
+	public long getHitCount() {
+		return tasksByProcessInstance.getHitCount();
+	}
+	
+	public long getMissCount() {
+		return tasksByProcessInstance.getMissCount();
+	}
+}
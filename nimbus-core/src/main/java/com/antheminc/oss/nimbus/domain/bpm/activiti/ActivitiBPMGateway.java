@@ -15,11 +15,12 @@
  */
 package com.antheminc.oss.nimbus.domain.bpm.activiti;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.activiti.bpmn.model.ExtensionElement;
 import org.activiti.bpmn.model.UserTask;
@@ -29,7 +30,6 @@ import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.CommandExecutor;
 import org.activiti.engine.impl.persistence.deploy.DeploymentManager;
 import org.activiti.engine.runtime.ProcessInstance;
-import org.activiti.engine.task.Task;
 import org.activiti.spring.SpringProcessEngineConfiguration;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -39,13 +39,21 @@ import com.antheminc.oss.nimbus.app.extension.config.ActivitiProcessDefinitionCa
 import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
 import com.antheminc.oss.nimbus.domain.bpm.BPMGateway;
 import com.antheminc.oss.nimbus.domain.bpm.ProcessEngineContext;
+import com.antheminc.oss.nimbus.domain.bpm.activiti.ActivitiActiveTaskCache.ActiveTask;
+import com.antheminc.oss.nimbus.domain.cmd.Command;
 import com.antheminc.oss.nimbus.domain.cmd.CommandElement.Type;
 import com.antheminc.oss.nimbus.domain.cmd.exec.ProcessResponse;
 import com.antheminc.oss.nimbus.domain.config.builder.DomainConfigBuilder;
 import com.antheminc.oss.nimbus.domain.defn.Constants;
 import com.antheminc.oss.nimbus.domain.defn.Repo;
 import com.antheminc.oss.nimbus.domain.model.config.ModelConfig;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.ExecutionModel;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.ExecutionRuntime;
+import com.antheminc.oss.nimbus.domain.model.state.ExecutionTxnContext;
+import com.antheminc.oss.nimbus.domain.model.state.ParamEvent;
+import com.antheminc.oss.nimbus.domain.model.state.StateEventListener;
+import com.antheminc.oss.nimbus.domain.model.state.internal.BaseStateEventListener;
 import com.antheminc.oss.nimbus.domain.model.state.internal.ExecutionEntity;
 import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepositoryFactory;
 import com.antheminc.oss.nimbus.entity.process.ProcessFlow;
@@ -53,9 +61,15 @@ import com.antheminc.oss.nimbus.support.EnableLoggingInterceptor;
 import com.antheminc.oss.nimbus.support.JustLogit;
 import com.antheminc.oss.nimbus.support.expr.ExpressionEvaluator;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 /**
+ * Active tasks of process instances can be cached in {@link ActivitiActiveTaskCache} (off unless a ttl is configured) and exit conditions are resolved once 
+ * per task definition, so that continuing a process on ordinary state changes only evaluates the (parsed and cached) 
+ * exit condition expressions of active tasks. Process state updates are coalesced into a single repository update per 
+ * process instance when the transaction stops.
+ * 
  * @author Jayant Chaudhuri
  *
  */
@@ -72,15 +86,64 @@ public class ActivitiBPMGateway implements BPMGateway {
 	private Boolean supportStatefulProcesses;
 	private ModelRepositoryFactory repositoryFactory;
 	private DomainConfigBuilder domainConfigBuilder;
+	private ActivitiActiveTaskCache activeTaskCache;
+	
+	/* exit condition per process definition id & task key, null when the task always completes */
+	@Getter(AccessLevel.NONE)
+	private final Map<String, Optional<String>> exitConditions = new ConcurrentHashMap<>();
+	
+	@Getter(AccessLevel.NONE)
+	private final StateEventListener txnFlusher = new BaseStateEventListener() {
+		
+		@Override
+		public void onStopTxn(ExecutionTxnContext txnCtx, Map<ExecutionModel<?>, List<ParamEvent>> aggregatedEvents) {
+			flushProcessStates();
+		}
+		
+		@Override
+		public void onStopRootCommandExecution(Command cmd, Map<ExecutionModel<?>, List<ParamEvent>> aggregatedEvents) {
+			flushProcessStates();
+			
+			// txn scoped listeners are cleared by the delegator right after this callback
+			pendingInThread.get().registered = false;
+		}
+	};
+	
+	private static class PendingProcessState {
+		private final Param<?> param;
+		private final List<String> activeTasks;
+		
+		PendingProcessState(Param<?> param, List<String> activeTasks) {
+			this.param = param;
+			this.activeTasks = activeTasks;
+		}
+	}
+	
+	private static class PendingProcessStates {
+		private boolean registered;
+		private Map<String, PendingProcessState> byProcessExecutionId = new LinkedHashMap<>();
+	}
+	
+	@Getter(AccessLevel.NONE)
+	private final ThreadLocal<PendingProcessStates> pendingInThread = ThreadLocal.withInitial(PendingProcessStates::new);
 	
 	public ActivitiBPMGateway (BeanResolverStrategy beanResolver,Boolean supportStatefulProcesses) {
+		this(beanResolver, supportStatefulProcesses, 0, ActivitiActiveTaskCache.DEFAULT_MAX_ENTRIES);
+	}
+	
+	public ActivitiBPMGateway (BeanResolverStrategy beanResolver,Boolean supportStatefulProcesses, long activeTaskCacheTtlMillis, int activeTaskCacheMaxEntries) {
 		this.expressionEvaluator = beanResolver.find(ExpressionEvaluator.class);
 		this.runtimeService = beanResolver.find(RuntimeService.class);
 		this.taskService = beanResolver.find(TaskService.class);
 		this.processEngineConfiguration = beanResolver.find(SpringProcessEngineConfiguration.class);
 		this.supportStatefulProcesses = supportStatefulProcesses;
 		this.repositoryFactory = beanResolver.find(ModelRepositoryFactory.class);
-		this.domainConfigBuilder = beanResolver.find(DomainConfigBuilder.class);	}
+		this.domainConfigBuilder = beanResolver.find(DomainConfigBuilder.class);
+		
+		this.activeTaskCache = new ActivitiActiveTaskCache(this.taskService, activeTaskCacheTtlMillis, activeTaskCacheMaxEntries);
+		if(this.runtimeService != null && this.activeTaskCache.isEnabled())
+			this.runtimeService.addEventListener(this.activeTaskCache, ActivitiActiveTaskCache.INVALIDATING_EVENTS);
+	}
 	
 	@Override
 	public ActivitiProcessFlow startBusinessProcess(Param<?> param, String processId) {
@@ -90,14 +153,7 @@ public class ActivitiBPMGateway implements BPMGateway {
 		ActivitiProcessFlow processFlow = new ActivitiProcessFlow();
 		processFlow.setProcessExecutionId(processResponse.getExecutionId());
 		processFlow.setProcessDefinitionId(processResponse.getDefinitionId());
-		List<String> activeTasks = new ArrayList<String>();
-		List<Task> pendingTasks = getTaskService().createTaskQuery().processInstanceId(processResponse.getExecutionId()).list();
-		if(pendingTasks != null) {
-			for(Task task: pendingTasks) {
-				activeTasks.add(task.getTaskDefinitionKey());
-			}
-		}
-		processFlow.setActiveTasks(activeTasks);
+		processFlow.setActiveTasks(getActiveTaskCache().getDefinitionKeys(processResponse.getExecutionId()));
 		return processFlow;
 	}
 	
@@ -128,23 +184,42 @@ public class ActivitiBPMGateway implements BPMGateway {
 	}
 	
 	private void evaulateAndExecuteTask(Param<?> param, String processExecutionId, String task) {
-		DeploymentManager deploymentManager = getProcessEngineConfiguration().getDeploymentManager();
 		ActivitiProcessFlow processFlow = (ActivitiProcessFlow)((ExecutionEntity<?,?>)param.getRootExecution().getState()).getFlow();
+		String taskExitCondition = getTaskExitCondition(param, processExecutionId, processFlow.getProcessDefinitionId(), task);
+		if(canComplete(param,taskExitCondition))
+			executeTask(param,processExecutionId,task);
+	}
+	
+	private String getTaskExitCondition(Param<?> param, String processExecutionId, String processDefinitionId, String task) {
+		// process definitions are immutable per id, new versions get a new id
+		final String key = processDefinitionId + "#" + task;
+		Optional<String> exitCondition = exitConditions.get(key);
+		if(exitCondition == null) {
+			exitCondition = Optional.ofNullable(resolveTaskExitCondition(param, processExecutionId, processDefinitionId, task));
+			exitConditions.put(key, exitCondition);
+		}
+		return exitCondition.orElse(null);
+	}
+	
+	private String resolveTaskExitCondition(Param<?> param, String processExecutionId, String processDefinitionId, String task) {
+		DeploymentManager deploymentManager = getProcessEngineConfiguration().getDeploymentManager();
 		ActivitiProcessDefinitionCache cache = (ActivitiProcessDefinitionCache)deploymentManager.getProcessDefinitionCache();
-		refreshProcessDefinitionCacheIfApplicable(processFlow.getProcessDefinitionId(), cache, param);
+		refreshProcessDefinitionCacheIfApplicable(processDefinitionId, cache, param);
 		if(cache.size() == 0) {
 			logit.error(() -> "Could not get ProcessDefinitionCache from either processEngineConfiguration or db query findDeployedLatestProcessDefinitionByKey (which should refresh the cache) while executing param "
 							+ param + " and process Execution Id: " + processExecutionId);
 		}
 		
-		UserTask userTask = (UserTask)cache.findByKey(getProcessKeyFromDefinitionId(processFlow.getProcessDefinitionId(), param)).getProcess().getFlowElementMap().get(task);
-		if(canComplete(param,userTask))
-			executeTask(param,processExecutionId,task);
+		UserTask userTask = (UserTask)cache.findByKey(getProcessKeyFromDefinitionId(processDefinitionId, param)).getProcess().getFlowElementMap().get(task);
+		return getTaskExitExpression(userTask,"exitCondition");
 	}
 	
 	private void executeTask(Param<?> param, String processExecutionId, String task) {
-		List<Task> activeTaskInstances = getTaskService().createTaskQuery().processInstanceId(processExecutionId).taskDefinitionKey(task).list();
-		for(Task activeTaskIntance: activeTaskInstances) {
+		List<ActiveTask> activeTaskInstances = getActiveTaskCache().get(processExecutionId);
+		for(ActiveTask activeTaskIntance: activeTaskInstances) {
+			if(!StringUtils.equals(task, activeTaskIntance.getDefinitionKey()))
+				continue;
+			
 			try {
 				ProcessEngineContext context = new ProcessEngineContext(param);
 				Map<String, Object> executionVariables = new HashMap<String, Object>();
@@ -153,6 +228,8 @@ public class ActivitiBPMGateway implements BPMGateway {
 			}catch (Exception e) {
 				throw new FrameworkRuntimeException("Error executing bpm flow with excecution id:"+processExecutionId+" when attempting to complete the task:"+task,e);
 			}finally {
+				// completion is committed by now, regardless of when the engine's events are seen
+				getActiveTaskCache().invalidate(processExecutionId);
 				updateProcessState(param,processExecutionId);
 			}
 		}		
@@ -160,20 +237,48 @@ public class ActivitiBPMGateway implements BPMGateway {
 
 	private void updateProcessState(Param<?> param, String processExecutionId) {
 		ActivitiProcessFlow processFlow = (ActivitiProcessFlow)((ExecutionEntity<?,?>)param.getRootExecution().getState()).getFlow();
-		List<String> activeTasks = new ArrayList<String>();
-		List<Task> activeTasksFromDB = getTaskService().createTaskQuery().processInstanceId(processExecutionId).list();
-		activeTasksFromDB.iterator().forEachRemaining( t -> activeTasks.add(t.getTaskDefinitionKey()));
+		List<String> activeTasks = getActiveTaskCache().getDefinitionKeys(processExecutionId);
+		processFlow.setActiveTasks(activeTasks);
+		
+		// within a txn, persist once per process instance when the txn stops
+		ExecutionRuntime execRt = param.getRootExecution().getExecutionRuntime();
+		if(execRt == null || execRt.getTxnContext() == null || execRt.getTxnContext().getId() == null) {
+			persistProcessState(param, activeTasks);
+			return;
+		}
+		
+		PendingProcessStates pending = pendingInThread.get();
+		if(!pending.registered) {
+			execRt.getEventDelegator().addTxnScopedListener(txnFlusher);
+			pending.registered = true;
+		}
+		pending.byProcessExecutionId.put(processExecutionId, new PendingProcessState(param, activeTasks));
+	}
+	
+	/**
+	 * Persists process states updated within the current thread's transaction, latest state per process instance.
+	 */
+	public void flushProcessStates() {
+		PendingProcessStates pending = pendingInThread.get();
+		if(pending.byProcessExecutionId.isEmpty())
+			return;
+		
+		Map<String, PendingProcessState> byProcessExecutionId = pending.byProcessExecutionId;
+		pending.byProcessExecutionId = new LinkedHashMap<>();
+		
+		byProcessExecutionId.values().forEach(p->persistProcessState(p.param, p.activeTasks));
+	}
+	
+	private void persistProcessState(Param<?> param, List<String> activeTasks) {
 		ModelConfig<?> modelConfig = domainConfigBuilder.getModel(ProcessFlow.class);
 		Repo repo = modelConfig.getRepo();
 		String processStateAlias = StringUtils.isBlank(repo.alias()) ? modelConfig.getAlias() : repo.alias();
 		String entityProcessAlias = param.getRootDomain().getConfig().getAlias() + "_" + processStateAlias;
 		Long entityRefId = param.getRootExecution().getRootCommand().getRefId(Type.DomainAlias);
 		repositoryFactory.get(repo)._update(entityProcessAlias, entityRefId, "/activeTasks", activeTasks);
-		processFlow.setActiveTasks(activeTasks);
 	}	
 	
-	private boolean canComplete(Param<?> param, UserTask userTask) {
-		String taskExitCondition = getTaskExitExpression(userTask,"exitCondition");
+	private boolean canComplete(Param<?> param, String taskExitCondition) {
 		if(taskExitCondition != null) {
 			return (Boolean)getExpressionEvaluator().getValue(taskExitCondition, param);
 		}
@@ -34,6 +34,11 @@ public interface CommandExecutorGateway {
 	
 	MultiOutput execute(CommandMessage cmdMsg);
 	
+	/**
+	 * Executes the given commands, all targeting the same root domain, in order within a single root command scope.
+	 */
+	MultiOutput executeBatch(List<CommandMessage> cmdMsgs);
+	
 	List<MultiOutput> executeConfig(ExecutionContext eCtx, Param<?> cmdParam, List<Annotation> execConfigs);
 	
 }
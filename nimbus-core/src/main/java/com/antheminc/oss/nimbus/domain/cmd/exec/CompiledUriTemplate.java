@@ -0,0 +1,98 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Url parsed once by {@link ParamPathExpressionParser} into literal and variable segments, in order. <br>
+ * 
+ * Resolving a template only evaluates its variable segments, each with the path between {@code <!} and {@code !>}, 
+ * and concatenates the results with the literal segments in between.
+ */
+public final class CompiledUriTemplate {
+
+	private final String template;
+	
+	/**
+	 * alternating literal and variable segments, starting with a literal one which may be empty
+	 */
+	private final List<String> literals;
+	
+	private final List<String> variablePaths;
+	
+	private CompiledUriTemplate(String template, List<String> literals, List<String> variablePaths) {
+		this.template = template;
+		this.literals = literals;
+		this.variablePaths = variablePaths;
+	}
+	
+	public static CompiledUriTemplate compile(String template) {
+		Map<Integer, String> entries = ParamPathExpressionParser.parse(template);
+		if(entries.isEmpty())
+			return new CompiledUriTemplate(template, Collections.singletonList(template), Collections.emptyList());
+		
+		List<String> literals = new ArrayList<>(entries.size() + 1);
+		List<String> variablePaths = new ArrayList<>(entries.size());
+		
+		int pos = 0;
+		for(Map.Entry<Integer, String> entry : entries.entrySet()) {
+			int start = entry.getKey();
+			String key = entry.getValue();
+			
+			literals.add(template.substring(pos, start));
+			variablePaths.add(ParamPathExpressionParser.stripPrefixSuffix(key));
+			pos = start + key.length();
+		}
+		literals.add(template.substring(pos));
+		
+		return new CompiledUriTemplate(template, literals, variablePaths);
+	}
+	
+	public boolean hasVariables() {
+		return !variablePaths.isEmpty();
+	}
+	
+	public List<String> getVariablePaths() {
+		return Collections.unmodifiableList(variablePaths);
+	}
+	
+	/**
+	 * @param variableResolver resolves the path of each variable segment to its value
+	 */
+	public String resolve(Function<String, String> variableResolver) {
+		if(!hasVariables())
+			return template;
+		
+		StringBuilder out = new StringBuilder(template.length() + 16 * variablePaths.size());
+		for(int i = 0; i < variablePaths.size(); i++) {
+			out.append(literals.get(i));
+			out.append(variableResolver.apply(variablePaths.get(i)));
+		}
+		out.append(literals.get(variablePaths.size()));
+		
+		return out.toString();
+	}
+	
+	@Override
+	public String toString() {
+		return template;
+	}
+}
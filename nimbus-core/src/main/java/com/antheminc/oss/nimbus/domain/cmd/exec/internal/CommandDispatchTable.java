@@ -0,0 +1,190 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.antheminc.oss.nimbus.InvalidConfigException;
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
+import com.antheminc.oss.nimbus.domain.cmd.Action;
+import com.antheminc.oss.nimbus.domain.cmd.Behavior;
+import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecutor;
+import com.antheminc.oss.nimbus.domain.defn.Execution.Config;
+import com.antheminc.oss.nimbus.domain.defn.Execution.DetourConfig;
+import com.antheminc.oss.nimbus.domain.model.config.builder.ExecutionConfigProvider;
+import com.antheminc.oss.nimbus.support.JustLogit;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Immutable table of the {@link CommandExecutor} per action and behavior and the {@link ExecutionConfigProvider} per 
+ * execution config annotation type, resolved once on context refresh so that dispatching a command does no bean lookups. <br>
+ * 
+ * Executors are resolved as before: bean named {@code {prefix}.{action}{behavior}}, else {@code {prefix}.{behavior}}. 
+ * Building fails when an action, other than the {@code optionalActions}, has no executor for {@link Behavior#DEFAULT} or when 
+ * an execution config annotation has no provider, unless {@code failFast} is turned off. <br>
+ * 
+ * Until the table is built (i.e. for commands executed while the context is starting up) lookups go to the bean resolver.
+ */
+@ConfigurationProperties(prefix="command.dispatch")
+@ManagedResource(objectName="com.antheminc.oss.nimbus:name=CommandDispatchTable", description="Command executor dispatch table")
+@Getter @Setter
+public class CommandDispatchTable implements ApplicationListener<ContextRefreshedEvent> {
+
+	private static final JustLogit logit = new JustLogit(CommandDispatchTable.class);
+	
+	private static final List<Class<? extends Annotation>> EXECUTION_CONFIG_TYPES = Arrays.asList(Config.class, DetourConfig.class);
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final BeanResolverStrategy beanResolver;
+	
+	private boolean failFast = true;
+	
+	/**
+	 * actions not required to have an executor for the default behavior
+	 */
+	private Set<Action> optionalActions = EnumSet.of(Action._save);
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private volatile Table table;
+	
+	@RequiredArgsConstructor
+	static class Table {
+		final Map<Action, Map<Behavior, CommandExecutor<?>>> executors;
+		final Map<Class<? extends Annotation>, ExecutionConfigProvider<?>> configProviders;
+	}
+	
+	public CommandDispatchTable(BeanResolverStrategy beanResolver) {
+		this.beanResolver = beanResolver;
+	}
+	
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		build();
+	}
+	
+	public void build() {
+		final List<String> missing = new ArrayList<>();
+		
+		final Map<Action, Map<Behavior, CommandExecutor<?>>> executors = new EnumMap<>(Action.class);
+		for(Action a : Action.values()) {
+			Map<Behavior, CommandExecutor<?>> byBehavior = new EnumMap<>(Behavior.class);
+			for(Behavior b : Behavior.values()) {
+				CommandExecutor<?> executor = resolveExecutor(a, b);
+				if(executor != null)
+					byBehavior.put(b, executor);
+			}
+			
+			if(!byBehavior.containsKey(Behavior.DEFAULT) && !optionalActions.contains(a))
+				missing.add("executor for "+a+Behavior.DEFAULT);
+			
+			executors.put(a, Collections.unmodifiableMap(byBehavior));
+		}
+		
+		final Map<Class<? extends Annotation>, ExecutionConfigProvider<?>> configProviders = new LinkedHashMap<>();
+		for(Class<? extends Annotation> configType : EXECUTION_CONFIG_TYPES) {
+			try {
+				configProviders.put(configType, beanResolver.get(ExecutionConfigProvider.class, configType));
+			} catch (InvalidConfigException ex) {
+				missing.add("execution config provider for @"+configType.getSimpleName());
+			}
+		}
+		
+		if(!missing.isEmpty()) {
+			String msg = "Command dispatch table is missing: "+missing;
+			if(failFast)
+				throw new InvalidConfigException(msg);
+			
+			logit.warn(()->msg);
+		}
+		
+		this.table = new Table(Collections.unmodifiableMap(executors), Collections.unmodifiableMap(configProviders));
+		logit.debug(()->"[dispatch] built command dispatch table:\n"+dump());
+	}
+	
+	private CommandExecutor<?> resolveExecutor(Action a, Behavior b) {
+		CommandExecutor<?> abExec = beanResolver.find(CommandExecutor.class, a.name() + b.name());
+		return abExec != null ? abExec : beanResolver.find(CommandExecutor.class, b.name());
+	}
+	
+	public boolean isBuilt() {
+		return table != null;
+	}
+	
+	public CommandExecutor<?> getExecutorOrThrowEx(Action a, Behavior b) {
+		final Table t = this.table;
+		CommandExecutor<?> executor = t == null ? resolveExecutor(a, b) : t.executors.get(a).get(b);
+		if(executor == null)
+			throw new InvalidConfigException("Bean of type "+CommandExecutor.class+" must be configured with bean name following pattern:"
+					+ " a) {prefix}."+ a.name() + b.name()+ " OR "
+					+ " b) {prefix}."+ b.name());
+		
+		return executor;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public ExecutionConfigProvider<Annotation> getConfigProviderOrThrowEx(Class<? extends Annotation> configType) {
+		final Table t = this.table;
+		ExecutionConfigProvider<?> provider = t == null ? null : t.configProviders.get(configType);
+		
+		// not one of the known execution config types
+		if(provider == null)
+			provider = beanResolver.get(ExecutionConfigProvider.class, configType);
+		
+		return (ExecutionConfigProvider<Annotation>)provider;
+	}
+	
+	@ManagedAttribute
+	public int getExecutorCount() {
+		final Table t = this.table;
+		return t == null ? 0 : t.executors.values().stream().mapToInt(Map::size).sum();
+	}
+	
+	@ManagedOperation(description="Resolved executor per action and behavior, and provider per execution config type")
+	public String dump() {
+		final Table t = this.table;
+		if(t == null)
+			return "not built";
+		
+		StringBuilder sb = new StringBuilder();
+		t.executors.forEach((a, byBehavior)->byBehavior.forEach((b, executor)->
+			sb.append(a).append(b).append(" -> ").append(executor.getClass().getName()).append('\n')));
+		
+		t.configProviders.forEach((configType, provider)->
+			sb.append('@').append(configType.getSimpleName()).append(" -> ").append(provider.getClass().getName()).append('\n'));
+		
+		return sb.toString();
+	}
+}
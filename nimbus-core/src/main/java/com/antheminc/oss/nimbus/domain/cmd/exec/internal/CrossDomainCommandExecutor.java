@@ -0,0 +1,331 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.channel.web.WebSessionIdLoggerInterceptor;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Bounded, named thread pool used by {@link DefaultCommandExecutorGateway} to execute {@code @Config} commands that
+ * target a domain root other than the one of the originating command. <br>
+ * 
+ * Such commands must run in a thread other than the caller's so that they get their own execution transaction. 
+ * Request attributes (and hence the http session), the logging session id and the roots guarded by {@link RootExecutionGuard} 
+ * for the caller are carried into the pooled thread 
+ * and cleared once the command completes, since pooled threads do not inherit them the way newly created threads did.<br>
+ * 
+ * Note: the caller blocks until the cross-domain command completes. Commands issued from a thread of this pool 
+ * (i.e. nested cross-domain calls) therefore run in a thread of their own, started for the call, instead of being queued 
+ * behind their own blocked parents. They can't run inline either, as the execution scopes of a root command (txn context, 
+ * txn scoped listeners, ...) are held per thread and would be reset when the nested root stops. <br>
+ * 
+ * The worker runs under the roots held by its caller, it therefore never outlives the caller's wait: 
+ * {@code awaitTimeoutMillis} only bounds the wait for a pooled thread to pick up the command, once started the caller 
+ * waits for its completion and running commands are never interrupted.
+ */
+@ConfigurationProperties(prefix="command.executor.crossdomain")
+@ManagedResource(objectName="com.antheminc.oss.nimbus:name=CrossDomainCommandExecutor", description="Cross domain command execution pool")
+@Getter @Setter
+public class CrossDomainCommandExecutor {
+
+	public enum RejectionPolicy {
+		/**
+		 * fail the command right away when all threads are busy and the queue is full
+		 */
+		ABORT,
+		
+		/**
+		 * block the caller for up to {@code rejectionWaitMillis} waiting for room in the queue 
+		 */
+		WAIT;
+	}
+	
+	private String threadNamePrefix = "nimbus-crossdomain-";
+	
+	/**
+	 * threads are started on demand up to this size before tasks get queued, and time out after {@code keepAliveSeconds} of idling 
+	 */
+	private int maxPoolSize = 50;
+	
+	private int queueCapacity = 100;
+	
+	private long keepAliveSeconds = 60;
+	
+	private RejectionPolicy rejectionPolicy = RejectionPolicy.WAIT;
+	
+	private long rejectionWaitMillis = 5000;
+	
+	/**
+	 * max wait for a pooled thread to start the cross-domain command, 0 or less waits indefinitely 
+	 */
+	private long awaitTimeoutMillis = 0;
+	
+	/**
+	 * default max concurrent cross-domain commands targeting a single domain alias, 0 or less means no cap 
+	 */
+	private int maxConcurrentPerDomain = 0;
+	
+	/**
+	 * per domain alias override of {@code maxConcurrentPerDomain} 
+	 */
+	private Map<String, Integer> domainConcurrency = new HashMap<>();
+	
+	private long domainPermitWaitMillis = 5000;
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong rejectedCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong domainThrottledCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong timedOutCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong nestedCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final ThreadLocal<Boolean> inPoolThread = new ThreadLocal<>();
+	
+	@Getter(AccessLevel.NONE)
+	private final Map<String, Semaphore> domainPermits = new ConcurrentHashMap<>();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private ThreadPoolExecutor pool;
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private CustomizableThreadFactory nestedThreadFactory;
+	
+	private static final int NEW = 0, STARTED = 1, ABANDONED = 2;
+	
+	@PostConstruct
+	public void init() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+		threadFactory.setDaemon(true);
+		
+		// core == max: a ThreadPoolExecutor only grows past its core size once the queue is full
+		final int poolSize = Math.max(1, maxPoolSize);
+		this.pool = new ThreadPoolExecutor(poolSize, poolSize, keepAliveSeconds, TimeUnit.SECONDS, 
+				new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory, createRejectionHandler());
+		this.pool.allowCoreThreadTimeOut(true);
+		
+		this.nestedThreadFactory = new CustomizableThreadFactory(threadNamePrefix+"nested-");
+		this.nestedThreadFactory.setDaemon(true);
+	}
+	
+	public void shutdown() {
+		if(pool == null)
+			return;
+		
+		pool.shutdown();
+		try {
+			if(!pool.awaitTermination(keepAliveSeconds, TimeUnit.SECONDS))
+				pool.shutdownNow();
+			
+		} catch (InterruptedException ex) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private RejectedExecutionHandler createRejectionHandler() {
+		return (r, executor)-> {
+			if(rejectionPolicy == RejectionPolicy.WAIT && !executor.isShutdown()) {
+				try {
+					if(executor.getQueue().offer(r, rejectionWaitMillis, TimeUnit.MILLISECONDS))
+						return;
+					
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			rejectedCount.incrementAndGet();
+			throw new RejectedExecutionException("Cross domain command executor saturated with active: "+executor.getActiveCount()
+				+" and queued: "+executor.getQueue().size()+" using rejection policy: "+rejectionPolicy);
+		};
+	}
+	
+	/**
+	 * Executes the task in a pooled thread on behalf of the caller and waits for its result.
+	 * If the caller itself is a thread of this pool, the task runs in a newly started thread without taking a domain permit.
+	 */
+	public <T> T execute(String domainAlias, Callable<T> task) throws Exception {
+		final RequestAttributes callerAttributes = RequestContextHolder.getRequestAttributes();
+		final Set<ReentrantLock> callerRoots = RootExecutionGuard.held();
+		
+		// nested call: the pool thread is already accounted for, queueing it would wait on its own blocked parent
+		if(Boolean.TRUE.equals(inPoolThread.get())) {
+			nestedCount.incrementAndGet();
+			
+			FutureTask<T> nested = new FutureTask<>(onBehalfOfCaller(task, callerAttributes, callerRoots));
+			nestedThreadFactory.newThread(nested).start();
+			return nested.get();
+		}
+		
+		final Semaphore permits = acquireDomainPermit(domainAlias);
+		try {
+			final AtomicInteger state = new AtomicInteger(NEW);
+			final Callable<T> onBehalfOfCaller = onBehalfOfCaller(task, callerAttributes, callerRoots);
+			
+			Future<T> future = pool.submit(() -> {
+				// the caller gave up before the command started: it must not run under the caller's roots anymore
+				if(!state.compareAndSet(NEW, STARTED))
+					return null;
+				
+				return onBehalfOfCaller.call();
+			});
+			
+			if(awaitTimeoutMillis <= 0)
+				return future.get();
+			
+			try {
+				return future.get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException ex) {
+				if(!state.compareAndSet(NEW, ABANDONED))
+					return future.get();
+				
+				timedOutCount.incrementAndGet();
+				future.cancel(false);
+				throw ex;
+			}
+		} finally {
+			if(permits != null)
+				permits.release();
+		}
+	}
+	
+	private <T> Callable<T> onBehalfOfCaller(Callable<T> task, RequestAttributes callerAttributes, Set<ReentrantLock> callerRoots) {
+		return () -> {
+			try {
+				RequestContextHolder.setRequestAttributes(callerAttributes);
+				WebSessionIdLoggerInterceptor.addSessionIdIfAny();
+				RootExecutionGuard.inherit(callerRoots);
+				inPoolThread.set(Boolean.TRUE);
+				
+				return task.call();
+			} finally {
+				inPoolThread.remove();
+				RootExecutionGuard.inherit(null);
+				WebSessionIdLoggerInterceptor.clearSessionIdIfAny();
+				RequestContextHolder.resetRequestAttributes();
+			}
+		};
+	}
+	
+	private Semaphore acquireDomainPermit(String domainAlias) throws InterruptedException {
+		int max = domainConcurrency.getOrDefault(domainAlias, maxConcurrentPerDomain);
+		if(max <= 0)
+			return null;
+		
+		Semaphore permits = domainPermits.computeIfAbsent(domainAlias, k->new Semaphore(max, true));
+		if(permits.tryAcquire(domainPermitWaitMillis, TimeUnit.MILLISECONDS))
+			return permits;
+		
+		domainThrottledCount.incrementAndGet();
+		throw new FrameworkRuntimeException("Max concurrent cross domain commands: "+max+" reached for domain: "+domainAlias);
+	}
+	
+	@ManagedAttribute
+	public int getPoolSize() {
+		return pool.getPoolSize();
+	}
+	
+	@ManagedAttribute
+	public int getActiveCount() {
+		return pool.getActiveCount();
+	}
+	
+	@ManagedAttribute
+	public int getLargestPoolSize() {
+		return pool.getLargestPoolSize();
+	}
+	
+	@ManagedAttribute
+	public int getQueueSize() {
+		return pool.getQueue().size();
+	}
+	
+	@ManagedAttribute
+	public int getQueueRemainingCapacity() {
+		return pool.getQueue().remainingCapacity();
+	}
+	
+	@ManagedAttribute
+	public long getCompletedTaskCount() {
+		return pool.getCompletedTaskCount();
+	}
+	
+	@ManagedAttribute
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getDomainThrottledCount() {
+		return domainThrottledCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getNestedCount() {
+		return nestedCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getTimedOutCount() {
+		return timedOutCount.get();
+	}
+	
+	@ManagedAttribute
+	public Map<String, Integer> getDomainInFlight() {
+		Map<String, Integer> inFlight = new HashMap<>();
+		domainPermits.forEach((alias, permits)->
+			inFlight.put(alias, domainConcurrency.getOrDefault(alias, maxConcurrentPerDomain) - permits.availablePermits()));
+		
+		return Collections.unmodifiableMap(inFlight);
+	}
+}
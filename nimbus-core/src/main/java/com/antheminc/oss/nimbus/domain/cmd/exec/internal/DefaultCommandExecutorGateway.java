@@ -18,14 +18,16 @@ package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
-import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 
@@ -36,7 +38,6 @@ import org.apache.commons.lang3.StringUtils;
 import com.antheminc.oss.nimbus.FrameworkRuntimeException;
 import com.antheminc.oss.nimbus.InvalidArgumentException;
 import com.antheminc.oss.nimbus.InvalidConfigException;
-import com.antheminc.oss.nimbus.channel.web.WebSessionIdLoggerInterceptor;
 import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
 import com.antheminc.oss.nimbus.domain.cmd.Behavior;
 import com.antheminc.oss.nimbus.domain.cmd.Command;
@@ -69,6 +70,9 @@ import com.antheminc.oss.nimbus.domain.model.state.ParamEvent;
 import com.antheminc.oss.nimbus.domain.model.state.StateEventListener;
 import com.antheminc.oss.nimbus.domain.model.state.extension.ChangeLogCommandEventHandler;
 import com.antheminc.oss.nimbus.domain.model.state.internal.BaseStateEventListener;
+import com.antheminc.oss.nimbus.domain.model.state.internal.DeferredEvaluator;
+import com.antheminc.oss.nimbus.domain.model.state.repo.db.ParamStatePersistenceEventListener;
+import com.antheminc.oss.nimbus.domain.model.state.support.JsonParamSerializationConfig;
 import com.antheminc.oss.nimbus.support.EnableAPIMetricCollection;
 import com.antheminc.oss.nimbus.support.EnableAPIMetricCollection.LogLevel;
 import com.antheminc.oss.nimbus.support.InjectSelf;
@@ -88,8 +92,7 @@ public class DefaultCommandExecutorGateway extends BaseCommandExecutorStrategies
 	@InjectSelf
 	private CommandExecutorGateway self;
 	
-	@SuppressWarnings("rawtypes")
-	private final Map<String, CommandExecutor> executors;
+	private CommandDispatchTable dispatchTable;
 	
 	private CommandPathVariableResolver pathVariableResolver;
 	
@@ -103,12 +106,16 @@ public class DefaultCommandExecutorGateway extends BaseCommandExecutorStrategies
 	
 	private ExpressionEvaluator expressionEvaluator;
 	
+	private CrossDomainCommandExecutor crossDomainExecutor;
+	
+	private RootExecutionGuard rootExecutionGuard;
+	
+	private DeferredEvaluator deferredEvaluator;
+	
 	private static final ThreadLocal<String> cmdScopeInThread = new ThreadLocal<>();
 	
 	public DefaultCommandExecutorGateway(BeanResolverStrategy beanResolver) {
 		super(beanResolver);
-		
-		this.executors = new HashMap<>();
 	}
 	
 	@PostConstruct
@@ -119,6 +126,10 @@ public class DefaultCommandExecutorGateway extends BaseCommandExecutorStrategies
 		this.domainConfigBuilder = getBeanResolver().get(DomainConfigBuilder.class);
 		this.cmdHandler = getBeanResolver().get(ChangeLogCommandEventHandler.class);
 		this.expressionEvaluator = getBeanResolver().get(ExpressionEvaluator.class);
+		this.crossDomainExecutor = getBeanResolver().get(CrossDomainCommandExecutor.class);
+		this.rootExecutionGuard = getBeanResolver().get(RootExecutionGuard.class);
+		this.deferredEvaluator = getBeanResolver().get(DeferredEvaluator.class);
+		this.dispatchTable = getBeanResolver().get(CommandDispatchTable.class);
 	}
 
 	
@@ -135,32 +146,100 @@ public class DefaultCommandExecutorGateway extends BaseCommandExecutorStrategies
 		// load execution context 
 		ExecutionContext eCtx = loadExecutionContext(cmdMsg);
 		
-		final String lockId;
+		if(cmdScopeInThread.get()!=null)
+			return executeInternal(eCtx, cmdMsg);
+		
+		return executeAsRoot(eCtx, cmdMsg.getCommand(), false, ()->executeInternal(eCtx, cmdMsg));
+	}
+	
+	/**
+	 * Executes the given commands in order within a single root command scope: the root is guarded and loaded once, 
+	 * rules and process evaluation of changed roots is deferred until the last command completes (regardless of 
+	 * {@link DeferredEvaluator#isEnabled()}) and changes are persisted once when the scope ends, see 
+	 * {@link ParamStatePersistenceEventListener#beginRootScoped()}. <br>
+	 * 
+	 * All commands must target the same root domain. Execution stops at the first failing command; changes applied 
+	 * by the commands preceding it are retained, same as for nested commands of a single root command.
+	 */
+	@Override
+	public MultiOutput executeBatch(List<CommandMessage> cmdMsgs) {
+		if(CollectionUtils.isEmpty(cmdMsgs))
+			throw new InvalidArgumentException("Batch must contain at least one command for Gateway to process request");
+		
+		cmdMsgs.forEach(this::validateCommand);
+		
+		final CommandMessage first = cmdMsgs.get(0);
+		cmdMsgs.stream()
+			.filter(cmdMsg->!StringUtils.equals(first.getCommand().getRootDomainUri(), cmdMsg.getCommand().getRootDomainUri()))
+			.findFirst()
+			.ifPresent(cmdMsg->{
+				throw new InvalidArgumentException("Commands in a batch must target the same root domain, found: "+cmdMsg.getCommand().getRootDomainUri()
+					+" expected: "+first.getCommand().getRootDomainUri());
+			});
+		
+		if(cmdScopeInThread.get()!=null)
+			throw new InvalidStateException("Batch must be executed as a root command, found command scope in thread for: "+first.getCommand());
 		
-		if(cmdScopeInThread.get()==null) {
-			lockId = UUID.randomUUID().toString();
-			cmdScopeInThread.set(lockId);
-			eCtx.getRootModel().getExecutionRuntime().onStartRootCommandExecution(cmdMsg.getCommand());
+		final ExecutionContext rootCtx = loadExecutionContext(first);
+		
+		return executeAsRoot(rootCtx, first.getCommand(), true, ()->{
+			MultiOutput mOut = new MultiOutput(first.getCommand().getAbsoluteUri(), rootCtx, first.getCommand().getAction(), first.getCommand().getBehaviors());
 			
-		} else {
-			lockId = null;
+			for(CommandMessage cmdMsg : cmdMsgs) {
+				// share the quad model loaded for the first command instead of going through the loader for each
+				ExecutionContext eCtx = cmdMsg==first ? rootCtx : new ExecutionContext(cmdMsg, rootCtx.getQuadModel());
+				addMultiOutput(mOut, executeInternal(eCtx, cmdMsg));
+			}
+			return mOut;
+		});
+	}
+	
+	private MultiOutput executeAsRoot(ExecutionContext eCtx, Command rootCmd, boolean batch, Supplier<MultiOutput> execution) {
+		// wait for concurrent executions on the same root before starting this one
+		final boolean guarded = getRootExecutionGuard().acquire(eCtx.getRootModel().getExecutionRuntime());
+		
+		cmdScopeInThread.set(UUID.randomUUID().toString());
+		
+		try {
+			eCtx.getRootModel().getExecutionRuntime().onStartRootCommandExecution(rootCmd);
+		} catch (RuntimeException ex) {
+			cmdScopeInThread.set(null);
+			if(guarded)
+				getRootExecutionGuard().release(eCtx.getRootModel().getExecutionRuntime());
+			throw ex;
 		}
 		
+		// rules & process evaluation of changed roots runs once on completion of the root command
+		final boolean deferring = getDeferredEvaluator().begin(batch);
+		
+		// persisted once, on stop of the root command
+		final boolean rootScopedPersistence = batch && ParamStatePersistenceEventListener.beginRootScoped();
+		
 		try {
-			MultiOutput mOut = executeInternal(eCtx, cmdMsg);
+			MultiOutput mOut = execution.get();
+			
+			if(deferring)
+				getDeferredEvaluator().complete();
 			
-			if(lockId!=null) {
-				//TODO: Interim solution
-				getCmdHandler().handleOnRootStopEvents(cmdMsg.getCommand(), mOut);
+			//TODO: Interim solution
+			getCmdHandler().handleOnRootStopEvents(rootCmd, mOut);
 
-				return createFlattenedOutput(mOut);
-			}
+			return createFlattenedOutput(mOut);
 			
-			return mOut;
 		} finally {
-			if(lockId!=null) {
-				eCtx.getRootModel().getExecutionRuntime().onStopRootCommandExecution(cmdMsg.getCommand());
+			try {
+				if(deferring)
+					getDeferredEvaluator().end();
+				
+				eCtx.getRootModel().getExecutionRuntime().onStopRootCommandExecution(rootCmd);
+			} finally {
+				if(rootScopedPersistence)
+					ParamStatePersistenceEventListener.endRootScoped();
+				
 				cmdScopeInThread.set(null);
+				
+				if(guarded)
+					getRootExecutionGuard().release(eCtx.getRootModel().getExecutionRuntime());
 			}
 		}
 	}
@@ -235,7 +314,6 @@ public class DefaultCommandExecutorGateway extends BaseCommandExecutorStrategies
 		cmdMsg.getCommand().validate();
 	}
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	public List<MultiOutput> executeConfig(ExecutionContext eCtx, Param<?> cmdParam, List<Annotation> execConfigs) {
 		final CommandMessage cmdMsg = eCtx.getCommandMessage();
@@ -243,7 +321,7 @@ public class DefaultCommandExecutorGateway extends BaseCommandExecutorStrategies
 		
 		final List<MultiOutput> configExecOutputs = new ArrayList<>();
 		execConfigs.stream().forEach(ec-> {
-			final ExecutionConfigProvider<Annotation> execConfigProvider = getBeanResolver().get(ExecutionConfigProvider.class, ec.annotationType());
+			final ExecutionConfigProvider<Annotation> execConfigProvider = getDispatchTable().getConfigProviderOrThrowEx(ec.annotationType());
 			Config config = execConfigProvider.getMain(ec);
 			try {
 				boolean evalWhen = getExpressionEvaluator().getValue(config.when(), cmdParam, Boolean.class);
@@ -300,14 +378,7 @@ public class DefaultCommandExecutorGateway extends BaseCommandExecutorStrategies
 			return getSelf().execute(configCmdMsg);
 		
 		try {
-			return Executors.newSingleThreadExecutor().submit(() -> {
-				try {
-					WebSessionIdLoggerInterceptor.addSessionIdIfAny();
-					return getSelf().execute(configCmdMsg);
-				} finally {
-					WebSessionIdLoggerInterceptor.clearSessionIdIfAny();
-				}
-			}).get();
+			return getCrossDomainExecutor().execute(configDomainAlias, () -> getSelf().execute(configCmdMsg));
 		} catch (Exception ex) {
 			throw new FrameworkRuntimeException("Failed to execute config command in async-wait thread for configCmdMsg: "+configCmdMsg+" originating from inputCmd: "+inputCmd, ex);
 		}
@@ -425,13 +496,61 @@ public class DefaultCommandExecutorGateway extends BaseCommandExecutorStrategies
 		if(CollectionUtils.isEmpty(aggregatedEvents))
 			return;
 		
-		aggregatedEvents.stream()
+		List<ParamEvent> events = aggregatedEvents.stream()
 				.filter(ParamEvent::shouldAllow) //TODO move to listener
+				.collect(Collectors.toList());
+		
+		if(JsonParamSerializationConfig.get().isDelta())
+			events = excludeCovered(events, mOutput.getOutputs());
+		
+		events.stream()
 				.map(pe->new Output<>(output.getInputCommandUri(), eCtx, pe.getAction(), output.getBehaviors(), pe.getParam()))
 				.forEach(mOutput.template()::add);
 			;
 	}
 	
+	/**
+	 * @return events ordered by path, leaving out those whose param is serialized anyway as part of the param tree 
+	 * of another event or of an output value
+	 */
+	static List<ParamEvent> excludeCovered(Collection<ParamEvent> events, Collection<Output<?>> outputs) {
+		Map<String, ParamEvent> byPath = new TreeMap<>();
+		events.forEach(pe->byPath.putIfAbsent(pe.getParam().getPath(), pe));
+		
+		Set<String> covering = new HashSet<>();
+		if(outputs!=null) {
+			outputs.stream()
+				.map(Output::getValue)
+				.filter(Param.class::isInstance)
+				.map(v->((Param<?>)v).getPath())
+				.forEach(covering::add);
+		}
+		
+		// ancestors sort before their descendants
+		List<ParamEvent> included = new ArrayList<>();
+		for(Map.Entry<String, ParamEvent> e : byPath.entrySet()) {
+			if(isCovered(e.getKey(), covering))
+				continue;
+			
+			covering.add(e.getKey());
+			included.add(e.getValue());
+		}
+		return included;
+	}
+	
+	private static boolean isCovered(String path, Set<String> covering) {
+		for(String p = path; p!=null; p = parentPath(p)) {
+			if(covering.contains(p))
+				return true;
+		}
+		return false;
+	}
+	
+	private static String parentPath(String path) {
+		int i = path.lastIndexOf(Constants.SEPARATOR_URI.code);
+		return i <= 0 ? null : path.substring(0, i);
+	}
+	
 	private void addOutput(MultiOutput mOutput, Output<?> output){
 		Object outputValue = output.getValue();
 		if(outputValue instanceof MultiOutput){
@@ -471,7 +590,7 @@ public class DefaultCommandExecutorGateway extends BaseCommandExecutorStrategies
 	}
 	
 	protected CommandExecutor<?> lookupExecutor(Command cmd, Behavior b) {
-		return lookupBeanOrThrowEx(CommandExecutor.class, getExecutors(), cmd.getAction(), b);
+		return getDispatchTable().getExecutorOrThrowEx(cmd.getAction(), b);
 	}
 	
 	public CommandExecutorGateway getSelf() {
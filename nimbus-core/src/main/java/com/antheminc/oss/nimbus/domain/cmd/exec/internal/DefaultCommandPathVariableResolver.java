@@ -15,10 +15,8 @@
  */
 package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
 
-import java.util.Map;
 import java.util.Optional;
 
-import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.PropertyResolver;
@@ -28,6 +26,7 @@ import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
 import com.antheminc.oss.nimbus.domain.cmd.CommandElement.Type;
 import com.antheminc.oss.nimbus.domain.cmd.CommandMessageConverter;
 import com.antheminc.oss.nimbus.domain.cmd.exec.CommandPathVariableResolver;
+import com.antheminc.oss.nimbus.domain.cmd.exec.CompiledUriTemplate;
 import com.antheminc.oss.nimbus.domain.cmd.exec.ParamPathExpressionParser;
 import com.antheminc.oss.nimbus.domain.defn.Constants;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
@@ -35,11 +34,19 @@ import com.antheminc.oss.nimbus.domain.session.SessionProvider;
 import com.antheminc.oss.nimbus.entity.client.user.ClientUser;
 import com.antheminc.oss.nimbus.support.EnableLoggingInterceptor;
 import com.antheminc.oss.nimbus.support.JustLogit;
+import com.antheminc.oss.nimbus.support.pojo.TtlCache;
 
 import lombok.AccessLevel;
 import lombok.Getter;
 
 /**
+ * Urls are compiled once, with property place-holders resolved, into a {@link CompiledUriTemplate} so that 
+ * only its variable segments are evaluated per request. <br>
+ * 
+ * Urls handed in are typically already prefixed with the root domain and refId of the command, and may carry 
+ * substituted request values, so compiled templates are kept in a least recently used cache of up to 
+ * {@code maxCachedTemplates} entries, each expiring {@code templateTtlMillis} after being compiled.
+ * 
  * @author Soham Chakravarti
  *
  */
@@ -56,6 +63,12 @@ public class DefaultCommandPathVariableResolver implements CommandPathVariableRe
 	private final SessionProvider sessionProvider;
 	private final Environment environment;
 	
+	private long templateTtlMillis = 600000;
+	
+	private int maxCachedTemplates = 5000;
+	
+	private volatile TtlCache<String, CompiledUriTemplate> templates = new TtlCache<>(templateTtlMillis, maxCachedTemplates);
+	
 	public DefaultCommandPathVariableResolver(BeanResolverStrategy beanResolver, PropertyResolver propertyResolver) {
 		this.converter = beanResolver.get(CommandMessageConverter.class);
 		this.propertyResolver = propertyResolver;
@@ -69,34 +82,46 @@ public class DefaultCommandPathVariableResolver implements CommandPathVariableRe
 		if(StringUtils.trimToNull(urlToResolve)==null)
 			return urlToResolve;
 		
-		// resolve property place-holders first
 		try {
-			String resolvedPlaceHolders = getPropertyResolver().resolveRequiredPlaceholders(urlToResolve);
-			return resolveInternal(param, resolvedPlaceHolders);
+			CompiledUriTemplate template = templates.getOrLoad(urlToResolve, this::compile);
+			return resolveInternal(param, template);
 		} catch (RuntimeException ex) {
 			throw new InvalidConfigException("Failed to resolve with property place-holders for param: "+param+" with url: "+urlToResolve, ex);
 		}
 	}
 	
+	private CompiledUriTemplate compile(String urlToResolve) {
+		// resolve property place-holders first
+		String resolvedPlaceHolders = getPropertyResolver().resolveRequiredPlaceholders(urlToResolve);
+		return CompiledUriTemplate.compile(resolvedPlaceHolders);
+	}
 	
 	protected String resolveInternal(Param<?> param, String urlToResolve) {
-		Map<Integer, String> entries = ParamPathExpressionParser.parse(urlToResolve);
-		if(MapUtils.isEmpty(entries))
-			return urlToResolve;
-		
-		String out = urlToResolve;
-		for(Integer i : entries.keySet()) {
-			String key = entries.get(i);
-			
+		return resolveInternal(param, CompiledUriTemplate.compile(urlToResolve));
+	}
+	
+	protected String resolveInternal(Param<?> param, CompiledUriTemplate template) {
+		return template.resolve(pathToResolve->{
 			// look for relative path to passed in param's parent model
-			String pathToResolve = ParamPathExpressionParser.stripPrefixSuffix(key);
-			
 			String val = map(param, pathToResolve);
 			
-			out = StringUtils.replace(out, key, val, 1);
-		}
-		
-		return out;
+			// unresolved entries are left as is
+			return val != null ? val : ParamPathExpressionParser.KEY_PREFIX + pathToResolve + ParamPathExpressionParser.KEY_SUFFIX;
+		});
+	}
+	
+	public void setMaxCachedTemplates(int maxCachedTemplates) {
+		this.maxCachedTemplates = maxCachedTemplates;
+		this.templates = new TtlCache<>(templateTtlMillis, maxCachedTemplates);
+	}
+	
+	public void setTemplateTtlMillis(long templateTtlMillis) {
+		this.templateTtlMillis = templateTtlMillis;
+		this.templates = new TtlCache<>(templateTtlMillis, maxCachedTemplates);
+	}
+	
+	public void clearCachedTemplates() {
+		templates.invalidateAll();
 	}
 	
 	protected String map(Param<?> param, String pathToResolve) {
@@ -143,16 +168,19 @@ public class DefaultCommandPathVariableResolver implements CommandPathVariableRe
 	protected String mapQuad(Param<?> param, String pathToResolve) {
 		if(StringUtils.startsWith(pathToResolve, "json(")) {
 			String paramPath = StringUtils.substringBetween(pathToResolve, "json(", ")");
-			Param<?> p = param.findParamByPath(paramPath) != null? param.findParamByPath(paramPath): param.getParentModel().findParamByPath(paramPath);
+			Param<?> p = findParam(param, paramPath);
 			if(p == null) {
 				logit.error(() -> new StringBuffer().append(" Param (using paramPath) ").append(paramPath).append(" not found from param reference: ").append(param).toString());
 				return STRING_NULL;
 			}
 			Object state = p.getLeafState();
+			if(state == null)
+				return STRING_NULL;
+			
 			String json = getConverter().toJson(state);
 			return String.valueOf(json);
 		} else {
-			Param<?> p = param.findParamByPath(pathToResolve) != null? param.findParamByPath(pathToResolve): param.getParentModel().findParamByPath(pathToResolve);
+			Param<?> p = findParam(param, pathToResolve);
 			if(p == null) {
 				logit.error(() -> new StringBuffer().append(" Param (using paramPath) ").append(pathToResolve).append(" not found from param reference: ").append(param).toString());
 				return STRING_NULL;
@@ -160,6 +188,11 @@ public class DefaultCommandPathVariableResolver implements CommandPathVariableRe
 			return String.valueOf(p.getState());
 		}
 	}
+	
+	private Param<?> findParam(Param<?> param, String path) {
+		Param<?> p = param.findParamByPath(path);
+		return p != null ? p : param.getParentModel().findParamByPath(path);
+	}
 
 	protected String mapColElem(Param<?> commandParam, String pathToResolve) {
 		// check if command param is colElem
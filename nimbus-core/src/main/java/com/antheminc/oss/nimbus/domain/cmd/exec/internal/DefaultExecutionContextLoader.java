@@ -15,7 +15,7 @@
  */
 package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
 
-import java.util.Optional;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
 import com.antheminc.oss.nimbus.domain.cmd.Action;
@@ -32,6 +32,7 @@ import com.antheminc.oss.nimbus.domain.defn.Repo;
 import com.antheminc.oss.nimbus.domain.model.config.ModelConfig;
 import com.antheminc.oss.nimbus.domain.model.state.QuadModel;
 import com.antheminc.oss.nimbus.domain.model.state.builder.QuadModelBuilder;
+import com.antheminc.oss.nimbus.domain.session.QuadModelSessionStore;
 import com.antheminc.oss.nimbus.domain.session.SessionProvider;
 import com.antheminc.oss.nimbus.support.EnableLoggingInterceptor;
 
@@ -54,12 +55,15 @@ public class DefaultExecutionContextLoader implements ExecutionContextLoader {
 	
 	private final SessionProvider sessionProvider;
 	
+	private final QuadModelSessionStore sessionStore;
+	
 	public DefaultExecutionContextLoader(BeanResolverStrategy beanResolver) {
 		this.domainConfigBuilder = beanResolver.get(DomainConfigBuilder.class);
 		this.quadModelBuilder = beanResolver.get(QuadModelBuilder.class);
 		this.executorActionNew = beanResolver.get(CommandExecutor.class, Action._new.name() + Behavior.$execute.name());
 		this.executorActionGet = beanResolver.get(CommandExecutor.class, Action._get.name() + Behavior.$execute.name());
 		this.sessionProvider = beanResolver.get(SessionProvider.class);
+		this.sessionStore = beanResolver.get(QuadModelSessionStore.class);
 	}
 	
 
@@ -75,12 +79,12 @@ public class DefaultExecutionContextLoader implements ExecutionContextLoader {
 		} else // _new takes priority
 		if(rootDomainCmd.isRootDomainOnly() && rootDomainCmd.getAction()==Action._new) {
 			eCtx = loadEntity(eCtx, getExecutorActionNew());
-		} else // check if already exists in session
-		if(sessionExists(eCtx)) { 
+		} else { // check if already exists in session
 			QuadModel<?, ?> q = sessionGet(eCtx);
-			eCtx.setQuadModel(q);
-		} else { // all else requires resurrecting entity
-			eCtx = loadEntity(eCtx, getExecutorActionGet());
+			if(q != null) 
+				eCtx.setQuadModel(q);
+			else // all else requires resurrecting entity
+				eCtx = loadEntity(eCtx, getExecutorActionGet());
 		}
 		return eCtx;
 	}
@@ -128,42 +132,28 @@ public class DefaultExecutionContextLoader implements ExecutionContextLoader {
 	}
 	
 	protected boolean sessionRemomve(ExecutionContext eCtx) {
-		return queueRemove(eCtx);
+		return getSessionStore().remove(eCtx);
 	}
 	
 	protected boolean sessionExists(ExecutionContext eCtx) {
-		return queueExists(eCtx);
+		return sessionGet(eCtx) != null;
 	}
 	
 	protected QuadModel<?, ?> sessionGet(ExecutionContext eCtx) {
-		return Optional.ofNullable(queueGet(eCtx))
-				.map(ExecutionContext::getQuadModel)
-				.orElse(null);
-	}
-	
-	
-	private String getSessionKey(ExecutionContext eCtx) {
-		String ctxId = eCtx.getId();
-		return new StringBuilder().append("{").append(ctxId).append("}").toString();
-	}
-	
-	private boolean queueExists(ExecutionContext eCtx) {
-		return getSessionProvider().getAttribute(getSessionKey(eCtx)) != null;
-	}
-	
-	private ExecutionContext queueGet(ExecutionContext eCtx) {
-		return getSessionProvider().getAttribute(getSessionKey(eCtx));
+		return getSessionStore().get(eCtx);
 	}
 	
 	private boolean queuePut(ExecutionContext eCtx) {
-		getSessionProvider().setAttribute(getSessionKey(eCtx), eCtx);
+		getSessionStore().put(eCtx);
 		return true;
 	}
-
-	private boolean queueRemove(ExecutionContext eCtx) {
-		return getSessionProvider().removeAttribute(getSessionKey(eCtx));
-	}
 	
 	@Override
-	public void clear() {}
+	public void clear() {
+		// only within a user request, not e.g. on shutdown
+		if(RequestContextHolder.getRequestAttributes() == null)
+			return;
+		
+		getSessionStore().clear();
+	}
 }
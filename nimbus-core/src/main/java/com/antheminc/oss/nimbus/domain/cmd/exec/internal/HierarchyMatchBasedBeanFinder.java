@@ -16,21 +16,25 @@
 package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationContextEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
 
 import com.antheminc.oss.nimbus.domain.defn.Constants;
 import com.antheminc.oss.nimbus.domain.model.state.HierarchyMatch;
@@ -40,65 +44,105 @@ import lombok.Getter;
 import lombok.Setter;
 
 /**
+ * Finds the most specific bean of a type whose name, with {@code default.} segments acting as wildcards, matches a given id. <br>
+ * 
+ * Match and ordering patterns are compiled once per bean name. Once the context is refreshed, candidates are cached per type 
+ * and matched bean names per type and id; the caches are rebuilt on refresh and cleared on close.
+ * 
  * @author Jayant Chaudhuri
  *
  */
 @Getter(value=AccessLevel.PROTECTED)
-public class HierarchyMatchBasedBeanFinder implements ApplicationContextAware {
+public class HierarchyMatchBasedBeanFinder implements ApplicationContextAware, ApplicationListener<ApplicationContextEvent> {
 	
 	ApplicationContext ctx;
 	
 	@Value("${process.key.regex}") 
 	private String processBeanRegex;
 	
+	/**
+	 * max ids for which matched bean names are cached per type
+	 */
+	@Setter
+	private int maxCachedMatches = 10000;
+	
 	public static final Pattern SPECIAL_REGEX_CHARS = Pattern.compile("[{}()\\[\\].+*?^$\\\\|]");
 	
+	private static final Comparator<BeanKeyForMatching> HIERARCHY_ORDER = (o1, o2) -> {
+		String[] g1 = o1.getHierarchyGroups();
+		String[] g2 = o2.getHierarchyGroups();
+		if(g2.length != g1.length)
+			return g2.length > g1.length ? 1 : -1;
+		
+		for(int count = g1.length - 1; count >= 0; count--) {
+			int c = g2[count].compareTo(g1[count]);
+			if(c != 0)
+				return c;
+		}
+		return 0;
+	};
+	
+	@Getter(AccessLevel.NONE)
+	private final Map<Integer, Pattern> hierarchyPatterns = new ConcurrentHashMap<>();
+	
+	@Getter(AccessLevel.NONE)
+	private final Map<String, BeanKeyForMatching> beanKeys = new ConcurrentHashMap<>();
+	
+	@Getter(AccessLevel.NONE)
+	private final Map<Class<?>, List<BeanKeyForMatching>> candidatesByType = new ConcurrentHashMap<>();
+	
+	@Getter(AccessLevel.NONE)
+	private final Map<Class<?>, Map<String, Optional<String>>> matchesByType = new ConcurrentHashMap<>();
+	
+	@Getter(AccessLevel.NONE)
+	private volatile boolean cacheEnabled;
+	
 	public<T extends HierarchyMatch> T findMatchingBean(Class<T> type, String beanIdToFind) {
-		Map<String, T> beans = this.getCtx().getBeansOfType(type);
-		if(MapUtils.isEmpty(beans)) return null;
-		List<String> beanNamesToMatch = new ArrayList<>();
-		beans.entrySet().forEach((entry) -> {
-			beanNamesToMatch.add(entry.getKey());
-		});
-		String matchedBeanName = findMatchingBean(beanIdToFind, beanNamesToMatch);
+		if(!cacheEnabled || beanIdToFind == null)
+			return findMatchingBeanName(sortedCandidates(type), beanIdToFind)
+					.map(nm->getCtx().getBean(nm, type))
+					.orElse(null);
 		
-		Entry<String, T> matchedEntry = beans.entrySet().stream().
-				filter((bean)-> bean.getKey().equals(matchedBeanName)).
-				findFirst().orElse(null);
-		return Optional.ofNullable(matchedEntry).map(Entry::getValue).orElse(null);
+		Map<String, Optional<String>> matches = matchesByType.computeIfAbsent(type, t->new ConcurrentHashMap<>());
+		Optional<String> matchedBeanName = matches.get(beanIdToFind);
+		if(matchedBeanName == null) {
+			matchedBeanName = findMatchingBeanName(candidatesByType.computeIfAbsent(type, this::sortedCandidates), beanIdToFind);
+			
+			if(matches.size() < maxCachedMatches)
+				matches.put(beanIdToFind, matchedBeanName);
+		}
+		return matchedBeanName.map(nm->getCtx().getBean(nm, type)).orElse(null);
 	}	
 	
 	public String findMatchingBean(String beanIdToFind, List<String> beans) {
-		Collections.sort(beans, (o1, o2) -> {
-				Pattern p1 = createHierarchyMatchRegexPattern(o1);
-				Pattern p2 = createHierarchyMatchRegexPattern(o2);
-				Matcher m1 = p1.matcher(o1);
-	            Matcher m2 = p2.matcher(o2);
-	            m1.matches();
-	            m2.matches();
-	            if(m2.groupCount() > m1.groupCount()) {
-	            	return 1;
-	            }
-	            else if(m2.groupCount() < m1.groupCount()) {
-	            	return -1;
-	            }
-	            else{
-		            for(int count = m1.groupCount();count > 0; count--) {
-		        	   if(m2.group(count).compareTo(m1.group(count)) != 0) {
-		        		   return m2.group(count).compareTo(m1.group(count));
-		        	   }
-		            }
-	            }
-	            return 0;
-	        });
-		List<BeanKeyForMatching> deployedBeans = new ArrayList<BeanKeyForMatching>();
-		beans.forEach((bean)-> deployedBeans.add(new BeanKeyForMatching(bean)));
+		List<BeanKeyForMatching> deployedBeans = sortByHierarchy(beans);
+		
+		// sorted in place, as before
+		beans.clear();
+		deployedBeans.forEach(k->beans.add(k.getBeanId()));
+		
+		return findMatchingBeanName(deployedBeans, beanIdToFind).orElse(null);
+	}
+	
+	private static Optional<String> findMatchingBeanName(List<BeanKeyForMatching> deployedBeans, String beanIdToFind) {
 		for(BeanKeyForMatching deployedBean : deployedBeans){
 			if(deployedBean.matches(beanIdToFind)){
-				return deployedBean.getBeanId();
+				return Optional.of(deployedBean.getBeanId());
 			}
 		}
-		return null;
+		return Optional.empty();
+	}
+	
+	private List<BeanKeyForMatching> sortedCandidates(Class<?> type) {
+		return sortByHierarchy(Arrays.asList(getCtx().getBeanNamesForType(type)));
+	}
+	
+	private List<BeanKeyForMatching> sortByHierarchy(List<String> beanNames) {
+		List<BeanKeyForMatching> keys = new ArrayList<>(beanNames.size());
+		beanNames.forEach(nm->keys.add(cacheEnabled ? beanKeys.computeIfAbsent(nm, BeanKeyForMatching::new) : new BeanKeyForMatching(nm)));
+		
+		Collections.sort(keys, HIERARCHY_ORDER);
+		return Collections.unmodifiableList(keys);
 	}
 	
 	@Override
@@ -106,17 +150,39 @@ public class HierarchyMatchBasedBeanFinder implements ApplicationContextAware {
 		this.ctx = applicationContext;
 	}
 	
+	@Override
+	public void onApplicationEvent(ApplicationContextEvent event) {
+		if(event.getApplicationContext() != getCtx())
+			return;
+		
+		clearCaches();
+		cacheEnabled = event instanceof ContextRefreshedEvent;
+		
+		// warm with all hierarchy match beans
+		if(cacheEnabled)
+			for(String nm : getCtx().getBeanNamesForType(HierarchyMatch.class))
+				beanKeys.computeIfAbsent(nm, BeanKeyForMatching::new);
+	}
+	
+	private void clearCaches() {
+		matchesByType.clear();
+		candidatesByType.clear();
+		beanKeys.clear();
+	}
 	
 	private Pattern createHierarchyMatchRegexPattern(String beanUri) {
-		StringBuilder ptrnStr = new StringBuilder();
 		String[] cmdUriTokens = StringUtils.split(beanUri, Constants.SEPARATOR_URI.code);
-		for(int i = 0; i < cmdUriTokens.length; i++) {
-			if(i > 0) {
-				ptrnStr.append(Constants.SEPARATOR_URI.code);
+		
+		return hierarchyPatterns.computeIfAbsent(cmdUriTokens.length, tokenCount->{
+			StringBuilder ptrnStr = new StringBuilder();
+			for(int i = 0; i < tokenCount; i++) {
+				if(i > 0) {
+					ptrnStr.append(Constants.SEPARATOR_URI.code);
+				}
+				ptrnStr.append(getProcessBeanRegex());
 			}
-			ptrnStr.append(getProcessBeanRegex());
-		}
-		return Pattern.compile(ptrnStr.toString());
+			return Pattern.compile(ptrnStr.toString());
+		});
 	}
 	
 	@Getter @Setter
@@ -126,11 +192,22 @@ public class HierarchyMatchBasedBeanFinder implements ApplicationContextAware {
 		private String beanIdForMatching;
 		private Pattern pattern;
 		
+		/**
+		 * groups of the bean id matched against the hierarchy pattern, used to order more specific beans first
+		 */
+		private String[] hierarchyGroups;
+		
 		public BeanKeyForMatching(String beanId){
 			this.beanId = beanId;
 			beanIdForMatching = SPECIAL_REGEX_CHARS.matcher(beanId).replaceAll("\\\\$0");
 			beanIdForMatching = beanIdForMatching.replaceAll("default\\\\.", "(.*?)\\.");
 			pattern = Pattern.compile(beanIdForMatching);
+			
+			Matcher m = createHierarchyMatchRegexPattern(beanId).matcher(beanId);
+			boolean matched = m.matches();
+			hierarchyGroups = new String[m.groupCount()];
+			for(int i = 0; i < hierarchyGroups.length; i++)
+				hierarchyGroups[i] = matched ? StringUtils.defaultString(m.group(i + 1)) : "";
 		}
 		
 		@Override
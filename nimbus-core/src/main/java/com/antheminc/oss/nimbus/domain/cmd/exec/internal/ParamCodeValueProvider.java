@@ -24,7 +24,6 @@ import java.util.Map;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.beans.BeanUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import com.antheminc.oss.nimbus.FrameworkRuntimeException;
@@ -33,10 +32,12 @@ import com.antheminc.oss.nimbus.domain.cmd.CommandMessage;
 import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecution.Input;
 import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecution.Output;
 import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecutor;
+import com.antheminc.oss.nimbus.domain.cmd.exec.internal.search.StaticCodeValueCache;
 import com.antheminc.oss.nimbus.domain.model.config.ParamValue;
 import com.antheminc.oss.nimbus.domain.model.state.HierarchyMatch;
 import com.antheminc.oss.nimbus.entity.AbstractEntity;
 import com.antheminc.oss.nimbus.entity.StaticCodeValue;
+import com.antheminc.oss.nimbus.support.pojo.JavaBeanHandlerUtils;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -53,8 +54,15 @@ public class ParamCodeValueProvider implements HierarchyMatch, CommandExecutor<L
 	
 	DefaultActionExecutorSearch searchExecutor;
 	
+	StaticCodeValueCache codeValueCache;
+	
 	public ParamCodeValueProvider(DefaultActionExecutorSearch searchExecutor) {
+		this(searchExecutor, null);
+	}
+	
+	public ParamCodeValueProvider(DefaultActionExecutorSearch searchExecutor, StaticCodeValueCache codeValueCache) {
 		this.searchExecutor = searchExecutor;
+		this.codeValueCache = codeValueCache;
 	}
 	
 	@Getter @Setter
@@ -86,7 +94,6 @@ public class ParamCodeValueProvider implements HierarchyMatch, CommandExecutor<L
 	}
 	
 	
-	@SuppressWarnings("unchecked")
 	private List<ParamValue> getStaticCodeValue(Input input) {	
 		CommandMessage cmdMsg = input.getContext().getCommandMessage();
 		
@@ -95,7 +102,17 @@ public class ParamCodeValueProvider implements HierarchyMatch, CommandExecutor<L
 			return values.get(cmdMsg.getRawPayload());
 		}
 		
-		// 1.2 DB lookup
+		// 1.2 DB lookup, cached by param code
+		if(codeValueCache == null)
+			return findStaticCodeValue(input);
+		
+		return codeValueCache.getOrLoad(cmdMsg.getRawPayload(), ()->findStaticCodeValue(input));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<ParamValue> findStaticCodeValue(Input input) {
+		CommandMessage cmdMsg = input.getContext().getCommandMessage();
+		
 		cmdMsg.setRawPayload("{\"paramCode\":\""+cmdMsg.getRawPayload()+"\"}");
 		List<StaticCodeValue> modelList = (List<StaticCodeValue>)searchExecutor.execute(input);
 		if(CollectionUtils.isEmpty(modelList))
@@ -132,11 +149,11 @@ public class ParamCodeValueProvider implements HierarchyMatch, CommandExecutor<L
 				for(int i=1; i<nestedDomainModels.length; i++) {
 					try {
 						if(i == 1) {
-							currentPd = BeanUtils.getPropertyDescriptor(modelList.get(0).getClass(), nestedDomainModels[i]);
+							currentPd = JavaBeanHandlerUtils.getPropertyDescriptor(modelList.get(0).getClass(), nestedDomainModels[i]);
 							currentObject = currentPd.getReadMethod().invoke(modelList.get(0));
 						}
 						else{
-							currentPd = BeanUtils.getPropertyDescriptor(currentObject.getClass(), nestedDomainModels[i]);
+							currentPd = JavaBeanHandlerUtils.getPropertyDescriptor(currentObject.getClass(), nestedDomainModels[i]);
 							currentObject = currentPd.getReadMethod().invoke(currentObject);
 						}
 					}
@@ -161,9 +178,9 @@ public class ParamCodeValueProvider implements HierarchyMatch, CommandExecutor<L
 			Class<? extends AbstractEntity> codeValueClass = coll.iterator().next().getClass();
 			
 			
-			PropertyDescriptor pd = BeanUtils.getPropertyDescriptor(codeValueClass, DEFAULT_KEY_ATTRIBUTE);
-			PropertyDescriptor pd1 = BeanUtils.getPropertyDescriptor(codeValueClass, keyValuePayload.length > 0?keyValuePayload[0]:DEFAULT_KEY_ATTRIBUTE);
-			PropertyDescriptor pd2 = BeanUtils.getPropertyDescriptor(codeValueClass, keyValuePayload.length > 1?keyValuePayload[1]:keyValuePayload[0]);
+			PropertyDescriptor pd = JavaBeanHandlerUtils.getPropertyDescriptor(codeValueClass, DEFAULT_KEY_ATTRIBUTE);
+			PropertyDescriptor pd1 = JavaBeanHandlerUtils.getPropertyDescriptor(codeValueClass, keyValuePayload.length > 0?keyValuePayload[0]:DEFAULT_KEY_ATTRIBUTE);
+			PropertyDescriptor pd2 = JavaBeanHandlerUtils.getPropertyDescriptor(codeValueClass, keyValuePayload.length > 1?keyValuePayload[1]:keyValuePayload[0]);
 			
 			try {
 				List<ParamValue> paramValues = new ArrayList<>();
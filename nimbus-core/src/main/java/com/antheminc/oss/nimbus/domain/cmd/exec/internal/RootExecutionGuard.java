@@ -0,0 +1,209 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.domain.model.state.ExecutionRuntime;
+import com.antheminc.oss.nimbus.support.JustLogit;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Serializes root command executions on the same root model, using the fair {@link ExecutionRuntime#getExecutionLock()} of 
+ * its runtime. Executions on different root models (e.g. different sessions) never wait on each other. <br>
+ * 
+ * Roots held by a thread are carried into the threads of {@link CrossDomainCommandExecutor}, as the caller blocks while its 
+ * cross-domain command executes and a command coming back to the caller's root must not wait on the caller.
+ */
+@ConfigurationProperties(prefix="command.executor.root.guard")
+@ManagedResource(objectName="com.antheminc.oss.nimbus:name=RootExecutionGuard", description="Root command execution guard")
+@Getter @Setter
+public class RootExecutionGuard {
+
+	private static final JustLogit logit = new JustLogit(RootExecutionGuard.class);
+	
+	private static final ThreadLocal<Set<ReentrantLock>> heldInThread = ThreadLocal.withInitial(RootExecutionGuard::newLockSet);
+	
+	private static final ThreadLocal<Set<ReentrantLock>> inheritedInThread = new ThreadLocal<>();
+	
+	private boolean enabled = true;
+	
+	/**
+	 * max wait for a concurrent execution on the same root to complete, 0 or less waits indefinitely 
+	 */
+	private long waitTimeoutMillis = 30000;
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong acquiredCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong contendedCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong timedOutCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong totalWaitMillis = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong maxWaitMillis = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicInteger waiting = new AtomicInteger();
+	
+	private static Set<ReentrantLock> newLockSet() {
+		return Collections.newSetFromMap(new IdentityHashMap<>());
+	}
+	
+	/**
+	 * Acquires the execution lock of the given runtime, waiting up to {@code waitTimeoutMillis} if another 
+	 * thread is executing on the same root.
+	 * 
+	 * @return true if acquired and must be released via {@link #release(ExecutionRuntime)}, false if there was nothing to acquire
+	 */
+	public boolean acquire(ExecutionRuntime rt) {
+		if(!enabled)
+			return false;
+		
+		final ReentrantLock lock = rt.getExecutionLock();
+		if(lock == null || lock.isHeldByCurrentThread() || isInherited(lock))
+			return false;
+		
+		acquiredCount.incrementAndGet();
+		try {
+			// timed tryLock honors fairness, unlike the untimed one
+			if(!lock.tryLock(0, TimeUnit.MILLISECONDS))
+				awaitContended(rt, lock);
+			
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new FrameworkRuntimeException("Interrupted while waiting on concurrent execution on root: "+rt.getRootExecution(), ex);
+		}
+		
+		heldInThread.get().add(lock);
+		return true;
+	}
+	
+	private void awaitContended(ExecutionRuntime rt, ReentrantLock lock) throws InterruptedException {
+		contendedCount.incrementAndGet();
+		waiting.incrementAndGet();
+		
+		final long start = System.currentTimeMillis();
+		boolean acquired = false;
+		try {
+			if(waitTimeoutMillis <= 0) {
+				lock.lockInterruptibly();
+				acquired = true;
+			} else {
+				acquired = lock.tryLock(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+			}
+		} finally {
+			waiting.decrementAndGet();
+			
+			long waited = System.currentTimeMillis() - start;
+			totalWaitMillis.addAndGet(waited);
+			maxWaitMillis.accumulateAndGet(waited, Math::max);
+		}
+		
+		if(!acquired) {
+			timedOutCount.incrementAndGet();
+			throw new FrameworkRuntimeException("Timed out after "+waitTimeoutMillis+" ms waiting on concurrent execution on root: "+rt.getRootExecution()
+					+" with queue length: "+lock.getQueueLength());
+		}
+		
+		logit.debug(()->"Acquired root execution lock after waiting for "+(System.currentTimeMillis() - start)+" ms on root: "+rt.getRootExecution());
+	}
+	
+	public void release(ExecutionRuntime rt) {
+		final ReentrantLock lock = rt.getExecutionLock();
+		
+		heldInThread.get().remove(lock);
+		lock.unlock();
+	}
+	
+	private static boolean isInherited(ReentrantLock lock) {
+		Set<ReentrantLock> inherited = inheritedInThread.get();
+		return inherited != null && inherited.contains(lock);
+	}
+	
+	/**
+	 * @return locks of the roots held (or inherited) by the current thread, to be passed on to {@link #inherit(Set)} in another thread
+	 */
+	public static Set<ReentrantLock> held() {
+		Set<ReentrantLock> held = newLockSet();
+		held.addAll(heldInThread.get());
+		
+		Set<ReentrantLock> inherited = inheritedInThread.get();
+		if(inherited != null)
+			held.addAll(inherited);
+		
+		return held;
+	}
+	
+	/**
+	 * Marks the given roots' locks as held on behalf of the current thread; pass null to clear.
+	 */
+	public static void inherit(Set<ReentrantLock> locks) {
+		if(locks == null || locks.isEmpty())
+			inheritedInThread.remove();
+		else
+			inheritedInThread.set(locks);
+	}
+	
+	@ManagedAttribute
+	public long getAcquiredCount() {
+		return acquiredCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getContendedCount() {
+		return contendedCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getTimedOutCount() {
+		return timedOutCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getTotalWaitMillis() {
+		return totalWaitMillis.get();
+	}
+	
+	@ManagedAttribute
+	public long getMaxWaitMillis() {
+		return maxWaitMillis.get();
+	}
+	
+	@ManagedAttribute
+	public int getWaiting() {
+		return waiting.get();
+	}
+}
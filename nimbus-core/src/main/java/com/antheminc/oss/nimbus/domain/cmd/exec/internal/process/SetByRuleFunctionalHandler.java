@@ -66,7 +66,7 @@ public class SetByRuleFunctionalHandler <T, R> extends AbstractFunctionHandler<T
 				
 		Assert.notNull(rConfig, "Rule config is null for the rule: "+eCtx.getCommandMessage().getCommand().getFirstParameterValue("rule"));
 		
-		RulesRuntime rRuntime = reFactory.createRuntime(rConfig);
+		RulesRuntime rRuntime = reFactory.createStatelessRuntime(rConfig);
 		rRuntime.start();
 		
 		List<Param<T>> params = new ArrayList<>();
@@ -21,7 +21,7 @@ import java.util.List;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import com.antheminc.oss.nimbus.FrameworkRuntimeException;
 import com.antheminc.oss.nimbus.domain.cmd.Command;
@@ -35,6 +35,7 @@ import com.antheminc.oss.nimbus.domain.model.state.repo.db.SearchCriteria.Lookup
 import com.antheminc.oss.nimbus.domain.model.state.repo.db.SearchCriteria.ProjectCriteria;
 import com.antheminc.oss.nimbus.entity.StaticCodeValue;
 import com.antheminc.oss.nimbus.support.EnableLoggingInterceptor;
+import com.antheminc.oss.nimbus.support.pojo.JavaBeanHandlerUtils;
 
 /**
  * @author Rakesh Patel
@@ -44,17 +45,25 @@ import com.antheminc.oss.nimbus.support.EnableLoggingInterceptor;
 @EnableLoggingInterceptor
 public class DefaultSearchFunctionHandlerLookup<T, R> extends DefaultSearchFunctionHandler<T, R> {
 
+	@Autowired(required=false) StaticCodeValueCache codeValueCache;
+	
 	@Override
 	public R execute(ExecutionContext executionContext, Param<T> actionParameter) {
 		
 		ModelConfig<?> mConfig = getRootDomainConfig(executionContext);
 		
-		List<?> searchResult = (List<?>)super.execute(executionContext, actionParameter);
-				
 		Command cmd = executionContext.getCommandMessage().getCommand();
-		if(StringUtils.equalsIgnoreCase(cmd.getElementSafely(Type.DomainAlias).getAlias(), "staticCodeValue")) {
-			return getStaticParamValues((List<StaticCodeValue>)searchResult, cmd);
+		if(StringUtils.equalsIgnoreCase(cmd.getElementSafely(Type.DomainAlias).getAlias(), StaticCodeValueCache.ALIAS)) {
+			if(codeValueCache == null)
+				return getStaticParamValues((List<StaticCodeValue>)super.execute(executionContext, actionParameter), cmd);
+			
+			String where = cmd.getFirstParameterValue(Constants.SEARCH_REQ_WHERE_MARKER.code);
+			return (R)codeValueCache.getOrLoad(StaticCodeValueCache.keyOf(where), 
+					()->getStaticParamValues((List<StaticCodeValue>)super.execute(executionContext, actionParameter), cmd));
 		}
+		
+		List<?> searchResult = (List<?>)super.execute(executionContext, actionParameter);
+				
 		LookupSearchCriteria lookupSearchCriteria = createSearchCriteria(executionContext, mConfig, actionParameter);
 		return getDynamicParamValues(lookupSearchCriteria, mConfig.getReferredClass(), searchResult);
 	}
@@ -78,14 +87,14 @@ public class DefaultSearchFunctionHandlerLookup<T, R> extends DefaultSearchFunct
 		return lookupSearchCriteria;
 	}
 	
-	private R getStaticParamValues(List<StaticCodeValue> searchResult, Command cmd) {	
+	private List<ParamValue> getStaticParamValues(List<StaticCodeValue> searchResult, Command cmd) {	
 		if(CollectionUtils.isEmpty(searchResult))
 			return null;
 		
 		if(CollectionUtils.size(searchResult) > 1)
 			throw new IllegalStateException("StaticCodeValue search for a command "+cmd+" returned more than one records for paramCode");
 		
-		return (R) searchResult.get(0).getParamValues();
+		return searchResult.get(0).getParamValues();
 	}
 	
 	private R getDynamicParamValues(LookupSearchCriteria lookupSearchCriteria, Class<?> criteriaClass, List<?> searchResult) {
@@ -94,8 +103,8 @@ public class DefaultSearchFunctionHandlerLookup<T, R> extends DefaultSearchFunct
 		if(list.size() > 2)
 			throw new IllegalStateException("ParamValues lookup failed due to more than 2 fields provided to create the param values. the criteria class is "+criteriaClass);
 		
-		PropertyDescriptor codePd = BeanUtils.getPropertyDescriptor(criteriaClass, list.get(0));
-		PropertyDescriptor labelPd = BeanUtils.getPropertyDescriptor(criteriaClass, list.get(1));
+		PropertyDescriptor codePd = JavaBeanHandlerUtils.getPropertyDescriptor(criteriaClass, list.get(0));
+		PropertyDescriptor labelPd = JavaBeanHandlerUtils.getPropertyDescriptor(criteriaClass, list.get(1));
 		
 		try {
 			List<ParamValue> paramValues = new ArrayList<>();
@@ -0,0 +1,182 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec.internal.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
+import com.antheminc.oss.nimbus.domain.model.config.ParamValue;
+import com.antheminc.oss.nimbus.domain.model.state.repo.ModelPersistenceListener;
+import com.antheminc.oss.nimbus.entity.StaticCodeValue;
+import com.antheminc.oss.nimbus.support.JustLogit;
+import com.antheminc.oss.nimbus.support.pojo.TtlCache;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Local cache of static code values, keyed by param code, shared by the {@code staticCodeValue} lookups. <br>
+ * 
+ * Disabled by default, set {@code static.codevalue.cache.enabled=true} to turn it on. <br>
+ * 
+ * Entries expire after {@code ttlMillis}, which bounds staleness for changes made outside of the application. 
+ * Changes to {@code staticCodeValue} made through the application (e.g. {@code _update}) clear the cache once the 
+ * persistence handler has written them, and lookups that loaded while such a write completed are not cached. 
+ * With {@code warmUp} enabled, all static code values are loaded on context refresh. <br>
+ * 
+ * Lookups get their own copy of the cached list.
+ */
+@ConfigurationProperties(prefix="static.codevalue.cache")
+@ManagedResource(objectName="com.antheminc.oss.nimbus:name=StaticCodeValueCache", description="Static code value cache")
+@Getter @Setter
+public class StaticCodeValueCache implements ModelPersistenceListener, ApplicationListener<ContextRefreshedEvent> {
+
+	public static final String ALIAS = "staticCodeValue";
+	
+	private static final JustLogit logit = new JustLogit(StaticCodeValueCache.class);
+	
+	/**
+	 * where clause of a lookup by param code, e.g. {@code staticCodeValue.paramCode.eq('/orgType')}
+	 */
+	private static final Pattern PARAM_CODE_WHERE = Pattern.compile("^\\s*"+ALIAS+"\\.paramCode\\.eq\\(\\s*['\"]([^'\"]*)['\"]\\s*\\)\\s*$");
+	
+	private boolean enabled = false;
+	
+	private long ttlMillis = 600000;
+	
+	private int maxSize = 2000;
+	
+	private boolean warmUp = false;
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final BeanResolverStrategy beanResolver;
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private TtlCache<String, List<ParamValue>> cache;
+	
+	/**
+	 * bumped on every persisted change, guarded by {@code this} together with the put of a loaded entry
+	 */
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private long generation;
+	
+	public StaticCodeValueCache(BeanResolverStrategy beanResolver) {
+		this.beanResolver = beanResolver;
+	}
+	
+	@PostConstruct
+	public void init() {
+		this.cache = new TtlCache<>(ttlMillis, maxSize);
+	}
+	
+	/**
+	 * @return param code of a lookup by param code, otherwise the where clause itself
+	 */
+	public static String keyOf(String where) {
+		if(where == null)
+			return null;
+		
+		Matcher m = PARAM_CODE_WHERE.matcher(where);
+		return m.matches() ? m.group(1) : where;
+	}
+	
+	public List<ParamValue> getOrLoad(String key, Supplier<List<ParamValue>> loader) {
+		if(!enabled || key == null)
+			return loader.get();
+		
+		List<ParamValue> values = cache.get(key);
+		if(values == null) {
+			long loadedAt = currentGeneration();
+			values = loader.get();
+			putIfUnchanged(key, values, loadedAt);
+		}
+		return values == null ? null : new ArrayList<>(values);
+	}
+	
+	public void put(String key, List<ParamValue> values) {
+		cache.put(key, values);
+	}
+	
+	private synchronized long currentGeneration() {
+		return generation;
+	}
+	
+	// a load overlapping a persisted change may have read the old document
+	private synchronized void putIfUnchanged(String key, List<ParamValue> values, long loadedAt) {
+		if(generation == loadedAt)
+			cache.put(key, values);
+	}
+	
+	@ManagedOperation(description="Clears all cached static code values")
+	public synchronized void invalidateAll() {
+		generation++;
+		cache.invalidateAll();
+	}
+	
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		if(!enabled || !warmUp)
+			return;
+		
+		MongoOperations mongoOps = beanResolver.find(MongoOperations.class);
+		if(mongoOps == null) {
+			logit.warn(()->"Skipping warm up of static code values, no "+MongoOperations.class.getSimpleName()+" available");
+			return;
+		}
+		
+		List<StaticCodeValue> codeValues = mongoOps.findAll(StaticCodeValue.class, ALIAS);
+		codeValues.forEach(cv->put(cv.getParamCode(), cv.getParamValues()));
+		
+		logit.info(()->"Warmed up cache with "+codeValues.size()+" static code values");
+	}
+	
+	@Override
+	public void onPersisted(String repoAlias) {
+		if(StringUtils.equals(ALIAS, repoAlias))
+			invalidateAll();
+	}
+	
+	@ManagedAttribute
+	public int getSize() {
+		return cache.size();
+	}
+	
+	@ManagedAttribute
+	public long getHitCount() {
+		return cache.getHitCount();
+	}
+	
+	@ManagedAttribute
+	public long getMissCount() {
+		return cache.getMissCount();
+	}
+}
@@ -91,8 +91,9 @@ public class DefaultParamConfig<P> extends AbstractEntityConfig<P> implements Pa
 		Objects.requireNonNull(code, ()->"code in param config must not be null");
 		Objects.requireNonNull(beanName, ()->"beanName in param config must not be null");
 		
-		this.code = code;
-		this.beanName = beanName;
+		// interned: same codes repeat across every config and every path built from them
+		this.code = code.intern();
+		this.beanName = beanName.intern();
 		
 	}
 	
@@ -103,8 +104,8 @@ public class DefaultParamConfig<P> extends AbstractEntityConfig<P> implements Pa
 		Objects.requireNonNull(beanName, ()->"beanName in param config must not be null");
 		Objects.requireNonNull(id, ()->"id in param config must not be null");
 		
-		this.code = code;
-		this.beanName = beanName;
+		this.code = code.intern();
+		this.beanName = beanName.intern();
 	}
 
 
@@ -20,7 +20,9 @@ import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -103,12 +105,21 @@ public interface EntityState<T> {
 	
 	Mapped<T, ?> findIfMapped();
 	
-	@Getter @RequiredArgsConstructor @ToString
+	@Getter @RequiredArgsConstructor @ToString(of="pd")
 	public static class ValueAccessor {
 
 		@JsonIgnore
 		private final PropertyDescriptor pd;
 		
+		/**
+		 * generated read/write functions, created once per accessor by handlers that use them
+		 */
+		@JsonIgnore @Setter
+		private volatile Function<Object, Object> readFunction;
+		
+		@JsonIgnore @Setter
+		private volatile BiConsumer<Object, Object> writeFunction;
+		
 		public Method getReadMethod() {
 			return pd.getReadMethod();
 		}
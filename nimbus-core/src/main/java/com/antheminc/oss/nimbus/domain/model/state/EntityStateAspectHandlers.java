@@ -43,5 +43,15 @@ public class EntityStateAspectHandlers {
 	private ParamStateGateway paramStateGateway;
 	
 	private BeanResolverStrategy beanResolver;
+	
+	/**
+	 * build nested models and collection elements below the root domain on first access
+	 */
+	private boolean lazyModels;
+	
+	public EntityStateAspectHandlers(EventListener eventListener, BiFunction<Param<?>, String, Object> bpmEvaluator, 
+			ValidatorProvider validatorProvider, ParamStateGateway paramStateGateway, BeanResolverStrategy beanResolver) {
+		this(eventListener, bpmEvaluator, validatorProvider, paramStateGateway, beanResolver, false);
+	}
 }
  
\ No newline at end of file
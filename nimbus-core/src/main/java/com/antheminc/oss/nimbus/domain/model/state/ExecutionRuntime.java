@@ -15,6 +15,7 @@
  */
 package com.antheminc.oss.nimbus.domain.model.state;
 
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 
@@ -34,6 +35,26 @@ public interface ExecutionRuntime extends Notification.Dispatcher<Object> {
 	
 	public ExecutionModel<?> getRootExecution();
 	
+	/**
+	 * Lock held for the duration of a root command execution, so that concurrent requests on the same root model 
+	 * (e.g. one cached in http session) are applied one after the other.
+	 */
+	public ReentrantLock getExecutionLock();
+	
+	/**
+	 * Count of state changes applied on the root model(s) of this runtime, e.g. to skip re-evaluation of rules when 
+	 * nothing changed since their last evaluation.
+	 */
+	public long getStateVersion();
+	
+	public void onStateChange();
+	
+	/**
+	 * Rules runtime holding state across fires (e.g. a stateful session) of any model within this runtime, 
+	 * shut down when this runtime stops.
+	 */
+	public void registerRulesRuntime(RulesRuntime rulesRuntime);
+	
 	/**
 	 * Wait till registered fine-grained state changes are notified to consumers and they have completed handling the event
 	 */
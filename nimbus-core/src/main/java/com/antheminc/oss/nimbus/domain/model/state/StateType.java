@@ -17,6 +17,7 @@ package com.antheminc.oss.nimbus.domain.model.state;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.function.Supplier;
 
 import com.antheminc.oss.nimbus.domain.model.config.ParamConfigType;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.ListModel;
@@ -93,6 +94,137 @@ public class StateType implements Serializable {
 		public Nested<P> findIfNested() {
 			return this;
 		}
+		
+		/**
+		 * @return false if the nested model is built lazily and hasn't been accessed yet
+		 */
+		@JsonIgnore
+		public boolean isMaterialized() {
+			return true;
+		}
+		
+		/**
+		 * Initializes state of the nested model; for a lazily built model, deferred until it is materialized.
+		 */
+		public void initModelState() {
+			getModel().initState();
+		}
+		
+		/**
+		 * Fires rules of the nested model; skipped for a lazily built model not yet materialized, 
+		 * as its rules are fired on state initialization once materialized.
+		 */
+		public void fireModelRules() {
+			if(getModel()!=null)
+				getModel().fireRules();
+		}
+	}
+	
+	/**
+	 * Builds the nested model on first access rather than along with its enclosing param. <br>
+	 * The model is published before its state is initialized, so that params accessing it during initialization 
+	 * see the same instance; other threads wait until materialization completes.
+	 */
+	static class Materializer<M extends EntityState.Model<?>> implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+
+		private transient Supplier<M> creator;
+		
+		private M model;
+		
+		private volatile boolean materialized;
+		
+		private boolean initPending;
+		
+		Materializer(Supplier<M> creator) {
+			this.creator = creator;
+		}
+		
+		M get() {
+			if(materialized)
+				return model;
+			
+			synchronized(this) {
+				// re-entrant access during initialization of the model returns the published instance
+				if(model!=null)
+					return model;
+				
+				if(creator==null)
+					throw new InvalidStateException("Nested model accessed while being built, creator already invoked");
+				
+				Supplier<M> c = creator;
+				creator = null;
+				
+				try {
+					model = c.get();
+				} catch (RuntimeException ex) {
+					creator = c;
+					throw ex;
+				}
+				
+				try {
+					if(initPending)
+						model.initState();
+				} finally {
+					materialized = true;
+				}
+				return model;
+			}
+		}
+		
+		boolean isMaterialized() {
+			return materialized;
+		}
+		
+		synchronized void initState() {
+			if(model!=null)
+				model.initState();
+			else
+				initPending = true;
+		}
+		
+		void fireRules() {
+			if(materialized)
+				model.fireRules();
+		}
+	}
+	
+	public static class LazyNested<P> extends Nested<P> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Materializer<Model<P>> materializer;
+		
+		public LazyNested(ParamConfigType.Nested<P> config, Supplier<Model<P>> creator) {
+			super(config, null);
+			this.materializer = new Materializer<>(creator);
+		}
+		
+		@Override
+		public Model<P> getModel() {
+			return materializer.get();
+		}
+		
+		@Override
+		public boolean isMaterialized() {
+			return materializer.isMaterialized();
+		}
+		
+		@Override
+		public void initModelState() {
+			materializer.initState();
+		}
+		
+		@Override
+		public void fireModelRules() {
+			materializer.fireRules();
+		}
+		
+		@Override
+		public String toString() {
+			return getClass().getSimpleName()+"(config="+getConfig()+", materialized="+isMaterialized()+")";
+		}
 	}
 	
 	public static class NestedCollection<P> extends Nested<List<P>> {
@@ -125,6 +257,43 @@ public class StateType implements Serializable {
 		}
 	}
 	
+	public static class LazyNestedCollection<P> extends NestedCollection<P> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Materializer<ListModel<P>> materializer;
+		
+		public LazyNestedCollection(ParamConfigType.NestedCollection<P> config, Supplier<ListModel<P>> creator) {
+			super(config, null);
+			this.materializer = new Materializer<>(creator);
+		}
+		
+		@Override
+		public ListModel<P> getModel() {
+			return materializer.get();
+		}
+		
+		@Override
+		public boolean isMaterialized() {
+			return materializer.isMaterialized();
+		}
+		
+		@Override
+		public void initModelState() {
+			materializer.initState();
+		}
+		
+		@Override
+		public void fireModelRules() {
+			materializer.fireRules();
+		}
+		
+		@Override
+		public String toString() {
+			return getClass().getSimpleName()+"(config="+getConfig()+", materialized="+isMaterialized()+")";
+		}
+	}
+	
 	public static class MappedTransient<P> extends Nested<P> implements Serializable {
 		private static final long serialVersionUID = 1L;
 		
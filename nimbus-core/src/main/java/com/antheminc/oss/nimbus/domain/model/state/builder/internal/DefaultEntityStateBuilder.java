@@ -15,12 +15,20 @@
  */
 package com.antheminc.oss.nimbus.domain.model.state.builder.internal;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.collections.CollectionUtils;
 
 import com.antheminc.oss.nimbus.InvalidConfigException;
 import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
 import com.antheminc.oss.nimbus.domain.cmd.Command;
+import com.antheminc.oss.nimbus.domain.model.config.EventHandlerConfig;
 import com.antheminc.oss.nimbus.domain.model.config.ModelConfig;
 import com.antheminc.oss.nimbus.domain.model.config.ParamConfig;
 import com.antheminc.oss.nimbus.domain.model.config.ParamConfigType;
@@ -43,6 +51,11 @@ import com.antheminc.oss.nimbus.entity.process.ProcessFlow;
  */
 public class DefaultEntityStateBuilder extends AbstractEntityStateBuilder implements EntityStateBuilder {
 
+	/* whether nested models of a type hold mapped params with OnStateChange handlers, per type of nested param being mapped or not */
+	private final Map<ParamConfigType.Nested<?>, Boolean> mappedStateChangeHandlers = new ConcurrentHashMap<>();
+	
+	private final Map<ParamConfigType.Nested<?>, Boolean> mappedStateChangeHandlersUnderMapped = new ConcurrentHashMap<>();
+	
 	public DefaultEntityStateBuilder(BeanResolverStrategy beanResolver) {
 		super(beanResolver);
 	}
@@ -202,6 +215,10 @@ public class DefaultEntityStateBuilder extends AbstractEntityStateBuilder implem
 			ModelConfig<List<P>> nmConfig = nmcType.getModelConfig();
 			
 			DefaultListElemParamState.Creator<P> elemCreator = (colModelState, elemId) -> buildElemParam(aspectHandlers, colModelState, colModelState.getElemConfig(), elemId);
+			
+			if(isLazy(aspectHandlers, associatedParam))
+				return new StateType.LazyNestedCollection<>(nmcType, ()->createCollectionModel(associatedParam.findIfCollection(), nmConfig, aspectHandlers, elemCreator));
+			
 			DefaultListModelState<P> nmcState = createCollectionModel(associatedParam.findIfCollection(), nmConfig, aspectHandlers, elemCreator); 
 			
 			StateType.NestedCollection<P> nctSAC = new StateType.NestedCollection<>(nmcType, nmcState);
@@ -214,22 +231,11 @@ public class DefaultEntityStateBuilder extends AbstractEntityStateBuilder implem
 			@SuppressWarnings("unchecked")
 			ParamConfigType.Nested<P> mpNmType = ((ParamConfigType.Nested<P>)associatedParam.getConfig().getType());
 			
-			ModelConfig<P> mpNmConfig = mpNmType.getModelConfig();
-			
-			/* determine mapsTo model SAC for param's nested model */
-			final Model<?> mpNmMapsToSAC;
-			
-			if(!associatedParam.isMapped()) {
-				mpNmMapsToSAC = mapsToSAC;
-			} else if(associatedParam.getConfig().getType().isNested()) {
-				mpNmMapsToSAC = associatedParam.findIfMapped().getMapsTo().getType().findIfNested().getModel();
-			} else { // leaf
-				mpNmMapsToSAC = associatedParam.findIfMapped().getMapsTo().getParentModel();
-			}
-			
+			if(isLazy(aspectHandlers, associatedParam))
+				return new StateType.LazyNested<>(mpNmType, ()->buildNestedModel(aspectHandlers, associatedParam, mpNmType, mapsToSAC));
 			
 			/* create nested model SAC */
-			DefaultModelState<P> nmState = buildModel(aspectHandlers, associatedParam, mpNmConfig, mpNmMapsToSAC);
+			DefaultModelState<P> nmState = buildNestedModel(aspectHandlers, associatedParam, mpNmType, mapsToSAC);
 			StateType.Nested<P> ntState = new StateType.Nested<>(mpNmType, nmState);
 			return ntState;
 			
@@ -239,4 +245,77 @@ public class DefaultEntityStateBuilder extends AbstractEntityStateBuilder implem
 		}
 	}
 	
+	/**
+	 * Params directly under the execution root are always needed, nested models below are built on first access if enabled for the domain. <br>
+	 * Mapped params subscribe to their mapsTo params when they are built, hence models holding mapped params with OnStateChange handlers 
+	 * are always built eagerly; otherwise changes of the mapsTo params made before first access would never reach those handlers.
+	 */
+	private boolean isLazy(EntityStateAspectHandlers aspectHandlers, DefaultParamState<?> associatedParam) {
+		if(!aspectHandlers.isLazyModels() || associatedParam.getParentModel().isRoot())
+			return false;
+		
+		return !hasMappedStateChangeHandlers(associatedParam.getConfig().getType().findIfNested(), associatedParam.isMapped());
+	}
+	
+	private boolean hasMappedStateChangeHandlers(ParamConfigType.Nested<?> nestedType, boolean mapped) {
+		Map<ParamConfigType.Nested<?>, Boolean> cache = mapped ? mappedStateChangeHandlersUnderMapped : mappedStateChangeHandlers;
+		
+		Boolean has = cache.get(nestedType);
+		if(has == null) {
+			has = hasMappedStateChangeHandlers(nestedType, mapped, new HashSet<>());
+			cache.put(nestedType, has);
+		}
+		return has;
+	}
+	
+	/* params of a model nested under a mapped param are considered mapped, as they may get mapped without conversion on build */
+	private boolean hasMappedStateChangeHandlers(ParamConfigType.Nested<?> nestedType, boolean mapped, Set<List<Object>> visited) {
+		if(!visited.add(Arrays.asList(nestedType, mapped)))
+			return false;
+		
+		if(nestedType.isCollection())
+			return hasMappedStateChangeHandlers(nestedType.findIfCollection().getElementConfig(), mapped, visited);
+		
+		ModelConfig<?> mConfig = nestedType.getModelConfig();
+		if(mConfig == null || mConfig.getParamConfigs() == null)
+			return false;
+		
+		for(ParamConfig<?> pConfig : mConfig.getParamConfigs()) {
+			if(hasMappedStateChangeHandlers(pConfig, mapped, visited))
+				return true;
+		}
+		return false;
+	}
+	
+	private boolean hasMappedStateChangeHandlers(ParamConfig<?> pConfig, boolean mapped, Set<List<Object>> visited) {
+		if(pConfig == null)
+			return false;
+		
+		boolean pMapped = mapped || pConfig.isMapped();
+		
+		EventHandlerConfig eventHandlerConfig = pConfig.getEventHandlerConfig();
+		if(pMapped && eventHandlerConfig != null && CollectionUtils.isNotEmpty(eventHandlerConfig.getOnStateChangeAnnotations()))
+			return true;
+		
+		ParamConfigType.Nested<?> nestedType = pConfig.getType().findIfNested();
+		return nestedType != null && hasMappedStateChangeHandlers(nestedType, pMapped, visited);
+	}
+	
+	private <P> DefaultModelState<P> buildNestedModel(EntityStateAspectHandlers aspectHandlers, DefaultParamState<P> associatedParam, ParamConfigType.Nested<P> mpNmType, Model<?> mapsToSAC) {
+		ModelConfig<P> mpNmConfig = mpNmType.getModelConfig();
+		
+		/* determine mapsTo model SAC for param's nested model */
+		final Model<?> mpNmMapsToSAC;
+		
+		if(!associatedParam.isMapped()) {
+			mpNmMapsToSAC = mapsToSAC;
+		} else if(associatedParam.getConfig().getType().isNested()) {
+			mpNmMapsToSAC = associatedParam.findIfMapped().getMapsTo().getType().findIfNested().getModel();
+		} else { // leaf
+			mpNmMapsToSAC = associatedParam.findIfMapped().getMapsTo().getParentModel();
+		}
+		
+		return buildModel(aspectHandlers, associatedParam, mpNmConfig, mpNmMapsToSAC);
+	}
+	
 }
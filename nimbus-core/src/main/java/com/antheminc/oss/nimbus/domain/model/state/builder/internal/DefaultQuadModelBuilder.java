@@ -16,13 +16,16 @@
 package com.antheminc.oss.nimbus.domain.model.state.builder.internal;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiFunction;
 
 import javax.annotation.PostConstruct;
 
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.web.client.RestTemplate;
 
 import com.antheminc.oss.nimbus.InvalidConfigException;
@@ -50,9 +53,12 @@ import lombok.Setter;
  * @author Soham Chakravarti
  *
  */
+@ConfigurationProperties(prefix="model.state")
 @Getter @Setter
 public class DefaultQuadModelBuilder implements QuadModelBuilder {
 
+	public static final String LAZY_ALL_DOMAINS = "*";
+
 	private DomainConfigBuilder domainConfigApi;
 	
 	private EntityStateBuilder stateBuilder;
@@ -71,6 +77,12 @@ public class DefaultQuadModelBuilder implements QuadModelBuilder {
 	
 	private RestTemplate restTemplate = new RestTemplate();
 	
+	/**
+	 * root domain aliases whose nested models and collection elements are built on first access rather than along with 
+	 * the quad model, {@value #LAZY_ALL_DOMAINS} for all; models holding mapped params with OnStateChange handlers are still built eagerly
+	 */
+	private Set<String> lazyDomains = new HashSet<>();
+	
 	public DefaultQuadModelBuilder(BeanResolverStrategy beanResolver) {
 		this.beanResolver = beanResolver;
 	}
@@ -93,7 +105,7 @@ public class DefaultQuadModelBuilder implements QuadModelBuilder {
 	public <V, C> QuadModel<V, C> build(Command cmd, V viewState, Param<C> coreParam) {
 		ExecutionEntity.ExConfig<V, C> exConfig = buildExecConfig(cmd);
 
-		ExecutionEntity<V, C>.ExModel execModel = stateBuilder.buildExec(cmd.createRootDomainCommand(), createAspectHandlers(), exConfig, viewState, coreParam);
+		ExecutionEntity<V, C>.ExModel execModel = stateBuilder.buildExec(cmd.createRootDomainCommand(), createAspectHandlers(cmd), exConfig, viewState, coreParam);
 		
 		return build(execModel);
 	}
@@ -102,7 +114,7 @@ public class DefaultQuadModelBuilder implements QuadModelBuilder {
 	public <V, C> QuadModel<V, C> build(Command cmd, ExecutionEntity<V, C> eState) {
 		ExecutionEntity.ExConfig<V, C> exConfig = buildExecConfig(cmd);
 
-		ExecutionEntity<V, C>.ExModel execModel = getStateBuilder().buildExec(cmd.createRootDomainCommand(), createAspectHandlers(), eState, exConfig);
+		ExecutionEntity<V, C>.ExModel execModel = getStateBuilder().buildExec(cmd.createRootDomainCommand(), createAspectHandlers(cmd), eState, exConfig);
 		
 		return build(execModel);
 	}
@@ -125,10 +137,17 @@ public class DefaultQuadModelBuilder implements QuadModelBuilder {
 		return exConfig;
 	}
 	
-	private EntityStateAspectHandlers createAspectHandlers() {
+	private EntityStateAspectHandlers createAspectHandlers(Command cmd) {
 		QuadScopedEventListener qEventListener = new QuadScopedEventListener(getParamEventListeners());
 		
 		BiFunction<Param<?>, String, Object> bpmEvaluator = (p, pid) -> getBpmGateway().continueBusinessProcessExecution(p, pid);
-		return new EntityStateAspectHandlers(qEventListener, bpmEvaluator, getValidatorProvider(), getParamStateGateway(), beanResolver);
+		return new EntityStateAspectHandlers(qEventListener, bpmEvaluator, getValidatorProvider(), getParamStateGateway(), beanResolver, isLazy(cmd));
+	}
+	
+	private boolean isLazy(Command cmd) {
+		if(getLazyDomains().isEmpty())
+			return false;
+		
+		return getLazyDomains().contains(LAZY_ALL_DOMAINS) || getLazyDomains().contains(cmd.getRootDomainAlias());
 	}
 }
@@ -34,6 +34,7 @@ import com.antheminc.oss.nimbus.domain.model.state.ParamEvent;
 import com.antheminc.oss.nimbus.domain.model.state.event.StateEventHandlers.OnStateChangeHandler;
 import com.antheminc.oss.nimbus.domain.model.state.repo.IdSequenceRepository;
 import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepository;
+import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepositoryBatchWriter;
 import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepositoryFactory;
 import com.antheminc.oss.nimbus.entity.audit.AuditEntry;
 import com.antheminc.oss.nimbus.support.EnableLoggingInterceptor;
@@ -74,11 +75,14 @@ public class AuditStateChangeHandler implements OnStateChangeHandler<Audit> {
 	
 	private final IdSequenceRepository idSequenceRepo;
 	
+	private final ModelRepositoryBatchWriter batchWriter;
+	
 	public AuditStateChangeHandler(BeanResolverStrategy beanResolver) {
 		this.repositoryFactory = beanResolver.get(ModelRepositoryFactory.class);
 		this.domainConfigBuilder = beanResolver.get(DomainConfigBuilder.class);
 		this.javaBeanHandler = beanResolver.get(JavaBeanHandler.class);
 		this.idSequenceRepo =  beanResolver.get(IdSequenceRepository.class);
+		this.batchWriter = beanResolver.get(ModelRepositoryBatchWriter.class);
 	}
 	
 	
@@ -130,7 +134,7 @@ public class AuditStateChangeHandler implements OnStateChangeHandler<Audit> {
 		Long id = getIdSequenceRepo().getNextSequenceId(repoAlias);
 		ae.setId(id);
 		
-		db._save(repoAlias, ae);
+		getBatchWriter().save(db, repoAlias, ae);
 	}
 	
 	private String findAuditHistoryAlias(ModelConfig<?> auditConfig, Audit configuredAnnotation) {
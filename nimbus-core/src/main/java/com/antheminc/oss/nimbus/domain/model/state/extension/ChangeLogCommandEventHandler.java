@@ -22,6 +22,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import org.springframework.data.annotation.Id;
+
 import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
 import com.antheminc.oss.nimbus.domain.cmd.Action;
 import com.antheminc.oss.nimbus.domain.cmd.Command;
@@ -34,6 +36,7 @@ import com.antheminc.oss.nimbus.domain.model.state.ParamEvent;
 import com.antheminc.oss.nimbus.domain.model.state.event.CommandEventHandlers.OnRootCommandExecuteHandler;
 import com.antheminc.oss.nimbus.domain.model.state.event.CommandEventHandlers.OnSelfCommandExecuteHandler;
 import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepository;
+import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepositoryBatchWriter;
 import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepositoryFactory;
 import com.antheminc.oss.nimbus.domain.session.SessionProvider;
 import com.antheminc.oss.nimbus.entity.client.user.ClientUser;
@@ -54,10 +57,15 @@ public class ChangeLogCommandEventHandler implements OnRootCommandExecuteHandler
 
 	private ModelRepositoryFactory repositoryFactory;
 	private SessionProvider sessionProvider;
+	private ModelRepositoryBatchWriter batchWriter;
 	
 	@Getter @Setter @ToString
 	public static class ChangeLogEntry {
 
+		// assigned when written
+		@Id
+		private String id;
+		
 	    // when
 		private Date on;
 
@@ -84,6 +92,7 @@ public class ChangeLogCommandEventHandler implements OnRootCommandExecuteHandler
 	public ChangeLogCommandEventHandler(BeanResolverStrategy beanResolver) {
 		this.repositoryFactory = beanResolver.get(ModelRepositoryFactory.class);
 		this.sessionProvider = beanResolver.get(SessionProvider.class);
+		this.batchWriter = beanResolver.get(ModelRepositoryBatchWriter.class);
 	}
 	
 	@Override
@@ -101,7 +110,7 @@ public class ChangeLogCommandEventHandler implements OnRootCommandExecuteHandler
 		
 		// log command : ALL
 		if(!cmd.isRootDomainOnly())
-			Handler.forCommand(cmd, rep, currentUser).addUrl().save();		
+			Handler.forCommand(cmd, rep, currentUser).addUrl().save(getBatchWriter());		
 		
 		// log model
 //		aggregatedEvents.keySet().stream()
@@ -128,7 +137,7 @@ public class ChangeLogCommandEventHandler implements OnRootCommandExecuteHandler
 		aggregatedEvents.stream()
 			.filter(pe->!pe.getParam().isMapped()) // core
 			.filter(pe->pe.getParam().isLeafOrCollectionWithLeafElems()) // leaf
-				.forEach(pe->Handler.forParam(rep, pe, currentUser).save());
+				.forEach(pe->Handler.forParam(rep, pe, currentUser).save(getBatchWriter()));
 			
 	}
 	
@@ -157,7 +166,7 @@ public class ChangeLogCommandEventHandler implements OnRootCommandExecuteHandler
 		
 		// log command : only root command CRUD actions
 		//if(cmd.isRootDomainOnly() && cmd.getAction().isCrud())
-			Handler.forCommand(cmd, rep, currentUser).addUrl().save();
+			Handler.forCommand(cmd, rep, currentUser).addUrl().save(getBatchWriter());
 
 	}
 	
@@ -213,8 +222,8 @@ public class ChangeLogCommandEventHandler implements OnRootCommandExecuteHandler
 			return this;
 		}
 	
-		public void save() {
-			rep._save("changelog", entry);
+		public void save(ModelRepositoryBatchWriter writer) {
+			writer.save(rep, "changelog", entry);
 		}
 		
 	}
@@ -63,7 +63,7 @@ public class RuleStateEventHandler extends EvalExprWithCrudActions<Rule>
 			final RulesConfig rConfig = this.getRulesConfig(ruleAlias);
 			if (null != rConfig) {
 				
-				final RulesRuntime rRuntime = getRulesEngineFactory().createRuntime(rConfig);
+				final RulesRuntime rRuntime = getRulesEngineFactory().createStatelessRuntime(rConfig);
 				
 				// Disallow defining @Rule with the same rule file as the root param.
 				final Param<?> rootParam = onChangeParam.getRootDomain().getAssociatedParam();
@@ -65,9 +65,13 @@ public abstract class AbstractEntityState<T> implements EntityState<T> {
 	@Setter(AccessLevel.NONE)
 	@JsonIgnore private EntityStateAspectHandlers aspectHandlers;
 	
-	@JsonIgnore final protected LockTemplate lockTemplate = new LockTemplate();
+	/**
+	 * created on first use by the root domain model only; all entities of a root domain share its lock
+	 */
+	@JsonIgnore @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private volatile LockTemplate lockTemplate;
 	
-	@JsonIgnore final protected JustLogit logit = new JustLogit(getClass());
+	@JsonIgnore protected static final JustLogit logit = new JustLogit(AbstractEntityState.class);
 	
 	@JsonIgnore private RulesRuntime rulesRuntime;
 	
@@ -86,6 +90,29 @@ public abstract class AbstractEntityState<T> implements EntityState<T> {
 		this.config = config;
 	}
 	
+	@Override
+	public LockTemplate getLockTemplate() {
+		Model<?> rootDomain = isRoot() ? null : getRootDomain();
+		if(rootDomain != null && rootDomain != this && rootDomain instanceof AbstractEntityState)
+			return ((AbstractEntityState<?>)rootDomain).getLockTemplate();
+		
+		LockTemplate lt = this.lockTemplate;
+		if(lt != null)
+			return lt;
+		
+		synchronized(this) {
+			if(this.lockTemplate == null)
+				this.lockTemplate = new LockTemplate();
+			
+			return this.lockTemplate;
+		}
+	}
+	
+	@JsonIgnore
+	boolean hasOwnLockTemplate() {
+		return this.lockTemplate != null;
+	}
+	
 	@Override
 	public String getConfigId() {
 		return getConfig().getId();
@@ -108,6 +135,10 @@ public abstract class AbstractEntityState<T> implements EntityState<T> {
 	
 	// TODO: SOHAM - need to refactor part of persistence changes
 	protected static String resolvePath(String p) {
+		// nothing to resolve: avoid the replace passes below
+		if(p == null || (p.indexOf("/c") < 0 && p.indexOf("/v") < 0 && p.indexOf("//") < 0))
+			return p;
+		
 		p = StringUtils.replace(p, "/c/", "/");
 		p = StringUtils.replace(p, "/v/", "/");
 		//p = StringUtils.replace(p, "/f/", "/");
@@ -181,22 +212,18 @@ public abstract class AbstractEntityState<T> implements EntityState<T> {
 			
 			return resp;
 		} finally {
+			if(h.getState()!=null)
+				execRt.onStateChange();
+			
 			if(execRt.isLocked(lockId)) {
 				logit.trace(()->"Executing within changeStateTemplate->finally block with lockId: "+lockId+" on param: "+this);
 				
-				// fire rules at root level upon completion of all set actions
-				if(h.getState()!=null) 
-					getRootExecution().fireRules();
-				
-				// notify subscribers to evaluate their process & rules
-				Param<Object> domainRootParam = (Param<Object>)getRootDomain().getAssociatedParam();
-				resolveRuntime().emitNotification(new Notification<Object>(domainRootParam, ActionType._evalProcess, domainRootParam));
-
-				// await completion of notification events
-				execRt.awaitNotificationsCompletion();
-				
-				// evaluate BPM
-				evaluateProcessFlow();
+				// evaluate rules & process now, unless deferred to completion of the root command
+				boolean fireRules = h.getState()!=null;
+				if(!DeferredEvaluator.defer(this, fireRules))
+					evaluateRulesAndProcess(execRt, fireRules);
+				else
+					execRt.awaitNotificationsCompletion();
 				
 				// unlock
 				boolean b = execRt.tryUnlock(lockId);
@@ -214,6 +241,37 @@ public abstract class AbstractEntityState<T> implements EntityState<T> {
 		}
 	}
 	
+	protected void evaluateRulesAndProcess(ExecutionRuntime execRt, boolean fireRules) {
+		// fire rules at root level upon completion of all set actions
+		if(fireRules) 
+			getRootExecution().fireRules();
+		
+		// notify subscribers to evaluate their process & rules
+		Param<Object> domainRootParam = (Param<Object>)getRootDomain().getAssociatedParam();
+		resolveRuntime().emitNotification(new Notification<Object>(domainRootParam, ActionType._evalProcess, domainRootParam));
+
+		// await completion of notification events
+		execRt.awaitNotificationsCompletion();
+		
+		// evaluate BPM
+		evaluateProcessFlow();
+	}
+	
+	/**
+	 * Runs the evaluation deferred by {@link DeferredEvaluator} within a transaction of its own.
+	 */
+	void evaluateDeferred(boolean fireRules) {
+		ExecutionRuntime execRt = resolveRuntime();
+		String lockId = execRt.tryLock();
+		try {
+			evaluateRulesAndProcess(execRt, fireRules);
+		} finally {
+			if(execRt.isLocked(lockId) && !execRt.tryUnlock(lockId)) {
+				logit.error(()->"Failed to release lock acquired during deferred evaluation of runtime: "+execRt+" with acquired lockId: "+lockId);
+			}
+		}
+	}
+	
 	protected void evaluateProcessFlow() {
 		String processExecId = Optional.ofNullable(getRootExecution().getState())
 								.map(m->(ExecutionEntity<?, ?>)m)
@@ -283,8 +341,21 @@ public abstract class AbstractEntityState<T> implements EntityState<T> {
 	
 	@Override
 	public <P> Param<P> findParamByPath(String path) {
+		ParamPathIndex index = ParamPathIndex.isIndexable(path) ? ParamPathIndex.of(this) : null;
+		if(index == null) {
+			String splits[] = StringUtils.split(path, Constants.SEPARATOR_URI.code);
+			return findParamByPath(splits);
+		}
+		
+		Param<P> p = index.get(this, path);
+		if(p != null)
+			return p;
+		
 		String splits[] = StringUtils.split(path, Constants.SEPARATOR_URI.code);
-		return findParamByPath(splits);
+		p = findParamByPath(splits);
+		
+		index.put(this, path, p);
+		return p;
 	}
 
 	@Override
@@ -326,12 +397,4 @@ public abstract class AbstractEntityState<T> implements EntityState<T> {
 		}
 	}
 	
-	@Override
-	protected void finalize() throws Throwable {
-		// stop rules runtime/session
-		Optional.ofNullable(getRulesRuntime())
-			.ifPresent(rt->rt.shutdown());
-		
-		super.finalize();
-	}
 }
@@ -43,7 +43,8 @@ public abstract class AbstractEvent<T extends Serializable, P> {
 	public enum PersistenceMode {
 
 		ATOMIC,
-		BATCH
+		BATCH,
+		COALESCED
 	}
   
 	
@@ -15,26 +15,27 @@
  */
 package com.antheminc.oss.nimbus.domain.model.state.internal;
 
-import java.util.ArrayList;
-import java.util.Queue;
+import java.util.Collections;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 
-import org.apache.commons.collections.CollectionUtils;
-
 import com.antheminc.oss.nimbus.domain.cmd.Command;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.ExecutionModel;
-import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
 import com.antheminc.oss.nimbus.domain.model.state.ExecutionRuntime;
 import com.antheminc.oss.nimbus.domain.model.state.ExecutionTxnContext;
 import com.antheminc.oss.nimbus.domain.model.state.InvalidStateException;
 import com.antheminc.oss.nimbus.domain.model.state.Notification;
 import com.antheminc.oss.nimbus.domain.model.state.ParamEvent;
+import com.antheminc.oss.nimbus.domain.model.state.RulesRuntime;
 import com.antheminc.oss.nimbus.domain.model.state.StateEventDelegator;
 import com.antheminc.oss.nimbus.support.JustLogit;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -57,6 +58,18 @@ public class DefaultExecutionRuntime implements ExecutionRuntime {
 	
 	private boolean isStarted;
 	
+	@Setter
+	private NotificationDispatcher notificationDispatcher = NotificationDispatcher.DEFAULT;
+	
+	/* fair: a burst of requests on the same root is applied in arrival order */
+	private final ReentrantLock executionLock = new ReentrantLock(true);
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong stateVersion = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final Set<RulesRuntime> rulesRuntimes = Collections.newSetFromMap(new ConcurrentHashMap<>());
+	
 	protected JustLogit logit = new JustLogit(this.getClass());
 	
 	private static final ThreadLocal<DefaultExecutionTxnContext> txnScopeInThread = new ThreadLocal<DefaultExecutionTxnContext>() {
@@ -79,9 +92,31 @@ public class DefaultExecutionRuntime implements ExecutionRuntime {
 	@Override
 	public synchronized void stop() {
 		eventDelegator.onStopRuntime(this);
+		shutdownRulesRuntimes();
 		this.isStarted = false;
 	}
 	
+	@Override
+	public void registerRulesRuntime(RulesRuntime rulesRuntime) {
+		rulesRuntimes.add(rulesRuntime);
+	}
+	
+	/* rules runtimes keeping state across fires (e.g. stateful sessions) are released along with the root model */
+	private void shutdownRulesRuntimes() {
+		rulesRuntimes.forEach(RulesRuntime::shutdown);
+		rulesRuntimes.clear();
+	}
+	
+	@Override
+	public long getStateVersion() {
+		return stateVersion.get();
+	}
+	
+	@Override
+	public void onStateChange() {
+		stateVersion.incrementAndGet();
+	}
+	
 	@Override
 	public DefaultExecutionTxnContext getTxnContext() {
 		return txnScopeInThread.get();
@@ -94,6 +129,8 @@ public class DefaultExecutionRuntime implements ExecutionRuntime {
 			throw new InvalidStateException("Txn already started with id: "+getTxnContext().getId());
 		
 		String lockId = UUID.randomUUID().toString();
+		getTxnContext().resetNotificationStats();
+		getTxnContext().setCoalesceUpdates(getNotificationDispatcher().isCoalesceUpdates());
 		getTxnContext().setId(lockId);
 		
 		eventDelegator.onStartTxn(getTxnContext());
@@ -112,6 +149,8 @@ public class DefaultExecutionRuntime implements ExecutionRuntime {
 		
 		eventDelegator.onStopTxn(getTxnContext());
 		
+		getNotificationDispatcher().onTxnComplete(getTxnContext());
+		
 		String lockId = getTxnContext().getId();
 		getTxnContext().setId(null);
 		
@@ -188,34 +227,7 @@ public class DefaultExecutionRuntime implements ExecutionRuntime {
 	}
 	
 	protected void awaitNotificationsCompletionInternal() {
-		Queue<Notification<Object>> _notifications = getTxnContext().getNotifications();
-		if(CollectionUtils.isEmpty(_notifications))
-			return;
-
-		// copy
-		Queue<Notification<Object>> notifications = new LinkedBlockingDeque<>(_notifications);
-		
-		while(!notifications.isEmpty()) {
-			Notification<Object> event = notifications.poll();
-			_notifications.remove(event);
-			Param<Object> source =  event.getSource();
-			
-			if(CollectionUtils.isNotEmpty(source.getEventSubscribers()))
-				new ArrayList<>(source.getEventSubscribers())
-					.stream()
-						.forEach(subscribedParam->subscribedParam.handleNotification(event));
-		}
-		
-		int initialSize = _notifications.size();
-		int finalSize = notifications.size();
-		
-		if(initialSize!=finalSize) {
-			if(logit.getLog().isDebugEnabled())
-				logit.info(()->"[awaitNotificationsCompletion] re-invoke to handle additional events added during initial notifications processing in txnCtx: "
-						+getTxnContext().getId()+" with notification queue size initial: "+initialSize+" final: "+finalSize);
-		
-			awaitNotificationsCompletion();
-		} 
+		getNotificationDispatcher().drain(getTxnContext());
 	}
 	
 	@Override
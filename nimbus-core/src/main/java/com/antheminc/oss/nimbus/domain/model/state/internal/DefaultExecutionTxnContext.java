@@ -15,19 +15,22 @@
  */
 package com.antheminc.oss.nimbus.domain.model.state.internal;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
 
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
 import com.antheminc.oss.nimbus.domain.model.state.ExecutionTxnContext;
 import com.antheminc.oss.nimbus.domain.model.state.InvalidStateException;
 import com.antheminc.oss.nimbus.domain.model.state.Notification;
+import com.antheminc.oss.nimbus.domain.model.state.Notification.ActionType;
 import com.antheminc.oss.nimbus.domain.model.state.ParamEvent;
-import com.antheminc.oss.nimbus.support.JustLogit;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -36,23 +39,84 @@ import lombok.ToString;
  * @author Soham Chakravarti
  *
  */
-@Getter @Setter @ToString
+@Getter @Setter @ToString(exclude="pendingUpdates")
 public class DefaultExecutionTxnContext implements ExecutionTxnContext {
 	
 	private String id;
 
-	private final BlockingQueue<Notification<Object>> notifications = new LinkedBlockingQueue<>();
+	/* txn context is confined to its thread: a plain deque is the single work queue */
+	private final Deque<Notification<Object>> notifications = new ArrayDeque<>();
 	private final List<ParamEvent> events = new ArrayList<>();
-	private final static JustLogit LOG = new JustLogit();
+	
+	/* pending _updateState notification per source param, for coalescing */
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final Map<Param<?>, Notification<Object>> pendingUpdates = new IdentityHashMap<>();
+	
+	private boolean coalesceUpdates = true;
+	
+	@Setter(AccessLevel.NONE)
+	private NotificationStats notificationStats = new NotificationStats();
+	
+	@Getter @ToString
+	public static class NotificationStats {
+		private int enqueued;
+		private int coalesced;
+		private int dispatched;
+		private int maxQueueDepth;
+		private int maxDepth;
+		private int drains;
+		private long drainNanos;
+		
+		void onEnqueue(int queueDepth) {
+			enqueued++;
+			maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+		}
+		
+		void onDrain(int dispatchedInDrain, int depth, long nanos) {
+			drains++;
+			dispatched += dispatchedInDrain;
+			maxDepth = Math.max(maxDepth, depth);
+			drainNanos += nanos;
+		}
+	}
+	
+	/**
+	 * Starts notification statistics afresh for a new transaction; notifications still pending are carried over.
+	 */
+	public void resetNotificationStats() {
+		this.notificationStats = new NotificationStats();
+	}
 	
 	@Override
 	public void addNotification(Notification<Object> notification) {
-		try {
-			getNotifications().put(notification);
-		} catch (InterruptedException ex) {
-			LOG.error(() -> "Failed to place notification event on queue with value: " + notification, ex);
-			Thread.currentThread().interrupt();
-		}	
+		final Param<?> source = notification.getSource();
+		
+		if(notification.getActionType() == ActionType._updateState) {
+			// handlers read current state of the source, so one pending update covers any number of changes
+			if(coalesceUpdates && pendingUpdates.containsKey(source)) {
+				notificationStats.coalesced++;
+				return;
+			}
+			pendingUpdates.put(source, notification);
+			
+		} else if(notification.getActionType() != ActionType._evalProcess) {
+			// structural change of the source: any later update must be handled after it
+			pendingUpdates.remove(source);
+		}
+		
+		getNotifications().add(notification);
+		notificationStats.onEnqueue(getNotifications().size());
+	}
+	
+	/**
+	 * @return next notification to dispatch, or null if none are pending
+	 */
+	public Notification<Object> pollNotification() {
+		Notification<Object> notification = getNotifications().poll();
+		if(notification != null && pendingUpdates.get(notification.getSource()) == notification)
+			pendingUpdates.remove(notification.getSource());
+		
+		return notification;
 	}
 
 	
@@ -82,14 +82,14 @@ public class DefaultListElemParamState<E> extends DefaultParamState<E> implement
 	}
 	
 	@Override
-	public String getPath() {
-		String p = super.getPath();
+	protected String computePath() {
+		String p = super.computePath();
 		return replaceIndexConstantWithElemId(p);
 	}
 	
 	@Override
-	public String getBeanPath() {
-		String p = super.getBeanPath();
+	protected String computeBeanPath() {
+		String p = super.computeBeanPath();
 		return replaceIndexConstantWithElemId(p);
 	}
 	
@@ -15,6 +15,8 @@
  */
 package com.antheminc.oss.nimbus.domain.model.state.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -25,8 +27,11 @@ import com.antheminc.oss.nimbus.domain.model.config.ParamConfigType;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.ListModel;
 import com.antheminc.oss.nimbus.domain.model.state.EntityStateAspectHandlers;
 import com.antheminc.oss.nimbus.domain.model.state.StateType;
+import com.antheminc.oss.nimbus.support.pojo.CollectionsTemplate;
+import com.antheminc.oss.nimbus.support.pojo.IndexedCollectionsTemplate;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 /**
@@ -41,6 +46,10 @@ public class DefaultListModelState<T> extends DefaultModelState<List<T>> impleme
 	@JsonIgnore 
 	final private DefaultListElemParamState.Creator<T> elemCreator;
 	
+	/* elements indexed by elemId and position, created on first use as templateParams() may be called during super's construction */
+	@JsonIgnore @Getter(AccessLevel.NONE)
+	private transient IndexedCollectionsTemplate<Param<?>> indexedTemplateParams;
+	
 	public DefaultListModelState(ListParam<T> associatedParam, ModelConfig<List<T>> config, EntityStateAspectHandlers provider, DefaultListElemParamState.Creator<T> elemCreator) {
 		super(associatedParam, config, provider);
 		this.elemCreator = elemCreator;
@@ -71,6 +80,22 @@ public class DefaultListModelState<T> extends DefaultModelState<List<T>> impleme
 		});
 	}
 
+	@JsonIgnore @Override
+	public CollectionsTemplate<List<Param<?>>, Param<?>> templateParams() {
+		if(indexedTemplateParams == null) {
+			indexedTemplateParams = new IndexedCollectionsTemplate<>(
+					() -> getParams(), (p) -> setParams(p), () -> Collections.synchronizedList(new ArrayList<>()), 
+					(p) -> p.findIfCollectionElem().getElemId(), (p) -> fromElemId(p.findIfCollectionElem().getElemId()));
+		}
+		return indexedTemplateParams;
+	}
+	
+	@JsonIgnore
+	public int getMaxElemIndex() {
+		templateParams();
+		return indexedTemplateParams.getMaxOrdinal();
+	}
+	
 	@Override
 	public ListElemParam<T> createElement(String elemId) {
 		return getElemCreator().apply(this, elemId).findIfCollectionElem();
@@ -32,6 +32,7 @@ import com.antheminc.oss.nimbus.domain.model.state.InvalidStateException;
 import com.antheminc.oss.nimbus.domain.model.state.Notification;
 import com.antheminc.oss.nimbus.domain.model.state.Notification.ActionType;
 import com.antheminc.oss.nimbus.domain.model.state.StateType;
+import com.antheminc.oss.nimbus.support.JustLogit;
 import com.antheminc.oss.nimbus.support.pojo.LockTemplate;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -42,6 +43,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  */
 public class DefaultListParamState<T> extends AbstractListPaginatedParam<T> implements ListParam<T> {
 	private static final long serialVersionUID = 1L;
+
+	private static final JustLogit logit = new JustLogit(DefaultListParamState.class);
 	
 	public static class LeafState<T> extends DefaultListParamState<T> implements LeafParam<List<T>> {
 		private static final long serialVersionUID = 1L;
@@ -110,6 +113,9 @@ public class DefaultListParamState<T> extends AbstractListPaginatedParam<T> impl
 	
 	@JsonIgnore
 	public int getMaxElemIndex() {
+		if(getNestedCollectionModel() instanceof DefaultListModelState)
+			return ((DefaultListModelState<T>)getNestedCollectionModel()).getMaxElemIndex();
+		
 		if(getNestedCollectionModel().templateParams().isNullOrEmpty())
 			return -1;
 		
@@ -274,6 +280,9 @@ public class DefaultListParamState<T> extends AbstractListPaginatedParam<T> impl
 		Param<?> pRemoved = pElem.getParentModel().templateParams().remove(elemId);
 		
 		// handle scenario that elem may already have been removed (e.g: mapsTo.remove would trigger deleteElem notification which wont find the element in mapped
+		if(pRemoved!=null)
+			ParamPathIndex.evictFor(pRemoved, true);
+		
 		if(isRemoved && pRemoved!=null) {
 			if(pRemoved!=pElem)
 				throw new InvalidStateException("Colection Elem Param removed must of same instance but found different. "
@@ -19,6 +19,7 @@ package com.antheminc.oss.nimbus.domain.model.state.internal;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -29,7 +30,6 @@ import java.util.function.Supplier;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.builder.EqualsBuilder;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.util.ClassUtils;
 
@@ -56,10 +56,12 @@ import com.antheminc.oss.nimbus.domain.model.state.event.StateEventHandlers.OnSt
 import com.antheminc.oss.nimbus.domain.model.state.support.DefaultJsonParamSerializer;
 import com.antheminc.oss.nimbus.entity.Findable;
 import com.antheminc.oss.nimbus.support.Holder;
+import com.antheminc.oss.nimbus.support.JustLogit;
 import com.antheminc.oss.nimbus.support.pojo.JavaBeanHandlerUtils;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -75,6 +77,8 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 
 	private static final long serialVersionUID = 1L;
 
+	private static final JustLogit logit = new JustLogit(DefaultParamState.class);
+
 	private StateType type;
 	
 	private ValidationResult validationResult;
@@ -85,39 +89,80 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 	@JsonIgnore
 	private boolean active = true;
 	
-	@JsonIgnore
-	private RemnantState<Boolean> visibleState = this.new RemnantState<>(true);
+	@SuppressWarnings("unchecked")
+	private static final Class<? extends ValidationGroup>[] NO_VALIDATION_GROUPS = new Class[0];
 	
-	@JsonIgnore
-	private RemnantState<Boolean> enabledState = this.new RemnantState<>(true);
+	/* remnant states are allocated on first change away from their initial state, until then the initial state is implied */
+	@JsonIgnore @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private RemnantState<Boolean> visibleState;
 	
-	@JsonIgnore
-	@SuppressWarnings("unchecked")
-	private RemnantState<Class<? extends ValidationGroup>[]> activeValidationGroupsState = new RemnantState<>(new Class[0]);
+	@JsonIgnore @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private RemnantState<Boolean> enabledState;
+	
+	@JsonIgnore @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private RemnantState<Class<? extends ValidationGroup>[]> activeValidationGroupsState;
 	
 	private List<ParamValue> values;
 	
-	@JsonIgnore
-	private RemnantState<Set<Message>> messageState = this.new RemnantState<Set<Message>>(null) {
-		@Override
-		public boolean hasChanged() {
-			Set<Message> prev = CollectionUtils.isEmpty(getPrevState()) ? null : getPrevState();
-			Set<Message> curr = CollectionUtils.isEmpty(getCurrState()) ? null : getCurrState();
-			
-			boolean isEquals = new EqualsBuilder().append(curr, prev).isEquals();
-			return !isEquals;
-		}
-	};
+	@JsonIgnore @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private RemnantState<Set<Message>> messageState;
 	
 	@Override
 	public boolean hasContextStateChanged() {
-		if(visibleState.hasChanged() || enabledState.hasChanged() || messageState.hasChanged()  
-				|| activeValidationGroupsState.hasChanged())
+		if(hasChanged(visibleState) || hasChanged(enabledState) || hasChanged(messageState)  
+				|| hasChanged(activeValidationGroupsState))
 			return true;
 		
 		return false;
 	}
 	
+	@JsonIgnore
+	int allocatedRemnantStateCount() {
+		return (visibleState == null ? 0 : 1) + (enabledState == null ? 0 : 1) 
+				+ (messageState == null ? 0 : 1) + (activeValidationGroupsState == null ? 0 : 1);
+	}
+	
+	private static boolean hasChanged(RemnantState<?> remnantState) {
+		return remnantState != null && remnantState.hasChanged();
+	}
+	
+	private RemnantState<Boolean> visibleState() {
+		if(visibleState == null)
+			visibleState = this.new RemnantState<>(true);
+		
+		return visibleState;
+	}
+	
+	private RemnantState<Boolean> enabledState() {
+		if(enabledState == null)
+			enabledState = this.new RemnantState<>(true);
+		
+		return enabledState;
+	}
+	
+	private RemnantState<Class<? extends ValidationGroup>[]> activeValidationGroupsState() {
+		if(activeValidationGroupsState == null)
+			activeValidationGroupsState = this.new RemnantState<>(NO_VALIDATION_GROUPS);
+		
+		return activeValidationGroupsState;
+	}
+	
+	private RemnantState<Set<Message>> messageState() {
+		if(messageState == null) {
+			messageState = this.new RemnantState<Set<Message>>(null) {
+				@Override
+				public boolean hasChanged() {
+					Set<Message> prev = CollectionUtils.isEmpty(getPrevState()) ? null : getPrevState();
+					Set<Message> curr = CollectionUtils.isEmpty(getCurrState()) ? null : getCurrState();
+					
+					boolean isEquals = new EqualsBuilder().append(curr, prev).isEquals();
+					return !isEquals;
+				}
+			};
+		}
+		return messageState;
+	}
+	
 	
 	/* TODO: Weak reference was causing the values to be GC-ed even before the builders got to building 
 	 * Allow referenced subscribers to get garbage collected in scenario when same core is referenced by multiple views. 
@@ -126,12 +171,20 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 	//@JsonIgnore @Getter(AccessLevel.PRIVATE)
 	//final private List<WeakReference<MappedParam<?, T>>> weakReferencedEventSubscribers = new ArrayList<>();
 	
-	@JsonIgnore 
-	List<MappedParam<?, T>> eventSubscribers = new ArrayList<>(); 
+	/* allocated on first registration, most params never have subscribers */
+	@JsonIgnore @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	List<MappedParam<?, T>> eventSubscribers; 
 	
 	
 	@JsonIgnore 
 	final ValueAccessor valueAccessor;
+	
+	/* paths are derived from the parent chain and config codes (and element ids), none of which change once constructed */
+	@JsonIgnore @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private transient volatile String cachedPath;
+	
+	@JsonIgnore @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private transient volatile String cachedBeanPath;
 
 	public static class LeafState<T> extends DefaultParamState<T> implements LeafParam<T> {
 		private static final long serialVersionUID = 1L;
@@ -177,6 +230,23 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 	
 	@Override
 	public String getPath() {
+		String p = this.cachedPath;
+		if(p == null)
+			this.cachedPath = p = computePath();
+		
+		return p;
+	}
+	
+	@Override
+	public String getBeanPath() {
+		String p = this.cachedBeanPath;
+		if(p == null)
+			this.cachedBeanPath = p = computeBeanPath();
+		
+		return p;
+	}
+	
+	protected String computePath() {
 		String parentPath = Optional.ofNullable(getParentModel()).map(Model::getPath).orElse("");
 		
 		String p = new StringBuilder(parentPath)
@@ -188,8 +258,7 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 		return p;
 	}
 	
-	@Override
-	public String getBeanPath() {
+	protected String computeBeanPath() {
 		String parentPath = Optional.ofNullable(getParentModel()).map(Model::getBeanPath).orElse("");
 		
 		String p = new StringBuilder(parentPath)
@@ -203,8 +272,9 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 	
 	@Override
 	protected void initStateInternal() {
+		// lazily built nested models are initialized once materialized
 		if(isNested())
-			findIfNested().initState();
+			getType().findIfNested().initModelState();
 		
 		// hook up on state load events
 		onStateLoadEvent(this);
@@ -244,8 +314,8 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 //		// self: on state change
 //		
 		// nested 
-		Optional.ofNullable(findIfNested())
-			.ifPresent(Model::fireRules);
+		if(isNested())
+			getType().findIfNested().fireModelRules();
 //		
 //		// parent
 //		Optional.ofNullable(getParentModel())
@@ -462,12 +532,21 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 			throw new InvalidOperationAttemptedException("Registering subscriber for Mapped entities are not supported. Found for: "+this.getPath()
 						+" while trying to add subscriber: "+subscriber.getPath());
 		
-		getEventSubscribers().add(subscriber);
+		if(eventSubscribers == null)
+			eventSubscribers = new ArrayList<>(2);
+		
+		eventSubscribers.add(subscriber);
 	}
 	
 	@Override
 	public boolean deregisterConsumer(MappedParam<?, T> subscriber) {
-		return getEventSubscribers().remove(subscriber);
+		return eventSubscribers != null && eventSubscribers.remove(subscriber);
+	}
+	
+	@JsonIgnore
+	@Override
+	public List<MappedParam<?, T>> getEventSubscribers() {
+		return eventSubscribers == null ? Collections.emptyList() : eventSubscribers;
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -538,17 +617,21 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 	}
 	
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	public <P> Param<P> findParamByPath(String[] pathArr) {
+		return findParamByPath(pathArr, 0);
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected <P> Param<P> findParamByPath(String[] pathArr, int from) {
 		final Param<P> _this = (Param<P>)this;
 		
 		// return self if no path is provided
-		if(ArrayUtils.isEmpty(pathArr))
+		if(pathArr==null || from>=pathArr.length)
 			return _this;
 
 		// find param with top most array element
-		final String currTopParamPathSegment = pathArr[0];
+		final String currTopParamPathSegment = pathArr[from];
 
 		final Param<P> currTopParam = (Param<P>)findParamByPathInSelf(currTopParamPathSegment);
 		
@@ -562,12 +645,15 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 		if(currTopNestedParam==null)
 			return null;
 		
-		// if path array size is 1, the return self found
-		if(pathArr.length==1)
+		// if no more path segments remain, then return the param found
+		if(from==pathArr.length-1)
 			return (Param<P>)currTopNestedParam;
 		
-		// nested param found: recurse for size-1 path segments with currTop removed
-		return currTopNestedParam.findParamByPath(ArrayUtils.remove(pathArr, 0));
+		// nested param found: continue with remaining path segments, without copying the array where possible
+		if(currTopNestedParam instanceof DefaultParamState)
+			return ((DefaultParamState<?>)currTopNestedParam).findParamByPath(pathArr, from+1);
+		
+		return currTopNestedParam.findParamByPath(Arrays.copyOfRange(pathArr, from+1, pathArr.length));
 	}
 
 	public Param<?> findParamByPathInModel(String singlePathSegment) {
@@ -674,11 +760,11 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 	
 	@Override
 	public boolean isVisible() {
-		return visibleState.getCurrState();
+		return visibleState == null || visibleState.getCurrState();
 	}
 	
 	public void setVisible(boolean visible) {
-		boolean changed = this.visibleState.setStateConditional(visible, ()->isActive() || !visible);
+		boolean changed = (visibleState == null && visible) ? false : visibleState().setStateConditional(visible, ()->isActive() || !visible);
 		if (!changed)
 			return;
 		
@@ -704,12 +790,12 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 	
 	@Override
 	public boolean isEnabled() {
-		return enabledState.getCurrState();
+		return enabledState == null || enabledState.getCurrState();
 	}
 	
 	@Override
 	public void setEnabled(boolean enabled) {
-		boolean changed = this.enabledState.setStateConditional(enabled, ()->isActive() || !enabled);
+		boolean changed = (enabledState == null && enabled) ? false : enabledState().setStateConditional(enabled, ()->isActive() || !enabled);
 		if (!changed)
 			return;
 		
@@ -745,13 +831,16 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 	
 	@Override
 	public Set<Message> getMessages() {
-		return Optional.ofNullable(this.messageState.getCurrState()).map(Collections::unmodifiableSet).orElse(null);
+		return Optional.ofNullable(this.messageState).map(RemnantState::getCurrState).map(Collections::unmodifiableSet).orElse(null);
 	}
 
 	@Override
 	public void setMessages(Set<Message> msgs) {
 		Set<Message> inMsgs = CollectionUtils.isEmpty(msgs) ? null : new HashSet<>(msgs);
-		this.messageState.setState(inMsgs);
+		if(this.messageState == null && inMsgs == null)
+			return;
+		
+		messageState().setState(inMsgs);
 	}
 	
 	private void emitParamContextEvent() {
@@ -859,12 +948,15 @@ public class DefaultParamState<T> extends AbstractEntityState<T> implements Para
 
 	@Override
 	public Class<? extends ValidationGroup>[] getActiveValidationGroups() {
-		return this.activeValidationGroupsState.getCurrState();
+		return this.activeValidationGroupsState == null ? NO_VALIDATION_GROUPS : this.activeValidationGroupsState.getCurrState();
 	}
 
 	@Override
 	public void setActiveValidationGroups(Class<? extends ValidationGroup>[] activeValidationGroups) {
-		this.activeValidationGroupsState.setState(activeValidationGroups);
+		if(this.activeValidationGroupsState == null && activeValidationGroups != null && activeValidationGroups.length == 0)
+			return;
+		
+		activeValidationGroupsState().setState(activeValidationGroups);
 	}
 
 	@JsonIgnore
@@ -0,0 +1,245 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.internal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
+import com.antheminc.oss.nimbus.support.JustLogit;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Defers rule firing, {@code _evalProcess} notification and BPM evaluation of a root domain model to the completion of the 
+ * root command, instead of running them at the end of every transaction that changes its state. Changes to the same root 
+ * within a command are coalesced into a single evaluation, firing rules if any of them required it. <br>
+ * 
+ * Deferral only applies within a root command scope opened via {@link #begin()}, or {@link #begin(boolean)} to defer regardless 
+ * of {@code enabled} (e.g. for a batch of commands); state changes outside of a command are evaluated at the end of their 
+ * transaction as before. Root domains listed in {@code excludedDomains} are always evaluated 
+ * at the end of each transaction, e.g. when a later command config reads state derived by rules.
+ */
+@ConfigurationProperties(prefix="model.evaluation.deferred")
+@ManagedResource(objectName="com.antheminc.oss.nimbus:name=DeferredEvaluator", description="Deferred rule and process evaluation")
+@Getter @Setter
+public class DeferredEvaluator {
+
+	private static final JustLogit logit = new JustLogit(DeferredEvaluator.class);
+	
+	private static final ThreadLocal<Scope> scopeInThread = new ThreadLocal<>();
+	
+	private boolean enabled = false;
+	
+	/**
+	 * aliases of root domains which opt out of deferral
+	 */
+	private Set<String> excludedDomains = new HashSet<>();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong scopeCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong deferredCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong evaluationCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong failedCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong totalEvaluationMillis = new AtomicLong();
+	
+	private static class Pending {
+		private final AbstractEntityState<?> origin;
+		private boolean fireRules;
+		
+		Pending(AbstractEntityState<?> origin) {
+			this.origin = origin;
+		}
+	}
+	
+	private static class Scope {
+		private final DeferredEvaluator owner;
+		private final Map<Model<?>, Pending> pendingByRoot = new IdentityHashMap<>();
+		private final Deque<Pending> pending = new ArrayDeque<>();
+		private boolean evaluating;
+		
+		Scope(DeferredEvaluator owner) {
+			this.owner = owner;
+		}
+		
+		boolean defer(AbstractEntityState<?> state, boolean fireRules) {
+			// changes made while evaluating are part of that evaluation
+			if(evaluating)
+				return false;
+			
+			Model<?> root = state.getRootDomain();
+			if(root == null || owner.isExcluded(root.getConfig().getAlias()))
+				return false;
+			
+			Pending p = pendingByRoot.get(root);
+			if(p == null) {
+				p = new Pending(state);
+				pendingByRoot.put(root, p);
+				pending.add(p);
+			}
+			p.fireRules |= fireRules;
+			
+			owner.deferredCount.incrementAndGet();
+			return true;
+		}
+		
+		void evaluate() {
+			if(pending.isEmpty())
+				return;
+			
+			final long start = System.currentTimeMillis();
+			evaluating = true;
+			RuntimeException failure = null;
+			try {
+				// each root is evaluated even if another one failed, the first failure is rethrown after all of them
+				Pending p;
+				while((p = pending.poll()) != null) {
+					owner.evaluationCount.incrementAndGet();
+					try {
+						p.origin.evaluateDeferred(p.fireRules);
+					} catch (RuntimeException ex) {
+						if(failure == null)
+							failure = ex;
+						else
+							failure.addSuppressed(ex);
+					}
+				}
+			} finally {
+				evaluating = false;
+				pending.clear();
+				pendingByRoot.clear();
+				
+				owner.totalEvaluationMillis.addAndGet(System.currentTimeMillis() - start);
+			}
+			
+			if(failure != null)
+				throw failure;
+		}
+	}
+	
+	public boolean isExcluded(String domainAlias) {
+		return excludedDomains != null && excludedDomains.contains(domainAlias);
+	}
+	
+	/**
+	 * Opens a deferral scope for the root command starting in the current thread.
+	 * 
+	 * @return true if opened and must be closed via {@link #end()}, false if disabled or already within a scope
+	 */
+	public boolean begin() {
+		return begin(false);
+	}
+	
+	/**
+	 * @param force opens the scope even if deferral is not {@code enabled}
+	 * @see #begin()
+	 */
+	public boolean begin(boolean force) {
+		if((!enabled && !force) || scopeInThread.get() != null)
+			return false;
+		
+		scopeInThread.set(new Scope(this));
+		scopeCount.incrementAndGet();
+		return true;
+	}
+	
+	/**
+	 * Runs the evaluations deferred so far in the current thread's scope, once per changed root domain. A failing root 
+	 * doesn't skip the evaluation of the others, the first failure is rethrown once all of them ran.
+	 */
+	public void complete() {
+		Scope scope = scopeInThread.get();
+		if(scope != null)
+			scope.evaluate();
+	}
+	
+	/**
+	 * Closes the current thread's scope. Evaluations still pending, i.e. when the root command failed before 
+	 * {@link #complete()}, are run on a best effort basis so that changes already applied are not left unevaluated.
+	 */
+	public void end() {
+		Scope scope = scopeInThread.get();
+		if(scope == null)
+			return;
+		
+		try {
+			scope.evaluate();
+		} catch (RuntimeException ex) {
+			failedCount.incrementAndGet();
+			logit.error(()->"Failed to run deferred evaluations on closing scope of failed root command", ex);
+		} finally {
+			scopeInThread.remove();
+		}
+	}
+	
+	/**
+	 * @return true if evaluation of the given state's root domain was deferred to the completion of the root command, 
+	 * false if it must be evaluated now
+	 */
+	static boolean defer(AbstractEntityState<?> state, boolean fireRules) {
+		Scope scope = scopeInThread.get();
+		return scope != null && scope.defer(state, fireRules);
+	}
+	
+	@ManagedAttribute
+	public long getScopeCount() {
+		return scopeCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getDeferredCount() {
+		return deferredCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getEvaluationCount() {
+		return evaluationCount.get();
+	}
+	
+	@ManagedAttribute(description="evaluations saved by coalescing changes within root commands")
+	public long getSavedEvaluationCount() {
+		return deferredCount.get() - evaluationCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getTotalEvaluationMillis() {
+		return totalEvaluationMillis.get();
+	}
+}
@@ -190,16 +190,16 @@ public class ExecutionEntity<V, C> extends AbstractEntity.IdLong implements Seri
 		}
 		
 		@Override
-		public String getPath() {
-			String p = super.getPath();
+		protected String computePath() {
+			String p = super.computePath();
 			
 			p = linkedParam.getPath() + p;
 			return p;
 		}
 		
 		@Override
-		public String getBeanPath() {
-			String p = super.getBeanPath();
+		protected String computeBeanPath() {
+			String p = super.computeBeanPath();
 			
 			p = linkedParam.getBeanPath() + p;
 			return p;
@@ -267,11 +267,18 @@ public class ExecutionEntity<V, C> extends AbstractEntity.IdLong implements Seri
 		@JsonIgnore
 		final private DefaultExecutionRuntime executionRuntime;
 		
+		@JsonIgnore
+		final transient private ParamPathIndex pathIndex = new ParamPathIndex();
+		
 		public ExModel(Command rootCommand, ExParam associatedParam, ModelConfig<ExecutionEntity<V, C>> modelConfig, EntityStateAspectHandlers provider) {
 			this(rootCommand, associatedParam, modelConfig, provider, 
 					new DefaultExecutionRuntime(rootCommand, new DefaultStateEventDelegator(provider)));
 			
 			this.executionRuntime.setRootExecution(this);
+			
+			Optional.ofNullable(provider.getBeanResolver())
+				.map(beanResolver->beanResolver.find(NotificationDispatcher.class))
+				.ifPresent(this.executionRuntime::setNotificationDispatcher);
 		}
 		
 		private ExModel(Command rootCommand, ExParam associatedParam, ModelConfig<ExecutionEntity<V, C>> modelConfig, EntityStateAspectHandlers provider, DefaultExecutionRuntime executionRuntime) {
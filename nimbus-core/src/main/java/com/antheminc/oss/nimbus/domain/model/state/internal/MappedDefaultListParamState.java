@@ -23,6 +23,7 @@ import com.antheminc.oss.nimbus.domain.model.state.EntityState;
 import com.antheminc.oss.nimbus.domain.model.state.EntityStateAspectHandlers;
 import com.antheminc.oss.nimbus.domain.model.state.Notification;
 import com.antheminc.oss.nimbus.domain.model.state.Notification.ActionType;
+import com.antheminc.oss.nimbus.support.JustLogit;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import lombok.Getter;
@@ -36,6 +37,8 @@ public class MappedDefaultListParamState<T, M> extends DefaultListParamState<T>
 
 	private static final long serialVersionUID = 1L;
 
+	private static final JustLogit logit = new JustLogit(MappedDefaultListParamState.class);
+
 	@JsonIgnore private final ListParam<M> mapsTo;
 	
 	@JsonIgnore private final Notification.Consumer<List<M>> delegate;
@@ -102,6 +105,8 @@ public class MappedDefaultListParamState<T, M> extends DefaultListParamState<T>
 					
 					ListModel<T> mappedColModel = (ListModel<T>)getType().findIfNested().getModel().findIfListModel();
 					Param<?> mappedParamElem = mappedColModel.templateParams().remove(elemId);
+					if(mappedParamElem!=null)
+						ParamPathIndex.evictFor(mappedParamElem, true);
 					
 					emitNotification(new Notification<>(mappedColModel.getAssociatedParam(), ActionType._deleteElem, mappedParamElem));
 					
@@ -70,6 +70,9 @@ public class MappedDefaultTransientParamState<T, M> extends DefaultParamState<T>
 	
 	@Override
 	public void onTypeAssign() {
+		// lookups resolved within the previously assigned model no longer apply
+		ParamPathIndex.evictFor(this, false);
+		
 		Model mappedModel = creator.buildMappedTransientModel(this, detachedMapsTo.findIfNested());
 		getType().findIfTransient().assign(mappedModel);
 	}
@@ -0,0 +1,188 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.MappedParam;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.InvalidStateException;
+import com.antheminc.oss.nimbus.domain.model.state.Notification;
+import com.antheminc.oss.nimbus.support.JustLogit;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Drains the notification queue of a transaction, handing each notification to the subscribers of its source. <br>
+ * Notifications emitted while handling others are appended to the same queue and drained in the same loop. 
+ * Each round of notifications emitted while handling the previous round adds a level of depth; exceeding {@code maxDepth} 
+ * or {@code maxDispatches} within a single drain signals a cycle between mapped params and fails the transaction. <br>
+ * 
+ * Per transaction statistics are kept in {@link DefaultExecutionTxnContext.NotificationStats} and aggregated here on completion.
+ */
+@ConfigurationProperties(prefix="model.notification.dispatch")
+@ManagedResource(objectName="com.antheminc.oss.nimbus:name=NotificationDispatcher", description="Mapped param notification dispatch")
+@Getter @Setter
+public class NotificationDispatcher {
+
+	/**
+	 * used by runtimes which aren't wired with the configured instance
+	 */
+	public static final NotificationDispatcher DEFAULT = new NotificationDispatcher();
+	
+	private static final JustLogit logit = new JustLogit(NotificationDispatcher.class);
+	
+	/**
+	 * coalesce an {@code _updateState} notification into one from the same source still pending in the queue 
+	 */
+	private boolean coalesceUpdates = true;
+	
+	private int maxDepth = 256;
+	
+	private int maxDispatches = 100000;
+	
+	/**
+	 * transactions whose notifications took longer to drain are logged at info level, 0 or less disables 
+	 */
+	private long slowDrainMillis = 500;
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong txnCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong dispatchedCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong coalescedCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong maxQueueDepth = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong totalDrainNanos = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong maxDrainNanos = new AtomicLong();
+	
+	public void drain(DefaultExecutionTxnContext txnCtx) {
+		if(txnCtx.getNotifications().isEmpty())
+			return;
+		
+		final DefaultExecutionTxnContext.NotificationStats stats = txnCtx.getNotificationStats();
+		final long start = System.nanoTime();
+		
+		int dispatched = 0;
+		int depth = 0;
+		int remainingAtDepth = txnCtx.getNotifications().size();
+		try {
+			Notification<Object> event;
+			while((event = txnCtx.pollNotification()) != null) {
+				if(++dispatched > maxDispatches)
+					throw new InvalidStateException("Exceeded max notification dispatches of "+maxDispatches+" in txn: "+txnCtx.getId()
+						+", probable cycle between mapped params at source: "+event.getSource());
+				
+				dispatch(event);
+				
+				// all notifications of current depth handled: ones queued meanwhile make up the next
+				if(--remainingAtDepth == 0) {
+					remainingAtDepth = txnCtx.getNotifications().size();
+					
+					if(remainingAtDepth > 0) {
+						if(depth == maxDepth)
+							throw new InvalidStateException("Exceeded max notification depth of "+maxDepth+" in txn: "+txnCtx.getId()
+								+", probable cycle between mapped params at source: "+event.getSource());
+						depth++;
+					}
+				}
+			}
+		} finally {
+			stats.onDrain(dispatched, depth, System.nanoTime() - start);
+		}
+	}
+	
+	protected void dispatch(Notification<Object> event) {
+		Param<Object> source = event.getSource();
+		
+		List<MappedParam<?, Object>> subscribers = source.getEventSubscribers();
+		if(CollectionUtils.isEmpty(subscribers))
+			return;
+		
+		// handlers may (de)register subscribers
+		for(MappedParam<?, Object> subscribedParam : new ArrayList<>(subscribers))
+			subscribedParam.handleNotification(event);
+	}
+	
+	/**
+	 * Aggregates and reports statistics of the given completed transaction.
+	 */
+	public void onTxnComplete(DefaultExecutionTxnContext txnCtx) {
+		final DefaultExecutionTxnContext.NotificationStats stats = txnCtx.getNotificationStats();
+		if(stats.getEnqueued() == 0)
+			return;
+		
+		txnCount.incrementAndGet();
+		dispatchedCount.addAndGet(stats.getDispatched());
+		coalescedCount.addAndGet(stats.getCoalesced());
+		maxQueueDepth.accumulateAndGet(stats.getMaxQueueDepth(), Math::max);
+		totalDrainNanos.addAndGet(stats.getDrainNanos());
+		maxDrainNanos.accumulateAndGet(stats.getDrainNanos(), Math::max);
+		
+		if(slowDrainMillis > 0 && TimeUnit.NANOSECONDS.toMillis(stats.getDrainNanos()) >= slowDrainMillis)
+			logit.info(()->"[notifications] slow drain in txn: "+txnCtx.getId()+" "+stats);
+		else
+			logit.debug(()->"[notifications] txn: "+txnCtx.getId()+" "+stats);
+	}
+	
+	@ManagedAttribute
+	public long getTxnCount() {
+		return txnCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getDispatchedCount() {
+		return dispatchedCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+	
+	@ManagedAttribute
+	public long getTotalDrainMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(totalDrainNanos.get());
+	}
+	
+	@ManagedAttribute
+	public long getMaxDrainMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxDrainNanos.get());
+	}
+}
@@ -0,0 +1,190 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.antheminc.oss.nimbus.domain.defn.Constants;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.ExecutionModel;
+
+/**
+ * Index of resolved path lookups kept per root execution model. <br>
+ * Entries are keyed by the identity of the entity the lookup was made on along with the relative path, so repeated
+ * lookups from commands, rules and mapped params skip the segment by segment traversal. <br>
+ * Only successful lookups are indexed, hence adding collection elements never invalidates an entry. 
+ * Removing an element (or re-assigning a transient model) evicts every entry resolved to, or made from, within that subtree. 
+ * Entries are also kept by the paths of the entity they were made from and of the param they resolved to, so that evicting 
+ * a subtree is a range lookup by its path rather than a scan of the whole index, e.g. when clearing a large collection. <br>
+ * Paths referring to mapsTo ({@code .m}) are not indexed, as a transient mapsTo may change without any structural change.
+ * 
+ */
+public class ParamPathIndex {
+
+	private final Map<Key, Param<?>> entries = new ConcurrentHashMap<>();
+	
+	/* keys by the path of their base and of their param, nested models by their path followed by a separator; guarded by this */
+	private final NavigableMap<String, Set<Key>> keysByPath = new TreeMap<>();
+	
+	/* identity of the base entity, value equality of the path */
+	private static final class Key {
+		private final EntityState<?> base;
+		private final String path;
+		
+		Key(EntityState<?> base, String path) {
+			this.base = base;
+			this.path = path;
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(base) + path.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj)
+				return true;
+			
+			if(!(obj instanceof Key))
+				return false;
+			
+			Key other = (Key)obj;
+			return base == other.base && path.equals(other.path);
+		}
+	}
+	
+	/**
+	 * @return index of the root execution the given entity belongs to, or null if the root is not (yet) available
+	 */
+	public static ParamPathIndex of(EntityState<?> state) {
+		ExecutionModel<?> rootExecution = isDetached(state) ? null : state.getRootExecution();
+		if(!(rootExecution instanceof ExecutionEntity.ExModel))
+			return null;
+		
+		return ((ExecutionEntity<?, ?>.ExModel)rootExecution).getPathIndex();
+	}
+	
+	/**
+	 * Evicts, from the index of the root execution the given param belongs to, entries within the param's subtree.
+	 */
+	public static void evictFor(Param<?> subtree, boolean inclusive) {
+		ParamPathIndex index = of(subtree);
+		if(index != null)
+			index.evict(subtree, inclusive);
+	}
+	
+	/* a param without parent which isn't the root of an execution (e.g. a detached mapsTo) has no root to index against */
+	private static boolean isDetached(EntityState<?> state) {
+		if(!(state instanceof Param))
+			return false;
+		
+		Param<?> p = (Param<?>)state;
+		if(p.getParentModel() != null)
+			return false;
+		
+		Model<?> nested = p.isNested() ? p.findIfNested() : null;
+		return nested == null || nested.findIfRoot() == null;
+	}
+	
+	public static boolean isIndexable(String path) {
+		return path != null 
+				&& !StringUtils.contains(path, Constants.SEPARATOR_MAPSTO.code) 
+				&& !StringUtils.contains(path, Constants.SEPARATOR_CONFIG_ATTRIB.code);
+	}
+	
+	@SuppressWarnings("unchecked")
+	public <P> Param<P> get(EntityState<?> base, String path) {
+		return (Param<P>)entries.get(new Key(base, path));
+	}
+	
+	public synchronized void put(EntityState<?> base, String path, Param<?> p) {
+		if(p == null)
+			return;
+		
+		Key key = new Key(base, path);
+		Param<?> replaced = entries.put(key, p);
+		if(replaced != null)
+			unregister(key, replaced);
+		
+		register(key, base);
+		register(key, p);
+	}
+	
+	/**
+	 * Evicts entries resolved to, or made from, within the given param's subtree.
+	 */
+	public synchronized void evict(Param<?> subtree, boolean inclusive) {
+		if(entries.isEmpty())
+			return;
+		
+		final String path = subtree.getPath();
+		List<Key> evicted = new ArrayList<>();
+		
+		if(inclusive)
+			evicted.addAll(keysByPath.getOrDefault(path, new HashSet<>()));
+		
+		String prefix = path + Constants.SEPARATOR_URI.code;
+		keysByPath.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values().forEach(evicted::addAll);
+		
+		for(Key key : evicted) {
+			Param<?> p = entries.remove(key);
+			if(p != null)
+				unregister(key, p);
+		}
+	}
+	
+	public synchronized void clear() {
+		entries.clear();
+		keysByPath.clear();
+	}
+	
+	private void register(Key key, EntityState<?> state) {
+		keysByPath.computeIfAbsent(registeredPath(state), k->new HashSet<>()).add(key);
+	}
+	
+	private void unregister(Key key, Param<?> p) {
+		unregister(key, registeredPath(key.base));
+		unregister(key, registeredPath(p));
+	}
+	
+	private void unregister(Key key, String registeredPath) {
+		Set<Key> keys = keysByPath.get(registeredPath);
+		if(keys != null && keys.remove(key) && keys.isEmpty())
+			keysByPath.remove(registeredPath);
+	}
+	
+	/* a nested model shares the path of its param, but belongs to the param's subtree even when evicting exclusively */
+	private static String registeredPath(EntityState<?> state) {
+		String path = StringUtils.defaultString(state.getPath());
+		return (state instanceof Model) ? path + Constants.SEPARATOR_URI.code : path;
+	}
+	
+	public int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.internal;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.QuadModel;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Approximate heap footprint of the optional per-param structures of a state tree, i.e. the ones which are
+ * allocated on demand: remnant states, event subscriber lists and lock templates. <br>
+ * Byte figures are estimates for a 64-bit JVM with compressed oops and are meant for comparing trees, not for exact accounting.
+ * 
+ */
+@Getter @ToString
+public class StateFootprint {
+
+	static final int REMNANT_STATE_BYTES = 24;
+	static final int SUBSCRIBER_LIST_BYTES = 48;
+	static final int SUBSCRIBER_REF_BYTES = 4;
+	static final int LOCK_TEMPLATE_BYTES = 64;
+	
+	private int params;
+	
+	private int remnantStates;
+	
+	private int subscriberLists;
+	
+	private int subscribers;
+	
+	private int lockTemplates;
+	
+	public static StateFootprint of(QuadModel<?, ?> q) {
+		return of(q.getRoot());
+	}
+	
+	public static StateFootprint of(Model<?> m) {
+		StateFootprint footprint = new StateFootprint();
+		Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		
+		footprint.visit(m, visited);
+		return footprint;
+	}
+	
+	public long getEstimatedBytes() {
+		return (long)remnantStates * REMNANT_STATE_BYTES 
+				+ (long)subscriberLists * SUBSCRIBER_LIST_BYTES
+				+ (long)subscribers * SUBSCRIBER_REF_BYTES
+				+ (long)lockTemplates * LOCK_TEMPLATE_BYTES;
+	}
+	
+	private void visit(Model<?> m, Set<Object> visited) {
+		if(m == null || !visited.add(m))
+			return;
+		
+		countLock(m);
+		
+		List<Param<? extends Object>> params = m.getParams();
+		if(params == null)
+			return;
+		
+		for(Param<?> p : params)
+			visit(p, visited);
+	}
+	
+	private void visit(Param<?> p, Set<Object> visited) {
+		if(p == null || !visited.add(p))
+			return;
+		
+		params++;
+		countLock(p);
+		
+		if(p instanceof DefaultParamState) {
+			DefaultParamState<?> ps = (DefaultParamState<?>)p;
+			remnantStates += ps.allocatedRemnantStateCount();
+			
+			if(ps.eventSubscribers != null) {
+				subscriberLists++;
+				subscribers += ps.eventSubscribers.size();
+			}
+		}
+		
+		if(p.isNested())
+			visit(p.findIfNested(), visited);
+	}
+	
+	private void countLock(Object state) {
+		if(state instanceof AbstractEntityState && ((AbstractEntityState<?>)state).hasOwnLockTemplate())
+			lockTemplates++;
+	}
+}
@@ -15,8 +15,12 @@
  */
 package com.antheminc.oss.nimbus.domain.model.state.repo;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
+import com.antheminc.oss.nimbus.domain.cmd.Action;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
 import com.antheminc.oss.nimbus.domain.model.state.ModelEvent;
 
@@ -29,4 +33,22 @@ public interface ModelPersistenceHandler {
 	
 	public boolean handle(List<ModelEvent<Param<?>>> modelEvents);
 	
+	/**
+	 * Persists the given bean path to state entries of a single root domain entity in one operation.
+	 * Handlers that cannot apply partial updates fall back to persisting the complete root state.
+	 */
+	default public boolean handle(Model<?> rootDomain, Map<String, Object> pathStates) {
+		Param<?> rootParam = rootDomain.getAssociatedParam();
+		return handle(Collections.singletonList(new ModelEvent<>(Action._update, rootParam.getPath(), rootParam)));
+	}
+	
+	/**
+	 * Copies the given bean path to state entries into a form {@link #handle(Model, Map)} accepts, detached from the live 
+	 * states so that they can be persisted on another thread while the live states keep changing. 
+	 * Returns null when the handler cannot detach states, in which case they must be persisted on the calling thread.
+	 */
+	default public Map<String, Object> detach(Model<?> rootDomain, Map<String, Object> pathStates) {
+		return null;
+	}
+	
 }
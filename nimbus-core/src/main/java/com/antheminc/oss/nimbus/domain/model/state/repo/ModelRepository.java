@@ -17,6 +17,7 @@ package com.antheminc.oss.nimbus.domain.model.state.repo;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -69,6 +70,11 @@ public interface ModelRepository {
 		return state;
 	}
 	
+	// internally used, not exposed as an Action: saves new, append-only entries in bulk
+	default public <T> void _saveAll(String alias, List<T> states) {
+		states.forEach(state->_save(alias, state));
+	}
+	
 	//Action._get
 	public <ID extends Serializable, T> T _get(ID id, Class<T> referredClass, String alias);
 	default public <ID extends Serializable, T> T _get(ID id, Class<T> referredClass, String alias, String url) {
@@ -80,6 +86,11 @@ public interface ModelRepository {
 	//Action._update: partial update
 	public <ID extends Serializable,T> T _update(String alias, ID id, String path, T state);
 	
+	//Action._update: partial update of multiple paths of the same entity, keyed by path
+	default public <ID extends Serializable> void _update(String alias, ID id, Map<String, Object> pathStates) {
+		pathStates.forEach((path, state)->_update(alias, id, path, state));
+	}
+	
 	//Action._replace: complete update
 	public void _replace(Param<?> param);
 	public void _replace(List<Param<?>> params);
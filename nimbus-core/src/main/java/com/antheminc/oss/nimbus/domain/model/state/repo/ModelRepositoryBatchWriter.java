@@ -0,0 +1,334 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.repo;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.antheminc.oss.nimbus.support.JustLogit;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Asynchronous, bounded sink for append-only documents (e.g. change log and audit entries) which are otherwise
+ * saved inline, one round trip per entry. <br>
+ * 
+ * Published entries are queued and written by a single background thread in batches of up to {@code flushSize},
+ * or whatever has accumulated once {@code flushIntervalMillis} elapses, using {@link ModelRepository#_saveAll(String, List)}. 
+ * When the queue is full the configured {@link OverflowPolicy} applies. A batch that fails to write is retried one entry at a time
+ * using {@link ModelRepository#_save(String, Object)}. <br>
+ * 
+ * On shutdown no more entries are queued, the background thread finishes its current batch and entries still queued are 
+ * flushed synchronously. <br>
+ * 
+ * When disabled, entries are saved inline on the publishing thread.
+ */
+@ConfigurationProperties(prefix="model.persistence.batch.writer")
+@ManagedResource(objectName="com.antheminc.oss.nimbus:name=ModelRepositoryBatchWriter", description="Batched writer for append-only documents")
+@Getter @Setter
+public class ModelRepositoryBatchWriter {
+
+	private static final JustLogit logit = new JustLogit(ModelRepositoryBatchWriter.class);
+	
+	public enum OverflowPolicy {
+		/**
+		 * block the publishing thread until there is room in the queue
+		 */
+		BLOCK,
+		
+		/**
+		 * discard the entry, counted in {@code droppedCount}
+		 */
+		DROP,
+		
+		/**
+		 * save the entry inline on the publishing thread
+		 */
+		CALLER_RUNS;
+	}
+	
+	private boolean enabled = false;
+	
+	private int flushSize = 100;
+	
+	private long flushIntervalMillis = 200;
+	
+	private int queueCapacity = 10000;
+	
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+	
+	private long shutdownTimeoutMillis = 10000;
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong publishedCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong writtenCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong droppedCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong failedCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private BlockingQueue<PendingWrite> queue;
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private Thread flusher;
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private volatile boolean running;
+	
+	/* held by publishers while queueing, so that shutdown knows no more entries can be queued once it stops the writer */
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+	
+	@RequiredArgsConstructor
+	private static class PendingWrite {
+		private final ModelRepository rep;
+		private final String alias;
+		private final Object state;
+	}
+	
+	@RequiredArgsConstructor
+	private static class Target {
+		private final ModelRepository rep;
+		private final String alias;
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Target))
+				return false;
+			
+			Target other = (Target)obj;
+			return rep == other.rep && alias.equals(other.alias);
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(rep) + alias.hashCode();
+		}
+	}
+	
+	@PostConstruct
+	public void init() {
+		if(!enabled)
+			return;
+		
+		this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+		this.running = true;
+		
+		this.flusher = new Thread(this::drainLoop, "nimbus-batch-writer");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+	
+	public void shutdown() {
+		if(flusher == null)
+			return;
+		
+		acceptLock.writeLock().lock();
+		try {
+			running = false;
+		} finally {
+			acceptLock.writeLock().unlock();
+		}
+		
+		// not interrupted, which could abort a write in flight
+		try {
+			flusher.join(shutdownTimeoutMillis);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		
+		if(flusher.isAlive())
+			logit.warn(()->"Batch writer did not finish its current batch within "+shutdownTimeoutMillis+" ms, flushing remaining entries alongside");
+		
+		// whatever the flusher did not get to is written on the calling thread
+		flush();
+	}
+	
+	/**
+	 * Queues the state to be saved in the given repository under the given alias. 
+	 */
+	public <T> void save(ModelRepository rep, String alias, T state) {
+		publishedCount.incrementAndGet();
+		
+		acceptLock.readLock().lock();
+		try {
+			if(running && enqueue(rep, alias, state))
+				return;
+		} finally {
+			acceptLock.readLock().unlock();
+		}
+		
+		saveInline(rep, alias, state);
+	}
+	
+	/**
+	 * @return false if the entry is to be saved inline
+	 */
+	private boolean enqueue(ModelRepository rep, String alias, Object state) {
+		PendingWrite write = new PendingWrite(rep, alias, state);
+		if(queue.offer(write))
+			return true;
+		
+		switch(overflowPolicy) {
+			case DROP:
+				droppedCount.incrementAndGet();
+				logit.warn(()->"Batch writer queue full, dropped entry for alias: "+alias);
+				return true;
+				
+			case CALLER_RUNS:
+				return false;
+				
+			default:
+				try {
+					// the flusher keeps draining while shutdown waits for this
+					queue.put(write);
+					return true;
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+		}
+	}
+	
+	/**
+	 * Synchronously writes all currently queued entries.
+	 */
+	@ManagedOperation
+	public void flush() {
+		if(queue == null)
+			return;
+		
+		List<PendingWrite> batch = new ArrayList<>();
+		while(queue.drainTo(batch, Math.max(1, flushSize)) > 0) {
+			write(batch);
+			batch.clear();
+		}
+	}
+	
+	private void drainLoop() {
+		List<PendingWrite> batch = new ArrayList<>(flushSize);
+		while(running) {
+			try {
+				PendingWrite first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+				if(first == null)
+					continue;
+				
+				batch.add(first);
+				long deadline = System.currentTimeMillis() + flushIntervalMillis;
+				while(batch.size() < flushSize) {
+					queue.drainTo(batch, flushSize - batch.size());
+					
+					long remaining = deadline - System.currentTimeMillis();
+					if(batch.size() >= flushSize || remaining <= 0)
+						break;
+					
+					PendingWrite next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+					if(next == null)
+						break;
+					
+					batch.add(next);
+				}
+			} catch (InterruptedException ex) {
+				// pending batch is written below, remaining queue by shutdown()
+			}
+			
+			write(batch);
+			batch.clear();
+		}
+	}
+	
+	private void write(List<PendingWrite> batch) {
+		if(batch.isEmpty())
+			return;
+		
+		// group by target collection keeping publish order within each
+		Map<Target, List<Object>> grouped = new LinkedHashMap<>();
+		batch.forEach(w->grouped.computeIfAbsent(new Target(w.rep, w.alias), k->new ArrayList<>()).add(w.state));
+		
+		grouped.forEach((target, states)->{
+			try {
+				target.rep._saveAll(target.alias, states);
+				writtenCount.addAndGet(states.size());
+			} catch (RuntimeException ex) {
+				// e.g. a duplicate id stops the batch part way through
+				logit.warn(()->"Failed to write batch of "+states.size()+" entries for alias: "+target.alias+", retrying one entry at a time: "+ex);
+				states.forEach(state->saveOne(target, state));
+			}
+		});
+	}
+	
+	private void saveOne(Target target, Object state) {
+		try {
+			saveInline(target.rep, target.alias, state);
+		} catch (RuntimeException ex) {
+			failedCount.incrementAndGet();
+			logit.error(()->"Failed to write entry for alias: "+target.alias, ex);
+		}
+	}
+	
+	private void saveInline(ModelRepository rep, String alias, Object state) {
+		rep._save(alias, state);
+		writtenCount.incrementAndGet();
+	}
+	
+	@ManagedAttribute
+	public int getQueueSize() {
+		return queue == null ? 0 : queue.size();
+	}
+	
+	@ManagedAttribute
+	public long getPublishedCount() {
+		return publishedCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+}
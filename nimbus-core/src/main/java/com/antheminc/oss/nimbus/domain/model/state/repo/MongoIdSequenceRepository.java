@@ -15,6 +15,12 @@
  */
 package com.antheminc.oss.nimbus.domain.model.state.repo;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -23,29 +29,86 @@ import org.springframework.data.mongodb.core.query.Update;
 
 import com.antheminc.oss.nimbus.entity.DBSequence;
 
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 /**
+ * Hands out ids from blocks reserved with a single {@code $inc} of the block size on the sequence document (hi-lo). 
+ * Ids remain unique across nodes sharing the sequence collection; ids of a block not handed out before shutdown are skipped. <br>
+ * 
+ * Block sizes are configured by {@code model.persistence.sequence.defaultBlockSize} and per sequence key by 
+ * {@code model.persistence.sequence.blockSizes.<key>}. A block size of 1 reserves one id per round trip.
+ * 
  * @author Rakesh Patel
  *
  */
+@ConfigurationProperties(prefix="model.persistence.sequence")
 @Getter
 public class MongoIdSequenceRepository implements IdSequenceRepository {
 
 	MongoOperations mongoOperations;
 	
+	@Setter
+	private int defaultBlockSize = 1;
+	
+	@Setter
+	private Map<String, Integer> blockSizes = new HashMap<>();
+	
+	@Getter(AccessLevel.NONE)
+	private final Map<String, IdBlockHolder> blocks = new ConcurrentHashMap<>();
+	
+	private static class IdBlockHolder {
+		private volatile IdBlock current;
+	}
+	
+	@RequiredArgsConstructor
+	private static class IdBlock {
+		private final AtomicLong next;
+		private final long last;
+	}
+	
 	public MongoIdSequenceRepository(MongoOperations mongoOperations) {
 		this.mongoOperations = mongoOperations;
 	}
 	
 	@Override
 	public long getNextSequenceId(String key) throws SequenceException {
+		IdBlockHolder holder = blocks.computeIfAbsent(key, k->new IdBlockHolder());
+		
+		while(true) {
+			IdBlock block = holder.current;
+			if(block != null) {
+				long id = block.next.getAndIncrement();
+				if(id <= block.last)
+					return id;
+			}
+			
+			// block exhausted: only one thread reserves the next one, others retry on it
+			synchronized(holder) {
+				if(holder.current == block)
+					holder.current = reserveBlock(key, getBlockSize(key));
+			}
+		}
+	}
+	
+	public int getBlockSize(String key) {
+		return Math.max(1, blockSizes.getOrDefault(key, defaultBlockSize));
+	}
+	
+	private IdBlock reserveBlock(String key, int blockSize) throws SequenceException {
+		long last = incrementSequence(key, blockSize);
+		return new IdBlock(new AtomicLong(last - blockSize + 1), last);
+	}
+	
+	protected long incrementSequence(String key, int by) throws SequenceException {
 		//get sequence id
 		Query query = new Query(Criteria.where("_id").is(key));
 		
-		//increase sequence id by 1
+		//increase sequence id by the block size
 		Update update = new Update();
-		update.inc("seq", 1);
+		update.inc("seq", by);
 
 		//return new increased id
 		FindAndModifyOptions options = new FindAndModifyOptions();
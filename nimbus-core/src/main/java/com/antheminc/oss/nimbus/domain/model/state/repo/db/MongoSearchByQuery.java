@@ -19,31 +19,25 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-import javax.script.Bindings;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort.Order;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.repository.support.SpringDataMongodbQuery;
-import org.springframework.data.querydsl.SimpleEntityPathResolver;
 
-import com.antheminc.oss.nimbus.FrameworkRuntimeException;
 import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
 import com.antheminc.oss.nimbus.domain.defn.Constants;
 import com.antheminc.oss.nimbus.domain.model.state.internal.AbstractListPaginatedParam.PageWrapper.PageRequestAndRespone;
 import com.antheminc.oss.nimbus.support.EnableAPIMetricCollection;
 import com.mongodb.BasicDBList;
 import com.mongodb.CommandResult;
-import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.mongodb.AbstractMongodbQuery;
 
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 /**
@@ -54,11 +48,12 @@ import lombok.RequiredArgsConstructor;
 @SuppressWarnings({ "rawtypes", "unchecked"})
 public class MongoSearchByQuery extends MongoDBSearch {
 
-	private static final ScriptEngine groovyEngine = new ScriptEngineManager().getEngineByName("groovy");
-
+	@Getter
+	private final QuerydslCriteriaCompiler criteriaCompiler;
 	
 	public MongoSearchByQuery(BeanResolverStrategy beanResolver) {
 		super(beanResolver);
+		this.criteriaCompiler = beanResolver.get(QuerydslCriteriaCompiler.class);
 	}
 	
 	@RequiredArgsConstructor
@@ -102,19 +97,7 @@ public class MongoSearchByQuery extends MongoDBSearch {
 		}
 
 		private <T> T evaluate(Class<?> referredClass, String alias, String criteria) {
-			try {
-				
-				EntityPath<?> qInstance = SimpleEntityPathResolver.INSTANCE.createPath(referredClass);
-				
-				Bindings b = groovyEngine.createBindings();
-				b.put(alias, qInstance);
-				
-				return (T)groovyEngine.eval(criteria, b);
-				
-			} catch (Exception ex) {
-				throw new FrameworkRuntimeException("Cannot instantiate queryDsl class for entity: "+referredClass+ " "
-						+ "please make sure the entity has been annotated with either @Domain or @Model and a Q Class has been generated for it", ex);	
-			}
+			return getCriteriaCompiler().evaluate(referredClass, alias, criteria);
 		}
 	}
 	
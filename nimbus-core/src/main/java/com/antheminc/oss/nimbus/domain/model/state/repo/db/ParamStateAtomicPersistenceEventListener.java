@@ -56,7 +56,8 @@ public class ParamStateAtomicPersistenceEventListener extends ParamStatePersiste
 	
 	@Override
 	public boolean shouldAllow(EntityState<?> p) {
-		return super.shouldAllow(p) && PersistenceMode.ATOMIC == mode;
+		// root scoped changes are persisted by the coalesced listener
+		return super.shouldAllow(p) && PersistenceMode.ATOMIC == mode && !isRootScoped();
 	}
 	
 	@Override
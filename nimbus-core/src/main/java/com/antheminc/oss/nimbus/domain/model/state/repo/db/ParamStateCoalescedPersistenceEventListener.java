@@ -0,0 +1,360 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.repo.db;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.InvalidConfigException;
+import com.antheminc.oss.nimbus.domain.cmd.Action;
+import com.antheminc.oss.nimbus.domain.cmd.Command;
+import com.antheminc.oss.nimbus.domain.cmd.exec.internal.DefaultActionExecutorGet;
+import com.antheminc.oss.nimbus.domain.defn.Repo;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.ExecutionModel;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.ExecutionTxnContext;
+import com.antheminc.oss.nimbus.domain.model.state.ModelEvent;
+import com.antheminc.oss.nimbus.domain.model.state.ParamEvent;
+import com.antheminc.oss.nimbus.domain.model.state.StateEventListener;
+import com.antheminc.oss.nimbus.domain.model.state.internal.AbstractEvent.PersistenceMode;
+import com.antheminc.oss.nimbus.domain.model.state.internal.BaseStateEventListener;
+import com.antheminc.oss.nimbus.domain.model.state.repo.ModelPersistenceHandler;
+import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepositoryFactory;
+import com.antheminc.oss.nimbus.support.JustLogit;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Write-behind persistence listener used when {@code model.persistence.strategy.mode=COALESCED}. <br>
+ * 
+ * Instead of saving the root entity on every param state change (as {@link ParamStateAtomicPersistenceEventListener} does),
+ * dirty bean paths are collected per root domain entity for the life of the transaction and, when the transaction stops,
+ * written with a single coalesced {@code $set/$unset} update per root. Paths nested under another dirty path are dropped
+ * and changes within collections are resolved to the collection param, as element bean paths do not map to array positions. <br>
+ * 
+ * Also used in {@code ATOMIC} mode for root commands executed within {@link #beginRootScoped()}, e.g. a batch of commands, 
+ * whose changes are then written once when the root command stops rather than at the end of each transaction. <br>
+ * 
+ * When {@code asyncFlush} is enabled, updates of entities that already have an id are handed to a single writer thread
+ * (preserving write order) and retried up to {@code maxRetries} times. Updates written on the committing thread are not
+ * retried, failures are propagated to the caller. States are detached by the persistence handler
+ * on the committing thread before being handed to the writer, handlers that cannot detach them are written synchronously.
+ */
+@ConfigurationProperties(prefix="model.persistence.strategy")
+public class ParamStateCoalescedPersistenceEventListener extends ParamStatePersistenceEventListener {
+
+	private static final JustLogit logit = new JustLogit(ParamStateCoalescedPersistenceEventListener.class);
+	
+	@Getter(value=AccessLevel.PROTECTED)
+	private final ModelRepositoryFactory repoFactory;
+
+	@Getter @Setter
+	private PersistenceMode mode;
+	
+	@Getter @Setter
+	private boolean asyncFlush = false;
+	
+	@Getter @Setter
+	private int asyncQueueCapacity = 1000;
+	
+	@Getter @Setter
+	private int maxRetries = 3;
+	
+	@Getter @Setter
+	private long retryBackoffMillis = 100;
+	
+	@Getter @Setter
+	private long shutdownTimeoutMillis = 30000;
+	
+	private final AtomicLong flushCount = new AtomicLong();
+	
+	private final AtomicLong failedFlushCount = new AtomicLong();
+	
+	private ThreadPoolExecutor writer;
+	
+	private final StateEventListener txnFlusher = new BaseStateEventListener() {
+		
+		@Override
+		public void onStopTxn(ExecutionTxnContext txnCtx, Map<ExecutionModel<?>, List<ParamEvent>> aggregatedEvents) {
+			if(!isRootScoped())
+				flush();
+		}
+		
+		@Override
+		public void onStopRootCommandExecution(Command cmd, Map<ExecutionModel<?>, List<ParamEvent>> aggregatedEvents) {
+			flush();
+			
+			// txn scoped listeners are cleared by the delegator right after this callback
+			pendingInThread.get().registered = false;
+		}
+	};
+	
+	private static class PendingWrites {
+		private boolean registered;
+		private Map<Model<?>, Map<String, Param<?>>> dirtyByRoot = new LinkedHashMap<>();
+	}
+	
+	private final ThreadLocal<PendingWrites> pendingInThread = ThreadLocal.withInitial(PendingWrites::new);
+	
+	public ParamStateCoalescedPersistenceEventListener(ModelRepositoryFactory repoFactory) {
+		this.repoFactory = repoFactory;
+	}
+	
+	@PostConstruct
+	public void init() {
+		if(!asyncFlush || PersistenceMode.COALESCED != mode)
+			return;
+		
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("nimbus-coalesced-writer-");
+		threadFactory.setDaemon(true);
+		
+		// single writer keeps updates to the same entity in commit order; a full queue blocks the committing thread
+		this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, 
+				new ArrayBlockingQueue<>(Math.max(1, asyncQueueCapacity)), threadFactory, createBlockingHandler());
+	}
+	
+	public void shutdown() {
+		if(writer == null)
+			return;
+		
+		writer.shutdown();
+		try {
+			if(!writer.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS))
+				logit.error(()->"Coalesced writer did not drain within "+shutdownTimeoutMillis+" ms, pending updates: "+writer.getQueue().size());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	public long getFlushCount() {
+		return flushCount.get();
+	}
+	
+	public long getFailedFlushCount() {
+		return failedFlushCount.get();
+	}
+	
+	@Override
+	public boolean shouldAllow(EntityState<?> p) {
+		return super.shouldAllow(p) && (PersistenceMode.COALESCED == mode || (PersistenceMode.ATOMIC == mode && isRootScoped()));
+	}
+	
+	@Override
+	public boolean listen(ModelEvent<Param<?>> event) {
+		if(DefaultActionExecutorGet.TH_ACTION.get() == Action._get)
+			return false;
+		
+		Param<?> p = event.getPayload();
+		Model<?> rootModel = p.getRootDomain();
+		
+		PendingWrites pending = pendingInThread.get();
+		if(!pending.registered) {
+			p.getRootExecution().getExecutionRuntime().getEventDelegator().addTxnScopedListener(txnFlusher);
+			pending.registered = true;
+		}
+		
+		Param<?> resolved = resolveCollectionParent(p);
+		pending.dirtyByRoot
+			.computeIfAbsent(rootModel, k->new LinkedHashMap<>())
+			.put(resolved.getBeanPath(), resolved);
+		
+		return true;
+	}
+	
+	/**
+	 * Writes all pending changes collected on the current thread, one update per root entity.
+	 */
+	public void flush() {
+		PendingWrites pending = pendingInThread.get();
+		if(pending.dirtyByRoot.isEmpty())
+			return;
+		
+		Map<Model<?>, Map<String, Param<?>>> dirtyByRoot = pending.dirtyByRoot;
+		pending.dirtyByRoot = new LinkedHashMap<>();
+		
+		dirtyByRoot.forEach(this::flushRoot);
+	}
+	
+	protected void flushRoot(Model<?> rootModel, Map<String, Param<?>> dirtyParams) {
+		Repo repo = rootModel.getConfig().getRepo();
+		if(repo == null) {
+			throw new InvalidConfigException("Core Persistent entity must be configured with "+Repo.class.getSimpleName()+" annotation. Not found for root model: "+rootModel.getRootExecution());
+		} 
+			
+		ModelPersistenceHandler handler = getRepoFactory().getHandler(repo);
+		
+		if(handler == null) {
+			throw new InvalidConfigException("There is no repository handler provided for the configured repository :"+repo.value().name()+ " for root model: "+rootModel.getRootExecution());
+		}
+		
+		Param<?> rootParam = rootModel.getAssociatedParam();
+		
+		// without an id param changes cannot be addressed by path, the root is persisted the way the atomic listener does it
+		Param<?> idParam = rootModel.findParamByPath("/id");
+		if(idParam == null) {
+			List<ModelEvent<Param<?>>> events = Collections.singletonList(new ModelEvent<>(Action._update, rootParam.getPath(), rootParam));
+			write(rootModel, dirtyParams.keySet(), ()->handler.handle(events));
+			return;
+		}
+		
+		boolean isNew = idParam.getState() == null;
+		
+		boolean isFullSave = isNew || dirtyParams.containsKey(rootParam.getBeanPath());
+		
+		final Map<String, Object> pathStates;
+		if(isFullSave) {
+			pathStates = new LinkedHashMap<>();
+			pathStates.put(rootParam.getBeanPath(), rootParam.getState());
+		} else {
+			pathStates = coalesce(dirtyParams);
+		}
+		
+		// id generation for new entities mutates the root state and full saves go through the entity mapping (e.g. auditing) 
+		// of the live state, hence both are always done on the committing thread
+		if(writer == null || isFullSave) {
+			write(rootModel, pathStates.keySet(), ()->handler.handle(rootModel, pathStates));
+			return;
+		}
+		
+		// the states keep changing on this thread once the transaction stops, the writer gets its own copy
+		Map<String, Object> detached = handler.detach(rootModel, pathStates);
+		if(detached == null) {
+			write(rootModel, pathStates.keySet(), ()->handler.handle(rootModel, pathStates));
+			return;
+		}
+		
+		writer.execute(()->writeWithRetry(handler, rootModel, detached));
+	}
+	
+	/**
+	 * Drops paths already covered by a dirty ancestor path and collects the live state of the remaining ones.
+	 */
+	protected static Map<String, Object> coalesce(Map<String, Param<?>> dirtyParams) {
+		Map<String, Object> pathStates = new LinkedHashMap<>();
+		dirtyParams.forEach((path, p)->{
+			if(!hasDirtyAncestor(path, dirtyParams))
+				pathStates.put(path, p.getState());
+		});
+		return pathStates;
+	}
+	
+	private static boolean hasDirtyAncestor(String path, Map<String, Param<?>> dirtyParams) {
+		for(int i = path.lastIndexOf('/'); i > 0; i = path.lastIndexOf('/', i - 1)) {
+			if(dirtyParams.containsKey(path.substring(0, i)))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Writes on the committing thread. Failures are not retried here, as that would hold up the request, they are propagated 
+	 * to the caller instead.
+	 */
+	private void write(Model<?> rootModel, Set<String> paths, BooleanSupplier handle) {
+		try {
+			if(!handle.getAsBoolean())
+				throw new FrameworkRuntimeException("Persistence handler did not persist coalesced update for root: "+rootModel.getPath()+" paths: "+paths);
+			
+			flushCount.incrementAndGet();
+		} catch (RuntimeException ex) {
+			failedFlushCount.incrementAndGet();
+			logit.error(()->"Failed to persist coalesced update for root: "+rootModel.getPath()+" paths: "+paths, ex);
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Writes on the async writer thread, retrying failed updates up to {@code maxRetries} times with a linear backoff. 
+	 * Updates the handler declines to persist are not retried.
+	 */
+	private void writeWithRetry(ModelPersistenceHandler handler, Model<?> rootModel, Map<String, Object> pathStates) {
+		for(int attempt = 0; ; attempt++) {
+			try {
+				if(!handler.handle(rootModel, pathStates)) {
+					failedFlushCount.incrementAndGet();
+					logit.error(()->"Persistence handler did not persist coalesced update for root: "+rootModel.getPath()+" paths: "+pathStates.keySet());
+					return;
+				}
+				flushCount.incrementAndGet();
+				return;
+			} catch (RuntimeException ex) {
+				if(attempt >= maxRetries) {
+					failedFlushCount.incrementAndGet();
+					logit.error(()->"Failed to persist coalesced update for root: "+rootModel.getPath()+" paths: "+pathStates.keySet()+" after "+(maxRetries+1)+" attempt(s)", ex);
+					return;
+				}
+				
+				final int failedAttempt = attempt + 1;
+				logit.warn(()->"Retrying coalesced update for root: "+rootModel.getPath()+", attempt "+failedAttempt+" failed with: "+ex);
+				backoff(failedAttempt);
+			}
+		}
+	}
+	
+	private void backoff(int attempt) {
+		try {
+			Thread.sleep(retryBackoffMillis * attempt);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new FrameworkRuntimeException("Interrupted while waiting to retry coalesced update", ex);
+		}
+	}
+	
+	private static Param<?> resolveCollectionParent(Param<?> p) {
+		Param<?> colParent = null;
+		for(Param<?> curr = p; curr != null; curr = curr.getParentModel() == null ? null : curr.getParentModel().getAssociatedParam()) {
+			if(curr.isCollection())
+				colParent = curr;
+		}
+		return colParent == null ? p : colParent;
+	}
+	
+	private static RejectedExecutionHandler createBlockingHandler() {
+		return (r, executor)->{
+			if(executor.isShutdown())
+				throw new RejectedExecutionException("Coalesced writer has been shut down");
+			
+			BlockingQueue<Runnable> queue = executor.getQueue();
+			try {
+				queue.put(r);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for coalesced writer queue", ex);
+			}
+		};
+	}
+}
@@ -27,6 +27,30 @@ import com.antheminc.oss.nimbus.domain.model.state.event.listener.StateAndConfig
  */
 public abstract class ParamStatePersistenceEventListener extends AbstractStateAndConfigEventListener {
 
+	private static final ThreadLocal<Boolean> rootScopedInThread = new ThreadLocal<>();
+	
+	/**
+	 * Opens a scope in which state changes of the root command executing in the current thread are persisted once, when it stops, 
+	 * by {@link ParamStateCoalescedPersistenceEventListener} in place of {@link ParamStateAtomicPersistenceEventListener}.
+	 * 
+	 * @return true if opened and must be closed via {@link #endRootScoped()}, false if already within a scope
+	 */
+	public static boolean beginRootScoped() {
+		if(isRootScoped())
+			return false;
+		
+		rootScopedInThread.set(Boolean.TRUE);
+		return true;
+	}
+	
+	public static void endRootScoped() {
+		rootScopedInThread.remove();
+	}
+	
+	public static boolean isRootScoped() {
+		return Boolean.TRUE.equals(rootScopedInThread.get());
+	}
+
 	@Override
 	public boolean containsListener(ListenerType listenerType) {
 		return ListenerType.persistence == listenerType;
@@ -0,0 +1,719 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.repo.db;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.script.Bindings;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.springframework.data.querydsl.SimpleEntityPathResolver;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.support.JustLogit;
+import com.querydsl.core.types.EntityPath;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Evaluates querydsl criteria strings (where and orderby) such as {@code petclinic.petName.eq('Ollie').and(petclinic.age.gt(2))} 
+ * against the Q class of the referred entity. <br>
+ * 
+ * Each criteria is tokenized and its literal values are lifted out as parameters, so that criteria differing only in values 
+ * share one compiled template. Templates are parsed once into a tree of field accesses and method invocations whose reflective 
+ * lookups are resolved on first use and then reused; literal values are bound per request. <br>
+ * 
+ * Criteria using anything beyond field access, method calls and literals (e.g. class references, operators, closures) 
+ * are evaluated through the Groovy script engine, as are templates whose invocations cannot be resolved unambiguously.
+ * 
+ */
+@ManagedResource(objectName="com.antheminc.oss.nimbus:name=QuerydslCriteriaCompiler", description="Compiled search criteria cache")
+public class QuerydslCriteriaCompiler {
+
+	private static final ScriptEngine groovyEngine = new ScriptEngineManager().getEngineByName("groovy");
+	
+	private static final JustLogit logit = new JustLogit(QuerydslCriteriaCompiler.class);
+	
+	public static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+	
+	@Getter @Setter
+	private int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+	
+	private final Map<String, CompiledCriteria> templates = new ConcurrentHashMap<>();
+	
+	private final Map<Class<?>, EntityPath<?>> entityPaths = new ConcurrentHashMap<>();
+	
+	private final AtomicLong hits = new AtomicLong();
+	
+	private final AtomicLong misses = new AtomicLong();
+	
+	private final AtomicLong fallbacks = new AtomicLong();
+	
+	
+	@SuppressWarnings("unchecked")
+	public <T> T evaluate(Class<?> referredClass, String alias, String criteria) {
+		try {
+			EntityPath<?> qInstance = entityPaths.computeIfAbsent(referredClass, c->SimpleEntityPathResolver.INSTANCE.createPath(c));
+			
+			Tokens tokens = Tokens.tokenize(criteria);
+			CompiledCriteria compiled = tokens == null ? CompiledCriteria.UNSUPPORTED : lookup(alias, tokens);
+			
+			if(compiled != CompiledCriteria.UNSUPPORTED) {
+				try {
+					return (T)compiled.bind(qInstance, tokens.literals);
+				} catch (UnsupportedCriteriaException ex) {
+					logit.debug(()->"Falling back to groovy for criteria: "+criteria+" reason: "+ex.getMessage());
+					templates.put(tokens.template, CompiledCriteria.UNSUPPORTED);
+				}
+			}
+			
+			fallbacks.incrementAndGet();
+			Bindings b = groovyEngine.createBindings();
+			b.put(alias, qInstance);
+			
+			return (T)groovyEngine.eval(criteria, b);
+			
+		} catch (Exception ex) {
+			throw new FrameworkRuntimeException("Cannot instantiate queryDsl class for entity: "+referredClass+ " "
+					+ "please make sure the entity has been annotated with either @Domain or @Model and a Q Class has been generated for it", ex);	
+		}
+	}
+	
+	private CompiledCriteria lookup(String alias, Tokens tokens) {
+		CompiledCriteria compiled = templates.get(tokens.template);
+		if(compiled != null) {
+			hits.incrementAndGet();
+			return compiled;
+		}
+		
+		misses.incrementAndGet();
+		compiled = CompiledCriteria.compile(alias, tokens);
+		
+		if(templates.size() < getMaxCacheSize())
+			templates.putIfAbsent(tokens.template, compiled);
+		
+		return compiled;
+	}
+	
+	@ManagedAttribute
+	public long getHitCount() {
+		return hits.get();
+	}
+	
+	@ManagedAttribute
+	public long getMissCount() {
+		return misses.get();
+	}
+	
+	@ManagedAttribute
+	public long getFallbackCount() {
+		return fallbacks.get();
+	}
+	
+	@ManagedAttribute
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double)h/total;
+	}
+	
+	@ManagedAttribute
+	public int getTemplateCount() {
+		return templates.size();
+	}
+	
+	@ManagedOperation
+	public void clear() {
+		templates.clear();
+		entityPaths.clear();
+	}
+	
+	
+	static class UnsupportedCriteriaException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		
+		UnsupportedCriteriaException(String message) {
+			super(message);
+		}
+		
+		UnsupportedCriteriaException(String message, Throwable cause) {
+			super(message, cause);
+		}
+	}
+	
+	
+	/**
+	 * Criteria split into a literal-free template and the literal values in the order they appear. 
+	 */
+	static class Tokens {
+		
+		enum Type { IDENT, LITERAL, DOT, OPEN, CLOSE, COMMA }
+		
+		final List<Type> types = new ArrayList<>();
+		final List<String> idents = new ArrayList<>();
+		final List<Object> literals = new ArrayList<>();
+		
+		String template;
+		
+		/**
+		 * @return tokens or null if the criteria contains anything other than identifiers, literals, dots, parenthesis and commas 
+		 */
+		static Tokens tokenize(String criteria) {
+			Tokens t = new Tokens();
+			StringBuilder template = new StringBuilder(criteria.length());
+			
+			int i = 0;
+			final int len = criteria.length();
+			while(i < len) {
+				char c = criteria.charAt(i);
+				
+				if(Character.isWhitespace(c)) {
+					i++;
+					continue;
+				}
+				
+				if(Character.isJavaIdentifierStart(c)) {
+					int start = i;
+					while(i < len && Character.isJavaIdentifierPart(criteria.charAt(i))) i++;
+					String ident = criteria.substring(start, i);
+					
+					if("true".equals(ident) || "false".equals(ident)) 
+						t.addLiteral(Boolean.valueOf(ident), template);
+					else if("null".equals(ident)) 
+						t.addLiteral(null, template);
+					else 
+						t.add(Type.IDENT, ident, template);
+					
+					continue;
+				}
+				
+				if(c == '\'' || c == '"') {
+					i = readString(criteria, i, t, template);
+					if(i < 0) 
+						return null;
+					
+					continue;
+				}
+				
+				if(Character.isDigit(c) || (c == '-' && i+1 < len && Character.isDigit(criteria.charAt(i+1)) && t.isArgStart())) {
+					i = readNumber(criteria, i, t, template);
+					if(i < 0) 
+						return null;
+					
+					continue;
+				}
+				
+				switch (c) {
+					case '.': t.add(Type.DOT, ".", template); break;
+					case '(': t.add(Type.OPEN, "(", template); break;
+					case ')': t.add(Type.CLOSE, ")", template); break;
+					case ',': t.add(Type.COMMA, ",", template); break;
+					default: return null;
+				}
+				i++;
+			}
+			
+			t.template = template.toString();
+			return t;
+		}
+		
+		private boolean isArgStart() {
+			if(types.isEmpty()) 
+				return true;
+			
+			Type last = types.get(types.size()-1);
+			return last == Type.OPEN || last == Type.COMMA;
+		}
+		
+		private void add(Type type, String text, StringBuilder template) {
+			types.add(type);
+			idents.add(type == Type.IDENT ? text : null);
+			template.append(text).append(' ');
+		}
+		
+		private void addLiteral(Object value, StringBuilder template) {
+			types.add(Type.LITERAL);
+			idents.add(null);
+			literals.add(value);
+			template.append("? ");
+		}
+		
+		private static int readString(String criteria, int i, Tokens t, StringBuilder template) {
+			final char quote = criteria.charAt(i++);
+			StringBuilder sb = new StringBuilder();
+			
+			while(i < criteria.length()) {
+				char c = criteria.charAt(i++);
+				if(c == quote) {
+					t.addLiteral(sb.toString(), template);
+					return i;
+				}
+				
+				// double quoted strings may be interpolated by groovy
+				if(quote == '"' && c == '$') 
+					return -1;
+				
+				if(c == '\\') {
+					if(i >= criteria.length()) 
+						return -1;
+					
+					char esc = criteria.charAt(i++);
+					switch (esc) {
+						case 'n': sb.append('\n'); break;
+						case 't': sb.append('\t'); break;
+						case 'r': sb.append('\r'); break;
+						case '\\': case '\'': case '"': case '$': sb.append(esc); break;
+						default: return -1;
+					}
+					continue;
+				}
+				sb.append(c);
+			}
+			return -1;
+		}
+		
+		private static int readNumber(String criteria, int i, Tokens t, StringBuilder template) {
+			int start = i;
+			if(criteria.charAt(i) == '-') i++;
+			
+			boolean decimal = false;
+			while(i < criteria.length()) {
+				char c = criteria.charAt(i);
+				if(Character.isDigit(c)) {
+					i++;
+				} else if(c == '.' && !decimal && i+1 < criteria.length() && Character.isDigit(criteria.charAt(i+1))) {
+					decimal = true;
+					i++;
+				} else {
+					break;
+				}
+			}
+			String text = criteria.substring(start, i);
+			
+			char suffix = i < criteria.length() ? Character.toUpperCase(criteria.charAt(i)) : ' ';
+			try {
+				final Object value;
+				switch (suffix) {
+					case 'L': value = Long.valueOf(text); i++; break;
+					case 'D': value = Double.valueOf(text); i++; break;
+					case 'F': value = Float.valueOf(text); i++; break;
+					case 'G': value = decimal ? new BigDecimal(text) : new BigInteger(text); i++; break;
+					default: value = decimal ? new BigDecimal(text) : integral(text);
+				}
+				
+				if(i < criteria.length() && Character.isJavaIdentifierPart(criteria.charAt(i))) 
+					return -1;
+				
+				t.addLiteral(value, template);
+				return i;
+				
+			} catch (NumberFormatException ex) {
+				return -1;
+			}
+		}
+		
+		/**
+		 * follows groovy's typing of integral literals
+		 */
+		private static Number integral(String text) {
+			BigInteger big = new BigInteger(text);
+			if(big.bitLength() < 32) 
+				return big.intValue();
+			
+			if(big.bitLength() < 64) 
+				return big.longValue();
+			
+			return big;
+		}
+	}
+	
+	
+	/**
+	 * Parsed criteria template: a chain of field accesses and method invocations rooted at the query alias.
+	 */
+	static class CompiledCriteria {
+		
+		static final CompiledCriteria UNSUPPORTED = new CompiledCriteria(null);
+		
+		private final Node root;
+		
+		private CompiledCriteria(Node root) {
+			this.root = root;
+		}
+		
+		Object bind(EntityPath<?> qInstance, List<Object> literals) {
+			return root.eval(qInstance, literals);
+		}
+		
+		static CompiledCriteria compile(String alias, Tokens tokens) {
+			Parser parser = new Parser(alias, tokens);
+			Node node = parser.parseExpr();
+			
+			if(node == null || !parser.atEnd()) 
+				return UNSUPPORTED;
+			
+			return new CompiledCriteria(node);
+		}
+	}
+	
+	
+	private static class Parser {
+		
+		private final String alias;
+		private final Tokens tokens;
+		private int pos;
+		private int literalIndex;
+		
+		Parser(String alias, Tokens tokens) {
+			this.alias = alias;
+			this.tokens = tokens;
+		}
+		
+		boolean atEnd() {
+			return pos == tokens.types.size();
+		}
+		
+		private Tokens.Type peek() {
+			return atEnd() ? null : tokens.types.get(pos);
+		}
+		
+		Node parseExpr() {
+			Node node = parsePrimary();
+			
+			while(node != null && peek() == Tokens.Type.DOT) {
+				pos++;
+				if(peek() != Tokens.Type.IDENT) 
+					return null;
+				
+				String name = tokens.idents.get(pos++);
+				if(peek() != Tokens.Type.OPEN) {
+					node = new PropertyNode(node, name);
+					continue;
+				}
+				
+				pos++;
+				List<Node> args = new ArrayList<>();
+				if(peek() != Tokens.Type.CLOSE) {
+					while(true) {
+						Node arg = parseExpr();
+						if(arg == null) 
+							return null;
+						
+						args.add(arg);
+						if(peek() == Tokens.Type.COMMA) {
+							pos++;
+							continue;
+						}
+						break;
+					}
+				}
+				if(peek() != Tokens.Type.CLOSE) 
+					return null;
+				
+				pos++;
+				node = new InvokeNode(node, name, args.toArray(new Node[args.size()]));
+			}
+			return node;
+		}
+		
+		private Node parsePrimary() {
+			Tokens.Type type = peek();
+			if(type == Tokens.Type.LITERAL) {
+				pos++;
+				return new LiteralNode(literalIndex++);
+			}
+			if(type == Tokens.Type.IDENT && alias.equals(tokens.idents.get(pos))) {
+				pos++;
+				return (q, literals)->q;
+			}
+			if(type == Tokens.Type.OPEN) {
+				pos++;
+				Node node = parseExpr();
+				if(node == null || peek() != Tokens.Type.CLOSE) 
+					return null;
+				
+				pos++;
+				return node;
+			}
+			// class references, other variables, etc.
+			return null;
+		}
+	}
+	
+	
+	private interface Node {
+		Object eval(EntityPath<?> q, List<Object> literals);
+	}
+	
+	private static class LiteralNode implements Node {
+		private final int index;
+		
+		LiteralNode(int index) {
+			this.index = index;
+		}
+		
+		@Override
+		public Object eval(EntityPath<?> q, List<Object> literals) {
+			return literals.get(index);
+		}
+	}
+	
+	private static class PropertyNode implements Node {
+		private final Node target;
+		private final String name;
+		
+		private volatile Resolved resolved;
+		
+		PropertyNode(Node target, String name) {
+			this.target = target;
+			this.name = name;
+		}
+		
+		@Override
+		public Object eval(EntityPath<?> q, List<Object> literals) {
+			Object t = target.eval(q, literals);
+			if(t == null) 
+				throw new UnsupportedCriteriaException("Null target for property: "+name);
+			
+			Resolved r = resolved;
+			if(r == null || r.targetClass != t.getClass()) {
+				r = resolve(t.getClass());
+				resolved = r;
+			}
+			
+			try {
+				return r.field != null ? r.field.get(t) : r.getter.invoke(t);
+			} catch (Exception ex) {
+				throw new UnsupportedCriteriaException("Failed to read property: "+name+" on: "+t.getClass(), ex);
+			}
+		}
+		
+		private Resolved resolve(Class<?> targetClass) {
+			try {
+				Field f = targetClass.getField(name);
+				if(!Modifier.isStatic(f.getModifiers())) 
+					return new Resolved(targetClass, f, null);
+				
+			} catch (NoSuchFieldException ex) {
+				// try getter next
+			}
+			
+			String getterName = "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+			try {
+				return new Resolved(targetClass, null, targetClass.getMethod(getterName));
+			} catch (NoSuchMethodException ex) {
+				throw new UnsupportedCriteriaException("No public field or getter: "+name+" on: "+targetClass);
+			}
+		}
+		
+		private static class Resolved {
+			final Class<?> targetClass;
+			final Field field;
+			final Method getter;
+			
+			Resolved(Class<?> targetClass, Field field, Method getter) {
+				this.targetClass = targetClass;
+				this.field = field;
+				this.getter = getter;
+			}
+		}
+	}
+	
+	private static class InvokeNode implements Node {
+		private final Node target;
+		private final String name;
+		private final Node[] args;
+		
+		private volatile Resolved resolved;
+		
+		InvokeNode(Node target, String name, Node[] args) {
+			this.target = target;
+			this.name = name;
+			this.args = args;
+		}
+		
+		@Override
+		public Object eval(EntityPath<?> q, List<Object> literals) {
+			Object t = target.eval(q, literals);
+			if(t == null) 
+				throw new UnsupportedCriteriaException("Null target for method: "+name);
+			
+			Object[] argValues = new Object[args.length];
+			Class<?>[] argClasses = new Class<?>[args.length];
+			for(int i=0; i<args.length; i++) {
+				argValues[i] = args[i].eval(q, literals);
+				argClasses[i] = argValues[i] == null ? null : argValues[i].getClass();
+			}
+			
+			Resolved r = resolved;
+			if(r == null || !r.matches(t.getClass(), argClasses)) {
+				r = new Resolved(t.getClass(), argClasses, resolve(t.getClass(), argClasses));
+				resolved = r;
+			}
+			
+			try {
+				return r.method.invoke(t, r.method.isVarArgs() ? packVarArgs(r.method, argValues) : argValues);
+			} catch (Exception ex) {
+				throw new UnsupportedCriteriaException("Failed to invoke: "+name+" on: "+t.getClass(), ex);
+			}
+		}
+		
+		private Method resolve(Class<?> targetClass, Class<?>[] argClasses) {
+			List<Method> fixed = new ArrayList<>();
+			List<Method> varArgs = new ArrayList<>();
+			
+			for(Method m : targetClass.getMethods()) {
+				if(!m.getName().equals(name) || m.isBridge() || Modifier.isStatic(m.getModifiers())) 
+					continue;
+				
+				if(isApplicable(m.getParameterTypes(), argClasses)) 
+					fixed.add(m);
+				else if(m.isVarArgs() && isVarArgsApplicable(m.getParameterTypes(), argClasses)) 
+					varArgs.add(m);
+			}
+			
+			Method m = mostSpecific(fixed.isEmpty() ? varArgs : fixed);
+			if(m == null) 
+				throw new UnsupportedCriteriaException("No unambiguous method: "+name+" on: "+targetClass+" for args: "+Arrays.toString(argClasses));
+			
+			m.setAccessible(true);
+			return m;
+		}
+		
+		private static boolean isApplicable(Class<?>[] params, Class<?>[] argClasses) {
+			if(params.length != argClasses.length) 
+				return false;
+			
+			for(int i=0; i<params.length; i++) {
+				if(!isAssignable(params[i], argClasses[i])) 
+					return false;
+			}
+			return true;
+		}
+		
+		private static boolean isVarArgsApplicable(Class<?>[] params, Class<?>[] argClasses) {
+			int fixedCount = params.length - 1;
+			if(argClasses.length < fixedCount) 
+				return false;
+			
+			for(int i=0; i<fixedCount; i++) {
+				if(!isAssignable(params[i], argClasses[i])) 
+					return false;
+			}
+			Class<?> component = params[fixedCount].getComponentType();
+			for(int i=fixedCount; i<argClasses.length; i++) {
+				if(!isAssignable(component, argClasses[i])) 
+					return false;
+			}
+			return true;
+		}
+		
+		private static boolean isAssignable(Class<?> param, Class<?> arg) {
+			if(arg == null) 
+				return !param.isPrimitive();
+			
+			return ClassUtils.isAssignable(arg, param, true);
+		}
+		
+		private static Method mostSpecific(List<Method> candidates) {
+			if(candidates.isEmpty()) 
+				return null;
+			
+			Method best = null;
+			for(Method m : candidates) {
+				boolean moreSpecificThanAll = true;
+				for(Method other : candidates) {
+					if(other != m && !isMoreSpecific(m, other)) {
+						moreSpecificThanAll = false;
+						break;
+					}
+				}
+				if(moreSpecificThanAll) {
+					if(best != null && !Arrays.equals(best.getParameterTypes(), m.getParameterTypes())) 
+						return null;
+					
+					// prefer the most derived declaration of same signature 
+					if(best == null || best.getDeclaringClass().isAssignableFrom(m.getDeclaringClass())) 
+						best = m;
+				}
+			}
+			return best;
+		}
+		
+		private static boolean isMoreSpecific(Method m, Method other) {
+			Class<?>[] mp = m.getParameterTypes();
+			Class<?>[] op = other.getParameterTypes();
+			if(mp.length != op.length) 
+				return false;
+			
+			for(int i=0; i<mp.length; i++) {
+				if(!ClassUtils.isAssignable(mp[i], op[i], true)) 
+					return false;
+			}
+			return true;
+		}
+		
+		private static Object[] packVarArgs(Method m, Object[] argValues) {
+			Class<?>[] params = m.getParameterTypes();
+			int fixedCount = params.length - 1;
+			
+			// already passed as an array
+			if(argValues.length == params.length && (argValues[fixedCount] == null || params[fixedCount].isInstance(argValues[fixedCount]))) 
+				return argValues;
+			
+			Object varArgs = Array.newInstance(params[fixedCount].getComponentType(), argValues.length - fixedCount);
+			for(int i=fixedCount; i<argValues.length; i++) 
+				Array.set(varArgs, i-fixedCount, argValues[i]);
+			
+			Object[] packed = Arrays.copyOf(argValues, params.length);
+			packed[fixedCount] = varArgs;
+			return packed;
+		}
+		
+		private static class Resolved {
+			final Class<?> targetClass;
+			final Class<?>[] argClasses;
+			final Method method;
+			
+			Resolved(Class<?> targetClass, Class<?>[] argClasses, Method method) {
+				this.targetClass = targetClass;
+				this.argClasses = argClasses;
+				this.method = method;
+			}
+			
+			boolean matches(Class<?> targetClass, Class<?>[] argClasses) {
+				return this.targetClass == targetClass && Arrays.equals(this.argClasses, argClasses);
+			}
+		}
+	}
+}
@@ -16,18 +16,25 @@
 package com.antheminc.oss.nimbus.domain.model.state.repo.db.mongo;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.core.annotation.AnnotationUtils;
 
 import com.antheminc.oss.nimbus.InvalidConfigException;
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
 import com.antheminc.oss.nimbus.domain.defn.Domain;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
 import com.antheminc.oss.nimbus.domain.model.state.ModelEvent;
 import com.antheminc.oss.nimbus.domain.model.state.repo.ModelPersistenceHandler;
+import com.antheminc.oss.nimbus.domain.model.state.repo.ModelPersistenceListener;
 import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepository;
 import com.antheminc.oss.nimbus.support.EnableLoggingInterceptor;
 import com.antheminc.oss.nimbus.support.JustLogit;
@@ -46,8 +53,13 @@ public class DefaultMongoModelPersistenceHandler implements ModelPersistenceHand
 	
 	ModelRepository rep;
 	
-	public DefaultMongoModelPersistenceHandler(ModelRepository rep) {
+	BeanResolverStrategy beanResolver;
+	
+	private volatile Collection<ModelPersistenceListener> listeners;
+	
+	public DefaultMongoModelPersistenceHandler(ModelRepository rep, BeanResolverStrategy beanResolver) {
 		this.rep = rep;
+		this.beanResolver = beanResolver;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -67,6 +79,7 @@ public class DefaultMongoModelPersistenceHandler implements ModelPersistenceHand
 			Object coreStateId = mRoot.findParamByPath("/id").getState();
 			if(coreStateId == null) {
 				getRep()._new(mRoot.getConfig(), mRoot.getState());
+				notifyPersisted(alias);
 				return true;
 			}
 			
@@ -75,6 +88,7 @@ public class DefaultMongoModelPersistenceHandler implements ModelPersistenceHand
 			String pPath = param.getBeanPath();
 			Object pState = param.getState();
 			getRep()._update(alias, coreId, pPath, pState);
+			notifyPersisted(alias);
 			return true;
 			
 		}
@@ -82,6 +96,53 @@ public class DefaultMongoModelPersistenceHandler implements ModelPersistenceHand
 		
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean handle(Model<?> rootDomain, Map<String, Object> pathStates) {
+		if(MapUtils.isEmpty(pathStates))
+			return false;
+		
+		Model<Object> mRoot = (Model<Object>)rootDomain;
+		
+		Object coreStateId = mRoot.findParamByPath("/id").getState();
+		if(coreStateId == null) {
+			getRep()._new(mRoot.getConfig(), mRoot.getState());
+			coreStateId = mRoot.findParamByPath("/id").getState();
+		}
+		
+		logit.trace(()->"root: "+mRoot.getPath()+" coalesced paths: "+pathStates.keySet());
+		
+		String alias = getRepoAlias(mRoot);
+		getRep()._update(alias, (Serializable)coreStateId, pathStates);
+		notifyPersisted(alias);
+		return true;
+	}
+	
+	@Override
+	public Map<String, Object> detach(Model<?> rootDomain, Map<String, Object> pathStates) {
+		if(!(getRep() instanceof DefaultMongoModelRepository))
+			return null;
+		
+		DefaultMongoModelRepository mongoRep = (DefaultMongoModelRepository)getRep();
+		
+		Map<String, Object> detached = new LinkedHashMap<>();
+		pathStates.forEach((path, state)->detached.put(path, mongoRep.toDocument(state)));
+		return detached;
+	}
+	
+	private void notifyPersisted(String alias) {
+		getListeners().forEach(l->l.onPersisted(alias));
+	}
+	
+	// resolved on first write, listeners may themselves depend on the persistence beans
+	private Collection<ModelPersistenceListener> getListeners() {
+		if(listeners == null) {
+			Collection<ModelPersistenceListener> found = beanResolver == null ? null : beanResolver.findMultiple(ModelPersistenceListener.class);
+			listeners = found == null ? Collections.emptyList() : found;
+		}
+		return listeners;
+	}
+
 	private String getRepoAlias(Model<Object> mRoot) {
 		String alias = mRoot.getConfig().getRepo().alias();
 		
@@ -17,16 +17,22 @@ package com.antheminc.oss.nimbus.domain.model.state.repo.db.mongo;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 
 import org.apache.commons.lang3.StringUtils;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.ClassTypeInformation;
 
 import com.antheminc.oss.nimbus.InvalidConfigException;
 import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
@@ -96,12 +102,48 @@ public class DefaultMongoModelRepository implements ModelRepository {
 		return state;
 	}
 	
+	@Override
+	public <T> void _saveAll(String alias, List<T> states) {
+		// ids are assigned up front so that entries of a partially written batch can be saved again without duplicates
+		states.forEach(this::assignIdIfNecessary);
+		
+		// single insertMany round trip instead of one save per entry
+		getMongoOps().insert(states, alias);
+	}
+	
+	private void assignIdIfNecessary(Object state) {
+		MongoPersistentEntity<?> entity = getMongoOps().getConverter().getMappingContext().getPersistentEntity(state.getClass());
+		if(entity == null || !entity.hasIdProperty())
+			return;
+		
+		MongoPersistentProperty idProperty = entity.getIdProperty();
+		PersistentPropertyAccessor accessor = entity.getPropertyAccessor(state);
+		if(accessor.getProperty(idProperty) != null)
+			return;
+		
+		if(ObjectId.class == idProperty.getType())
+			accessor.setProperty(idProperty, new ObjectId());
+		else if(String.class == idProperty.getType())
+			accessor.setProperty(idProperty, new ObjectId().toString());
+	}
+	
 	@Override
 	public <ID extends Serializable, T> T _get(ID id, Class<T> referredClass, String alias) {
 		T state = getMongoOps().findById(id, referredClass, alias);
 		return state;
 	}
 	
+	/**
+	 * @return document form of the given state, as written to mongo, which no longer references the state itself
+	 */
+	public Object toDocument(Object state) {
+		if(state == null)
+			return null;
+		
+		// keeps the type hint of nested entities, matching what a save of the state would write
+		return getMongoOps().getConverter().convertToMongoType(state, ClassTypeInformation.OBJECT);
+	}
+	
 	private String resolvePath(String path) {
 		String p = StringUtils.replace(path, "/c/", "/");
 		p = StringUtils.replace(p, "/v/", "/");
@@ -110,38 +152,63 @@ public class DefaultMongoModelRepository implements ModelRepository {
 	
 	@Override
 	public <ID extends Serializable, T> T _update(String alias, ID id, String path, T state) {
-		// TODO Soham: Refactor
 		path = resolvePath(path);
-	  
-	  Query query = new Query(Criteria.where("_id").is(id));
-	  Update update = new Update();
-	  if(StringUtils.isBlank(path) || StringUtils.equalsIgnoreCase(path, "/c")) {
-		  getMongoOps().save(state, alias);
-	  }
-	  else{
-		  if(StringUtils.equals(path, "/id") || StringUtils.equals(path, "id")) { 
-		  	// if we updated the  document with path "/id", MongoDB is upserting with a new document with same _id but property field as "/id". e.g. if patient document already exist with
-		  	// all the fields populated, it would insert a new patient document with same _id like:
-		  	//	{"_id": NumberLong(1), "/id":NumberLong(1)}
-		  	// whereas there is already a correct patient document as:
-		  	//	{"_id": NumberLong(1), "firstName":"Rakesh"}
-		  	// I think this is because the "id" property gets saved in the monog as "_id" key and so when the next update comes with path="/id", for MongoDB, it would be a new field (non id),
-		  	// hence, ends up creating a new document. for now just returning from this mehtod without going to MongoDB.
-		  		return state;
-		  	}
-		   path = StringUtils.substringAfter(path, "/");
-		   path = path.replaceAll("/", "\\.");
-		   if(state == null)
-			   update.unset(path);
-		   else
-			   update.set(path, state);
-		   getMongoOps().upsert(query, update, alias);
-	  } 
-	  return state;
-	 }
-	 
-
+		
+		if(isFullSave(path)) {
+			getMongoOps().save(state, alias);
+			return state;
+		}
+		
+		Update update = new Update();
+		if(addToUpdate(update, path, state))
+			getMongoOps().upsert(new Query(Criteria.where("_id").is(id)), update, alias);
+		
+		return state;
+	}
+	
+	@Override
+	public <ID extends Serializable> void _update(String alias, ID id, Map<String, Object> pathStates) {
+		Update update = new Update();
+		boolean hasUpdates = false;
+		
+		for(Map.Entry<String, Object> entry : pathStates.entrySet()) {
+			String path = resolvePath(entry.getKey());
+			
+			if(isFullSave(path)) 
+				getMongoOps().save(entry.getValue(), alias);
+			else
+				hasUpdates |= addToUpdate(update, path, entry.getValue());
+		}
+		
+		// single round trip carrying all $set/$unset operations for this entity
+		if(hasUpdates)
+			getMongoOps().upsert(new Query(Criteria.where("_id").is(id)), update, alias);
+	}
+	
+	private boolean isFullSave(String resolvedPath) {
+		return StringUtils.isBlank(resolvedPath) || StringUtils.equalsIgnoreCase(resolvedPath, "/c");
+	}
 	
+	private boolean addToUpdate(Update update, String resolvedPath, Object state) {
+		if(StringUtils.equals(resolvedPath, "/id") || StringUtils.equals(resolvedPath, "id")) { 
+			// if we updated the  document with path "/id", MongoDB is upserting with a new document with same _id but property field as "/id". e.g. if patient document already exist with
+			// all the fields populated, it would insert a new patient document with same _id like:
+			//	{"_id": NumberLong(1), "/id":NumberLong(1)}
+			// whereas there is already a correct patient document as:
+			//	{"_id": NumberLong(1), "firstName":"Rakesh"}
+			// I think this is because the "id" property gets saved in the monog as "_id" key and so when the next update comes with path="/id", for MongoDB, it would be a new field (non id),
+			// hence, ends up creating a new document. for now just skipping the path without going to MongoDB.
+			return false;
+		}
+		String field = StringUtils.substringAfter(resolvedPath, "/");
+		field = field.replaceAll("/", "\\.");
+		if(state == null)
+			update.unset(field);
+		else
+			update.set(field, state);
+		return true;
+	}
+
 	@Override
 	public <T> T _replace(String alias, T state) {
 		getMongoOps().save(state, alias);
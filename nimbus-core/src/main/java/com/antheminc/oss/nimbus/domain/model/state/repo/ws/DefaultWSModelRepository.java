@@ -15,15 +15,20 @@
  */
 package com.antheminc.oss.nimbus.domain.model.state.repo.ws;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -32,6 +37,9 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
@@ -44,6 +52,7 @@ import com.antheminc.oss.nimbus.domain.model.state.repo.db.SearchCriteria.Exampl
 import com.antheminc.oss.nimbus.support.EnableLoggingInterceptor;
 import com.antheminc.oss.nimbus.support.JustLogit;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -54,9 +63,13 @@ import lombok.Setter;
  * 
  * In progress: Not all methods of ModelRepository are implemented yet, will be implemented as needed
  * 
+ * Calls to each alias of {@code targetUrl} go through a {@link RemoteTarget}, configured by {@code targetConfig} of the alias 
+ * or {@code defaultTargetConfig}, which bounds and isolates them and caches {@code _get} responses.
+ * 
  * @author Rakesh Patel
  */
 @ConfigurationProperties(prefix="ext.repository")
+@ManagedResource(objectName="com.antheminc.oss.nimbus:name=DefaultWSModelRepository", description="Remote repository calls")
 @Getter @Setter
 @EnableLoggingInterceptor
 public class DefaultWSModelRepository implements ExternalModelRepository {
@@ -65,6 +78,13 @@ public class DefaultWSModelRepository implements ExternalModelRepository {
 	
 	private Map<String, String> targetUrl;
 	
+	private RemoteTargetConfig defaultTargetConfig = new RemoteTargetConfig();
+	
+	private Map<String, RemoteTargetConfig> targetConfig = new HashMap<>();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final ConcurrentMap<String, RemoteTarget> remoteTargets = new ConcurrentHashMap<>();
+	
 	private final static JustLogit logit = new JustLogit(DefaultWSModelRepository.class);
 	
 	//private ExternalModelRepositoryClient externalRepositoryClient;
@@ -76,13 +96,13 @@ public class DefaultWSModelRepository implements ExternalModelRepository {
 	
 	@Override
 	public <ID extends Serializable, T> T _get(ID id, Class<T> referredClass, String alias, String url) {
-		URI uri = createUriForAlias(alias, url);
-		if(uri == null)
+		RemoteTarget target = getRemoteTarget(alias);
+		if(target == null)
 			return null;
-	
+		
+		URI uri = target.createUri(url);
 		try {
-			ResponseEntity<T> responseEntity = getRestTemplate().exchange(new RequestEntity<T>(HttpMethod.GET, uri), referredClass);
-			return Optional.ofNullable(responseEntity).map((response) -> response.getBody()).orElse(null);
+			return target.get(uri, referredClass);
 		} catch(Exception e) {
 			handleException(e,uri);
 		}
@@ -93,11 +113,13 @@ public class DefaultWSModelRepository implements ExternalModelRepository {
 	public <T> Object _search(Class<T> referredDomainClass, String alias, Supplier<SearchCriteria<?>> criteriaSupplier) {
 		SearchCriteria<?> searchCriteria = criteriaSupplier.get();
 		
-		URI uri = createUriForAlias(alias, searchCriteria.getCmd().getAbsoluteUri());
-		if(uri == null)
+		RemoteTarget target = getRemoteTarget(alias);
+		if(target == null)
 			return null;
 		
-		Object response = execute(() -> new RequestEntity<Object>(searchCriteria instanceof ExampleSearchCriteria ? searchCriteria.getWhere(): null, HttpMethod.POST, uri), 
+		URI uri = target.createUri(searchCriteria.getCmd().getAbsoluteUri());
+		
+		Object response = execute(target, () -> new RequestEntity<Object>(searchCriteria instanceof ExampleSearchCriteria ? searchCriteria.getWhere(): null, HttpMethod.POST, uri), 
 						() -> new ParameterizedTypeReference<List<T>>() {
 								public Type getType() {
 									return new CustomParameterizedTypeImpl((ParameterizedType) super.getType(), new Type[] {referredDomainClass});
@@ -106,30 +128,80 @@ public class DefaultWSModelRepository implements ExternalModelRepository {
 		return response;
 	}
 	
-	private Object execute(Supplier<RequestEntity<?>> reqEntitySupplier, Supplier<ParameterizedTypeReference<?>> responseTypeSupplier) {
+	private Object execute(RemoteTarget target, Supplier<RequestEntity<?>> reqEntitySupplier, Supplier<ParameterizedTypeReference<?>> responseTypeSupplier) {
+		RequestEntity<?> reqEntity = reqEntitySupplier.get();
 		 try {
-			ResponseEntity<?> responseEntity = getRestTemplate().exchange(reqEntitySupplier.get(), responseTypeSupplier.get());
-			return Optional.of(responseEntity).map((response)->response.getBody()).orElse(null);
+			ResponseEntity<?> responseEntity = target.call(reqEntity.getUrl(), ()->target.getRestTemplate().exchange(reqEntity, responseTypeSupplier.get()));
+			return Optional.ofNullable(responseEntity).map((response)->response.getBody()).orElse(null);
 		} catch(Exception e) {
-			handleException(e, reqEntitySupplier.get().getUrl());
+			handleException(e, reqEntity.getUrl());
 		}			 
 		 return null;
 	}
 	
-	private URI createUriForAlias(String alias, String url) {
-		
+	/**
+	 * @return target of the given alias, null if no url is configured for it
+	 */
+	protected RemoteTarget getRemoteTarget(String alias) {
 		if(MapUtils.isEmpty(this.getTargetUrl()) || StringUtils.isBlank(this.getTargetUrl().get(alias)))
 			return null;
 		
-		String urlToConctruct = StringUtils.startsWith(url, "/") ? url : "/".concat(url);
-		
-		urlToConctruct = this.getTargetUrl().get(alias).concat(urlToConctruct);
-		try {
-			URI uri = new URI(urlToConctruct);
-			return uri;
-		} catch (URISyntaxException e) {
-			throw new FrameworkRuntimeException("Cannot create URI from supplied url: "+url);
-		}
+		return remoteTargets.computeIfAbsent(alias, a->{
+			RemoteTargetConfig config = Optional.ofNullable(getTargetConfig()).map(m->m.get(a)).orElse(getDefaultTargetConfig());
+			return new RemoteTarget(a, getTargetUrl().get(a), config, getRestTemplate());
+		});
+	}
+	
+	public void shutdown() {
+		remoteTargets.values().forEach(RemoteTarget::shutdown);
+		remoteTargets.clear();
+	}
+	
+	@ManagedOperation(description="Clears cached responses of all remote repository targets")
+	public void invalidateCache() {
+		remoteTargets.values().forEach(RemoteTarget::invalidateCache);
+	}
+	
+	@ManagedAttribute
+	public long getCallCount() {
+		return sum(RemoteTarget::getCallCount);
+	}
+	
+	@ManagedAttribute
+	public long getFailedCount() {
+		return sum(RemoteTarget::getFailedCount);
+	}
+	
+	@ManagedAttribute
+	public long getRejectedCount() {
+		return sum(RemoteTarget::getRejectedCount);
+	}
+	
+	@ManagedAttribute
+	public long getShortCircuitedCount() {
+		return sum(RemoteTarget::getShortCircuitedCount);
+	}
+	
+	@ManagedAttribute
+	public long getCoalescedCount() {
+		return sum(RemoteTarget::getCoalescedCount);
+	}
+	
+	@ManagedAttribute
+	public long getCacheHitCount() {
+		return sum(RemoteTarget::getCacheHitCount);
+	}
+	
+	@ManagedAttribute
+	public String getOpenCircuits() {
+		return remoteTargets.values().stream()
+				.filter(RemoteTarget::isCircuitOpen)
+				.map(RemoteTarget::getAlias)
+				.collect(Collectors.joining(","));
+	}
+	
+	private long sum(ToLongFunction<RemoteTarget> counter) {
+		return remoteTargets.values().stream().mapToLong(counter).sum();
 	}
 	
 	
@@ -166,6 +238,13 @@ public class DefaultWSModelRepository implements ExternalModelRepository {
 		} else if(e instanceof RestClientException) {
 			logit.error(() -> "@ RestClient exception for "+uri);
 			throw new FrameworkRuntimeException(e.getMessage(), e);
+		} else if(e instanceof FrameworkRuntimeException) {
+			// rejected by the target: saturated, circuit open or timed out
+			logit.error(() -> "@ Remote repository call failed for "+uri+": "+e.getMessage());
+			throw (FrameworkRuntimeException) e;
+		} else if(e instanceof IOException) {
+			logit.error(() -> "@ Cannot read response for "+uri);
+			throw new FrameworkRuntimeException(e.getMessage(), e);
 		}
 	}
 
@@ -0,0 +1,424 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.repo.ws;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpMessageConverterExtractor;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.channel.web.WebSessionIdLoggerInterceptor;
+import com.antheminc.oss.nimbus.support.JustLogit;
+import com.antheminc.oss.nimbus.support.pojo.TtlCache;
+
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * Remote repository target of an {@code ext.repository} alias, isolating calls to it from the calling threads 
+ * and from other targets. <br>
+ * 
+ * Each call runs on the target's own bounded thread pool, carrying the caller's request attributes, while the calling thread 
+ * waits at most {@code callTimeoutMillis}. Calls beyond {@code maxConcurrent} running and {@code queueCapacity} waiting are 
+ * rejected (bulkhead). After {@code failureThreshold} consecutive failures calls fail fast for {@code openMillis} (circuit breaker); 
+ * client errors (4xx) don't count as failures. <br>
+ * 
+ * {@code _get} responses are cached for {@code cacheTtlMillis} and, if enabled, concurrent calls share a single in-flight request. 
+ * Both are keyed by uri and caller (http session, else authorization of the incoming request), as interceptors of the template 
+ * may authenticate calls per user. The raw response is shared, each caller decodes its own instance through the template's 
+ * message converters.
+ */
+public class RemoteTarget {
+
+	private static final JustLogit logit = new JustLogit(RemoteTarget.class);
+	
+	@Getter private final String alias;
+	
+	@Getter private final String baseUrl;
+	
+	@Getter private final RemoteTargetConfig config;
+	
+	@Getter private final RestTemplate restTemplate;
+	
+	private final ThreadPoolExecutor executor;
+	
+	private final TtlCache<CallKey, RemoteResponse> responseCache;
+	
+	private final ConcurrentMap<CallKey, CompletableFuture<RemoteResponse>> inFlight = new ConcurrentHashMap<>();
+	
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	
+	private volatile long openUntil;
+	
+	private final AtomicLong callCount = new AtomicLong();
+	
+	private final AtomicLong failedCount = new AtomicLong();
+	
+	private final AtomicLong rejectedCount = new AtomicLong();
+	
+	private final AtomicLong shortCircuitedCount = new AtomicLong();
+	
+	private final AtomicLong coalescedCount = new AtomicLong();
+	
+	public RemoteTarget(String alias, String baseUrl, RemoteTargetConfig config, RestTemplate template) {
+		this.alias = alias;
+		this.baseUrl = baseUrl;
+		this.config = config;
+		this.restTemplate = createRestTemplate(config, template);
+		this.responseCache = new TtlCache<>(config.getCacheTtlMillis(), config.getCacheMaxSize());
+		
+		BlockingQueue<Runnable> queue = config.getQueueCapacity() > 0 ? new ArrayBlockingQueue<>(config.getQueueCapacity()) : new SynchronousQueue<>();
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(config.getMaxConcurrent(), config.getMaxConcurrent(), 60, TimeUnit.SECONDS, queue, r->{
+			Thread t = new Thread(r, "ws-repo-"+alias+"-"+threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+	
+	/**
+	 * Uses the shared template as is, unless connect or read timeouts are configured for this target: these need a request factory 
+	 * of its own, which is a {@link SimpleClientHttpRequestFactory} using the converters, error handler and interceptors of the 
+	 * shared template but none of the ssl, proxy or pooling setup of its request factory.
+	 */
+	private static RestTemplate createRestTemplate(RemoteTargetConfig config, RestTemplate template) {
+		if(config.getConnectTimeoutMillis() <= 0 && config.getReadTimeoutMillis() <= 0)
+			return template;
+		
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout(config.getConnectTimeoutMillis());
+		requestFactory.setReadTimeout(config.getReadTimeoutMillis());
+		
+		RestTemplate restTemplate = new RestTemplate(template.getMessageConverters());
+		restTemplate.setRequestFactory(requestFactory);
+		restTemplate.setErrorHandler(template.getErrorHandler());
+		restTemplate.setInterceptors(template.getInterceptors());
+		restTemplate.setUriTemplateHandler(template.getUriTemplateHandler());
+		return restTemplate;
+	}
+	
+	public URI createUri(String url) {
+		String urlToConstruct = StringUtils.startsWith(url, "/") ? url : "/".concat(url);
+		try {
+			return new URI(baseUrl.concat(urlToConstruct));
+		} catch (URISyntaxException e) {
+			throw new FrameworkRuntimeException("Cannot create URI from supplied url: "+url);
+		}
+	}
+	
+	/**
+	 * @return response of a GET on the given uri decoded to the given type, from cache when available
+	 */
+	public <T> T get(URI uri, Class<T> type) {
+		final RemoteResponse response = getResponse(new CallKey(uri, callerOf(RequestContextHolder.getRequestAttributes())), type);
+		try {
+			return new HttpMessageConverterExtractor<>(type, getRestTemplate().getMessageConverters()).extractData(response);
+		} catch (IOException ex) {
+			throw new FrameworkRuntimeException("Cannot read response of remote repository: "+alias+" for "+uri, ex);
+		}
+	}
+	
+	private RemoteResponse getResponse(CallKey key, Class<?> type) {
+		RemoteResponse cached = responseCache.get(key);
+		if(cached != null)
+			return cached;
+		
+		if(!config.isCoalesceGets())
+			return fetch(key, type);
+		
+		CompletableFuture<RemoteResponse> pending = new CompletableFuture<>();
+		CompletableFuture<RemoteResponse> inProgress = inFlight.putIfAbsent(key, pending);
+		if(inProgress != null) {
+			coalescedCount.incrementAndGet();
+			return await(inProgress, key.getUri());
+		}
+		
+		try {
+			RemoteResponse response = fetch(key, type);
+			pending.complete(response);
+			return response;
+		} catch (RuntimeException ex) {
+			pending.completeExceptionally(ex);
+			throw ex;
+		} finally {
+			inFlight.remove(key, pending);
+		}
+	}
+	
+	private RemoteResponse fetch(CallKey key, Class<?> type) {
+		final URI uri = key.getUri();
+		RemoteResponse response = call(uri, ()->getRestTemplate().execute(uri, HttpMethod.GET, acceptHeaderCallback(type), RemoteResponse::copyOf));
+		responseCache.put(key, response);
+		return response;
+	}
+	
+	private RequestCallback acceptHeaderCallback(Class<?> type) {
+		List<MediaType> accept = getRestTemplate().getMessageConverters().stream()
+				.filter(c->c.canRead(type, null))
+				.flatMap(c->c.getSupportedMediaTypes().stream())
+				.distinct()
+				.collect(Collectors.toList());
+		
+		return request->request.getHeaders().setAccept(accept);
+	}
+	
+	private <T> T await(CompletableFuture<T> inProgress, URI uri) {
+		try {
+			return inProgress.get(config.getCallTimeoutMillis(), TimeUnit.MILLISECONDS);
+		} catch (ExecutionException ex) {
+			throw unwrap(ex);
+		} catch (TimeoutException ex) {
+			throw new FrameworkRuntimeException("Timed out after "+config.getCallTimeoutMillis()+"ms waiting on remote repository: "+alias+" for "+uri, ex);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new FrameworkRuntimeException("Interrupted waiting on remote repository: "+alias+" for "+uri, ex);
+		}
+	}
+	
+	/**
+	 * identifies the caller on whose behalf interceptors of the template may authenticate: 
+	 * its http session if any, else the authorization of its request
+	 */
+	static String callerOf(RequestAttributes attributes) {
+		if(!(attributes instanceof ServletRequestAttributes))
+			return null;
+		
+		HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+		HttpSession session = request.getSession(false);
+		return session != null ? session.getId() : request.getHeader(HttpHeaders.AUTHORIZATION);
+	}
+	
+	/**
+	 * Runs the given remote call on this target's pool with the request attributes of the caller, waiting for its completion 
+	 * up to {@code callTimeoutMillis}. Exceptions thrown by the call are rethrown as is.
+	 */
+	public <T> T call(URI uri, Supplier<T> remoteCall) {
+		if(isCircuitOpen()) {
+			shortCircuitedCount.incrementAndGet();
+			throw new FrameworkRuntimeException("Circuit open for remote repository: "+alias+", failing fast for "+uri);
+		}
+		
+		callCount.incrementAndGet();
+		
+		final RequestAttributes callerAttributes = RequestContextHolder.getRequestAttributes();
+		
+		final Future<T> future;
+		try {
+			future = executor.submit(()->{
+				try {
+					RequestContextHolder.setRequestAttributes(callerAttributes);
+					WebSessionIdLoggerInterceptor.addSessionIdIfAny();
+					
+					return remoteCall.get();
+				} finally {
+					WebSessionIdLoggerInterceptor.clearSessionIdIfAny();
+					RequestContextHolder.resetRequestAttributes();
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			rejectedCount.incrementAndGet();
+			throw new FrameworkRuntimeException("Remote repository: "+alias+" is saturated with "+config.getMaxConcurrent()+" concurrent calls, rejected call for "+uri, ex);
+		}
+		
+		try {
+			T result = future.get(config.getCallTimeoutMillis(), TimeUnit.MILLISECONDS);
+			onSuccess();
+			return result;
+			
+		} catch (ExecutionException ex) {
+			// target responded, the request was at fault
+			if(ex.getCause() instanceof HttpClientErrorException)
+				onSuccess();
+			else
+				onFailure(uri);
+			
+			throw unwrap(ex);
+			
+		} catch (TimeoutException ex) {
+			future.cancel(true);
+			onFailure(uri);
+			throw new FrameworkRuntimeException("Timed out after "+config.getCallTimeoutMillis()+"ms waiting on remote repository: "+alias+" for "+uri, ex);
+			
+		} catch (InterruptedException ex) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new FrameworkRuntimeException("Interrupted waiting on remote repository: "+alias+" for "+uri, ex);
+		}
+	}
+	
+	private static RuntimeException unwrap(ExecutionException ex) {
+		Throwable cause = ex.getCause();
+		if(cause instanceof RuntimeException)
+			return (RuntimeException) cause;
+		
+		if(cause instanceof Error)
+			throw (Error) cause;
+		
+		return new FrameworkRuntimeException(cause);
+	}
+	
+	public boolean isCircuitOpen() {
+		return config.getFailureThreshold() > 0 
+				&& consecutiveFailures.get() >= config.getFailureThreshold() 
+				&& System.currentTimeMillis() < openUntil;
+	}
+	
+	private void onSuccess() {
+		consecutiveFailures.set(0);
+	}
+	
+	private void onFailure(URI uri) {
+		failedCount.incrementAndGet();
+		
+		if(config.getFailureThreshold() > 0 && consecutiveFailures.incrementAndGet() >= config.getFailureThreshold()) {
+			openUntil = System.currentTimeMillis() + config.getOpenMillis();
+			logit.warn(()->"Opened circuit of remote repository: "+alias+" for "+config.getOpenMillis()+"ms after "
+						+consecutiveFailures.get()+" consecutive failures, last for "+uri);
+		}
+	}
+	
+	public void invalidateCache() {
+		responseCache.invalidateAll();
+	}
+	
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+	public long getCallCount() {
+		return callCount.get();
+	}
+	
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+	
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+	
+	public long getShortCircuitedCount() {
+		return shortCircuitedCount.get();
+	}
+	
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+	
+	public long getCacheHitCount() {
+		return responseCache.getHitCount();
+	}
+	
+	@Value
+	private static class CallKey {
+		private final URI uri;
+		private final String caller;
+	}
+	
+	/**
+	 * status, headers and body of a response read in full, to be decoded any number of times
+	 */
+	static class RemoteResponse implements ClientHttpResponse {
+		
+		private final int rawStatusCode;
+		private final String statusText;
+		private final HttpHeaders headers;
+		private final byte[] body;
+		
+		private RemoteResponse(int rawStatusCode, String statusText, HttpHeaders headers, byte[] body) {
+			this.rawStatusCode = rawStatusCode;
+			this.statusText = statusText;
+			this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+			this.body = body;
+		}
+		
+		static RemoteResponse copyOf(ClientHttpResponse response) throws IOException {
+			HttpHeaders headers = new HttpHeaders();
+			headers.putAll(response.getHeaders());
+			
+			return new RemoteResponse(response.getRawStatusCode(), response.getStatusText(), headers, StreamUtils.copyToByteArray(response.getBody()));
+		}
+		
+		@Override
+		public HttpStatus getStatusCode() {
+			return HttpStatus.valueOf(rawStatusCode);
+		}
+		
+		@Override
+		public int getRawStatusCode() {
+			return rawStatusCode;
+		}
+		
+		@Override
+		public String getStatusText() {
+			return statusText;
+		}
+		
+		@Override
+		public HttpHeaders getHeaders() {
+			return headers;
+		}
+		
+		@Override
+		public InputStream getBody() {
+			return new ByteArrayInputStream(body);
+		}
+		
+		@Override
+		public void close() {
+			// nothing to release, body is held in memory
+		}
+	}
+}
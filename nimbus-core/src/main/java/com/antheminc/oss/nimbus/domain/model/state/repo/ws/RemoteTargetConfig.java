@@ -0,0 +1,71 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.repo.ws;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Connection, isolation and caching settings of a remote repository target, see {@link RemoteTarget}.
+ */
+@Getter @Setter
+public class RemoteTargetConfig {
+
+	/**
+	 * connect and read timeouts of a request factory dedicated to the target; 0 or less (default) for both keeps the request factory 
+	 * of the shared template along with its ssl, proxy and pooling setup, see {@link RemoteTarget}
+	 */
+	private int connectTimeoutMillis = 0;
+	
+	private int readTimeoutMillis = 0;
+	
+	/**
+	 * max time the calling thread waits for a remote call, including time queued in the bulkhead
+	 */
+	private long callTimeoutMillis = 15000;
+	
+	/**
+	 * max concurrent calls to the target, each running on a thread of the target's pool
+	 */
+	private int maxConcurrent = 20;
+	
+	/**
+	 * calls waiting for a free thread beyond which further calls are rejected, 0 to reject as soon as all threads are busy
+	 */
+	private int queueCapacity = 50;
+	
+	/**
+	 * consecutive failures which open the circuit, 0 or less disables the circuit breaker
+	 */
+	private int failureThreshold = 5;
+	
+	/**
+	 * time the circuit stays open, failing calls fast, before letting calls through again
+	 */
+	private long openMillis = 30000;
+	
+	/**
+	 * time a {@code _get} response is cached for, keyed by uri and caller; 0 or less disables caching
+	 */
+	private long cacheTtlMillis = 0;
+	
+	private int cacheMaxSize = 1000;
+	
+	/**
+	 * share the response of an in-flight {@code _get} with concurrent calls to the same uri by the same caller
+	 */
+	private boolean coalesceGets = false;
+}
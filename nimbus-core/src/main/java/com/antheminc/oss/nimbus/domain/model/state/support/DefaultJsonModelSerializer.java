@@ -17,7 +17,6 @@ package com.antheminc.oss.nimbus.domain.model.state.support;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.springframework.util.CollectionUtils;
@@ -43,21 +42,26 @@ public class DefaultJsonModelSerializer extends JsonSerializer<Model<?>> {
 	public void serialize(Model<?> m, JsonGenerator gen, SerializerProvider serializers) throws IOException {
 		gen.writeStartObject();
 		
-		List<Param<?>> rParams = getResolvedParams(m);
-		if(!CollectionUtils.isEmpty(rParams))
-			gen.writeObjectField(K_PARAMS, rParams);
-		
-		gen.writeEndObject();
-	}
-	
-	private List<Param<?>> getResolvedParams(Model<?> m) {
+		// stream included params, without collecting them first
 		List<Param<?>> params = m.getParams();
-		if(CollectionUtils.isEmpty(params)) 
-			return null;
+		if(!CollectionUtils.isEmpty(params)) {
+			boolean started = false;
+			for(Param<?> p : params) {
+				if(!include(p))
+					continue;
+				
+				if(!started) {
+					gen.writeArrayFieldStart(K_PARAMS);
+					started = true;
+				}
+				serializers.defaultSerializeValue(p, gen);
+			}
+			
+			if(started)
+				gen.writeEndArray();
+		}
 		
-		return params.stream()
-			.filter(this::include)
-			.collect(Collectors.toList());
+		gen.writeEndObject();
 	}
 	
 	private boolean include(Param<?> p) {
@@ -16,7 +16,10 @@
 package com.antheminc.oss.nimbus.domain.model.state.support;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import org.apache.commons.lang3.ArrayUtils;
@@ -27,8 +30,10 @@ import com.antheminc.oss.nimbus.domain.model.state.EntityState.ListElemParam;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
 
 import lombok.RequiredArgsConstructor;
 
@@ -61,6 +66,9 @@ public class DefaultJsonParamSerializer extends JsonSerializer<Param<?>> {
 	
 	private static final ThreadLocal<String> TH_PATH = new ThreadLocal<>();
 	
+	/* json property name by bean property name, per class written with streamed leaf state */
+	private final Map<Class<?>, Map<String, String>> jsonPropertyNames = new ConcurrentHashMap<>();
+	
 	@Override
 	public void serialize(Param<?> p, JsonGenerator gen, SerializerProvider provider) throws IOException {
 
@@ -73,7 +81,8 @@ public class DefaultJsonParamSerializer extends JsonSerializer<Param<?>> {
 		}
 		
 		try {
-			ParamWriter writer = new ParamWriter(gen);
+			final JsonParamSerializationConfig config = JsonParamSerializationConfig.get();
+			ParamWriter writer = new ParamWriter(gen, provider, config.isStreamLeafState());
 			gen.writeStartObject();
 			
 			if(lockId!=null)
@@ -85,7 +94,7 @@ public class DefaultJsonParamSerializer extends JsonSerializer<Param<?>> {
 			gen.writeStringField(K_CONFIGID, p.getConfigId());
 			
 			Model<?> rootDomain = p.getRootDomain();
-			if(rootDomain != null && p == rootDomain.getAssociatedParam()) {
+			if(rootDomain != null && p == rootDomain.getAssociatedParam() && config.shouldWriteConfig(p.getConfigId())) {
 				gen.writeObjectField(K_CONFIG, p.getConfig());
 			}
 			
@@ -120,10 +129,39 @@ public class DefaultJsonParamSerializer extends JsonSerializer<Param<?>> {
 		}
 	}
 
+	/**
+	 * Names Jackson writes the serializable properties of the given class with, keyed by bean property name; 
+	 * properties Jackson wouldn't write, e.g. ones marked with {@code @JsonIgnore}, are left out.
+	 */
+	private Map<String, String> jsonPropertyNames(Class<?> beanClass, SerializerProvider provider) {
+		Map<String, String> names = jsonPropertyNames.get(beanClass);
+		if(names!=null)
+			return names;
+		
+		BeanDescription beanDesc = provider.getConfig().introspect(provider.constructType(beanClass));
+		
+		names = new HashMap<>();
+		for(BeanPropertyDefinition propDef : beanDesc.findProperties()) {
+			if(propDef.couldSerialize())
+				names.put(propDef.getInternalName(), propDef.getName());
+		}
+		
+		jsonPropertyNames.put(beanClass, names);
+		return names;
+	}
+	
+	private static boolean isMappedNested(Param<?> p) {
+		return p.isMapped() && p.isNested();
+	}
+	
 	@RequiredArgsConstructor
-	private static class ParamWriter {
+	private class ParamWriter {
 		private final JsonGenerator gen;
 		
+		private final SerializerProvider provider;
+		
+		private final boolean streamLeafState;
+		
 		private void writeObjectIfNotNull(String fieldName, Supplier<Object> cb) throws IOException {
 			Object o = cb.get();
 			if(o==null)
@@ -141,20 +179,21 @@ public class DefaultJsonParamSerializer extends JsonSerializer<Param<?>> {
 		}
 		
 		private void writeLeafStateConditionally(Param<?> p) throws IOException {
-			/* legacy code using leafState */
-			if(p.isLeaf() || hasGrid(p)) {
-				Object o = p.getLeafState();
-				if(o==null)
-					return;
-
-				gen.writeObjectField(K_LEAF_STATE, o);
-			}
+			if(!p.isLeaf() && !hasGrid(p))
+				return;
 			
-			/*
-			if(p.isLeaf() || hasGrid(p)) {
-				writeSyntheticState(p);
+			if(streamLeafState && isMappedNested(p)) {
+				gen.writeFieldName(K_LEAF_STATE);
+				writeMappedState(p);
+				return;
 			}
-			*/
+			
+			/* legacy code using leafState */
+			Object o = p.getLeafState();
+			if(o==null)
+				return;
+
+			gen.writeObjectField(K_LEAF_STATE, o);
 		}
 		
 		private boolean hasGrid(Param<?> p) {
@@ -169,67 +208,47 @@ public class DefaultJsonParamSerializer extends JsonSerializer<Param<?>> {
 			return colParam.getConfig().getUiStyles().getAnnotation().annotationType()==Grid.class;
 		}
 		
-		private void writeSyntheticState(Param<?> p) throws IOException {
-			//gen.writeStartObject();
-			writeParamState(p, true);
-			//gen.writeEndObject();
-		}
-		
-		private void writeParamState(Param<?> p, boolean isRoot) throws IOException {
-			// unmapped
-			if(!p.isMapped()) {
-				writeWithin(p, isRoot, p::getState);
-				return;
-			}
-			
-			// mapped: leaf
-			if(p.isLeafOrCollectionWithLeafElems()) {
-				writeLeafOrCollectionWithLeafElements(p, isRoot);
+		/**
+		 * Writes the same structure as {@link Param#getLeafState()} of a mapped param, directly from the param tree 
+		 * rather than from an instance of the mapped class populated first. Properties are named as Jackson names them 
+		 * for the mapped class, properties which are not backed by a param are not written.
+		 */
+		private void writeMappedState(Param<?> p) throws IOException {
+			if(!isMappedNested(p)) {
+				gen.writeObject(p.getState());
 				return;
 			}
 			
-			// mapped: nested
-			if(p.findIfNested()==null || p.findIfNested().templateParams().isNullOrEmpty())
-				return;
+			Model<?> m = p.findIfNested();
+			boolean hasParams = m!=null && !m.templateParams().isNullOrEmpty();
 			
-			// mapped: collection
 			if(p.isCollection()) {
-				writeCollection(p, isRoot);
+				gen.writeStartArray();
+				if(hasParams) {
+					for(Param<?> ep : m.getParams())
+						writeMappedState(ep);
+				}
+				gen.writeEndArray();
 				return;
 			}
 			
-			// mapped: nested
-			gen.writeObjectFieldStart(getFieldNameForState(p, isRoot));
-			for(Param<?> cp : p.findIfNested().getParams()) {
-				if(cp.isLeafOrCollectionWithLeafElems()) 
-					writeLeafOrCollectionWithLeafElements(cp, false);
-				else 
-					writeParamState(cp, false);
-			}
-			gen.writeEndObject();
-		}
-
-		private void writeCollection(Param<?> p, boolean isRoot) throws IOException {
-			gen.writeObjectFieldStart(getFieldNameForState(p, isRoot));
-			for(Param<?> ep : p.findIfNested().getParams()) {
-				gen.writeStartArray();
-				writeParamState(ep, isRoot);
-				gen.writeEndArray();					
+			gen.writeStartObject();
+			if(hasParams) {
+				Map<String, String> names = jsonPropertyNames(p.getConfig().getReferredClass(), provider);
+				for(Param<?> cp : m.getParams()) {
+					String name = names.get(cp.getConfig().getBeanName());
+					if(name==null)
+						continue;
+					
+					if(isMappedNested(cp)) {
+						gen.writeFieldName(name);
+						writeMappedState(cp);
+					} else {
+						writeObjectIfNotNull(name, cp::getState);
+					}
+				}
 			}
 			gen.writeEndObject();
 		}
-		
-		private void writeLeafOrCollectionWithLeafElements(Param<?> p, boolean isRoot) throws IOException {
-			writeWithin(p, isRoot, p::getState);
-		}
-	
-		private void writeWithin(Param<?> p, boolean isRoot, Supplier<Object> cb) throws IOException {
-			String fieldName = getFieldNameForState(p, isRoot); 
-			writeObjectIfNotNull(fieldName, cb);
-		}
-		
-		private String getFieldNameForState(Param<?> p, boolean isRoot) {
-			return isRoot ? K_LEAF_STATE : p.getConfig().getBeanName(); 
-		}
 	}
 }
@@ -0,0 +1,136 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.support;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.antheminc.oss.nimbus.support.pojo.TtlCache;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Options of {@link DefaultJsonParamSerializer}. <br>
+ * Serializers are instantiated by Jackson rather than wired, hence the configured instance registers itself on startup 
+ * and is looked up through {@link #get()}.
+ */
+@ConfigurationProperties(prefix="model.state.serialization")
+@Getter @Setter
+public class JsonParamSerializationConfig {
+
+	public enum ConfigMode {
+		/**
+		 * config is written with the root domain param of each response
+		 */
+		always,
+		
+		/**
+		 * config is written the first time a root domain's {@code configId} is sent to a client config cache, identified by 
+		 * the marker the client sends in the {@code configMarkerHeader} header or {@code configMarkerParam} request parameter. 
+		 * Clients generate a new marker whenever they start with an empty cache, and get config with every response if they 
+		 * send none. Clients cache config by {@code configId}, or fetch it again with the {@code _config} action of the root domain
+		 */
+		once,
+		
+		/**
+		 * only {@code configId} is written, clients fetch config with the {@code _config} action of the root domain
+		 */
+		never;
+	}
+	
+	public static final JsonParamSerializationConfig DEFAULT = new JsonParamSerializationConfig();
+	
+	private static volatile JsonParamSerializationConfig current = DEFAULT;
+	
+	/**
+	 * command outputs hold only the top most params changed within the command, params already serialized as part of 
+	 * another output's param tree are not repeated
+	 */
+	private boolean delta = false;
+	
+	private ConfigMode configMode = ConfigMode.always;
+	
+	private String configMarkerHeader = "X-Config-Cache-Id";
+	
+	private String configMarkerParam = "configCacheId";
+	
+	/**
+	 * how long the configIds sent to a client config cache are remembered, config is sent again afterwards
+	 */
+	private long sentConfigTtlMillis = 30 * 60 * 1000;
+	
+	private int sentConfigMaxMarkers = 10000;
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private TtlCache<String, Set<String>> sentConfigIds;
+	
+	/**
+	 * write {@code leafState} of mapped params directly from the param tree, instead of first copying it into a new 
+	 * instance of the mapped class; properties with null values are omitted
+	 */
+	private boolean streamLeafState = false;
+	
+	public static JsonParamSerializationConfig get() {
+		return current;
+	}
+	
+	@PostConstruct
+	public void register() {
+		this.sentConfigIds = new TtlCache<>(sentConfigTtlMillis, sentConfigMaxMarkers);
+		current = this;
+	}
+	
+	public boolean shouldWriteConfig(String configId) {
+		if(configMode==ConfigMode.always)
+			return true;
+		
+		if(configMode==ConfigMode.never)
+			return false;
+		
+		String marker = resolveConfigMarker();
+		if(marker==null || sentConfigIds==null)
+			return true;
+		
+		return sentConfigIds.getOrLoad(marker, k->Collections.newSetFromMap(new ConcurrentHashMap<>())).add(configId);
+	}
+	
+	// outside of http requests, e.g. websocket, there is no marker and config is always written
+	private String resolveConfigMarker() {
+		RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+		if(!(requestAttributes instanceof ServletRequestAttributes))
+			return null;
+		
+		HttpServletRequest request = ((ServletRequestAttributes)requestAttributes).getRequest();
+		
+		String marker = request.getHeader(configMarkerHeader);
+		if(StringUtils.isBlank(marker))
+			marker = request.getParameter(configMarkerParam);
+		
+		return StringUtils.isBlank(marker) ? null : marker;
+	}
+}
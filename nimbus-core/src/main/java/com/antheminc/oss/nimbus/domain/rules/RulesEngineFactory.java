@@ -27,4 +27,11 @@ public interface RulesEngineFactory {
 	public RulesConfig createConfig(String alias);
 	
 	public RulesRuntime createRuntime(RulesConfig config);
+	
+	/**
+	 * Runtime for a one-shot fire, which holds no state across fires and needs no shutdown beyond the caller's own.
+	 */
+	default public RulesRuntime createStatelessRuntime(RulesConfig config) {
+		return createRuntime(config);
+	}
 }
@@ -30,6 +30,9 @@ import com.antheminc.oss.nimbus.domain.model.config.RulesConfig;
 import com.antheminc.oss.nimbus.domain.model.state.RulesRuntime;
 import com.antheminc.oss.nimbus.domain.rules.RulesEngineFactory;
 import com.antheminc.oss.nimbus.support.JustLogit;
+import com.antheminc.oss.nimbus.support.metrics.MetricsRegistry;
+
+import lombok.Setter;
 
 /**
  * @author Soham Chakravarti
@@ -42,6 +45,23 @@ public class DroolsRulesEngineFactory implements RulesEngineFactory {
 	
 	Map<String,RulesConfig> ruleConfigurations = new ConcurrentHashMap<String,RulesConfig>();
 	
+	/**
+	 * keep a stateful session per model instead of a new stateless session per fire, 
+	 * one-shot fires via {@link #createStatelessRuntime(RulesConfig)} remain stateless
+	 */
+	private final boolean statefulSession;
+	
+	@Setter
+	private MetricsRegistry metrics = MetricsRegistry.NOOP;
+	
+	public DroolsRulesEngineFactory() {
+		this(false);
+	}
+	
+	public DroolsRulesEngineFactory(boolean statefulSession) {
+		this.statefulSession = statefulSession;
+	}
+	
 	@Override
 	public RulesConfig createConfig(String alias) {
 		String path = alias + ".drl";
@@ -75,7 +95,15 @@ public class DroolsRulesEngineFactory implements RulesEngineFactory {
 
 	@Override
 	public RulesRuntime createRuntime(RulesConfig config) {
+		DroolsRulesRuntime runtime = statefulSession ? new DroolsStatefulRulesRuntime(config) : new DroolsRulesRuntime(config);
+		runtime.setMetrics(metrics);
+		return runtime;
+	}
+	
+	@Override
+	public RulesRuntime createStatelessRuntime(RulesConfig config) {
 		DroolsRulesRuntime runtime = new DroolsRulesRuntime(config);
+		runtime.setMetrics(metrics);
 		return runtime;
 	}
 
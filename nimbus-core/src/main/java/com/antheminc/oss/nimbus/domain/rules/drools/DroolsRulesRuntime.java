@@ -25,6 +25,7 @@ import org.drools.runtime.StatelessKnowledgeSession;
 import com.antheminc.oss.nimbus.domain.model.config.RulesConfig;
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
 import com.antheminc.oss.nimbus.domain.model.state.RulesRuntime;
+import com.antheminc.oss.nimbus.support.metrics.MetricsRegistry;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -37,10 +38,14 @@ import lombok.Setter;
 @Getter @Setter @RequiredArgsConstructor
 public class DroolsRulesRuntime implements RulesRuntime {
 
+	public static final String METRIC_RULES = "nimbus.rules";
+	
 	final private RulesConfig rulesConfig;
 
 	private KnowledgeBase knowledgeBase;
 	
+	private MetricsRegistry metrics = MetricsRegistry.NOOP;
+	
 	@Override
 	public void start() {
 		setKnowledgeBase(getRulesConfig().unwrap(KnowledgeBase.class));
@@ -49,6 +54,8 @@ public class DroolsRulesRuntime implements RulesRuntime {
 	@Override
 	public void fireRules(Param<?>... params) {
 		if(getKnowledgeBase()==null) return;
+		final long start = System.nanoTime();
+		
 		StatelessKnowledgeSession session = getKnowledgeBase().newStatelessKnowledgeSession();
 		List<Object> facts = new ArrayList<Object>();
 		if(params.length > 0) {
@@ -58,6 +65,12 @@ public class DroolsRulesRuntime implements RulesRuntime {
 			});
 		}
 		session.execute(facts);
+		
+		recordFire(start, "stateless");
+	}
+	
+	protected void recordFire(long startNanos, String session) {
+		getMetrics().record(METRIC_RULES, System.nanoTime() - startNanos, "path", getRulesConfig().getPath(), "session", session);
 	}
 
 	@Override
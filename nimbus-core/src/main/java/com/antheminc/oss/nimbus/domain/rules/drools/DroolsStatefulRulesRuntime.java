@@ -0,0 +1,162 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.rules.drools;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.drools.runtime.rule.FactHandle;
+
+import com.antheminc.oss.nimbus.domain.model.config.RulesConfig;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.ExecutionModel;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.ExecutionRuntime;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Rules runtime keeping a {@link StatefulKnowledgeSession} for the lifetime of its model, instead of a new stateless 
+ * session per fire. <br>
+ * 
+ * Facts inserted on an earlier fire are updated in place; facts no longer passed in (e.g. a replaced state instance) are retracted. 
+ * Fires are skipped altogether when no state change was applied on the root model since the last one, as tracked by 
+ * {@link ExecutionRuntime#getStateVersion()}. <br>
+ * 
+ * Every fact passed in is updated on a fire that isn't skipped, rather than only those that changed: a model fires with 
+ * its own param and state as the only facts, and rules match on nested fields of that state whose changes Drools can't 
+ * observe. Updating only some of them would keep rules matching unchanged facts from firing again, unlike the 
+ * stateless session re-evaluating all of them on each fire. <br>
+ * 
+ * Note that, unlike the stateless mode, rules which do not match on the param or its state (e.g. without conditions) 
+ * only fire once per session. The session is disposed on {@link #shutdown()}, i.e. when the root model's runtime stops. 
+ * One-shot fires (e.g. {@code @Rule} handlers) must use {@link DroolsRulesEngineFactory#createStatelessRuntime(RulesConfig)}, 
+ * as every stateful runtime stays registered with the execution runtime till it stops.
+ */
+@Getter
+public class DroolsStatefulRulesRuntime extends DroolsRulesRuntime {
+
+	@Getter(AccessLevel.NONE)
+	private StatefulKnowledgeSession session;
+	
+	@Getter(AccessLevel.NONE)
+	private Map<Object, FactHandle> factHandles = new IdentityHashMap<>();
+	
+	private long firedAtVersion = -1;
+	
+	private long fireCount;
+	
+	private long skipCount;
+	
+	public DroolsStatefulRulesRuntime(RulesConfig rulesConfig) {
+		super(rulesConfig);
+	}
+	
+	@Override
+	public synchronized void fireRules(Param<?>... params) {
+		if(getKnowledgeBase()==null) return;
+		
+		final long version = resolveStateVersion(params);
+		if(session != null && version >= 0 && version == firedAtVersion) {
+			skipCount++;
+			getMetrics().increment(METRIC_RULES+".skipped", "path", getRulesConfig().getPath());
+			return;
+		}
+		final long start = System.nanoTime();
+		
+		if(session == null) {
+			session = getKnowledgeBase().newStatefulKnowledgeSession();
+			
+			// nested & collection element models get their own session, which is disposed along with the root model
+			ExecutionRuntime execRt = resolveExecutionRuntime(params);
+			if(execRt != null)
+				execRt.registerRulesRuntime(this);
+		}
+		
+		Map<Object, FactHandle> current = new IdentityHashMap<>();
+		for(Param<?> param : params) {
+			upsertFact(param, current);
+			upsertFact(param.getState(), current);
+		}
+		
+		// facts not passed in this time
+		factHandles.values().forEach(session::retract);
+		factHandles = current;
+		
+		session.fireAllRules();
+		fireCount++;
+		
+		// changes made by the rules themselves are part of this fire
+		firedAtVersion = resolveStateVersion(params);
+		
+		recordFire(start, "stateful");
+	}
+	
+	private void upsertFact(Object fact, Map<Object, FactHandle> current) {
+		if(fact == null || current.containsKey(fact))
+			return;
+		
+		FactHandle handle = factHandles.remove(fact);
+		if(handle == null) {
+			handle = session.insert(fact);
+		} else {
+			session.update(handle, fact);
+		}
+		current.put(fact, handle);
+	}
+	
+	/**
+	 * @return state version of the runtime the params' changes are applied through, -1 if not resolvable
+	 */
+	private static long resolveStateVersion(Param<?>... params) {
+		ExecutionRuntime execRt = resolveExecutionRuntime(params);
+		return execRt == null ? -1 : execRt.getStateVersion();
+	}
+	
+	private static ExecutionRuntime resolveExecutionRuntime(Param<?>... params) {
+		if(params.length == 0 || params[0] == null)
+			return null;
+		
+		ExecutionModel<?> rootExecution = params[0].getRootExecution();
+		if(rootExecution == null)
+			return null;
+		
+		// changes on linked roots are applied through the runtime of the root they're linked to
+		if(rootExecution.getAssociatedParam() != null && rootExecution.getAssociatedParam().isLinked())
+			rootExecution = rootExecution.getAssociatedParam().findIfLinked().getRootExecution();
+		
+		return rootExecution.getExecutionRuntime();
+	}
+	
+	@Override
+	public synchronized void shutdown() {
+		if(session != null)
+			session.dispose();
+		
+		session = null;
+		factHandles = new IdentityHashMap<>();
+		firedAtVersion = -1;
+	}
+	
+	@Override
+	public <S> S unwrap(Class<S> clazz) {
+		if(session != null && clazz.isInstance(session))
+			return clazz.cast(session);
+		
+		return super.unwrap(clazz);
+	}
+}
@@ -0,0 +1,96 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.domain.model.state.internal.ExecutionEntity;
+import com.antheminc.oss.nimbus.entity.process.ProcessFlow;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Encodes the state held by a root {@link ExecutionEntity}, i.e. its core state and process flow, into compact binary snapshots: 
+ * field level json with type information, deflated. <br>
+ * 
+ * Json annotations of the domain classes are ignored, as those shape the ui payload rather than the state to be restored.
+ */
+public class ExecutionEntitySnapshotCodec {
+
+	@Getter @Setter
+	static class SnapshotState {
+		private Object core;
+		private ProcessFlow flow;
+	}
+	
+	private final ObjectMapper om;
+	
+	public ExecutionEntitySnapshotCodec() {
+		this.om = new ObjectMapper();
+		om.configure(MapperFeature.USE_ANNOTATIONS, false);
+		om.setVisibility(PropertyAccessor.ALL, Visibility.NONE);
+		om.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+		om.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+		om.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		om.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+		om.findAndRegisterModules();
+	}
+	
+	public byte[] encode(ExecutionEntity<?, ?> eState) {
+		SnapshotState s = new SnapshotState();
+		s.setCore(eState.getCore());
+		s.setFlow(eState.getFlow());
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(OutputStream out = new DeflaterOutputStream(bytes)) {
+			om.writeValue(out, s);
+		} catch (IOException ex) {
+			throw new FrameworkRuntimeException("Failed to snapshot state of core: "+eState.getCore().getClass(), ex);
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * @return entity holding the snapshot core state and process flow, as built when loaded from the repository
+	 */
+	public ExecutionEntity<?, ?> decode(byte[] snapshot) {
+		try(InputStream in = new InflaterInputStream(new ByteArrayInputStream(snapshot))) {
+			SnapshotState s = om.readValue(in, SnapshotState.class);
+			
+			ExecutionEntity<?, ?> eState = ExecutionEntity.resolveAndInstantiate(null, s.getCore());
+			eState.setFlow(s.getFlow());
+			return eState;
+			
+		} catch (IOException ex) {
+			throw new FrameworkRuntimeException("Failed to restore state from snapshot of "+snapshot.length+" bytes", ex);
+		}
+	}
+}
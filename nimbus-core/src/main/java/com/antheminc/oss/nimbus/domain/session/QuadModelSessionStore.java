@@ -0,0 +1,49 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.session;
+
+import com.antheminc.oss.nimbus.domain.cmd.exec.ExecutionContext;
+import com.antheminc.oss.nimbus.domain.model.state.QuadModel;
+
+/**
+ * Holds the {@link QuadModel} of root domains configured with {@code Repo.Cache.rep_device} between commands of a user session. 
+ * Entries are keyed by the session and the {@link ExecutionContext#getId()} of the root domain command.
+ */
+public interface QuadModelSessionStore {
+
+	/**
+	 * @return quad model stored for the root domain of the given context in the current session, null if none
+	 */
+	public QuadModel<?, ?> get(ExecutionContext eCtx);
+	
+	public void put(ExecutionContext eCtx);
+	
+	public boolean remove(ExecutionContext eCtx);
+	
+	/**
+	 * Removes the entries of the current session, stopping the runtimes of their quad models.
+	 */
+	default public void clear() {}
+	
+	/**
+	 * Removes the entries of the given session, e.g. once it was destroyed.
+	 */
+	default public void evictSession(String sessionId) {}
+	
+	public static String key(ExecutionContext eCtx) {
+		return new StringBuilder().append("{").append(eCtx.getId()).append("}").toString();
+	}
+}
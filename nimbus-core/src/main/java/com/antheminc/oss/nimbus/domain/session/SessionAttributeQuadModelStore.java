@@ -0,0 +1,51 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.session;
+
+import java.util.Optional;
+
+import com.antheminc.oss.nimbus.domain.cmd.exec.ExecutionContext;
+import com.antheminc.oss.nimbus.domain.model.state.QuadModel;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Keeps the execution context holding the quad model as an attribute of the user session, i.e. in heap for the lifetime of the session.
+ */
+@Getter @RequiredArgsConstructor
+public class SessionAttributeQuadModelStore implements QuadModelSessionStore {
+
+	private final SessionProvider sessionProvider;
+	
+	@Override
+	public QuadModel<?, ?> get(ExecutionContext eCtx) {
+		ExecutionContext stored = getSessionProvider().getAttribute(QuadModelSessionStore.key(eCtx));
+		return Optional.ofNullable(stored)
+				.map(ExecutionContext::getQuadModel)
+				.orElse(null);
+	}
+	
+	@Override
+	public void put(ExecutionContext eCtx) {
+		getSessionProvider().setAttribute(QuadModelSessionStore.key(eCtx), eCtx);
+	}
+	
+	@Override
+	public boolean remove(ExecutionContext eCtx) {
+		return getSessionProvider().removeAttribute(QuadModelSessionStore.key(eCtx));
+	}
+}
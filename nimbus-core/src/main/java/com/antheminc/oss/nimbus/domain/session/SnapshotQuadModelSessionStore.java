@@ -0,0 +1,537 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.session;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.domain.cmd.Action;
+import com.antheminc.oss.nimbus.domain.cmd.Command;
+import com.antheminc.oss.nimbus.domain.cmd.exec.ExecutionContext;
+import com.antheminc.oss.nimbus.domain.cmd.exec.internal.DefaultActionExecutorGet;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.ExecutionModel;
+import com.antheminc.oss.nimbus.domain.model.state.ExecutionRuntime;
+import com.antheminc.oss.nimbus.domain.model.state.ParamEvent;
+import com.antheminc.oss.nimbus.domain.model.state.QuadModel;
+import com.antheminc.oss.nimbus.domain.model.state.builder.QuadModelBuilder;
+import com.antheminc.oss.nimbus.domain.model.state.internal.BaseStateEventListener;
+import com.antheminc.oss.nimbus.domain.model.state.internal.ExecutionEntity;
+import com.antheminc.oss.nimbus.support.JustLogit;
+import com.antheminc.oss.nimbus.support.metrics.MetricsRegistry;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Keeps up to {@code maxLiveEntries} quad models live in heap; beyond that, or once idle for {@code liveIdleMillis}, the least 
+ * recently used ones are reduced to a compact snapshot of their state (see {@link ExecutionEntitySnapshotCodec}) held in direct, 
+ * i.e. off-heap, buffers. A snapshot is rebuilt into a quad model only when its root is next requested. <br>
+ * 
+ * Snapshots are dropped once idle for {@code snapshotTtlMillis} or, least recently used first, when their total size exceeds 
+ * {@code maxSnapshotBytes}; the root is then loaded again from its repository on next request, as for a new session. <br>
+ * 
+ * Notes:<ul>
+ * <li>Only the param states are restored. Param runtime attributes (e.g. visibility, enablement, values) are derived again by 
+ * the state load handlers and rules of the model when it is rebuilt.</li>
+ * <li>Roots with a mapped view hold params of other roots and are always kept live.</li>
+ * <li>Roots are only reduced when no command is executing on them, see {@link ExecutionRuntime#getExecutionLock()} (including 
+ * the calling thread's own, as the lock is reentrant), and once 
+ * the root commands which obtained them from this store have completed: entries are pinned from {@link #get(ExecutionContext)} or 
+ * {@link #put(ExecutionContext)} till the root command stops in the calling thread, as the caller only takes the execution 
+ * lock after obtaining the quad model.</li>
+ * <li>Entries are keyed by session: {@link #clear()} only removes those of the current session and those of a destroyed 
+ * session are removed via {@link #evictSession(String)}.</li></ul>
+ */
+@ConfigurationProperties(prefix="session.store.snapshot")
+@ManagedResource(objectName="com.antheminc.oss.nimbus:name=SnapshotQuadModelSessionStore", description="Quad model session store with off-heap snapshots")
+@Getter @Setter
+public class SnapshotQuadModelSessionStore implements QuadModelSessionStore {
+
+	public static final String METRIC_STORE = "nimbus.session.store";
+	
+	public static final String METRIC_REBUILD = "nimbus.session.rebuild";
+	
+	private static final JustLogit logit = new JustLogit(SnapshotQuadModelSessionStore.class);
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final SessionProvider sessionProvider;
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final QuadModelBuilder quadModelBuilder;
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final MetricsRegistry metrics;
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final ExecutionEntitySnapshotCodec codec = new ExecutionEntitySnapshotCodec();
+	
+	private int maxLiveEntries = 500;
+	
+	private long liveIdleMillis = TimeUnit.MINUTES.toMillis(5);
+	
+	private long maxSnapshotBytes = 256L * 1024 * 1024;
+	
+	private long snapshotTtlMillis = TimeUnit.MINUTES.toMillis(30);
+	
+	/**
+	 * guarded by this
+	 */
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final LinkedHashMap<String, LiveEntry> live = new LinkedHashMap<>(16, 0.75f, true);
+	
+	/**
+	 * guarded by this
+	 */
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final LinkedHashMap<String, Snapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final Map<String, CompletableFuture<QuadModel<?, ?>>> rebuilding = new ConcurrentHashMap<>();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private long snapshotBytes;
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final AtomicLong liveHitCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final AtomicLong snapshotHitCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final AtomicLong missCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final AtomicLong snapshotCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final AtomicLong snapshotFailedCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final AtomicLong evictedCount = new AtomicLong();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final AtomicLong totalRebuildNanos = new AtomicLong();
+	
+	@RequiredArgsConstructor
+	static class LiveEntry {
+		final ExecutionContext eCtx;
+		long lastAccess = System.currentTimeMillis();
+		
+		/**
+		 * root commands in progress which obtained this entry, guarded by the store
+		 */
+		int pins;
+		
+		QuadModel<?, ?> getQuadModel() {
+			return eCtx.getQuadModel();
+		}
+	}
+	
+	@RequiredArgsConstructor
+	static class Snapshot {
+		final ByteBuffer data;
+		long lastAccess = System.currentTimeMillis();
+		
+		byte[] bytes() {
+			byte[] bytes = new byte[data.capacity()];
+			data.duplicate().get(bytes);
+			return bytes;
+		}
+	}
+	
+	public SnapshotQuadModelSessionStore(SessionProvider sessionProvider, QuadModelBuilder quadModelBuilder, MetricsRegistry metrics) {
+		this.sessionProvider = sessionProvider;
+		this.quadModelBuilder = quadModelBuilder;
+		this.metrics = metrics;
+	}
+	
+	private String storeKey(ExecutionContext eCtx) {
+		return sessionProvider.getSessionId() + QuadModelSessionStore.key(eCtx);
+	}
+	
+	private static boolean isOfSession(String key, String sessionId) {
+		// keys are the session id followed by QuadModelSessionStore#key
+		return key.startsWith(sessionId + "{");
+	}
+	
+	@Override
+	public QuadModel<?, ?> get(ExecutionContext eCtx) {
+		final String key = storeKey(eCtx);
+		
+		final Snapshot snapshot;
+		synchronized(this) {
+			LiveEntry entry = live.get(key);
+			if(entry != null) {
+				record(liveHitCount, "live");
+				return pin(entry);
+			}
+			
+			snapshot = snapshots.get(key);
+			if(snapshot == null && !rebuilding.containsKey(key)) {
+				record(missCount, "miss");
+				return null;
+			}
+		}
+		
+		// one rebuild per key, concurrent requests for the same root wait on it
+		CompletableFuture<QuadModel<?, ?>> rebuilt = new CompletableFuture<>();
+		CompletableFuture<QuadModel<?, ?>> inProgress = rebuilding.putIfAbsent(key, rebuilt);
+		if(inProgress != null)
+			return await(inProgress);
+		
+		try {
+			QuadModel<?, ?> q = rebuild(key, eCtx);
+			rebuilt.complete(q);
+			return q;
+		} catch (RuntimeException ex) {
+			rebuilt.completeExceptionally(ex);
+			throw ex;
+		} finally {
+			rebuilding.remove(key);
+		}
+	}
+	
+	private QuadModel<?, ?> rebuild(String key, ExecutionContext eCtx) {
+		final Snapshot snapshot;
+		synchronized(this) {
+			// may have been rebuilt meanwhile
+			LiveEntry entry = live.get(key);
+			if(entry != null)
+				return pin(entry);
+			
+			snapshot = removeSnapshot(key);
+		}
+		if(snapshot == null) {
+			record(missCount, "miss");
+			return null;
+		}
+		
+		final long start = System.nanoTime();
+		
+		ExecutionEntity<?, ?> eState = codec.decode(snapshot.bytes());
+		final QuadModel<?, ?> q;
+		try {
+			DefaultActionExecutorGet.TH_ACTION.set(Action._get);
+			q = quadModelBuilder.build(eCtx.getCommandMessage().getCommand(), eState);
+		} finally {
+			DefaultActionExecutorGet.TH_ACTION.set(null);
+		}
+		q.getRoot().getState().setFlow(eState.getFlow());
+		
+		ExecutionContext rebuiltCtx = new ExecutionContext(eCtx.getCommandMessage(), q);
+		putLive(key, rebuiltCtx);
+		
+		final long elapsed = System.nanoTime() - start;
+		totalRebuildNanos.addAndGet(elapsed);
+		metrics.record(METRIC_REBUILD, elapsed);
+		record(snapshotHitCount, "snapshot");
+		return q;
+	}
+	
+	private static QuadModel<?, ?> await(CompletableFuture<QuadModel<?, ?>> f) {
+		try {
+			return f.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new FrameworkRuntimeException("Interrupted while waiting on quad model rebuild", ex);
+		} catch (ExecutionException ex) {
+			throw new FrameworkRuntimeException("Failed to rebuild quad model from snapshot", ex.getCause());
+		}
+	}
+	
+	private void record(AtomicLong counter, String result) {
+		counter.incrementAndGet();
+		metrics.increment(METRIC_STORE, "result", result);
+	}
+	
+	@Override
+	public void put(ExecutionContext eCtx) {
+		putLive(storeKey(eCtx), eCtx);
+	}
+	
+	private void putLive(String key, ExecutionContext eCtx) {
+		final List<Map.Entry<String, LiveEntry>> candidates;
+		synchronized(this) {
+			removeSnapshot(key);
+			
+			LiveEntry entry = new LiveEntry(eCtx);
+			live.put(key, entry);
+			pin(entry);
+			
+			candidates = collectReducible();
+		}
+		candidates.forEach(this::reduce);
+	}
+	
+	/**
+	 * Keeps the entry from being reduced till the root command executing in the calling thread stops. <br>
+	 * guarded by this
+	 */
+	private QuadModel<?, ?> pin(LiveEntry entry) {
+		entry.lastAccess = System.currentTimeMillis();
+		entry.pins++;
+		
+		// txn scoped listeners are held per thread till the root command stops
+		entry.getQuadModel().getRoot().getExecutionRuntime().getEventDelegator().addTxnScopedListener(new BaseStateEventListener() {
+			@Override
+			public void onStopRootCommandExecution(Command cmd, Map<ExecutionModel<?>, List<ParamEvent>> aggregatedEvents) {
+				unpin(entry);
+			}
+		});
+		return entry.getQuadModel();
+	}
+	
+	private synchronized void unpin(LiveEntry entry) {
+		if(entry.pins > 0)
+			entry.pins--;
+	}
+	
+	/**
+	 * @return least recently used live entries beyond max size, and those idle, which are not pinned
+	 */
+	private List<Map.Entry<String, LiveEntry>> collectReducible() {
+		final long idleBefore = System.currentTimeMillis() - liveIdleMillis;
+		int excess = live.size() - maxLiveEntries;
+		
+		List<Map.Entry<String, LiveEntry>> candidates = new ArrayList<>();
+		for(Map.Entry<String, LiveEntry> e : live.entrySet()) {
+			if(excess-- <= 0 && e.getValue().lastAccess >= idleBefore)
+				break;
+			
+			if(e.getValue().pins == 0)
+				candidates.add(e);
+		}
+		return candidates;
+	}
+	
+	/**
+	 * Replaces the live entry with a snapshot, unless a command is executing on its root, it got pinned meanwhile or its state 
+	 * can't be snapshot.
+	 */
+	private void reduce(Map.Entry<String, LiveEntry> candidate) {
+		final String key = candidate.getKey();
+		final LiveEntry entry = candidate.getValue();
+		final QuadModel<?, ?> q = entry.getQuadModel();
+		
+		// mapped views hold params of other roots
+		if(q.getRoot().getState().getView() != null)
+			return;
+		
+		final ExecutionRuntime execRt = q.getRoot().getExecutionRuntime();
+		// tryLock would succeed for the thread executing on that very root
+		final ReentrantLock lock = execRt.getExecutionLock();
+		if(lock.isLocked() || !lock.tryLock())
+			return;
+		
+		try {
+			final byte[] bytes;
+			try {
+				bytes = codec.encode(q.getRoot().getState());
+			} catch (RuntimeException ex) {
+				// keep live, rather than losing its state
+				if(snapshotFailedCount.getAndIncrement() == 0)
+					logit.warn(()->"Failed to snapshot quad model: "+key+", keeping it live. Further failures are only counted.", ex);
+				return;
+			}
+			
+			ByteBuffer data = ByteBuffer.allocateDirect(bytes.length);
+			data.put(bytes).flip();
+			
+			synchronized(this) {
+				// replaced, removed or obtained by a command meanwhile
+				if(live.get(key) != entry || entry.pins > 0)
+					return;
+				
+				live.remove(key);
+				snapshots.put(key, new Snapshot(data));
+				snapshotBytes += bytes.length;
+				snapshotCount.incrementAndGet();
+				
+				evictSnapshots();
+			}
+		} finally {
+			lock.unlock();
+		}
+		execRt.stop();
+	}
+	
+	/**
+	 * guarded by this
+	 */
+	private void evictSnapshots() {
+		final long expiredBefore = System.currentTimeMillis() - snapshotTtlMillis;
+		
+		Iterator<Map.Entry<String, Snapshot>> iter = snapshots.entrySet().iterator();
+		while(iter.hasNext()) {
+			Snapshot s = iter.next().getValue();
+			if(snapshotBytes <= maxSnapshotBytes && s.lastAccess >= expiredBefore)
+				break;
+			
+			iter.remove();
+			snapshotBytes -= s.data.capacity();
+			evictedCount.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * guarded by this
+	 */
+	private Snapshot removeSnapshot(String key) {
+		Snapshot s = snapshots.remove(key);
+		if(s != null)
+			snapshotBytes -= s.data.capacity();
+		return s;
+	}
+	
+	@Override
+	public boolean remove(ExecutionContext eCtx) {
+		final String key = storeKey(eCtx);
+		synchronized(this) {
+			return live.remove(key) != null | removeSnapshot(key) != null;
+		}
+	}
+	
+	@Override
+	public void clear() {
+		evictSession(sessionProvider.getSessionId());
+	}
+	
+	@Override
+	public void evictSession(String sessionId) {
+		if(sessionId == null)
+			return;
+		
+		final List<LiveEntry> removed = new ArrayList<>();
+		synchronized(this) {
+			Iterator<Map.Entry<String, LiveEntry>> liveIter = live.entrySet().iterator();
+			while(liveIter.hasNext()) {
+				Map.Entry<String, LiveEntry> e = liveIter.next();
+				if(isOfSession(e.getKey(), sessionId)) {
+					removed.add(e.getValue());
+					liveIter.remove();
+				}
+			}
+			
+			Iterator<Map.Entry<String, Snapshot>> snapshotIter = snapshots.entrySet().iterator();
+			while(snapshotIter.hasNext()) {
+				Map.Entry<String, Snapshot> e = snapshotIter.next();
+				if(isOfSession(e.getKey(), sessionId)) {
+					snapshotBytes -= e.getValue().data.capacity();
+					snapshotIter.remove();
+				}
+			}
+		}
+		removed.forEach(this::stop);
+	}
+	
+	@ManagedOperation(description="Removes the live quad models and snapshots of all sessions")
+	public void clearAll() {
+		final List<LiveEntry> removed;
+		synchronized(this) {
+			removed = new ArrayList<>(live.values());
+			live.clear();
+			snapshots.clear();
+			snapshotBytes = 0;
+		}
+		removed.forEach(this::stop);
+	}
+	
+	/**
+	 * Stops the runtime of a removed entry, unless a command is still executing on it.
+	 */
+	private void stop(LiveEntry entry) {
+		final ExecutionRuntime execRt = entry.getQuadModel().getRoot().getExecutionRuntime();
+		final ReentrantLock lock = execRt.getExecutionLock();
+		if(lock.isLocked() || !lock.tryLock()) {
+			logit.debug(()->"Skipped stopping runtime of removed quad model with a command executing on it: "+execRt);
+			return;
+		}
+		
+		try {
+			execRt.stop();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@ManagedAttribute
+	public synchronized int getLiveCount() {
+		return live.size();
+	}
+	
+	@ManagedAttribute
+	public synchronized int getStoredSnapshotCount() {
+		return snapshots.size();
+	}
+	
+	@ManagedAttribute
+	public synchronized long getSnapshotBytes() {
+		return snapshotBytes;
+	}
+	
+	@ManagedAttribute
+	public long getLiveHitCount() {
+		return liveHitCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getSnapshotHitCount() {
+		return snapshotHitCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getMissCount() {
+		return missCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getSnapshotCount() {
+		return snapshotCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getSnapshotFailedCount() {
+		return snapshotFailedCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getEvictedCount() {
+		return evictedCount.get();
+	}
+	
+	@ManagedAttribute
+	public long getTotalRebuildMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(totalRebuildNanos.get());
+	}
+}
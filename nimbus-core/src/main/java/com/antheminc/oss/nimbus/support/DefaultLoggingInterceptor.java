@@ -17,10 +17,13 @@ package com.antheminc.oss.nimbus.support;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.util.HashSet;
+import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.ArrayUtils;
@@ -29,10 +32,17 @@ import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.core.annotation.AnnotationUtils;
 
+import com.antheminc.oss.nimbus.domain.cmd.Command;
+import com.antheminc.oss.nimbus.domain.cmd.CommandMessage;
 import com.antheminc.oss.nimbus.support.EnableAPIMetricCollection.LogLevel;
+import com.antheminc.oss.nimbus.support.metrics.MetricsRegistry;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 
 /**
  * @author Soham Chakravarti
@@ -55,25 +65,56 @@ public class DefaultLoggingInterceptor {
 	public static final String K_METHOD_ARGS = "[Args] ";
 	public static final String K_METHOD_RESP = "[Resp] ";
 	
-	private Set<Class<?>> proxyProcessedBeans = new HashSet<>();
+	public static final String METRIC_API = "nimbus.api";
+	
+	private static final String K_NONE = "none";
+	
+	private final Set<Class<?>> proxyProcessedBeans = ConcurrentHashMap.newKeySet();
+	
+	private final Map<Method, String> methodNames = new ConcurrentHashMap<>();
+	
+	private final Map<Class<?>, EnableAPIMetricCollection> configuredAnnotations = new ConcurrentHashMap<>();
+	
+	private final MetricsRegistry metrics;
+	
+	public DefaultLoggingInterceptor() {
+		this(MetricsRegistry.NOOP);
+	}
+	
+	public DefaultLoggingInterceptor(MetricsRegistry metrics) {
+		this.metrics = metrics;
+	}
 	
 	public static class SimpleStopWatch {
-		private long startTimeMillis;
-		private String totalTimeMillis;
+		private long startNanos;
+		private long elapsedNanos;
 		
 		public void start() {
-			this.startTimeMillis = System.currentTimeMillis();
+			this.startNanos = System.nanoTime();
 		}
 		
 		public void stop() {
-			this.totalTimeMillis = String.valueOf(System.currentTimeMillis() - this.startTimeMillis);
+			this.elapsedNanos = System.nanoTime() - this.startNanos;
+		}
+		
+		public long getElapsedNanos() {
+			return elapsedNanos;
 		}
 		
 		public String toString() {
-			return totalTimeMillis;
+			return String.valueOf(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
 		}
 	}
 	
+	/**
+	 * Resolved once per intercepted method and target type: the short method name used in logs and the annotation configured on the target type.
+	 */
+	@Getter @RequiredArgsConstructor
+	static class MethodMetadata {
+		private final String methodName;
+		private final EnableAPIMetricCollection configuredAnnotation;
+	}
+	
 	public static String format(String key, String methodName) {
 		return new StringBuilder().append(key).append(methodName).toString();
 	}
@@ -88,13 +129,14 @@ public class DefaultLoggingInterceptor {
 	
 	@Around("@within(com.antheminc.oss.nimbus.support.EnableAPIMetricCollection)")
 	public Object logMethods(ProceedingJoinPoint proceedingJoinPoint) throws Throwable {
-		String methodName = nullSafeMethodGet(proceedingJoinPoint);
+		MethodMetadata metadata = getMethodMetadata(proceedingJoinPoint);
+		String methodName = metadata.getMethodName();
 		SimpleStopWatch sw = new SimpleStopWatch();
 		
 		checkAndInjectProxyReferenceToTarget(proceedingJoinPoint);
 		
 		try {
-			EnableAPIMetricCollection configuredAnnotation = nullSafeLoggingLevel(proceedingJoinPoint);
+			EnableAPIMetricCollection configuredAnnotation = metadata.getConfiguredAnnotation();
 			if(logArgs(configuredAnnotation, LogLevel.info)) {
 				logit.info(()->format(K_METHOD_ARGS, methodName, nullSafeArgs(proceedingJoinPoint, methodName)));
 			} else {
@@ -105,6 +147,7 @@ public class DefaultLoggingInterceptor {
 			sw.start();
 			Object result =  proceedingJoinPoint.proceed();
 			sw.stop();
+			recordMetrics(proceedingJoinPoint, metadata, sw, false);
 			
 			if(logResp(configuredAnnotation, LogLevel.info)) {
 				logit.info(()->format(K_METHOD_RESP, methodName, nullSafeResp(result)));
@@ -117,6 +160,7 @@ public class DefaultLoggingInterceptor {
 			
 		} catch (Throwable t) {
 			sw.stop();
+			recordMetrics(proceedingJoinPoint, metadata, sw, true);
 			
 			nullSafeLogError(proceedingJoinPoint, methodName, t, sw);
 			
@@ -125,6 +169,56 @@ public class DefaultLoggingInterceptor {
 		
 	}
 	
+	private MethodMetadata getMethodMetadata(ProceedingJoinPoint proceedingJoinPoint) {
+		Signature signature = proceedingJoinPoint.getSignature();
+		String methodName = signature instanceof MethodSignature
+				? methodNames.computeIfAbsent(((MethodSignature)signature).getMethod(), m->nullSafeMethodGet(proceedingJoinPoint))
+				: nullSafeMethodGet(proceedingJoinPoint);
+		
+		Object target = proceedingJoinPoint.getTarget();
+		EnableAPIMetricCollection configuredAnnotation = target == null 
+				? _DEFAULT 
+				: configuredAnnotations.computeIfAbsent(target.getClass(), c->nullSafeLoggingLevel(proceedingJoinPoint));
+		
+		return new MethodMetadata(methodName, configuredAnnotation);
+	}
+	
+	/**
+	 * Records the elapsed time tagged by the action, first behavior and root domain alias of the command being executed, if any.
+	 */
+	private void recordMetrics(ProceedingJoinPoint proceedingJoinPoint, MethodMetadata metadata, SimpleStopWatch sw, boolean failed) {
+		if(!metrics.isEnabled())
+			return;
+		
+		try {
+			Command cmd = findCommand(proceedingJoinPoint.getArgs());
+			String action = cmd == null || cmd.getAction() == null ? K_NONE : cmd.getAction().name();
+			String behavior = cmd == null || CollectionUtils.isEmpty(cmd.getBehaviors()) ? K_NONE : cmd.getBehaviors().get(0).name();
+			String domain = cmd == null ? K_NONE : cmd.getRootDomainAlias();
+			
+			metrics.record(METRIC_API, sw.getElapsedNanos(), "method", metadata.getMethodName(), "action", action, "behavior", behavior, "domain", domain);
+			if(failed)
+				metrics.increment(METRIC_API+".errors", "method", metadata.getMethodName(), "action", action, "domain", domain);
+			
+		} catch (Exception ex) {
+			logit.error(()->"Failed to record metrics in interceptor.", ex);
+		}
+	}
+	
+	private static Command findCommand(Object[] args) {
+		if(ArrayUtils.isEmpty(args))
+			return null;
+		
+		for(Object arg : args) {
+			if(arg instanceof Command)
+				return (Command)arg;
+			
+			if(arg instanceof CommandMessage)
+				return ((CommandMessage)arg).getCommand();
+		}
+		return null;
+	}
+	
 	private EnableAPIMetricCollection nullSafeLoggingLevel(ProceedingJoinPoint proceedingJoinPoint) {
 		return Optional.ofNullable(proceedingJoinPoint.getTarget())
 					.map(Object::getClass)
@@ -15,19 +15,69 @@
  */
 package com.antheminc.oss.nimbus.support.expr;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.function.BiFunction;
 
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.ReflectiveMethodResolver;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 
+import com.antheminc.oss.nimbus.support.pojo.TtlCache;
+
+import lombok.Getter;
+
 /**
+ * Evaluates SpEL expressions against a root object. <br>
+ * 
+ * Parsed expressions are cached by expression text in a {@link TtlCache}, which evicts the least recently used expressions 
+ * once {@code maxCacheSize} is reached, and may be compiled to bytecode by setting a {@link SpelCompilerMode}. <br>
+ * Evaluation contexts share a single set of reflective property accessors and method resolvers so that their member 
+ * lookup caches survive across evaluations.
+ * 
  * @author Soham Chakravarti
  *
  */
+@Getter
 public class SpelExpressionEvaluator implements ExpressionEvaluator {
 
+	public static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+	
+	public static final long DEFAULT_CACHE_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+	
+	private final ExpressionParser expressionParser;
+	
+	private final TtlCache<String, Expression> expressionCache;
+	
+	private final List<PropertyAccessor> propertyAccessors = Collections.singletonList(new ReflectivePropertyAccessor());
+	
+	private final List<MethodResolver> methodResolvers = Collections.singletonList(new ReflectiveMethodResolver());
+	
+	public SpelExpressionEvaluator() {
+		this(SpelCompilerMode.OFF, DEFAULT_MAX_CACHE_SIZE);
+	}
+	
+	public SpelExpressionEvaluator(SpelCompilerMode compilerMode, int maxCacheSize) {
+		this(compilerMode, maxCacheSize, DEFAULT_CACHE_TTL_MILLIS);
+	}
+	
+	public SpelExpressionEvaluator(SpelCompilerMode compilerMode, int maxCacheSize, long cacheTtlMillis) {
+		SpelParserConfiguration config = new SpelParserConfiguration(compilerMode, getClass().getClassLoader());
+		this.expressionParser = new SpelExpressionParser(config);
+		this.expressionCache = new TtlCache<>(cacheTtlMillis, maxCacheSize);
+	}
+	
+	public int getMaxCacheSize() {
+		return expressionCache.getMaxSize();
+	}
+	
 	@Override
 	public Object getValue(String exprValue, Object rootObject) {
 		return getValue(exprValue, rootObject, (expr, ctx)->expr.getValue(ctx));
@@ -39,13 +89,29 @@ public class SpelExpressionEvaluator implements ExpressionEvaluator {
 	}
 	
 	private <R> R getValue(String exprValue, Object rootObject, BiFunction<Expression, StandardEvaluationContext, R> fn) {
-		StandardEvaluationContext context = new StandardEvaluationContext(rootObject);
-		//==SpelParserConfiguration config = new SpelParserConfiguration(true, true);
-		ExpressionParser expressionParser = new SpelExpressionParser();
+		StandardEvaluationContext context = createEvaluationContext(rootObject);
 		
-		Expression expression = expressionParser.parseExpression(exprValue);
+		Expression expression = getExpression(exprValue);
 		R response = fn.apply(expression, context);
 		
 		return response;
 	}
+	
+	protected StandardEvaluationContext createEvaluationContext(Object rootObject) {
+		StandardEvaluationContext context = new StandardEvaluationContext(rootObject);
+		context.setPropertyAccessors(getPropertyAccessors());
+		context.setMethodResolvers(getMethodResolvers());
+		return context;
+	}
+	
+	protected Expression getExpression(String exprValue) {
+		if(exprValue == null)
+			return getExpressionParser().parseExpression(exprValue);
+		
+		return expressionCache.getOrLoad(exprValue, getExpressionParser()::parseExpression);
+	}
+	
+	public void clearCache() {
+		expressionCache.invalidateAll();
+	}
 }
@@ -0,0 +1,141 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.support.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram of nanosecond values with log-linear buckets, in the manner of HdrHistogram: values below 
+ * {@code 2 * SUB_BUCKETS} are counted exactly, larger ones in {@code SUB_BUCKETS} linear sub-buckets per power of two, 
+ * i.e. with a relative error of at most {@code 1/SUB_BUCKETS} (~3%). Memory is fixed at ~15KB per histogram.
+ */
+public class LatencyHistogram {
+
+	static final int SUB_BUCKET_BITS = 5;
+	
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	
+	static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+	
+	private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	
+	private final AtomicLong count = new AtomicLong();
+	
+	private final AtomicLong sum = new AtomicLong();
+	
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	
+	private final AtomicLong max = new AtomicLong();
+	
+	public void record(long nanos) {
+		if(nanos < 0)
+			nanos = 0;
+		
+		counts.incrementAndGet(indexOf(nanos));
+		count.incrementAndGet();
+		sum.addAndGet(nanos);
+		min.accumulateAndGet(nanos, Math::min);
+		max.accumulateAndGet(nanos, Math::max);
+	}
+	
+	static int indexOf(long value) {
+		if(value < LINEAR_LIMIT)
+			return (int)value;
+		
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		int subBucket = (int)(value >>> shift) - SUB_BUCKETS;
+		return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+	}
+	
+	/**
+	 * @return highest value counted in the bucket at the given index
+	 */
+	static long highestValueAt(int index) {
+		if(index < LINEAR_LIMIT)
+			return index;
+		
+		int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+		long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+	
+	public long getCount() {
+		return count.get();
+	}
+	
+	public long getMin() {
+		return getCount() == 0 ? 0 : min.get();
+	}
+	
+	public long getMax() {
+		return max.get();
+	}
+	
+	public double getMean() {
+		long c = getCount();
+		return c == 0 ? 0 : (double)sum.get() / c;
+	}
+	
+	/**
+	 * @param percentile between 0 and 100
+	 * @return value at or below which the given percentile of recorded values fall, within the bucket precision
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = getCount();
+		if(total == 0)
+			return 0;
+		
+		long target = Math.max(1, (long)Math.ceil(total * Math.min(100d, percentile) / 100d));
+		long seen = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if(seen >= target)
+				return Math.min(highestValueAt(i), getMax());
+		}
+		return getMax();
+	}
+	
+	/**
+	 * @return summary of recorded values, converted from nanoseconds to the given unit divisor (e.g. 1000 for micros)
+	 */
+	public Map<String, Object> summary(double unitNanos) {
+		Map<String, Object> s = new LinkedHashMap<>();
+		s.put("count", getCount());
+		s.put("min", getMin() / unitNanos);
+		s.put("mean", getMean() / unitNanos);
+		s.put("p50", getValueAtPercentile(50) / unitNanos);
+		s.put("p90", getValueAtPercentile(90) / unitNanos);
+		s.put("p99", getValueAtPercentile(99) / unitNanos);
+		s.put("p999", getValueAtPercentile(99.9) / unitNanos);
+		s.put("max", getMax() / unitNanos);
+		return s;
+	}
+	
+	public void reset() {
+		for(int i = 0; i < BUCKET_COUNT; i++)
+			counts.set(i, 0);
+		
+		count.set(0);
+		sum.set(0);
+		min.set(Long.MAX_VALUE);
+		max.set(0);
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.support.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Times calls made on {@link com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepository} and 
+ * {@link com.antheminc.oss.nimbus.domain.bpm.BPMGateway} beans, tagged by target type and method, 
+ * counting failed calls separately.
+ */
+@Aspect
+@Getter @RequiredArgsConstructor
+public class MetricsInterceptor {
+
+	public static final String METRIC_PERSISTENCE = "nimbus.persistence";
+	
+	public static final String METRIC_BPM = "nimbus.bpm";
+	
+	private final MetricsRegistry metrics;
+	
+	@Around("execution(public * com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepository+.*(..))")
+	public Object timePersistence(ProceedingJoinPoint pjp) throws Throwable {
+		return timed(METRIC_PERSISTENCE, pjp);
+	}
+	
+	@Around("execution(public * com.antheminc.oss.nimbus.domain.bpm.BPMGateway+.*(..))")
+	public Object timeBPM(ProceedingJoinPoint pjp) throws Throwable {
+		return timed(METRIC_BPM, pjp);
+	}
+	
+	protected Object timed(String metric, ProceedingJoinPoint pjp) throws Throwable {
+		if(!metrics.isEnabled())
+			return pjp.proceed();
+		
+		final String type = pjp.getSignature().getDeclaringType().getSimpleName();
+		final String method = pjp.getSignature().getName();
+		final long start = System.nanoTime();
+		try {
+			return pjp.proceed();
+		} catch (Throwable t) {
+			metrics.increment(metric+".errors", "type", type, "method", method);
+			throw t;
+		} finally {
+			metrics.record(metric, System.nanoTime() - start, "type", type, "method", method);
+		}
+	}
+}
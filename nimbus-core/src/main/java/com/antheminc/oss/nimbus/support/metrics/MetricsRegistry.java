@@ -0,0 +1,178 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.support.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.antheminc.oss.nimbus.support.JustLogit;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * In-process registry of latency timers and counters, each identified by a name and an ordered list of tag key/value pairs, 
+ * e.g. {@code nimbus.api{action=_get,behavior=$execute,domain=petassessment}}. <br>
+ * 
+ * Timers keep a {@link LatencyHistogram} of nanosecond durations; {@link #snapshot()} reports them in milliseconds and is 
+ * exposed over http ({@code /p/metrics}) as well as JMX. The number of distinct metrics is capped by {@code maxMetrics} 
+ * to guard against unbounded tag values, any beyond which are counted in {@code droppedCount} and not recorded.
+ */
+@ConfigurationProperties(prefix="nimbus.metrics")
+@ManagedResource(objectName="com.antheminc.oss.nimbus:name=MetricsRegistry", description="Latency timers and counters")
+@Getter @Setter
+public class MetricsRegistry {
+
+	/**
+	 * used where no registry is wired, records nothing
+	 */
+	public static final MetricsRegistry NOOP = new MetricsRegistry();
+	static {
+		NOOP.setEnabled(false);
+	}
+	
+	private static final JustLogit logit = new JustLogit(MetricsRegistry.class);
+	
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+	
+	private boolean enabled = true;
+	
+	private int maxMetrics = 5000;
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final ConcurrentMap<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+	
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final AtomicLong droppedCount = new AtomicLong();
+	
+	/**
+	 * @param tags alternating key and value pairs
+	 */
+	public void record(String name, long nanos, String... tags) {
+		if(!enabled)
+			return;
+		
+		LatencyHistogram h = getOrCreate(timers, key(name, tags), LatencyHistogram::new);
+		if(h != null)
+			h.record(nanos);
+	}
+	
+	/**
+	 * @param tags alternating key and value pairs
+	 */
+	public void increment(String name, String... tags) {
+		add(name, 1, tags);
+	}
+	
+	public void add(String name, long delta, String... tags) {
+		if(!enabled)
+			return;
+		
+		AtomicLong c = getOrCreate(counters, key(name, tags), AtomicLong::new);
+		if(c != null)
+			c.addAndGet(delta);
+	}
+	
+	private <M> M getOrCreate(ConcurrentMap<String, M> metrics, String key, Supplier<M> creator) {
+		M m = metrics.get(key);
+		if(m != null)
+			return m;
+		
+		if(timers.size() + counters.size() >= maxMetrics) {
+			if(droppedCount.getAndIncrement() == 0)
+				logit.warn(()->"Exceeded max metrics of "+maxMetrics+", not recording: "+key+" and any other new metrics");
+			return null;
+		}
+		return metrics.computeIfAbsent(key, k->creator.get());
+	}
+	
+	static String key(String name, String... tags) {
+		if(tags == null || tags.length == 0)
+			return name;
+		
+		StringBuilder sb = new StringBuilder(name).append('{');
+		for(int i = 0; i + 1 < tags.length; i += 2) {
+			if(i > 0)
+				sb.append(',');
+			sb.append(tags[i]).append('=').append(tags[i + 1]);
+		}
+		return sb.append('}').toString();
+	}
+	
+	public LatencyHistogram getTimer(String name, String... tags) {
+		return timers.get(key(name, tags));
+	}
+	
+	public long getCount(String name, String... tags) {
+		AtomicLong c = counters.get(key(name, tags));
+		return c == null ? 0 : c.get();
+	}
+	
+	/**
+	 * @return timers (in milliseconds) and counters sorted by key
+	 */
+	public Map<String, Object> snapshot() {
+		Map<String, Object> timerSnapshot = new TreeMap<>();
+		timers.forEach((k, h)->timerSnapshot.put(k, h.summary(NANOS_PER_MILLI)));
+		
+		Map<String, Object> counterSnapshot = new TreeMap<>();
+		counters.forEach((k, c)->counterSnapshot.put(k, c.get()));
+		
+		Map<String, Object> s = new TreeMap<>();
+		s.put("timers", timerSnapshot);
+		s.put("counters", counterSnapshot);
+		return s;
+	}
+	
+	@ManagedOperation(description="Timers (ms) and counters by key")
+	public String report() {
+		StringBuilder sb = new StringBuilder();
+		new TreeMap<>(timers).forEach((k, h)->sb.append(k).append(' ').append(h.summary(NANOS_PER_MILLI)).append('\n'));
+		new TreeMap<>(counters).forEach((k, c)->sb.append(k).append(' ').append(c.get()).append('\n'));
+		return sb.toString();
+	}
+	
+	@ManagedOperation(description="Clears all timers and counters")
+	public void reset() {
+		timers.clear();
+		counters.clear();
+		droppedCount.set(0);
+	}
+	
+	@ManagedAttribute
+	public int getMetricCount() {
+		return timers.size() + counters.size();
+	}
+	
+	@ManagedAttribute
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+}
@@ -0,0 +1,214 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.support.pojo;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * {@link CollectionsTemplate} over a list which additionally keeps, for the elements added and removed through it: <br>
+ * <ul>
+ * <li>the position of each element, for O(1) {@link #indexOf(Object)}</li>
+ * <li>each element by its key, for O(1) {@link #find(Object)}</li>
+ * <li>the max ordinal across elements, for O(1) allocation of the next one</li>
+ * </ul>
+ * Positions after a removed element are re-computed lazily on next lookup. 
+ * If the underlying list is replaced or changed bypassing this template, the index is rebuilt on next access.
+ * 
+ */
+public class IndexedCollectionsTemplate<E> extends CollectionsTemplate<List<E>, E> {
+
+	private final Function<E, Object> keyFn;
+	
+	private final ToIntFunction<E> ordinalFn;
+	
+	private final Map<Object, E> byKey = new HashMap<>();
+	
+	private final Map<E, Integer> positions = new IdentityHashMap<>();
+	
+	/* list instance the index was built for */
+	private List<E> indexed;
+	
+	/* positions of elements before this index are current */
+	private int validUpTo;
+	
+	private int maxOrdinal = -1;
+	
+	private boolean maxOrdinalStale;
+	
+	public IndexedCollectionsTemplate(Supplier<List<E>> getter, Consumer<List<E>> setter, Supplier<? extends List<E>> creator, 
+			Function<E, Object> keyFn, ToIntFunction<E> ordinalFn) {
+		super(getter, setter, creator);
+		this.keyFn = keyFn;
+		this.ordinalFn = ordinalFn;
+	}
+	
+	@Override
+	public synchronized void set(List<E> t) {
+		super.set(t);
+		this.indexed = null;
+	}
+	
+	@Override
+	public synchronized IndexedCollectionsTemplate<E> add(E elem) {
+		if(elem == null)
+			return this;
+		
+		List<E> col = (List<E>)createOrGet();
+		ensureIndexed(col);
+		
+		col.add(elem);
+		
+		int pos = col.size() - 1;
+		if(validUpTo == pos) {
+			positions.put(elem, pos);
+			validUpTo++;
+		}
+		byKey.put(keyFn.apply(elem), elem);
+		
+		if(!maxOrdinalStale)
+			maxOrdinal = Math.max(maxOrdinal, ordinalFn.applyAsInt(elem));
+		
+		return this;
+	}
+	
+	@Override
+	public synchronized E remove(Object o) {
+		E found = find(o);
+		if(found == null)
+			return null;
+		
+		List<E> col = get();
+		int pos = indexOf(found);
+		if(pos >= 0)
+			col.remove(pos);
+		else
+			col.remove(found);
+		
+		positions.remove(found);
+		byKey.remove(keyFn.apply(found));
+		validUpTo = Math.min(validUpTo, Math.max(pos, 0));
+		
+		if(ordinalFn.applyAsInt(found) >= maxOrdinal)
+			maxOrdinalStale = true;
+		
+		// keep tracking the list instance this index now reflects
+		indexed = col;
+		return found;
+	}
+	
+	@Override
+	public synchronized E getOrAdd(Object o, Supplier<E> toAdd) {
+		E exists = find(o);
+		if(exists != null) 
+			return exists;
+		
+		E add = toAdd.get();
+		add(add);
+		return add;
+	}
+	
+	@Override
+	public synchronized E find(Object o) {
+		List<E> col = get();
+		if(col == null || col.isEmpty())
+			return null;
+		
+		ensureIndexed(col);
+		
+		E found = byKey.get(o);
+		if(found != null || o instanceof String)
+			return found;
+		
+		// keys are element ids: anything else is matched the way the template always has
+		return super.find(o);
+	}
+	
+	@Override
+	public synchronized int indexOf(E elem) {
+		List<E> col = get();
+		if(col == null || col.isEmpty())
+			return -1;
+		
+		ensureIndexed(col);
+		
+		Integer pos = positions.get(elem);
+		if(pos == null || pos >= validUpTo) {
+			reindexFrom(col, validUpTo);
+			pos = positions.get(elem);
+		}
+		return pos == null ? -1 : pos;
+	}
+	
+	@Override
+	public boolean contains(E other) {
+		return indexOf(other) != -1;
+	}
+	
+	/**
+	 * @return max ordinal across the elements, or -1 if there are none
+	 */
+	public synchronized int getMaxOrdinal() {
+		List<E> col = get();
+		if(col == null || col.isEmpty())
+			return -1;
+		
+		ensureIndexed(col);
+		
+		if(maxOrdinalStale) {
+			int max = -1;
+			for(E e : col)
+				max = Math.max(max, ordinalFn.applyAsInt(e));
+			
+			maxOrdinal = max;
+			maxOrdinalStale = false;
+		}
+		return maxOrdinal;
+	}
+	
+	private void ensureIndexed(List<E> col) {
+		if(col == indexed && byKey.size() == col.size())
+			return;
+		
+		byKey.clear();
+		positions.clear();
+		validUpTo = 0;
+		maxOrdinalStale = true;
+		maxOrdinal = -1;
+		
+		for(E e : col) 
+			byKey.put(keyFn.apply(e), e);
+		
+		reindexFrom(col, 0);
+		indexed = col;
+	}
+	
+	private void reindexFrom(List<E> col, int from) {
+		ListIterator<E> it = col.listIterator(from);
+		while(it.hasNext()) {
+			int i = it.nextIndex();
+			positions.put(it.next(), i);
+		}
+		validUpTo = col.size();
+	}
+}
@@ -1,75 +1,222 @@
-///**
-// *  Copyright 2016-2018 the original author or authors.
-// *
-// *  Licensed under the Apache License, Version 2.0 (the "License");
-// *  you may not use this file except in compliance with the License.
-// *  You may obtain a copy of the License at
-// *
-// *         http://www.apache.org/licenses/LICENSE-2.0
-// *
-// *  Unless required by applicable law or agreed to in writing, software
-// *  distributed under the License is distributed on an "AS IS" BASIS,
-// *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-// *  See the License for the specific language governing permissions and
-// *  limitations under the License.
-// */
-//package com.antheminc.oss.nimbus.support.pojo;
-//
-//import java.lang.invoke.MethodHandle;
-//import java.util.Optional;
-//import java.util.function.BiConsumer;
-//import java.util.function.Function;
-//
-//import com.antheminc.oss.nimbus.InvalidConfigException;
-//import com.antheminc.oss.nimbus.domain.model.state.EntityState.ValueAccessor;
-//import com.antheminc.oss.nimbus.domain.model.state.InvalidStateException;
-//
-//
-///**
-// * @author Soham Chakravarti
-// *
-// */
-//public class JavaBeanHandlerLambda implements JavaBeanHandler {
-//
-//	private JavaBeanHandlerReflection reflection = new JavaBeanHandlerReflection();
-//	
-//	@SuppressWarnings({ "rawtypes", "unchecked" })
-//	@Override
-//	public <T> T getValue(ValueAccessor va, Object target) {
-//		if(target==null)
-//			return null;
-//		
-//		try {
-//			MethodHandle mh = Optional.ofNullable(va.getReadMethodHandle())
-//								.orElseThrow(()->new InvalidConfigException("getter called when none found: "+va));
-//			
-//			
-//			Function getter = (Function)mh.invoke();
-//			return (T)getter.apply(target);
-//			
-//		} catch (Throwable t) {
-//			throw new InvalidStateException("POJO Get failed for pd: "+va+" on target: "+target, t);
-//		}
-//	}
-//
-//	@SuppressWarnings({ "rawtypes", "unchecked" })
-//	@Override
-//	public <T> void setValue(ValueAccessor va, Object target, T value) {
-//		try {
-//			MethodHandle mh = Optional.ofNullable(va.getWriteMethodHandle())
-//					.orElseThrow(()->new InvalidConfigException("setter called when none found: "+va));
-//			
-//			BiConsumer setter = (BiConsumer)mh.invoke();
-//			setter.accept(target, value);
-//			
-//		} catch (Throwable t) {
-//			throw new InvalidStateException("POJO Set failed for pd: "+va+" on target: "+target+" with value: "+value, t);
-//		}
-//	}
-//
-//	@Override
-//	public <T> T instantiate(Class<T> clazz) {
-//		return reflection.instantiate(clazz);
-//	}
-//	
-//}
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.support.pojo;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.util.ClassUtils;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.InvalidConfigException;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.ValueAccessor;
+import com.antheminc.oss.nimbus.support.JustLogit;
+
+/**
+ * {@link JavaBeanHandler} which invokes getters, setters and no-arg constructors through functions generated with 
+ * {@link LambdaMetafactory} instead of {@link Method#invoke(Object, Object...)}. <br>
+ * 
+ * Functions are generated on first use and kept on the {@link ValueAccessor} (cached by {@link JavaBeanHandlerUtils#constructValueAccessor(Class, String)}) 
+ * and per class for constructors. Where a function cannot be generated (e.g. non-public bean class, or bean class not visible to 
+ * the framework's class loader), an adapted {@link MethodHandle} is used instead.
+ * 
+ * @author Soham Chakravarti
+ *
+ */
+public class JavaBeanHandlerLambda implements JavaBeanHandler {
+
+	private static final JustLogit logit = new JustLogit(JavaBeanHandlerLambda.class);
+	
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+	
+	/* never evicted, a generated constructor strongly references its bean class */
+	private final ClassValue<Supplier<?>> constructors = new ClassValue<Supplier<?>>() {
+		@Override
+		protected Supplier<?> computeValue(Class<?> type) {
+			return createConstructor(type);
+		}
+	};
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T getValue(ValueAccessor va, Object target) {
+		if(target == null)
+			return null;
+		
+		Function<Object, Object> getter = va.getReadFunction();
+		if(getter == null) {
+			getter = createGetter(va);
+			va.setReadFunction(getter);
+		}
+		
+		try {
+			return (T)getter.apply(target);
+		} catch (RuntimeException ex) {
+			throw new FrameworkRuntimeException("Failed to execute read on : "+va.getReadMethod()+" with target "+target, ex);
+		}
+	}
+	
+	@Override
+	public <T> void setValue(ValueAccessor va, Object target, T value) {
+		BiConsumer<Object, Object> setter = va.getWriteFunction();
+		if(setter == null) {
+			setter = createSetter(va);
+			va.setWriteFunction(setter);
+		}
+		
+		try {
+			setter.accept(target, value);
+		} catch (RuntimeException ex) {
+			throw new FrameworkRuntimeException("Failed to execute write on : "+va.getWriteMethod()+" with value: "+value, ex);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T instantiate(Class<T> clazz) {
+		return (T)constructors.get(clazz).get();
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected Function<Object, Object> createGetter(ValueAccessor va) {
+		Method m = va.getReadMethod();
+		if(m == null)
+			throw new InvalidConfigException("getter called when none found: "+va);
+		
+		MethodHandle mh = unreflect(m);
+		if(canGenerate(m)) {
+			try {
+				CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", 
+						MethodType.methodType(Function.class), 
+						MethodType.methodType(Object.class, Object.class), 
+						mh, 
+						MethodType.methodType(ClassUtils.resolvePrimitiveIfNecessary(m.getReturnType()), m.getDeclaringClass()));
+				
+				return (Function<Object, Object>)site.getTarget().invoke();
+			} catch (Throwable t) {
+				logit.debug(()->"Falling back to method handle for getter: "+m+" due to: "+t);
+			}
+		}
+		
+		MethodHandle generic = mh.asType(MethodType.methodType(Object.class, Object.class));
+		return target->invokeExact(generic, target);
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected BiConsumer<Object, Object> createSetter(ValueAccessor va) {
+		Method m = va.getWriteMethod();
+		if(m == null)
+			throw new InvalidConfigException("setter called when none found: "+va);
+		
+		MethodHandle mh = unreflect(m);
+		if(canGenerate(m)) {
+			try {
+				CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", 
+						MethodType.methodType(BiConsumer.class), 
+						MethodType.methodType(void.class, Object.class, Object.class), 
+						mh, 
+						MethodType.methodType(void.class, m.getDeclaringClass(), ClassUtils.resolvePrimitiveIfNecessary(m.getParameterTypes()[0])));
+				
+				return (BiConsumer<Object, Object>)site.getTarget().invoke();
+			} catch (Throwable t) {
+				logit.debug(()->"Falling back to method handle for setter: "+m+" due to: "+t);
+			}
+		}
+		
+		MethodHandle generic = mh.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		return (target, value)->invokeExact(generic, target, value);
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected Supplier<?> createConstructor(Class<?> clazz) {
+		final MethodHandle mh;
+		try {
+			mh = LOOKUP.findConstructor(clazz, MethodType.methodType(void.class));
+		} catch (NoSuchMethodException | IllegalAccessException ex) {
+			throw new InvalidConfigException("Class could not be instantiated with blank constructor: " + clazz, ex);
+		}
+		
+		if(isGeneratable(clazz)) {
+			try {
+				CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get", 
+						MethodType.methodType(Supplier.class), 
+						MethodType.methodType(Object.class), 
+						mh, 
+						MethodType.methodType(clazz));
+				
+				return (Supplier<Object>)site.getTarget().invoke();
+			} catch (Throwable t) {
+				logit.debug(()->"Falling back to method handle for constructor of: "+clazz+" due to: "+t);
+			}
+		}
+		
+		MethodHandle generic = mh.asType(MethodType.methodType(Object.class));
+		return ()->{
+			try {
+				return generic.invokeExact();
+			} catch (Throwable t) {
+				throw new InvalidConfigException("Class could not be instantiated with blank constructor: " + clazz, t);
+			}
+		};
+	}
+	
+	private static boolean canGenerate(Method m) {
+		return Modifier.isPublic(m.getModifiers()) && isGeneratable(m.getDeclaringClass());
+	}
+	
+	/**
+	 * generated classes are defined in the framework's class loader, hence the bean class must be public and visible to it
+	 */
+	private static boolean isGeneratable(Class<?> clazz) {
+		return Modifier.isPublic(clazz.getModifiers()) && ClassUtils.isVisible(clazz, JavaBeanHandlerLambda.class.getClassLoader());
+	}
+	
+	private static MethodHandle unreflect(Method m) {
+		try {
+			return LOOKUP.unreflect(m);
+		} catch (IllegalAccessException ex) {
+			throw new InvalidConfigException("Failed to access method: "+m, ex);
+		}
+	}
+	
+	private static Object invokeExact(MethodHandle mh, Object target) {
+		try {
+			return mh.invokeExact(target);
+		} catch (RuntimeException ex) {
+			throw ex;
+		} catch (Throwable t) {
+			throw new FrameworkRuntimeException(t);
+		}
+	}
+	
+	private static void invokeExact(MethodHandle mh, Object target, Object value) {
+		try {
+			mh.invokeExact(target, value);
+		} catch (RuntimeException ex) {
+			throw ex;
+		} catch (Throwable t) {
+			throw new FrameworkRuntimeException(t);
+		}
+	}
+}
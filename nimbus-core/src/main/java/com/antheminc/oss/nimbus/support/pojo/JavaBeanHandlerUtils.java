@@ -18,6 +18,9 @@ package com.antheminc.oss.nimbus.support.pojo;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.reflect.FieldUtils;
 import org.springframework.beans.BeanUtils;
@@ -32,7 +35,44 @@ import com.antheminc.oss.nimbus.domain.model.state.InvalidStateException;
  */
 public final class JavaBeanHandlerUtils {
 	
+	/**
+	 * accessors per bean class and field name; shared so that functions generated on an accessor are created once per property. <br>
+	 * Entries are never evicted and strongly reference their bean class (read/write methods and the functions generated on them), 
+	 * bean classes are hence expected to live as long as the framework does, e.g. not be loaded by a class loader that is to be unloaded.
+	 */
+	private static final ClassValue<Map<String, ValueAccessor>> ACCESSORS = new ClassValue<Map<String, ValueAccessor>>() {
+		@Override
+		protected Map<String, ValueAccessor> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+	
+	/**
+	 * property descriptors per bean class and property name, absent ones included; retained like {@link #ACCESSORS}
+	 */
+	private static final ClassValue<Map<String, Optional<PropertyDescriptor>>> DESCRIPTORS = new ClassValue<Map<String, Optional<PropertyDescriptor>>>() {
+		@Override
+		protected Map<String, Optional<PropertyDescriptor>> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+	
+	/**
+	 * Same as {@link BeanUtils#getPropertyDescriptor(Class, String)}, looked up once per bean class and property name.
+	 * 
+	 * @return null if the bean class has no such property
+	 */
+	public static PropertyDescriptor getPropertyDescriptor(Class<?> beanClass, String propertyName) {
+		return DESCRIPTORS.get(beanClass)
+				.computeIfAbsent(propertyName, p->Optional.ofNullable(BeanUtils.getPropertyDescriptor(beanClass, p)))
+				.orElse(null);
+	}
+	
 	public static ValueAccessor constructValueAccessor(Class<?> beanClass, String fieldName) {
+		return ACCESSORS.get(beanClass).computeIfAbsent(fieldName, f->createValueAccessor(beanClass, f));
+	}
+	
+	private static ValueAccessor createValueAccessor(Class<?> beanClass, String fieldName) {
 		try {
 			Method readMethod = getReadMethod(beanClass, fieldName);
 			Method writeMethod = getWriteMethod(beanClass, fieldName);
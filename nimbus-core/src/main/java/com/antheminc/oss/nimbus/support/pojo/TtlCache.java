@@ -0,0 +1,148 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.support.pojo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import lombok.Getter;
+
+/**
+ * Bounded, least recently used cache whose entries expire {@code ttlMillis} after being put. <br>
+ * 
+ * Values are loaded outside of the cache lock, concurrent misses on the same key may therefore load it more than once. 
+ * A {@code ttlMillis} of 0 or less disables caching, every lookup then goes to the loader.
+ */
+public class TtlCache<K, V> {
+
+	@Getter private final long ttlMillis;
+	
+	@Getter private final int maxSize;
+	
+	private final LongSupplier clock;
+	
+	private final Map<K, Entry<V>> entries;
+	
+	private final AtomicLong hitCount = new AtomicLong();
+	
+	private final AtomicLong missCount = new AtomicLong();
+	
+	private static class Entry<V> {
+		private final V value;
+		private final long expiresAt;
+		
+		private Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+	
+	public TtlCache(long ttlMillis, int maxSize) {
+		this(ttlMillis, maxSize, System::currentTimeMillis);
+	}
+	
+	public TtlCache(long ttlMillis, int maxSize, LongSupplier clock) {
+		this.ttlMillis = ttlMillis;
+		this.maxSize = maxSize;
+		this.clock = clock;
+		this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				return size() > TtlCache.this.maxSize;
+			}
+		};
+	}
+	
+	public boolean isEnabled() {
+		return ttlMillis > 0 && maxSize > 0;
+	}
+	
+	/**
+	 * @return cached value which hasn't expired yet, otherwise null
+	 */
+	public V get(K key) {
+		if(!isEnabled())
+			return null;
+		
+		final long now = clock.getAsLong();
+		synchronized(entries) {
+			Entry<V> entry = entries.get(key);
+			if(entry != null && entry.expiresAt > now) {
+				hitCount.incrementAndGet();
+				return entry.value;
+			}
+			
+			if(entry != null)
+				entries.remove(key);
+		}
+		missCount.incrementAndGet();
+		return null;
+	}
+	
+	public V getOrLoad(K key, Function<K, V> loader) {
+		V value = get(key);
+		if(value != null)
+			return value;
+		
+		value = loader.apply(key);
+		put(key, value);
+		return value;
+	}
+	
+	/**
+	 * null values aren't cached
+	 */
+	public void put(K key, V value) {
+		if(!isEnabled() || value == null)
+			return;
+		
+		Entry<V> entry = new Entry<>(value, clock.getAsLong() + ttlMillis);
+		synchronized(entries) {
+			entries.put(key, entry);
+		}
+	}
+	
+	public void invalidate(K key) {
+		synchronized(entries) {
+			entries.remove(key);
+		}
+	}
+	
+	public void invalidateAll() {
+		synchronized(entries) {
+			entries.clear();
+		}
+	}
+	
+	public int size() {
+		synchronized(entries) {
+			return entries.size();
+		}
+	}
+	
+	public long getHitCount() {
+		return hitCount.get();
+	}
+	
+	public long getMissCount() {
+		return missCount.get();
+	}
+}
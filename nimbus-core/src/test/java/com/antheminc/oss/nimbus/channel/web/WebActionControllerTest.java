@@ -15,6 +15,9 @@
  */
 package com.antheminc.oss.nimbus.channel.web;
 
+import java.util.Arrays;
+import java.util.List;
+
 import javax.servlet.http.HttpServletRequest;
 
 import org.junit.Assert;
@@ -29,6 +32,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import com.antheminc.oss.nimbus.domain.cmd.Command;
+import com.antheminc.oss.nimbus.domain.cmd.CommandMessage;
+import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecution.MultiOutput;
 import com.antheminc.oss.nimbus.domain.model.state.ModelEvent;
 import com.antheminc.oss.nimbus.support.Holder;
 
@@ -152,6 +158,25 @@ public class WebActionControllerTest {
 		Assert.assertEquals(obj, ((Holder<Object>) response).getState());
 	}
 	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testHandleEventNotifyBatch() {
+		final HttpServletRequest req = new MockHttpServletRequest();
+		final List<ModelEvent<String>> events = Arrays.asList(new ModelEvent<>(), new ModelEvent<>());
+		final List<CommandMessage> cmdMsgs = Arrays.asList(
+				new CommandMessage(Mockito.mock(Command.class), null), 
+				new CommandMessage(Mockito.mock(Command.class), null));
+		
+		final MultiOutput mOut = Mockito.mock(MultiOutput.class);
+		
+		Mockito.when(this.dispatcher.build(req, events)).thenReturn(cmdMsgs);
+		Mockito.when(this.dispatcher.handleBatch(cmdMsgs)).thenReturn(mOut);
+		final Object response = this.testee.handleEventNotifyBatch(req, events);
+		Mockito.verify(this.dispatcher, Mockito.times(1)).handleBatch(cmdMsgs);
+		
+		Assert.assertEquals(mOut, ((Holder<Object>) response).getState());
+	}
+	
 	@Test
 	public void testLogin() {
 		final ResponseEntity<?> response = this.testee.login();
@@ -0,0 +1,88 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.context;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+public class DefaultBeanResolverStrategyTest {
+
+	ApplicationContext ctx;
+	
+	DefaultBeanResolverStrategy beanResolver;
+	
+	Runnable bean = ()->{};
+	
+	@Before
+	public void before() {
+		ctx = Mockito.mock(ApplicationContext.class);
+		Mockito.when(ctx.getBeanNamesForType(Runnable.class)).thenReturn(new String[] {"default.runnable"});
+		Mockito.when(ctx.getBean("default.runnable", Runnable.class)).thenReturn(bean);
+		Mockito.when(ctx.containsBean("default.Runnable")).thenReturn(false);
+		
+		beanResolver = new DefaultBeanResolverStrategy(ctx);
+	}
+	
+	@Test
+	public void t01_resolvedNamesCachedOnceRefreshed() {
+		assertSame(bean, beanResolver.find(Runnable.class));
+		assertSame(bean, beanResolver.find(Runnable.class));
+		Mockito.verify(ctx, Mockito.times(2)).getBeanNamesForType(Runnable.class);
+		
+		// warms lookups made so far
+		beanResolver.onApplicationEvent(new ContextRefreshedEvent(ctx));
+		Mockito.verify(ctx, Mockito.times(3)).getBeanNamesForType(Runnable.class);
+		
+		assertSame(bean, beanResolver.find(Runnable.class));
+		assertSame(bean, beanResolver.find(Runnable.class));
+		Mockito.verify(ctx, Mockito.times(3)).getBeanNamesForType(Runnable.class);
+		
+		// instances are still obtained from the context
+		Mockito.verify(ctx, Mockito.times(4)).getBean("default.runnable", Runnable.class);
+	}
+	
+	@Test
+	public void t02_qualifiedMissCached() {
+		beanResolver.onApplicationEvent(new ContextRefreshedEvent(ctx));
+		
+		assertNull(beanResolver.find(Runnable.class, "Runnable"));
+		assertNull(beanResolver.find(Runnable.class, "Runnable"));
+		Mockito.verify(ctx, Mockito.times(1)).containsBean("default.Runnable");
+	}
+	
+	@Test
+	public void t03_invalidatedOnCloseAndPrefixChange() {
+		beanResolver.onApplicationEvent(new ContextRefreshedEvent(ctx));
+		beanResolver.find(Runnable.class, "Runnable");
+		
+		beanResolver.setBeanPrefix("custom.");
+		Mockito.when(ctx.containsBean("custom.Runnable")).thenReturn(true);
+		Mockito.when(ctx.getBean("custom.Runnable", Runnable.class)).thenReturn(bean);
+		assertSame(bean, beanResolver.find(Runnable.class, "Runnable"));
+		
+		beanResolver.onApplicationEvent(new ContextClosedEvent(ctx));
+		beanResolver.find(Runnable.class, "Runnable");
+		beanResolver.find(Runnable.class, "Runnable");
+		Mockito.verify(ctx, Mockito.times(3)).containsBean("custom.Runnable");
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.bpm.activiti;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.activiti.engine.TaskService;
+import org.activiti.engine.delegate.event.ActivitiEntityEvent;
+import org.activiti.engine.delegate.event.ActivitiEventType;
+import org.activiti.engine.task.Task;
+import org.activiti.engine.task.TaskQuery;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.domain.bpm.activiti.ActivitiActiveTaskCache.ActiveTask;
+
+public class ActivitiActiveTaskCacheTest {
+
+	TaskService taskService;
+	
+	TaskQuery taskQuery;
+	
+	ActivitiActiveTaskCache cache;
+	
+	long now;
+	
+	@Before
+	public void before() {
+		taskService = Mockito.mock(TaskService.class);
+		taskQuery = Mockito.mock(TaskQuery.class);
+		
+		Mockito.when(taskService.createTaskQuery()).thenReturn(taskQuery);
+		Mockito.when(taskQuery.processInstanceId(Matchers.anyString())).thenReturn(taskQuery);
+		Mockito.when(taskQuery.list()).thenReturn(Arrays.asList(task("1", "review"), task("2", "approve")));
+		
+		cache = new ActivitiActiveTaskCache(taskService, 1000, ActivitiActiveTaskCache.DEFAULT_MAX_ENTRIES, ()->now);
+	}
+	
+	private static Task task(String id, String key) {
+		Task t = Mockito.mock(Task.class);
+		Mockito.when(t.getId()).thenReturn(id);
+		Mockito.when(t.getTaskDefinitionKey()).thenReturn(key);
+		return t;
+	}
+	
+	private static ActivitiEntityEvent event(ActivitiEventType type, String processInstanceId, Object entity) {
+		ActivitiEntityEvent e = Mockito.mock(ActivitiEntityEvent.class);
+		Mockito.when(e.getType()).thenReturn(type);
+		Mockito.when(e.getProcessInstanceId()).thenReturn(processInstanceId);
+		Mockito.when(e.getEntity()).thenReturn(entity);
+		return e;
+	}
+	
+	@Test
+	public void t01_queriedOncePerProcessInstance() {
+		List<ActiveTask> first = cache.get("p1");
+		List<ActiveTask> second = cache.get("p1");
+		
+		assertSame(first, second);
+		assertEquals(Arrays.asList("review", "approve"), cache.getDefinitionKeys("p1"));
+		assertEquals("1", first.get(0).getId());
+		
+		Mockito.verify(taskQuery, Mockito.times(1)).list();
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+	}
+	
+	@Test
+	public void t02_invalidatedOnTaskEvents() {
+		cache.get("p1");
+		cache.get("p2");
+		
+		cache.onEvent(event(ActivitiEventType.TASK_COMPLETED, "p1", task("1", "review")));
+		assertEquals(1, cache.size());
+		
+		// deletion of entities other than tasks doesn't concern active tasks
+		cache.onEvent(event(ActivitiEventType.ENTITY_DELETED, "p2", new Object()));
+		assertEquals(1, cache.size());
+		
+		cache.onEvent(event(ActivitiEventType.ENTITY_DELETED, "p2", task("3", "review")));
+		assertEquals(0, cache.size());
+		
+		Mockito.when(taskQuery.list()).thenReturn(Collections.singletonList(task("4", "close")));
+		assertEquals(Arrays.asList("close"), cache.getDefinitionKeys("p1"));
+	}
+	
+	@Test
+	public void t03_queryRacingInvalidationNotCached() {
+		Mockito.when(taskQuery.list()).thenAnswer(inv->{
+			cache.invalidate("p1");
+			return Collections.singletonList(task("1", "review"));
+		});
+		
+		assertEquals(1, cache.get("p1").size());
+		assertEquals(0, cache.size());
+	}
+	
+	@Test
+	public void t04_leastRecentlyUsedEvictedBeyondMaxEntries() {
+		cache = new ActivitiActiveTaskCache(taskService, 1000, 1);
+		
+		cache.get("p1");
+		cache.get("p2");
+		cache.get("p2");
+		cache.get("p1");
+		
+		assertEquals(1, cache.size());
+		Mockito.verify(taskQuery, Mockito.times(3)).list();
+	}
+	
+	@Test
+	public void t05_expiredAfterTtl() {
+		cache.get("p1");
+		
+		// tasks completed through another node don't raise events in this one
+		Mockito.when(taskQuery.list()).thenReturn(Collections.singletonList(task("4", "close")));
+		now += 999;
+		assertEquals(Arrays.asList("review", "approve"), cache.getDefinitionKeys("p1"));
+		
+		now += 1;
+		assertEquals(Arrays.asList("close"), cache.getDefinitionKeys("p1"));
+		Mockito.verify(taskQuery, Mockito.times(2)).list();
+	}
+	
+	@Test
+	public void t06_disabledWithoutTtl() {
+		cache = new ActivitiActiveTaskCache(taskService, 0);
+		
+		cache.get("p1");
+		cache.get("p1");
+		
+		assertFalse(cache.isEnabled());
+		assertEquals(0, cache.size());
+		Mockito.verify(taskQuery, Mockito.times(2)).list();
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CompiledUriTemplateTest {
+
+	@Test
+	public void t01_literalOnly() {
+		CompiledUriTemplate t = CompiledUriTemplate.compile("/p/umcaseview/_get");
+		
+		assertFalse(t.hasVariables());
+		assertEquals("/p/umcaseview/_get", t.resolve(p->{ throw new AssertionError(p); }));
+	}
+	
+	@Test
+	public void t02_variablesResolvedInOrder() {
+		CompiledUriTemplate t = CompiledUriTemplate.compile("<!/a!>/umcaseview:<!/id!>/_get?b=<!/a!>");
+		
+		assertEquals(Arrays.asList("/a", "/id", "/a"), t.getVariablePaths());
+		assertEquals("A/umcaseview:1/_get?b=A", t.resolve(p->p.equals("/id") ? "1" : "A"));
+	}
+	
+	@Test
+	public void t03_nestedVariableKeptAsOnePath() {
+		CompiledUriTemplate t = CompiledUriTemplate.compile("abc/<!../p2/<!../p3!>/p4!>/x");
+		
+		assertEquals(Arrays.asList("../p2/<!../p3!>/p4"), t.getVariablePaths());
+		assertEquals("abc/v/x", t.resolve(p->"v"));
+	}
+}
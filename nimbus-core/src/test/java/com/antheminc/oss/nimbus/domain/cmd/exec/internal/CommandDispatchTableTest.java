@@ -0,0 +1,98 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.InvalidConfigException;
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
+import com.antheminc.oss.nimbus.domain.cmd.Action;
+import com.antheminc.oss.nimbus.domain.cmd.Behavior;
+import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecutor;
+import com.antheminc.oss.nimbus.domain.defn.Execution.Config;
+import com.antheminc.oss.nimbus.domain.defn.Execution.DetourConfig;
+import com.antheminc.oss.nimbus.domain.model.config.builder.ExecutionConfigProvider;
+
+public class CommandDispatchTableTest {
+
+	BeanResolverStrategy beanResolver;
+	
+	CommandExecutor<?> executeExecutor;
+	
+	CommandExecutor<?> getExecutor;
+	
+	ExecutionConfigProvider<?> configProvider;
+	
+	CommandDispatchTable dispatchTable;
+	
+	@Before
+	public void before() {
+		beanResolver = Mockito.mock(BeanResolverStrategy.class);
+		executeExecutor = Mockito.mock(CommandExecutor.class);
+		getExecutor = Mockito.mock(CommandExecutor.class);
+		configProvider = Mockito.mock(ExecutionConfigProvider.class);
+		
+		Mockito.when(beanResolver.find(CommandExecutor.class, "$execute")).thenReturn(executeExecutor);
+		Mockito.when(beanResolver.find(CommandExecutor.class, "_get$execute")).thenReturn(getExecutor);
+		Mockito.when(beanResolver.get(ExecutionConfigProvider.class, Config.class)).thenReturn(configProvider);
+		Mockito.when(beanResolver.get(ExecutionConfigProvider.class, DetourConfig.class)).thenReturn(configProvider);
+		
+		dispatchTable = new CommandDispatchTable(beanResolver);
+	}
+	
+	@Test
+	public void t01_noLookupsOnceBuilt() {
+		dispatchTable.build();
+		Mockito.reset(beanResolver);
+		
+		assertSame(getExecutor, dispatchTable.getExecutorOrThrowEx(Action._get, Behavior.$execute));
+		assertSame(executeExecutor, dispatchTable.getExecutorOrThrowEx(Action._new, Behavior.$execute));
+		assertSame(configProvider, dispatchTable.getConfigProviderOrThrowEx(Config.class));
+		Mockito.verifyZeroInteractions(beanResolver);
+		
+		assertTrue(dispatchTable.dump().contains("_get$execute"));
+	}
+	
+	@Test
+	public void t02_missingExecutorForBehavior() {
+		dispatchTable.build();
+		try {
+			dispatchTable.getExecutorOrThrowEx(Action._get, Behavior.$validate);
+			fail("expected missing executor");
+		} catch (InvalidConfigException ex) {
+			// expected
+		}
+	}
+	
+	@Test(expected=InvalidConfigException.class)
+	public void t03_failFastOnMissingDefaultExecutor() {
+		Mockito.when(beanResolver.find(Matchers.eq(CommandExecutor.class), Matchers.anyString())).thenReturn(null);
+		dispatchTable.build();
+	}
+	
+	@Test
+	public void t04_resolvesBeforeBuilt() {
+		assertSame(getExecutor, dispatchTable.getExecutorOrThrowEx(Action._get, Behavior.$execute));
+		Mockito.verify(beanResolver).find(CommandExecutor.class, "_get$execute");
+	}
+}
@@ -0,0 +1,217 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
+import com.antheminc.oss.nimbus.domain.cmd.Command;
+import com.antheminc.oss.nimbus.domain.model.state.EntityStateAspectHandlers;
+import com.antheminc.oss.nimbus.domain.model.state.ExecutionTxnContext;
+import com.antheminc.oss.nimbus.domain.model.state.StateEventListener;
+import com.antheminc.oss.nimbus.domain.model.state.extension.ChangeLogCommandEventHandler;
+import com.antheminc.oss.nimbus.domain.model.state.internal.DefaultStateEventDelegator;
+
+public class CrossDomainCommandExecutorTest {
+
+	CrossDomainCommandExecutor executor;
+	
+	@Before
+	public void init() {
+		executor = new CrossDomainCommandExecutor();
+		executor.setThreadNamePrefix("test-crossdomain-");
+		executor.setMaxPoolSize(2);
+		executor.setDomainPermitWaitMillis(50);
+		executor.init();
+	}
+	
+	@After
+	public void destroy() {
+		executor.shutdown();
+		RequestContextHolder.resetRequestAttributes();
+	}
+	
+	@Test
+	public void t01_pooled_thread_carries_request_attributes() throws Exception {
+		RequestAttributes callerAttributes = new ServletRequestAttributes(new MockHttpServletRequest());
+		RequestContextHolder.setRequestAttributes(callerAttributes);
+		
+		RequestAttributes workerAttributes = executor.execute("petclinic", RequestContextHolder::getRequestAttributes);
+		assertSame(callerAttributes, workerAttributes);
+		
+		String threadName = executor.execute("petclinic", () -> Thread.currentThread().getName());
+		assertTrue(threadName.startsWith("test-crossdomain-"));
+		
+		// pooled threads must not hold on to a previous caller's attributes
+		RequestContextHolder.resetRequestAttributes();
+		assertNull(executor.execute("petclinic", RequestContextHolder::getRequestAttributes));
+		assertEquals(3, executor.getCompletedTaskCount());
+	}
+	
+	@Test
+	public void t02_domain_concurrency_cap() throws Exception {
+		executor.getDomainConcurrency().put("petclinic", 1);
+		
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> first = caller.submit(() -> executor.execute("petclinic", () -> {
+				started.countDown();
+				release.await();
+				return "first";
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			
+			try {
+				executor.execute("petclinic", () -> "second");
+				fail("expected domain concurrency cap to be enforced");
+			} catch (FrameworkRuntimeException ex) {
+				assertEquals(1, executor.getDomainThrottledCount());
+			}
+			
+			// other domains are not affected
+			assertEquals("other", executor.execute("owner", () -> "other"));
+			
+			release.countDown();
+			assertEquals("first", first.get(5, TimeUnit.SECONDS));
+			assertEquals(Integer.valueOf(0), executor.getDomainInFlight().get("petclinic"));
+		} finally {
+			caller.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void t03_nested_calls_deeper_than_pool_size() throws Exception {
+		// each level blocks on the next: queueing nested calls would deadlock once the 2 pooled threads are taken
+		String result = executor.execute("petclinic", nested(5, new HashSet<>()));
+		
+		assertEquals("level-5", result);
+		assertEquals(4, executor.getNestedCount());
+		assertEquals(0, executor.getTimedOutCount());
+	}
+	
+	private Callable<String> nested(int depth, Set<Thread> callers) {
+		return () -> {
+			assertTrue(Thread.currentThread().getName().startsWith("test-crossdomain-"));
+			assertTrue("nested call must run in a thread other than its callers'", callers.add(Thread.currentThread()));
+			
+			if(depth == 1)
+				return "level-5";
+			
+			return executor.execute("owner", nested(depth - 1, callers));
+		};
+	}
+	
+	@Test
+	public void t04_outer_command_state_survives_nested_call() throws Exception {
+		ChangeLogCommandEventHandler cmdHandler = Mockito.mock(ChangeLogCommandEventHandler.class);
+		BeanResolverStrategy beanResolver = Mockito.mock(BeanResolverStrategy.class);
+		Mockito.when(beanResolver.get(ChangeLogCommandEventHandler.class)).thenReturn(cmdHandler);
+		
+		DefaultStateEventDelegator delegator = new DefaultStateEventDelegator(new EntityStateAspectHandlers(null, null, null, null, beanResolver));
+		StateEventListener outerListener = Mockito.mock(StateEventListener.class);
+		
+		boolean outerListenerRetained = executor.execute("petclinic", () -> {
+			delegator.addTxnScopedListener(outerListener);
+			
+			// nested root stop resets the txn scoped listeners of its own thread
+			executor.execute("owner", () -> {
+				delegator.addTxnScopedListener(Mockito.mock(StateEventListener.class));
+				delegator.onStopRootCommandExecution(Mockito.mock(Command.class), Mockito.mock(ExecutionTxnContext.class));
+				return null;
+			});
+			
+			delegator.onStopRootCommandExecution(Mockito.mock(Command.class), Mockito.mock(ExecutionTxnContext.class));
+			return Boolean.TRUE;
+		});
+		
+		assertTrue(outerListenerRetained);
+		Mockito.verify(outerListener).onStopRootCommandExecution(Matchers.any(Command.class), Matchers.anyMap());
+	}
+	
+	@Test
+	public void t05_timeout_only_bounds_wait_to_start() throws Exception {
+		executor.setAwaitTimeoutMillis(50);
+		
+		// running commands are waited for, not interrupted
+		assertEquals("slow", executor.execute("petclinic", () -> {
+			Thread.sleep(200);
+			assertFalse(Thread.currentThread().isInterrupted());
+			return "slow";
+		}));
+		assertEquals(0, executor.getTimedOutCount());
+		
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		try {
+			// take up both pooled threads
+			for(int i=0; i<2; i++)
+				callers.submit(() -> executor.execute("petclinic", () -> {
+					started.countDown();
+					return release.await(5, TimeUnit.SECONDS);
+				}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			
+			AtomicBoolean ran = new AtomicBoolean();
+			try {
+				executor.execute("petclinic", () -> ran.getAndSet(true));
+				fail("expected to time out waiting for a pooled thread");
+			} catch (TimeoutException ex) {
+				assertEquals(1, executor.getTimedOutCount());
+			}
+			
+			release.countDown();
+			callers.shutdown();
+			assertTrue(callers.awaitTermination(5, TimeUnit.SECONDS));
+			
+			// abandoned command never runs
+			assertEquals("after", executor.execute("petclinic", () -> "after"));
+			assertFalse(ran.get());
+		} finally {
+			callers.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.InvalidArgumentException;
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
+import com.antheminc.oss.nimbus.domain.cmd.Action;
+import com.antheminc.oss.nimbus.domain.cmd.Command;
+import com.antheminc.oss.nimbus.domain.cmd.CommandMessage;
+import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecution.Output;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.ParamEvent;
+
+public class DefaultCommandExecutorGatewayTest {
+
+	private static Param<?> param(String path) {
+		Param<?> p = Mockito.mock(Param.class);
+		Mockito.when(p.getPath()).thenReturn(path);
+		return p;
+	}
+	
+	private static ParamEvent event(String path) {
+		return new ParamEvent(Action._update, param(path));
+	}
+	
+	private static List<String> paths(List<ParamEvent> events) {
+		return events.stream().map(pe->pe.getParam().getPath()).collect(Collectors.toList());
+	}
+	
+	@Test
+	public void t01_descendantsOfChangedParamsExcluded() {
+		List<ParamEvent> events = Arrays.asList(
+				event("/view/page/tile/section/field"), 
+				event("/view/page/tile-b"), 
+				event("/view/page/tile"), 
+				event("/view/page/tile/section"));
+		
+		List<ParamEvent> included = DefaultCommandExecutorGateway.excludeCovered(events, null);
+		
+		assertEquals(Arrays.asList("/view/page/tile", "/view/page/tile-b"), paths(included));
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void t02_paramsWithinOutputValuesExcluded() {
+		Output output = Mockito.mock(Output.class);
+		Mockito.when(output.getValue()).thenReturn(param("/view/page"));
+		
+		List<ParamEvent> events = Arrays.asList(event("/view/page/tile"), event("/view/page"), event("/view/other"));
+		List<ParamEvent> included = DefaultCommandExecutorGateway.excludeCovered(events, Collections.<Output<?>>singletonList(output));
+		
+		assertEquals(Arrays.asList("/view/other"), paths(included));
+	}
+	
+	@Test
+	public void t03_samePathOnce() {
+		List<ParamEvent> events = Arrays.asList(event("/view/a"), new ParamEvent(Action._replace, param("/view/a")));
+		
+		assertEquals(1, DefaultCommandExecutorGateway.excludeCovered(events, null).size());
+	}
+	
+	private static CommandMessage cmdMsg(String rootDomainUri) {
+		Command cmd = Mockito.mock(Command.class);
+		Mockito.when(cmd.getRootDomainUri()).thenReturn(rootDomainUri);
+		return new CommandMessage(cmd, null);
+	}
+	
+	@Test(expected=InvalidArgumentException.class)
+	public void t04_emptyBatchRejected() {
+		new DefaultCommandExecutorGateway(Mockito.mock(BeanResolverStrategy.class)).executeBatch(Collections.emptyList());
+	}
+	
+	@Test(expected=InvalidArgumentException.class)
+	public void t05_batchAcrossRootsRejected() {
+		DefaultCommandExecutorGateway gateway = new DefaultCommandExecutorGateway(Mockito.mock(BeanResolverStrategy.class));
+		
+		gateway.executeBatch(Arrays.asList(cmdMsg("/client/org/p/petview:1"), cmdMsg("/client/org/p/ownerview:1")));
+	}
+}
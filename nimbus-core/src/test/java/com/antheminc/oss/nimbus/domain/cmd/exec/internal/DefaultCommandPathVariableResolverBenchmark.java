@@ -0,0 +1,107 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
+import com.antheminc.oss.nimbus.domain.cmd.CommandMessageConverter;
+import com.antheminc.oss.nimbus.domain.session.SessionProvider;
+
+/**
+ * JMH measurement of {@link DefaultCommandPathVariableResolver} on the urls of an exec-config heavy param, with compiled 
+ * templates cached and compiled per call (place-holders resolved and url parsed on every resolve, as before). <br>
+ * Not part of the unit test run; execute {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class DefaultCommandPathVariableResolverBenchmark {
+
+	private static final String[] CONFIG_URLS = {
+		"/p/${bench.domain}:<!/id!>/_get",
+		"/p/${bench.domain}/_search?fn=query&where=${bench.domain}.caseId.eq(<!/caseId!>).and(${bench.domain}.status.eq('<!/status!>'))",
+		"/p/${bench.domain}:<!/id!>/member/_update",
+		"/p/${bench.domain}:<!/id!>/tasks/_process?fn=_set&url=/p/task:<!/taskId!>/_get",
+		"/p/${bench.domain}/_new?fn=_initEntity&target=/caseId&json=\"<!/caseId!>\"&target=/memberId&json=\"<!/memberId!>\"",
+		"/p/${bench.domain}:<!/id!>/_nav?pageId=vpSummary",
+	};
+	
+	@Param({"cached", "uncached"})
+	private String mode;
+	
+	private DefaultCommandPathVariableResolver resolver;
+	
+	private com.antheminc.oss.nimbus.domain.model.state.EntityState.Param<?> param;
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Setup
+	public void setup() {
+		StandardEnvironment env = new StandardEnvironment();
+		env.getPropertySources().addFirst(new MapPropertySource("bench", Collections.singletonMap("bench.domain", "cmcase")));
+		
+		BeanResolverStrategy beanResolver = Mockito.mock(BeanResolverStrategy.class);
+		Mockito.when(beanResolver.get(CommandMessageConverter.class)).thenReturn(Mockito.mock(CommandMessageConverter.class));
+		Mockito.when(beanResolver.get(SessionProvider.class)).thenReturn(Mockito.mock(SessionProvider.class));
+		Mockito.when(beanResolver.get(Environment.class)).thenReturn(env);
+		
+		resolver = new DefaultCommandPathVariableResolver(beanResolver, env);
+		if("uncached".equals(mode))
+			resolver.setMaxCachedTemplates(0);
+		
+		com.antheminc.oss.nimbus.domain.model.state.EntityState.Param leaf = Mockito.mock(com.antheminc.oss.nimbus.domain.model.state.EntityState.Param.class);
+		Mockito.when(leaf.getState()).thenReturn(42L);
+		
+		com.antheminc.oss.nimbus.domain.model.state.EntityState.Param p = Mockito.mock(com.antheminc.oss.nimbus.domain.model.state.EntityState.Param.class);
+		Mockito.when(p.findParamByPath(Matchers.anyString())).thenReturn(leaf);
+		param = p;
+	}
+	
+	@Benchmark
+	public void resolveConfigUrls(Blackhole bh) {
+		for(String url : CONFIG_URLS)
+			bh.consume(resolver.resolve(param, url));
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(DefaultCommandPathVariableResolverBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,145 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.domain.model.state.ExecutionRuntime;
+
+public class RootExecutionGuardTest {
+
+	RootExecutionGuard guard;
+	
+	ExecutorService other;
+	
+	@Before
+	public void init() {
+		guard = new RootExecutionGuard();
+		guard.setWaitTimeoutMillis(100);
+		other = Executors.newSingleThreadExecutor();
+	}
+	
+	@After
+	public void destroy() {
+		other.shutdownNow();
+		RootExecutionGuard.inherit(null);
+	}
+	
+	private static ExecutionRuntime runtime() {
+		ExecutionRuntime rt = Mockito.mock(ExecutionRuntime.class);
+		Mockito.when(rt.getExecutionLock()).thenReturn(new ReentrantLock(true));
+		return rt;
+	}
+	
+	@Test
+	public void t01_sameRootWaitsThenTimesOut() throws Exception {
+		ExecutionRuntime rt = runtime();
+		assertTrue(guard.acquire(rt));
+		
+		Future<?> f = other.submit(() -> guard.acquire(rt));
+		try {
+			f.get();
+			fail("expected to time out waiting on root held by another thread");
+		} catch (Exception ex) {
+			assertTrue(ex.getCause() instanceof FrameworkRuntimeException);
+		}
+		
+		guard.release(rt);
+		assertEquals(2, guard.getAcquiredCount());
+		assertEquals(1, guard.getContendedCount());
+		assertEquals(1, guard.getTimedOutCount());
+		assertTrue(guard.getMaxWaitMillis() >= 90);
+	}
+	
+	@Test
+	public void t02_differentRootsDoNotWait() throws Exception {
+		ExecutionRuntime rt1 = runtime();
+		ExecutionRuntime rt2 = runtime();
+		assertTrue(guard.acquire(rt1));
+		
+		assertTrue(other.submit(() -> {
+			boolean acquired = guard.acquire(rt2);
+			guard.release(rt2);
+			return acquired;
+		}).get());
+		
+		guard.release(rt1);
+		assertEquals(0, guard.getContendedCount());
+	}
+	
+	@Test
+	public void t03_waiterProceedsOnRelease() throws Exception {
+		ExecutionRuntime rt = runtime();
+		guard.setWaitTimeoutMillis(5000);
+		assertTrue(guard.acquire(rt));
+		
+		CountDownLatch started = new CountDownLatch(1);
+		Future<Boolean> f = other.submit(() -> {
+			started.countDown();
+			boolean acquired = guard.acquire(rt);
+			guard.release(rt);
+			return acquired;
+		});
+		started.await();
+		Thread.sleep(50);
+		
+		guard.release(rt);
+		assertTrue(f.get(5, TimeUnit.SECONDS));
+		assertEquals(1, guard.getContendedCount());
+		assertEquals(0, guard.getWaiting());
+	}
+	
+	@Test
+	public void t04_inheritedRootIsNotReacquired() throws Exception {
+		ExecutionRuntime rt = runtime();
+		assertTrue(guard.acquire(rt));
+		
+		final Set<ReentrantLock> held = RootExecutionGuard.held();
+		assertFalse(other.submit(() -> {
+			RootExecutionGuard.inherit(held);
+			try {
+				return guard.acquire(rt);
+			} finally {
+				RootExecutionGuard.inherit(null);
+			}
+		}).get(5, TimeUnit.SECONDS));
+		
+		guard.release(rt);
+	}
+	
+	@Test
+	public void t05_disabled() {
+		guard.setEnabled(false);
+		assertFalse(guard.acquire(runtime()));
+	}
+}
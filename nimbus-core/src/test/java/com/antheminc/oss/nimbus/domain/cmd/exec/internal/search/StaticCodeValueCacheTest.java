@@ -0,0 +1,107 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec.internal.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
+import com.antheminc.oss.nimbus.domain.model.config.ParamValue;
+
+public class StaticCodeValueCacheTest {
+
+	StaticCodeValueCache cache;
+	
+	AtomicInteger loads;
+	
+	Supplier<List<ParamValue>> loader;
+	
+	@Before
+	public void before() {
+		cache = new StaticCodeValueCache(Mockito.mock(BeanResolverStrategy.class));
+		cache.setEnabled(true);
+		cache.init();
+		
+		loads = new AtomicInteger();
+		loader = ()->{
+			loads.incrementAndGet();
+			return new ArrayList<>(Arrays.asList(new ParamValue("A", "Active")));
+		};
+	}
+	
+	@Test
+	public void t01_keyOfParamCodeLookup() {
+		assertEquals("/orgType", StaticCodeValueCache.keyOf("staticCodeValue.paramCode.eq('/orgType')"));
+		assertEquals("/orgType", StaticCodeValueCache.keyOf(" staticCodeValue.paramCode.eq(\"/orgType\") "));
+		assertEquals("staticCodeValue.paramValues.any().code.eq('A')", StaticCodeValueCache.keyOf("staticCodeValue.paramValues.any().code.eq('A')"));
+	}
+	
+	@Test
+	public void t02_loadedOnceAndCopiedPerLookup() {
+		List<ParamValue> v1 = cache.getOrLoad("/orgType", loader);
+		List<ParamValue> v2 = cache.getOrLoad("/orgType", loader);
+		
+		assertEquals(1, loads.get());
+		assertNotSame(v1, v2);
+		assertEquals(v1.get(0).getCode(), v2.get(0).getCode());
+	}
+	
+	@Test
+	public void t03_invalidatedOnPersistedChange() {
+		cache.getOrLoad("/orgType", loader);
+		cache.onPersisted("otherAlias");
+		cache.getOrLoad("/orgType", loader);
+		assertEquals(1, loads.get());
+		
+		cache.onPersisted(StaticCodeValueCache.ALIAS);
+		cache.getOrLoad("/orgType", loader);
+		assertEquals(2, loads.get());
+	}
+	
+	@Test
+	public void t04_loadOverlappingPersistedChangeNotCached() {
+		cache.getOrLoad("/orgType", ()->{
+			cache.onPersisted(StaticCodeValueCache.ALIAS);
+			return loader.get();
+		});
+		cache.getOrLoad("/orgType", loader);
+		
+		assertEquals(2, loads.get());
+		assertEquals(1, cache.getSize());
+	}
+	
+	@Test
+	public void t05_disabledByDefault() {
+		cache = new StaticCodeValueCache(Mockito.mock(BeanResolverStrategy.class));
+		cache.init();
+		
+		cache.getOrLoad("/orgType", loader);
+		cache.getOrLoad("/orgType", loader);
+		
+		assertEquals(2, loads.get());
+		assertEquals(0, cache.getSize());
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.domain.model.config.ParamConfigType;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
+
+@SuppressWarnings("unchecked")
+public class StateTypeTest {
+
+	Model<Object> model;
+	
+	AtomicInteger created;
+	
+	StateType.LazyNested<Object> type;
+	
+	@Before
+	public void before() {
+		model = Mockito.mock(Model.class);
+		created = new AtomicInteger();
+		
+		type = new StateType.LazyNested<>(Mockito.mock(ParamConfigType.Nested.class), ()->{
+			created.incrementAndGet();
+			return model;
+		});
+	}
+	
+	@Test
+	public void t01_builtOnceOnFirstAccess() {
+		assertFalse(type.isMaterialized());
+		assertEquals(0, created.get());
+		
+		assertSame(model, type.getModel());
+		assertSame(model, type.getModel());
+		
+		assertTrue(type.isMaterialized());
+		assertEquals(1, created.get());
+	}
+	
+	@Test
+	public void t02_stateInitDeferredUntilMaterialized() {
+		type.initModelState();
+		type.fireModelRules();
+		
+		assertEquals(0, created.get());
+		Mockito.verifyZeroInteractions(model);
+		
+		type.getModel();
+		Mockito.verify(model).initState();
+		
+		type.fireModelRules();
+		Mockito.verify(model).fireRules();
+	}
+	
+	@Test
+	public void t03_noStateInitIfNotRequested() {
+		type.getModel();
+		
+		Mockito.verify(model, Mockito.never()).initState();
+	}
+	
+	@Test
+	public void t04_creatorRetriedAfterFailure() {
+		StateType.LazyNested<Object> failing = new StateType.LazyNested<>(Mockito.mock(ParamConfigType.Nested.class), ()->{
+			if(created.incrementAndGet() == 1)
+				throw new IllegalStateException("first attempt");
+			return model;
+		});
+		
+		try {
+			failing.getModel();
+		} catch (IllegalStateException ex) {
+			// expected
+		}
+		assertFalse(failing.isMaterialized());
+		assertSame(model, failing.getModel());
+	}
+}
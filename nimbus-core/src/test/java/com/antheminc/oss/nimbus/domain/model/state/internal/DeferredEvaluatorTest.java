@@ -0,0 +1,179 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.domain.model.config.ModelConfig;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
+import com.antheminc.oss.nimbus.domain.model.state.InvalidStateException;
+
+public class DeferredEvaluatorTest {
+
+	DeferredEvaluator evaluator;
+	
+	List<String> evaluated;
+	
+	@Before
+	public void before() {
+		evaluator = new DeferredEvaluator();
+		evaluator.setEnabled(true);
+		evaluated = new ArrayList<>();
+	}
+	
+	@After
+	public void after() {
+		evaluator.end();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Model<?> root(String alias) {
+		ModelConfig<Object> config = Mockito.mock(ModelConfig.class);
+		Mockito.when(config.getAlias()).thenReturn(alias);
+		
+		Model<Object> root = Mockito.mock(Model.class);
+		Mockito.when(root.getConfig()).thenReturn(config);
+		return root;
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private AbstractEntityState<?> state(Model<?> root) {
+		AbstractEntityState state = Mockito.mock(AbstractEntityState.class);
+		Mockito.when(state.getRootDomain()).thenReturn(root);
+		Mockito.doAnswer(inv->evaluated.add(root.getConfig().getAlias()+":"+inv.getArgumentAt(0, Boolean.class)))
+			.when(state).evaluateDeferred(Matchers.anyBoolean());
+		return state;
+	}
+	
+	@Test
+	public void t01_notDeferredOutsideScope() {
+		assertFalse(DeferredEvaluator.defer(state(root("a")), true));
+		
+		evaluator.setEnabled(false);
+		assertFalse(evaluator.begin());
+		assertFalse(DeferredEvaluator.defer(state(root("a")), true));
+	}
+	
+	@Test
+	public void t02_changesCoalescedPerRoot() {
+		Model<?> a = root("a");
+		Model<?> b = root("b");
+		
+		assertTrue(evaluator.begin());
+		assertFalse("nested root command must not open another scope", evaluator.begin());
+		
+		assertTrue(DeferredEvaluator.defer(state(a), false));
+		assertTrue(DeferredEvaluator.defer(state(b), false));
+		assertTrue(DeferredEvaluator.defer(state(a), true));
+		assertTrue(DeferredEvaluator.defer(state(a), false));
+		
+		assertTrue(evaluated.isEmpty());
+		
+		evaluator.complete();
+		
+		assertEquals(Arrays.asList("a:true", "b:false"), evaluated);
+		assertEquals(4, evaluator.getDeferredCount());
+		assertEquals(2, evaluator.getEvaluationCount());
+		assertEquals(2, evaluator.getSavedEvaluationCount());
+		
+		// nothing left on close
+		evaluator.end();
+		assertEquals(2, evaluated.size());
+	}
+	
+	@Test
+	public void t03_excludedDomainEvaluatedPerTxn() {
+		evaluator.setExcludedDomains(new HashSet<>(Arrays.asList("b")));
+		evaluator.begin();
+		
+		assertTrue(DeferredEvaluator.defer(state(root("a")), true));
+		assertFalse(DeferredEvaluator.defer(state(root("b")), true));
+		
+		evaluator.complete();
+		assertEquals(Arrays.asList("a:true"), evaluated);
+	}
+	
+	@Test
+	public void t04_changesDuringEvaluationNotDeferred() {
+		Model<?> a = root("a");
+		AbstractEntityState<?> s = state(a);
+		
+		final List<Boolean> deferredWhileEvaluating = new ArrayList<>();
+		Mockito.doAnswer(inv->deferredWhileEvaluating.add(DeferredEvaluator.defer(state(a), true)))
+			.when(s).evaluateDeferred(Matchers.anyBoolean());
+		
+		evaluator.begin();
+		DeferredEvaluator.defer(s, true);
+		evaluator.complete();
+		
+		assertEquals(Arrays.asList(false), deferredWhileEvaluating);
+	}
+	
+	@Test
+	public void t05_remainingRootsEvaluatedAfterFailure() {
+		AbstractEntityState<?> failing = state(root("a"));
+		InvalidStateException failure = new InvalidStateException("rules failed");
+		Mockito.doThrow(failure).when(failing).evaluateDeferred(Matchers.anyBoolean());
+		
+		AbstractEntityState<?> alsoFailing = state(root("d"));
+		InvalidStateException secondFailure = new InvalidStateException("rules failed again");
+		Mockito.doThrow(secondFailure).when(alsoFailing).evaluateDeferred(Matchers.anyBoolean());
+		
+		evaluator.begin();
+		DeferredEvaluator.defer(failing, true);
+		DeferredEvaluator.defer(state(root("b")), true);
+		DeferredEvaluator.defer(alsoFailing, false);
+		
+		try {
+			evaluator.complete();
+			fail("Expected failure of deferred evaluation to propagate");
+		} catch (InvalidStateException ex) { 
+			assertSame(failure, ex);
+			assertArrayEquals(new Throwable[] { secondFailure }, ex.getSuppressed());
+		}
+		assertEquals(Arrays.asList("b:true"), evaluated);
+		
+		// nothing left on close
+		evaluator.end();
+		assertEquals(1, evaluated.size());
+		
+		// command failed before completion
+		evaluator.begin();
+		DeferredEvaluator.defer(failing, true);
+		DeferredEvaluator.defer(state(root("c")), false);
+		
+		evaluator.end();
+		assertEquals(Arrays.asList("b:true", "c:false"), evaluated);
+		assertEquals(1, evaluator.getFailedCount());
+		assertFalse(DeferredEvaluator.defer(state(root("c")), false));
+	}
+}
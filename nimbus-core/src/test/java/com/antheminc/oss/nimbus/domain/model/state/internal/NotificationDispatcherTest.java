@@ -0,0 +1,163 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.MappedParam;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.InvalidStateException;
+import com.antheminc.oss.nimbus.domain.model.state.Notification;
+import com.antheminc.oss.nimbus.domain.model.state.Notification.ActionType;
+
+public class NotificationDispatcherTest {
+
+	NotificationDispatcher dispatcher;
+	
+	DefaultExecutionTxnContext txnCtx;
+	
+	List<Notification<Object>> handled;
+	
+	@Before
+	public void before() {
+		dispatcher = new NotificationDispatcher();
+		txnCtx = new DefaultExecutionTxnContext();
+		handled = new ArrayList<>();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Param<Object> source(MappedParam<?, Object> subscriber) {
+		Param<Object> p = Mockito.mock(Param.class);
+		Mockito.when(p.getEventSubscribers()).thenReturn(Arrays.asList(subscriber));
+		return p;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private MappedParam<?, Object> recordingSubscriber() {
+		MappedParam<?, Object> subscriber = Mockito.mock(MappedParam.class);
+		Mockito.doAnswer(inv->handled.add(inv.getArgumentAt(0, Notification.class)))
+			.when(subscriber).handleNotification(Matchers.any());
+		return subscriber;
+	}
+	
+	@Test
+	public void t01_updatesCoalescedPerSource() {
+		MappedParam<?, Object> subscriber = recordingSubscriber();
+		Param<Object> s1 = source(subscriber);
+		Param<Object> s2 = source(subscriber);
+		
+		Notification<Object> n1 = new Notification<>(s1, ActionType._updateState, s1);
+		Notification<Object> n2 = new Notification<>(s2, ActionType._updateState, s2);
+		
+		txnCtx.addNotification(n1);
+		txnCtx.addNotification(n2);
+		txnCtx.addNotification(new Notification<>(s1, ActionType._updateState, s1));
+		
+		dispatcher.drain(txnCtx);
+		
+		assertEquals(Arrays.asList(n1, n2), handled);
+		assertEquals(1, txnCtx.getNotificationStats().getCoalesced());
+		assertEquals(2, txnCtx.getNotificationStats().getDispatched());
+	}
+	
+	@Test
+	public void t02_structuralChangeKeepsLaterUpdate() {
+		MappedParam<?, Object> subscriber = recordingSubscriber();
+		Param<Object> s1 = source(subscriber);
+		
+		Notification<Object> u1 = new Notification<>(s1, ActionType._updateState, s1);
+		Notification<Object> add = new Notification<>(s1, ActionType._newElem, s1);
+		Notification<Object> u2 = new Notification<>(s1, ActionType._updateState, s1);
+		
+		txnCtx.addNotification(u1);
+		txnCtx.addNotification(add);
+		txnCtx.addNotification(u2);
+		
+		dispatcher.drain(txnCtx);
+		
+		assertEquals(Arrays.asList(u1, add, u2), handled);
+	}
+	
+	@Test
+	public void t03_notificationsQueuedWhileHandlingAreDrained() {
+		MappedParam<?, Object> leaf = recordingSubscriber();
+		Param<Object> s2 = source(leaf);
+		
+		@SuppressWarnings("unchecked")
+		MappedParam<?, Object> relay = Mockito.mock(MappedParam.class);
+		Mockito.doAnswer(inv->{
+			txnCtx.addNotification(new Notification<>(s2, ActionType._updateState, s2));
+			return null;
+		}).when(relay).handleNotification(Matchers.any());
+		Param<Object> s1 = source(relay);
+		
+		txnCtx.addNotification(new Notification<>(s1, ActionType._updateState, s1));
+		dispatcher.drain(txnCtx);
+		
+		assertEquals(1, handled.size());
+		assertEquals(1, txnCtx.getNotificationStats().getMaxDepth());
+		assertEquals(0, txnCtx.getNotifications().size());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void t04_cycleFailsOnMaxDepth() {
+		dispatcher.setMaxDepth(10);
+		
+		MappedParam<?, Object> echo = Mockito.mock(MappedParam.class);
+		Mockito.doAnswer(inv->{
+			Notification<Object> n = inv.getArgumentAt(0, Notification.class);
+			txnCtx.addNotification(new Notification<>(n.getSource(), ActionType._newElem, n.getSource()));
+			return null;
+		}).when(echo).handleNotification(Matchers.any());
+		
+		Param<Object> s1 = source(echo);
+		txnCtx.addNotification(new Notification<>(s1, ActionType._newElem, s1));
+		
+		try {
+			dispatcher.drain(txnCtx);
+			fail("expected cycle to be detected");
+		} catch (InvalidStateException ex) {
+			assertEquals(10, txnCtx.getNotificationStats().getMaxDepth());
+		}
+	}
+	
+	@Test
+	public void t05_txnStatsAggregated() {
+		MappedParam<?, Object> subscriber = recordingSubscriber();
+		Param<Object> s1 = source(subscriber);
+		
+		txnCtx.addNotification(new Notification<>(s1, ActionType._updateState, s1));
+		txnCtx.addNotification(new Notification<>(s1, ActionType._updateState, s1));
+		dispatcher.drain(txnCtx);
+		dispatcher.onTxnComplete(txnCtx);
+		
+		assertEquals(1, dispatcher.getTxnCount());
+		assertEquals(1, dispatcher.getDispatchedCount());
+		assertEquals(1, dispatcher.getCoalescedCount());
+		assertEquals(1, dispatcher.getMaxQueueDepth());
+	}
+}
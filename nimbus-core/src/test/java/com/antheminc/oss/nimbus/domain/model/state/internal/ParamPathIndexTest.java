@@ -0,0 +1,146 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+
+public class ParamPathIndexTest {
+
+	ParamPathIndex index;
+	
+	Param<?> root, list, elem, elemAttr, other;
+	
+	@Before
+	public void before() {
+		index = new ParamPathIndex();
+		
+		root = param(null, "root");
+		list = param(root, "list");
+		elem = param(list, "0");
+		elemAttr = param(elem, "attr");
+		other = param(root, "other");
+	}
+	
+	private static Param<?> param(Param<?> parent, String code) {
+		Param<?> p = Mockito.mock(Param.class);
+		String path = (parent == null ? "" : parent.getPath()) + "/" + code;
+		Mockito.when(p.getPath()).thenReturn(path);
+		if(parent != null) {
+			Mockito.doReturn(model(parent)).when(p).getParentModel();
+		}
+		return p;
+	}
+	
+	private static Model<?> model(Param<?> associatedParam) {
+		Model<?> m = Mockito.mock(Model.class);
+		String path = associatedParam.getPath();
+		Mockito.doReturn(associatedParam).when(m).getAssociatedParam();
+		Mockito.when(m.getPath()).thenReturn(path);
+		return m;
+	}
+	
+	@Test
+	public void t01_keyedByBaseIdentityAndPath() {
+		index.put(root, "/list/0/attr", elemAttr);
+		
+		assertSame(elemAttr, index.get(root, "/list/0/attr"));
+		assertSame(elemAttr, index.get(root, new String("/list/0/attr")));
+		assertNull(index.get(other, "/list/0/attr"));
+		assertNull(index.get(root, "/list/1/attr"));
+	}
+	
+	@Test
+	public void t02_notFoundIsNotIndexed() {
+		index.put(root, "/missing", null);
+		
+		assertEquals(0, index.size());
+	}
+	
+	@Test
+	public void t03_evictElemSubtree() {
+		index.put(root, "/list/0/attr", elemAttr);
+		index.put(root, "/list/0", elem);
+		index.put(elemAttr, "../../", list);
+		index.put(root, "/list", list);
+		index.put(root, "/other", other);
+		
+		index.evict(elem, true);
+		
+		assertEquals(2, index.size());
+		assertSame(list, index.get(root, "/list"));
+		assertSame(other, index.get(root, "/other"));
+	}
+	
+	@Test
+	public void t04_evictDescendantsOnly() {
+		index.put(root, "/list/0", elem);
+		index.put(root, "/list/0/attr", elemAttr);
+		
+		index.evict(elem, false);
+		
+		assertEquals(1, index.size());
+		assertSame(elem, index.get(root, "/list/0"));
+	}
+	
+	@Test
+	public void t05_mapsToPathsAreNotIndexable() {
+		assertTrue(ParamPathIndex.isIndexable("/a/b/c"));
+		assertFalse(ParamPathIndex.isIndexable("/a/.m/c"));
+		assertFalse(ParamPathIndex.isIndexable("/a/#/c"));
+		assertFalse(ParamPathIndex.isIndexable(null));
+	}
+	
+	@Test
+	public void t06_evictModelOfParamWhenExclusive() {
+		Model<?> elemModel = model(elem);
+		index.put(elemModel, "attr", elemAttr);
+		index.put(root, "/list/0", elem);
+		
+		index.evict(elem, false);
+		
+		assertNull(index.get(elemModel, "attr"));
+		assertSame(elem, index.get(root, "/list/0"));
+	}
+	
+	@Test
+	public void t07_evictBySiblingPathPrefixOnly() {
+		Param<?> elem1 = param(list, "1");
+		Param<?> elem10 = param(list, "10");
+		index.put(root, "/list/1", elem1);
+		index.put(root, "/list/10", elem10);
+		index.put(elem10, "../1", elem1);
+		
+		index.evict(elem1, true);
+		
+		assertEquals(1, index.size());
+		assertSame(elem10, index.get(root, "/list/10"));
+		
+		// evicted entries are no longer registered by path
+		index.evict(elem10, true);
+		assertEquals(0, index.size());
+	}
+}
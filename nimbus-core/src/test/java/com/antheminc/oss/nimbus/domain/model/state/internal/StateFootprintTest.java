@@ -0,0 +1,179 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.domain.defn.extension.ValidateConditional.ValidationGroup;
+import com.antheminc.oss.nimbus.domain.model.config.ModelConfig;
+import com.antheminc.oss.nimbus.domain.model.config.ParamConfig;
+import com.antheminc.oss.nimbus.domain.model.config.ParamConfigType;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.MappedParam;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param.Message;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.ValueAccessor;
+import com.antheminc.oss.nimbus.domain.model.state.EntityStateAspectHandlers;
+import com.antheminc.oss.nimbus.domain.model.state.StateType;
+
+public class StateFootprintTest {
+
+	EntityStateAspectHandlers aspectHandlers;
+	
+	DefaultModelState<Object> rootModel;
+	
+	DefaultParamState<String> p1, p2;
+	
+	@Before
+	@SuppressWarnings("unchecked")
+	public void before() {
+		aspectHandlers = Mockito.mock(EntityStateAspectHandlers.class);
+		
+		Param<Object> rootParam = Mockito.mock(Param.class);
+		rootModel = new DefaultModelState<>(rootParam, Mockito.mock(ModelConfig.class), aspectHandlers);
+		Mockito.doReturn(rootModel).when(rootParam).getRootDomain();
+		
+		p1 = leaf("p1");
+		p2 = leaf("p2");
+		rootModel.setParams(Arrays.asList(p1, p2));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private DefaultParamState<String> leaf(String code) {
+		ParamConfigType type = new ParamConfigType.Field(false, "string", String.class);
+		type.setValueAccessor(Mockito.mock(ValueAccessor.class));
+		
+		ParamConfig<String> config = Mockito.mock(ParamConfig.class);
+		Mockito.when(config.getCode()).thenReturn(code);
+		Mockito.when(config.getType()).thenReturn(type);
+		
+		DefaultParamState<String> p = new DefaultParamState<>(rootModel, config, aspectHandlers);
+		p.setType(new StateType(type));
+		return p;
+	}
+	
+	@Test
+	public void t01_freshParamAllocatesNothing() {
+		assertEquals(0, p1.allocatedRemnantStateCount());
+		assertTrue(p1.isVisible());
+		assertTrue(p1.isEnabled());
+		assertNull(p1.getMessages());
+		assertEquals(0, p1.getActiveValidationGroups().length);
+		assertTrue(p1.getEventSubscribers().isEmpty());
+		assertFalse(p1.hasOwnLockTemplate());
+		assertFalse(p1.hasContextStateChanged());
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void t02_settingInitialStateAllocatesNothing() {
+		p1.setVisible(true);
+		p1.setEnabled(true);
+		p1.setMessages(null);
+		p1.setMessages(Collections.emptySet());
+		p1.setActiveValidationGroups(new Class[0]);
+		
+		assertFalse(p1.deregisterConsumer(Mockito.mock(MappedParam.class)));
+		
+		assertEquals(0, p1.allocatedRemnantStateCount());
+		assertTrue(p1.getEventSubscribers().isEmpty());
+		assertFalse(p1.hasContextStateChanged());
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void t03_remnantStatesAllocatedOnFirstChange() {
+		p1.setEnabled(false);
+		
+		assertEquals(1, p1.allocatedRemnantStateCount());
+		assertFalse(p1.isEnabled());
+		assertTrue(p1.isVisible());
+		assertTrue(p1.hasContextStateChanged());
+		
+		Message m = new Message("p1", "invalid", Message.Type.DANGER, Message.Context.INLINE, null);
+		p1.setMessages(Collections.singleton(m));
+		p1.setActiveValidationGroups(new Class[] { ValidationGroup.class });
+		
+		assertEquals(3, p1.allocatedRemnantStateCount());
+		assertEquals(Collections.singleton(m), p1.getMessages());
+		assertEquals(1, p1.getActiveValidationGroups().length);
+		
+		// clearing keeps the allocated state so that the change can still be detected
+		p1.setMessages(null);
+		assertNull(p1.getMessages());
+		assertEquals(3, p1.allocatedRemnantStateCount());
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void t04_subscriberListAllocatedOnFirstRegistration() {
+		MappedParam<Object, String> subscriber = Mockito.mock(MappedParam.class);
+		
+		p1.registerConsumer(subscriber);
+		
+		assertEquals(1, p1.getEventSubscribers().size());
+		assertSame(subscriber, p1.getEventSubscribers().get(0));
+		
+		assertTrue(p1.deregisterConsumer(subscriber));
+		assertTrue(p1.getEventSubscribers().isEmpty());
+	}
+	
+	@Test
+	public void t05_lockTemplateSharedWithRootDomain() {
+		assertSame(rootModel.getLockTemplate(), p1.getLockTemplate());
+		assertSame(p1.getLockTemplate(), p2.getLockTemplate());
+		
+		assertTrue(rootModel.hasOwnLockTemplate());
+		assertFalse(p1.hasOwnLockTemplate());
+		assertFalse(p2.hasOwnLockTemplate());
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void t06_footprintOfTree() {
+		StateFootprint empty = StateFootprint.of(rootModel);
+		assertEquals(2, empty.getParams());
+		assertEquals(0, empty.getRemnantStates());
+		assertEquals(0, empty.getSubscriberLists());
+		assertEquals(0, empty.getLockTemplates());
+		assertEquals(0L, empty.getEstimatedBytes());
+		
+		p1.setVisible(false);
+		p2.registerConsumer(Mockito.mock(MappedParam.class));
+		p2.registerConsumer(Mockito.mock(MappedParam.class));
+		p2.getLockTemplate();
+		
+		StateFootprint footprint = StateFootprint.of(rootModel);
+		assertEquals(2, footprint.getParams());
+		assertEquals(1, footprint.getRemnantStates());
+		assertEquals(1, footprint.getSubscriberLists());
+		assertEquals(2, footprint.getSubscribers());
+		assertEquals(1, footprint.getLockTemplates());
+		
+		assertEquals(StateFootprint.REMNANT_STATE_BYTES + StateFootprint.SUBSCRIBER_LIST_BYTES 
+				+ 2 * StateFootprint.SUBSCRIBER_REF_BYTES + StateFootprint.LOCK_TEMPLATE_BYTES, footprint.getEstimatedBytes());
+	}
+}
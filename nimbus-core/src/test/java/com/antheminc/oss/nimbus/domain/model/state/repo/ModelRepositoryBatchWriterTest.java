@@ -0,0 +1,147 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.repo;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepositoryBatchWriter.OverflowPolicy;
+
+public class ModelRepositoryBatchWriterTest {
+
+	ModelRepository rep;
+	
+	ModelRepositoryBatchWriter writer;
+	
+	List<Object> written;
+	
+	@Before
+	public void before() {
+		written = new ArrayList<>();
+		rep = Mockito.mock(ModelRepository.class);
+		Mockito.doAnswer(inv->written.addAll(inv.getArgumentAt(1, List.class))).when(rep)._saveAll(eq("changelog"), anyListOf(Object.class));
+		
+		writer = new ModelRepositoryBatchWriter();
+		writer.setFlushSize(3);
+		writer.setFlushIntervalMillis(50);
+	}
+	
+	@After
+	public void after() {
+		writer.shutdown();
+	}
+	
+	@Test
+	public void t01_disabled_savesInline() {
+		writer.init();
+		writer.save(rep, "changelog", "e1");
+		
+		Mockito.verify(rep)._save("changelog", "e1");
+		assertEquals(1, writer.getWrittenCount());
+	}
+	
+	@Test
+	public void t02_enabled_writesInBatchesInOrder() {
+		writer.setEnabled(true);
+		writer.init();
+		
+		for(int i=0; i<7; i++)
+			writer.save(rep, "changelog", "e"+i);
+		
+		writer.shutdown();
+		
+		assertEquals(7, written.size());
+		assertEquals("e0", written.get(0));
+		assertEquals("e6", written.get(6));
+		assertEquals(7, writer.getWrittenCount());
+		Mockito.verify(rep, Mockito.never())._save(Mockito.anyString(), Mockito.any());
+	}
+	
+	@Test
+	public void t03_drop_whenQueueFull() throws Exception {
+		Mockito.doAnswer(inv->{ Thread.sleep(200); return null; }).when(rep)._saveAll(eq("audit"), anyListOf(Object.class));
+		
+		writer.setEnabled(true);
+		writer.setFlushSize(1);
+		writer.setQueueCapacity(1);
+		writer.setOverflowPolicy(OverflowPolicy.DROP);
+		writer.init();
+		
+		for(int i=0; i<10; i++)
+			writer.save(rep, "audit", "e"+i);
+		
+		assertEquals(10, writer.getPublishedCount());
+		assertEquals(true, writer.getDroppedCount() > 0);
+	}
+	
+	@Test
+	public void t04_failedBatch_retriedPerEntry() {
+		Mockito.doThrow(new IllegalStateException("duplicate key")).when(rep)._saveAll(eq("audit"), anyListOf(Object.class));
+		Mockito.doThrow(new IllegalStateException("duplicate key")).when(rep)._save("audit", "e1");
+		
+		writer.setEnabled(true);
+		writer.init();
+		
+		for(int i=0; i<3; i++)
+			writer.save(rep, "audit", "e"+i);
+		
+		writer.shutdown();
+		
+		Mockito.verify(rep)._save("audit", "e0");
+		Mockito.verify(rep)._save("audit", "e2");
+		assertEquals(2, writer.getWrittenCount());
+		assertEquals(1, writer.getFailedCount());
+	}
+	
+	@Test
+	public void t05_shutdown_waitsForWriteInFlight() {
+		AtomicBoolean interrupted = new AtomicBoolean();
+		Mockito.doAnswer(inv->{
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException ex) {
+				interrupted.set(true);
+			}
+			return written.addAll(inv.getArgumentAt(1, List.class));
+		}).when(rep)._saveAll(eq("changelog"), anyListOf(Object.class));
+		
+		writer.setEnabled(true);
+		writer.setFlushSize(1);
+		writer.init();
+		
+		writer.save(rep, "changelog", "e0");
+		writer.save(rep, "changelog", "e1");
+		writer.shutdown();
+		
+		// queued no more, saved inline
+		writer.save(rep, "changelog", "e2");
+		
+		assertEquals(false, interrupted.get());
+		assertEquals(2, written.size());
+		Mockito.verify(rep)._save("changelog", "e2");
+		assertEquals(3, writer.getWrittenCount());
+	}
+}
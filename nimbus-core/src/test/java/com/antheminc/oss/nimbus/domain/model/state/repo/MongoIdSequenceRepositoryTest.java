@@ -0,0 +1,105 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.repo;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.antheminc.oss.nimbus.entity.DBSequence;
+
+public class MongoIdSequenceRepositoryTest {
+
+	MongoOperations mongoOps;
+	
+	MongoIdSequenceRepository repo;
+	
+	AtomicLong dbSeq;
+	
+	AtomicInteger roundTrips;
+	
+	@Before
+	public void before() {
+		dbSeq = new AtomicLong();
+		roundTrips = new AtomicInteger();
+		mongoOps = Mockito.mock(MongoOperations.class);
+		
+		// simulates $inc with returnNew on the sequence document
+		Mockito.when(mongoOps.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(DBSequence.class), eq("sequence")))
+			.thenAnswer(inv->{
+				roundTrips.incrementAndGet();
+				Update update = inv.getArgumentAt(1, Update.class);
+				Number by = (Number)((Map<?,?>)update.getUpdateObject().get("$inc")).get("seq");
+				
+				DBSequence seq = new DBSequence();
+				seq.setSeq(dbSeq.addAndGet(by.longValue()));
+				return seq;
+			});
+		
+		repo = new MongoIdSequenceRepository(mongoOps);
+	}
+	
+	@Test
+	public void t01_defaultBlockSize_oneRoundTripPerId() {
+		assertEquals(1, repo.getNextSequenceId("patient"));
+		assertEquals(2, repo.getNextSequenceId("patient"));
+		assertEquals(2, roundTrips.get());
+	}
+	
+	@Test
+	public void t02_blockSizePerKey() {
+		repo.getBlockSizes().put("audit", 50);
+		
+		for(long i=1; i<=120; i++)
+			assertEquals(i, repo.getNextSequenceId("audit"));
+		
+		assertEquals(3, roundTrips.get());
+		assertEquals(150, dbSeq.get());
+	}
+	
+	@Test
+	public void t03_concurrent_uniqueIds() throws Exception {
+		repo.setDefaultBlockSize(10);
+		
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		for(int i=0; i<1000; i++)
+			pool.execute(()->ids.add(repo.getNextSequenceId("changelog")));
+		
+		pool.shutdown();
+		pool.awaitTermination(10, TimeUnit.SECONDS);
+		
+		assertEquals(1000, ids.size());
+		assertEquals(100, roundTrips.get());
+	}
+}
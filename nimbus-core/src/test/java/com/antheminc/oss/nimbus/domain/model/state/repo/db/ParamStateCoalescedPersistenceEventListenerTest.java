@@ -0,0 +1,201 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.repo.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
+import com.antheminc.oss.nimbus.domain.defn.Repo;
+import com.antheminc.oss.nimbus.domain.model.config.ModelConfig;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.internal.AbstractEvent.PersistenceMode;
+import com.antheminc.oss.nimbus.domain.model.state.repo.ModelPersistenceHandler;
+import com.antheminc.oss.nimbus.domain.model.state.repo.ModelRepositoryFactory;
+import com.antheminc.oss.nimbus.domain.model.state.repo.IdSequenceRepository;
+import com.antheminc.oss.nimbus.domain.model.state.repo.db.mongo.DefaultMongoModelPersistenceHandler;
+import com.antheminc.oss.nimbus.domain.model.state.repo.db.mongo.DefaultMongoModelRepository;
+import com.mongodb.BasicDBObject;
+
+public class ParamStateCoalescedPersistenceEventListenerTest {
+
+	ModelRepositoryFactory repoFactory;
+	
+	@Test
+	public void t01_coalesce_dropsPathsUnderDirtyAncestor() {
+		Map<String, Param<?>> dirty = new LinkedHashMap<>();
+		dirty.put("/c/address/city", mockParam("Chicago"));
+		dirty.put("/c/address", mockParam("address"));
+		dirty.put("/c/address-line", mockParam("line"));
+		dirty.put("/c/firstName", mockParam(null));
+		
+		Map<String, Object> pathStates = ParamStateCoalescedPersistenceEventListener.coalesce(dirty);
+		
+		assertEquals(Arrays.asList("/c/address", "/c/address-line", "/c/firstName"), Arrays.asList(pathStates.keySet().toArray()));
+		assertEquals("address", pathStates.get("/c/address"));
+		assertTrue(pathStates.containsKey("/c/firstName"));
+	}
+	
+	@Test
+	public void t02_mongoUpdate_singleUpsertPerEntity() {
+		MongoOperations mongoOps = Mockito.mock(MongoOperations.class);
+		DefaultMongoModelRepository rep = new DefaultMongoModelRepository(mongoOps, Mockito.mock(IdSequenceRepository.class), Mockito.mock(BeanResolverStrategy.class));
+		
+		Map<String, Object> pathStates = new LinkedHashMap<>();
+		pathStates.put("/c/firstName", "Jane");
+		pathStates.put("/c/address/city", null);
+		pathStates.put("/c/id", 1L);
+		
+		rep._update("patient", 1L, pathStates);
+		
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		Mockito.verify(mongoOps, Mockito.times(1)).upsert(any(Query.class), update.capture(), eq("patient"));
+		Mockito.verify(mongoOps, Mockito.never()).save(any(), anyString());
+		
+		assertTrue(update.getValue().modifies("firstName"));
+		assertTrue(update.getValue().modifies("address.city"));
+		assertFalse(update.getValue().modifies("id"));
+	}
+	
+	@Test
+	public void t03_mongoDetach_convertsStatesToDocuments() {
+		MongoOperations mongoOps = Mockito.mock(MongoOperations.class);
+		MongoConverter converter = Mockito.mock(MongoConverter.class);
+		Mockito.when(mongoOps.getConverter()).thenReturn(converter);
+		
+		Object address = new Object();
+		BasicDBObject addressDoc = new BasicDBObject("city", "Chicago");
+		Mockito.when(converter.convertToMongoType(Mockito.same(address), any())).thenReturn(addressDoc);
+		
+		DefaultMongoModelRepository rep = new DefaultMongoModelRepository(mongoOps, Mockito.mock(IdSequenceRepository.class), Mockito.mock(BeanResolverStrategy.class));
+		DefaultMongoModelPersistenceHandler handler = new DefaultMongoModelPersistenceHandler(rep, Mockito.mock(BeanResolverStrategy.class));
+		
+		Map<String, Object> pathStates = new LinkedHashMap<>();
+		pathStates.put("/c/address", address);
+		pathStates.put("/c/firstName", null);
+		
+		Map<String, Object> detached = handler.detach(null, pathStates);
+		
+		assertEquals(Arrays.asList("/c/address", "/c/firstName"), Arrays.asList(detached.keySet().toArray()));
+		assertSame(addressDoc, detached.get("/c/address"));
+		assertNull(detached.get("/c/firstName"));
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void t04_flushRoot_withoutIdParam_persistsRootViaEvents() {
+		ModelPersistenceHandler handler = Mockito.mock(ModelPersistenceHandler.class);
+		Model<?> rootModel = mockRootModel(handler, null);
+		Mockito.when(handler.handle(Mockito.anyList())).thenReturn(true);
+		
+		ParamStateCoalescedPersistenceEventListener listener = listener();
+		listener.flushRoot(rootModel, dirty("/c/firstName"));
+		
+		Mockito.verify(handler).handle(Mockito.anyList());
+		Mockito.verify(handler, Mockito.never()).handle(any(Model.class), any(Map.class));
+		assertEquals(1, listener.getFlushCount());
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void t05_flushRoot_synchronousFailure_isNotRetried() {
+		ModelPersistenceHandler handler = Mockito.mock(ModelPersistenceHandler.class);
+		Model<?> rootModel = mockRootModel(handler, mockParam(1L));
+		RuntimeException failure = new RuntimeException("db down");
+		Mockito.when(handler.handle(any(Model.class), any(Map.class))).thenThrow(failure);
+		
+		ParamStateCoalescedPersistenceEventListener listener = listener();
+		listener.setRetryBackoffMillis(60000);
+		try {
+			listener.flushRoot(rootModel, dirty("/c/firstName"));
+			fail("Expected failure to be propagated");
+		} catch (RuntimeException ex) {
+			assertSame(failure, ex);
+		}
+		
+		Mockito.verify(handler, Mockito.times(1)).handle(any(Model.class), any(Map.class));
+		assertEquals(1, listener.getFailedFlushCount());
+	}
+	
+	@Test(expected=FrameworkRuntimeException.class)
+	@SuppressWarnings("unchecked")
+	public void t06_flushRoot_notPersistedByHandler_fails() {
+		ModelPersistenceHandler handler = Mockito.mock(ModelPersistenceHandler.class);
+		Model<?> rootModel = mockRootModel(handler, mockParam(1L));
+		Mockito.when(handler.handle(any(Model.class), any(Map.class))).thenReturn(false);
+		
+		listener().flushRoot(rootModel, dirty("/c/firstName"));
+	}
+	
+	private Model<?> mockRootModel(ModelPersistenceHandler handler, Param<?> idParam) {
+		Repo repo = Mockito.mock(Repo.class);
+		ModelConfig<?> config = Mockito.mock(ModelConfig.class);
+		Mockito.when(config.getRepo()).thenReturn(repo);
+		
+		repoFactory = Mockito.mock(ModelRepositoryFactory.class);
+		Mockito.when(repoFactory.getHandler(repo)).thenReturn(handler);
+		
+		Param<?> rootParam = mockParam(new Object());
+		Mockito.when(rootParam.getBeanPath()).thenReturn("/c");
+		Mockito.when(rootParam.getPath()).thenReturn("/c");
+		
+		Model<?> rootModel = Mockito.mock(Model.class);
+		Mockito.doReturn(config).when(rootModel).getConfig();
+		Mockito.doReturn(rootParam).when(rootModel).getAssociatedParam();
+		Mockito.doReturn(idParam).when(rootModel).findParamByPath("/id");
+		Mockito.when(rootModel.getPath()).thenReturn("/c");
+		return rootModel;
+	}
+	
+	private ParamStateCoalescedPersistenceEventListener listener() {
+		ParamStateCoalescedPersistenceEventListener listener = new ParamStateCoalescedPersistenceEventListener(repoFactory);
+		listener.setMode(PersistenceMode.COALESCED);
+		return listener;
+	}
+	
+	private static Map<String, Param<?>> dirty(String path) {
+		Map<String, Param<?>> dirty = new LinkedHashMap<>();
+		dirty.put(path, mockParam("state"));
+		return dirty;
+	}
+	
+	private static Param<?> mockParam(Object state) {
+		Param<?> p = Mockito.mock(Param.class);
+		Mockito.doReturn(state).when(p).getState();
+		return p;
+	}
+}
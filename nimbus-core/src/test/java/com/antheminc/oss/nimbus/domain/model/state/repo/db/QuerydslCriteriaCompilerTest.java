@@ -0,0 +1,85 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.repo.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.antheminc.oss.nimbus.domain.model.state.repo.db.QuerydslCriteriaCompiler.CompiledCriteria;
+import com.antheminc.oss.nimbus.domain.model.state.repo.db.QuerydslCriteriaCompiler.Tokens;
+import com.querydsl.core.types.dsl.PathBuilder;
+
+public class QuerydslCriteriaCompilerTest {
+
+	private final PathBuilder<Object> pet = new PathBuilder<>(Object.class, "pet");
+	
+	private Object compileAndBind(String criteria) {
+		Tokens tokens = Tokens.tokenize(criteria);
+		CompiledCriteria compiled = CompiledCriteria.compile("pet", tokens);
+		assertNotSame(CompiledCriteria.UNSUPPORTED, compiled);
+		
+		return compiled.bind(pet, tokens.literals);
+	}
+	
+	@Test
+	public void t01_literals_lifted_into_parameters() {
+		Tokens t1 = Tokens.tokenize("pet.getString('name').eq('Ollie')");
+		Tokens t2 = Tokens.tokenize("pet.getString( 'name' ).eq(\"Tom\")");
+		
+		assertEquals(t1.template, t2.template);
+		assertEquals(Arrays.asList("name", "Ollie"), t1.literals);
+		assertEquals(Arrays.asList("name", "Tom"), t2.literals);
+		
+		Tokens t3 = Tokens.tokenize("pet.getNumber('age', null).eq(-10)");
+		assertEquals(Arrays.asList("age", null, -10), t3.literals);
+		assertNotEquals(t1.template, t3.template);
+	}
+	
+	@Test
+	public void t02_predicate_matches_direct_construction() {
+		Object predicate = compileAndBind("pet.getString('name').eq('Ollie').and(pet.getString('type').ne('cat'))");
+		
+		assertEquals(pet.getString("name").eq("Ollie").and(pet.getString("type").ne("cat")), predicate);
+	}
+	
+	@Test
+	public void t03_varargs_and_orderby() {
+		Object predicate = compileAndBind("pet.getString('type').in('cat', 'dog')");
+		assertEquals(pet.getString("type").in("cat", "dog"), predicate);
+		
+		Object orderBy = compileAndBind("pet.getString('name').desc()");
+		assertEquals(pet.getString("name").desc(), orderBy);
+	}
+	
+	@Test
+	public void t04_unsupported_criteria() {
+		assertNull(Tokens.tokenize("pet.getString('name') == 'Ollie'"));
+		assertNull(Tokens.tokenize("pet.getString(\"${name}\")"));
+		
+		Tokens classRef = Tokens.tokenize("pet.getDate('dob', java.time.LocalDate).goe(java.time.LocalDate.of(2017, 1, 1))");
+		assertSame(CompiledCriteria.UNSUPPORTED, CompiledCriteria.compile("pet", classRef));
+		
+		Tokens otherAlias = Tokens.tokenize("owner.getString('name').eq('Ollie')");
+		assertSame(CompiledCriteria.UNSUPPORTED, CompiledCriteria.compile("pet", otherAlias));
+	}
+}
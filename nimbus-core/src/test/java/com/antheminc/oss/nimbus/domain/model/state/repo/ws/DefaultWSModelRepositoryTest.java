@@ -0,0 +1,259 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.repo.ws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.antheminc.oss.nimbus.FrameworkRuntimeException;
+import com.antheminc.oss.nimbus.context.BeanResolverStrategy;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.Getter;
+import lombok.Setter;
+
+public class DefaultWSModelRepositoryTest {
+
+	@Getter @Setter
+	public static class Pet {
+		private String name;
+	}
+	
+	HttpServer server;
+	
+	Map<String, AtomicInteger> hits;
+	
+	CountDownLatch slowEntered;
+	
+	CountDownLatch slowRelease;
+	
+	DefaultWSModelRepository rep;
+	
+	RemoteTargetConfig config;
+	
+	List<String> interceptedUsers;
+	
+	@Before
+	public void before() throws IOException {
+		hits = new ConcurrentHashMap<>();
+		slowEntered = new CountDownLatch(1);
+		slowRelease = new CountDownLatch(1);
+		
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/pets/1", ex->respond(ex, 200, "{\"name\":\"rex\"}"));
+		server.createContext("/fail", ex->respond(ex, 500, "{}"));
+		server.createContext("/slow", ex->{
+			slowEntered.countDown();
+			try {
+				slowRelease.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(ex, 200, "{\"name\":\"slow\"}");
+		});
+		server.start();
+		
+		// authenticates per user from the request of the calling thread, as applications' interceptors do
+		interceptedUsers = new CopyOnWriteArrayList<>();
+		RestTemplate restTemplate = new RestTemplate();
+		restTemplate.getInterceptors().add((request, body, execution)->{
+			ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+			String user = attributes == null ? null : attributes.getRequest().getRemoteUser();
+			interceptedUsers.add(String.valueOf(user));
+			return execution.execute(request, body);
+		});
+		
+		BeanResolverStrategy beanResolver = Mockito.mock(BeanResolverStrategy.class);
+		Mockito.when(beanResolver.get(RestTemplate.class)).thenReturn(restTemplate);
+		
+		config = new RemoteTargetConfig();
+		
+		rep = new DefaultWSModelRepository(beanResolver);
+		rep.setTargetUrl(Collections.singletonMap("petstore", "http://localhost:"+server.getAddress().getPort()));
+		rep.setDefaultTargetConfig(config);
+	}
+	
+	@After
+	public void after() {
+		slowRelease.countDown();
+		rep.shutdown();
+		server.stop(0);
+		RequestContextHolder.resetRequestAttributes();
+	}
+	
+	private void respond(HttpExchange ex, int status, String body) throws IOException {
+		hits.computeIfAbsent(ex.getRequestURI().getPath(), k->new AtomicInteger()).incrementAndGet();
+		
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		ex.getResponseHeaders().add("Content-Type", "application/json");
+		ex.sendResponseHeaders(status, bytes.length);
+		try(OutputStream os = ex.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+	
+	private int hits(String path) {
+		return hits.getOrDefault(path, new AtomicInteger()).get();
+	}
+	
+	private Pet get(String url) {
+		return rep._get(1L, Pet.class, "petstore", url);
+	}
+	
+	@Test
+	public void t01_getCachedWithinTtl() {
+		config.setCacheTtlMillis(60000);
+		
+		Pet p1 = get("/pets/1");
+		Pet p2 = get("pets/1");
+		
+		assertEquals("rex", p1.getName());
+		assertEquals("rex", p2.getName());
+		assertNotSame(p1, p2);
+		assertEquals(1, hits("/pets/1"));
+		assertEquals(1, rep.getCacheHitCount());
+	}
+	
+	@Test
+	public void t02_unknownAliasNotCalled() {
+		assertNull(rep._get(1L, Pet.class, "unknown", "/pets/1"));
+		assertEquals(0, hits("/pets/1"));
+	}
+	
+	@Test
+	public void t03_circuitOpensOnConsecutiveFailures() {
+		config.setFailureThreshold(2);
+		
+		for(int i=0; i<3; i++) {
+			try {
+				get("/fail");
+				fail("expected remote failure");
+			} catch (FrameworkRuntimeException ex) {
+				// expected
+			}
+		}
+		
+		assertEquals(2, hits("/fail"));
+		assertEquals(1, rep.getShortCircuitedCount());
+		assertEquals("petstore", rep.getOpenCircuits());
+	}
+	
+	@Test
+	public void t04_saturatedTargetRejectsCalls() throws Exception {
+		config.setMaxConcurrent(1);
+		config.setQueueCapacity(0);
+		
+		Thread slow = new Thread(()->get("/slow"));
+		slow.start();
+		assertTrue(slowEntered.await(5, TimeUnit.SECONDS));
+		
+		try {
+			get("/pets/1");
+			fail("expected call to be rejected");
+		} catch (FrameworkRuntimeException ex) {
+			assertEquals(1, rep.getRejectedCount());
+		}
+		
+		slowRelease.countDown();
+		slow.join(5000);
+		assertEquals(0, hits("/pets/1"));
+	}
+	
+	@Test
+	public void t05_concurrentGetsShareInFlightCall() throws Exception {
+		config.setCoalesceGets(true);
+		
+		AtomicReference<Pet> first = new AtomicReference<>();
+		AtomicReference<Pet> second = new AtomicReference<>();
+		
+		Thread t1 = new Thread(()->first.set(get("/slow")));
+		t1.start();
+		assertTrue(slowEntered.await(5, TimeUnit.SECONDS));
+		
+		Thread t2 = new Thread(()->second.set(get("/slow")));
+		t2.start();
+		
+		long deadline = System.currentTimeMillis() + 5000;
+		while(rep.getCoalescedCount() == 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		
+		slowRelease.countDown();
+		t1.join(5000);
+		t2.join(5000);
+		
+		assertEquals("slow", first.get().getName());
+		assertEquals("slow", second.get().getName());
+		assertNotSame(first.get(), second.get());
+		assertEquals(1, hits("/slow"));
+	}
+	
+	@Test
+	public void t06_cachedPerCallerWithCallerRequestAttributes() {
+		config.setCacheTtlMillis(60000);
+		
+		callAs("alice", new MockHttpSession());
+		Pet p1 = get("/pets/1");
+		Pet p2 = get("/pets/1");
+		
+		callAs("bob", new MockHttpSession());
+		Pet p3 = get("/pets/1");
+		
+		assertEquals("rex", p1.getName());
+		assertEquals("rex", p2.getName());
+		assertEquals("rex", p3.getName());
+		
+		// bob must not be served alice's response
+		assertEquals(2, hits("/pets/1"));
+		assertEquals(1, rep.getCacheHitCount());
+		assertEquals(Arrays.asList("alice", "bob"), interceptedUsers);
+	}
+	
+	private void callAs(String user, MockHttpSession session) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRemoteUser(user);
+		request.setSession(session);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+}
@@ -0,0 +1,216 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.antheminc.oss.nimbus.domain.defn.ViewConfig.Grid;
+import com.antheminc.oss.nimbus.domain.model.config.AnnotationConfig;
+import com.antheminc.oss.nimbus.domain.model.config.ParamConfig;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.ListElemParam;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.ListModel;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Model;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.StateType;
+import com.antheminc.oss.nimbus.domain.model.state.support.JsonParamSerializationConfig.ConfigMode;
+import com.antheminc.oss.nimbus.support.pojo.CollectionsTemplate;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import lombok.Getter;
+import lombok.Setter;
+
+public class DefaultJsonParamSerializerTest {
+
+	@Getter @Setter
+	public static class Patient {
+		@JsonProperty("first_name")
+		private String firstName;
+		
+		private Address address;
+		
+		@JsonIgnore
+		private String internalNote;
+	}
+	
+	@Getter @Setter
+	public static class Address {
+		@JsonProperty("zip_code")
+		private String zip;
+		
+		private String city;
+	}
+	
+	ObjectMapper mapper;
+	
+	@Before
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void before() {
+		mapper = new ObjectMapper();
+		mapper.setSerializationInclusion(Include.NON_NULL);
+		mapper.registerModule(new SimpleModule().addSerializer((Class)Param.class, new DefaultJsonParamSerializer()));
+	}
+	
+	@After
+	public void after() {
+		JsonParamSerializationConfig.DEFAULT.register();
+	}
+	
+	@Test
+	public void t01_streamedLeafStateUsesJacksonPropertyNames() throws Exception {
+		Address address = new Address();
+		address.setZip("12345");
+		
+		Patient patient = new Patient();
+		patient.setFirstName("Jane");
+		patient.setAddress(address);
+		patient.setInternalNote("internal");
+		
+		Param<?> addressParam = nested("address", Address.class, 
+				leaf("zip", "12345"), 
+				leaf("city", null));
+		
+		ListElemParam<?> elem = gridElem(Patient.class, patient, 
+				leaf("firstName", "Jane"), 
+				addressParam, 
+				leaf("internalNote", "internal"));
+		
+		JsonNode legacy = leafStateOf(elem, false);
+		JsonNode streamed = leafStateOf(elem, true);
+		
+		assertNotNull(legacy);
+		assertEquals("Jane", legacy.get("first_name").asText());
+		assertEquals("12345", legacy.get("address").get("zip_code").asText());
+		assertEquals(legacy, streamed);
+	}
+	
+	@Test
+	public void t02_configOnceKeyedByClientMarker() {
+		JsonParamSerializationConfig config = new JsonParamSerializationConfig();
+		config.setConfigMode(ConfigMode.once);
+		config.register();
+		
+		try {
+			MockHttpServletRequest req = new MockHttpServletRequest();
+			RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(req));
+			
+			// without a marker config is always written
+			assertTrue(config.shouldWriteConfig("c1"));
+			assertTrue(config.shouldWriteConfig("c1"));
+			
+			req.addHeader(config.getConfigMarkerHeader(), "cache-1");
+			assertTrue(config.shouldWriteConfig("c1"));
+			assertFalse(config.shouldWriteConfig("c1"));
+			assertTrue(config.shouldWriteConfig("c2"));
+			
+			// a client starting with an empty cache sends a new marker, e.g. after a page reload within the same session
+			MockHttpServletRequest reloaded = new MockHttpServletRequest();
+			reloaded.setParameter(config.getConfigMarkerParam(), "cache-2");
+			RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(reloaded));
+			assertTrue(config.shouldWriteConfig("c1"));
+			assertFalse(config.shouldWriteConfig("c1"));
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+	}
+	
+	private JsonNode leafStateOf(Param<?> p, boolean streamLeafState) throws Exception {
+		JsonParamSerializationConfig config = new JsonParamSerializationConfig();
+		config.setStreamLeafState(streamLeafState);
+		config.register();
+		
+		return mapper.readTree(mapper.writeValueAsString(p)).get("leafState");
+	}
+	
+	private static Param<?> leaf(String beanName, Object state) {
+		Param<?> p = Mockito.mock(Param.class);
+		ParamConfig<?> config = Mockito.mock(ParamConfig.class);
+		Mockito.when(config.getBeanName()).thenReturn(beanName);
+		
+		Mockito.doReturn(config).when(p).getConfig();
+		Mockito.doReturn(state).when(p).getState();
+		return p;
+	}
+	
+	private static Param<?> nested(String beanName, Class<?> referredClass, Param<?>... params) {
+		Param<?> p = leaf(beanName, null);
+		mapped(p, referredClass, params);
+		return p;
+	}
+	
+	private static void mapped(Param<?> p, Class<?> referredClass, Param<?>... params) {
+		ParamConfig<?> config = p.getConfig();
+		Mockito.doReturn(referredClass).when(config).getReferredClass();
+		Mockito.when(p.isMapped()).thenReturn(true);
+		Mockito.when(p.isNested()).thenReturn(true);
+		
+		List<Param<?>> nestedParams = new ArrayList<>(Arrays.asList(params));
+		Model<?> m = Mockito.mock(Model.class);
+		Mockito.doReturn(new CollectionsTemplate<List<Param<?>>, Param<?>>(()->nestedParams, ps->{}, ArrayList::new)).when(m).templateParams();
+		Mockito.doReturn(nestedParams).when(m).getParams();
+		Mockito.doReturn(m).when(p).findIfNested();
+	}
+	
+	private static ListElemParam<?> gridElem(Class<?> referredClass, Object leafState, Param<?>... params) {
+		ListElemParam<?> elem = Mockito.mock(ListElemParam.class);
+		ParamConfig<?> config = Mockito.mock(ParamConfig.class);
+		Mockito.doReturn(config).when(elem).getConfig();
+		mapped(elem, referredClass, params);
+		
+		Mockito.doReturn(leafState).when(elem).getLeafState();
+		Mockito.when(elem.isCollectionElem()).thenReturn(true);
+		Mockito.doReturn(elem).when(elem).findIfCollectionElem();
+		Mockito.when(elem.getElemId()).thenReturn("0");
+		
+		StateType type = Mockito.mock(StateType.class);
+		Mockito.when(type.getName()).thenReturn("string");
+		Mockito.doReturn(type).when(elem).getType();
+		
+		Grid grid = Mockito.mock(Grid.class);
+		Mockito.doReturn(Grid.class).when(grid).annotationType();
+		AnnotationConfig uiStyles = Mockito.mock(AnnotationConfig.class);
+		Mockito.when(uiStyles.getAnnotation()).thenReturn(grid);
+		
+		ParamConfig<?> colConfig = Mockito.mock(ParamConfig.class);
+		Mockito.when(colConfig.getUiStyles()).thenReturn(uiStyles);
+		Param<?> colParam = Mockito.mock(Param.class);
+		Mockito.doReturn(colConfig).when(colParam).getConfig();
+		
+		ListModel<?> colModel = Mockito.mock(ListModel.class);
+		Mockito.doReturn(colParam).when(colModel).getAssociatedParam();
+		Mockito.doReturn(colModel).when(elem).getParentModel();
+		return elem;
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.rules.drools;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.antheminc.oss.nimbus.domain.model.state.RulesRuntime;
+
+/**
+ * JMH comparison of {@link DroolsRulesRuntime} (stateless session per fire) and {@link DroolsStatefulRulesRuntime} on a 
+ * rule-heavy domain, firing after a state change and without one. <br>
+ * Not part of the unit test run; execute {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class DroolsRulesRuntimeBenchmark {
+
+	@Param({"stateless", "stateful"})
+	private String session;
+	
+	@Param({"50", "500"})
+	private int ruleCount;
+	
+	private RulesRuntime runtime;
+	
+	private com.antheminc.oss.nimbus.domain.model.state.EntityState.Param<Object> param;
+	
+	private AtomicLong version;
+	
+	private BenchState state;
+	
+	public static class BenchState {
+		private int value;
+		private int bucket;
+		private long hits;
+		
+		public int getValue() {
+			return value;
+		}
+		
+		public int getBucket() {
+			return bucket;
+		}
+		
+		public long getHits() {
+			return hits;
+		}
+		
+		public void hit() {
+			hits++;
+		}
+	}
+	
+	static String buildDrl(int ruleCount) {
+		StringBuilder drl = new StringBuilder()
+				.append("package benchmark.rules\n")
+				.append("import ").append(BenchState.class.getCanonicalName()).append(";\n");
+		
+		for(int i=0; i < ruleCount; i++) {
+			drl.append("rule \"r").append(i).append("\"\n")
+				.append("when\n")
+				.append("  $s : BenchState(value > ").append(i % 100).append(", bucket == ").append(i % 10).append(")\n")
+				.append("then\n")
+				.append("  $s.hit();\n")
+				.append("end\n");
+		}
+		return drl.toString();
+	}
+	
+	@Setup
+	public void setup() {
+		DroolsRulesConfig rulesConfig = new DroolsRulesConfig("benchmark.drl", DroolsStatefulRulesRuntimeTest.buildKnowledgeBase(buildDrl(ruleCount)));
+		
+		runtime = new DroolsRulesEngineFactory("stateful".equals(session)).createRuntime(rulesConfig);
+		runtime.start();
+		
+		version = new AtomicLong();
+		state = new BenchState();
+		
+		param = DroolsStatefulRulesRuntimeTest.mockParam(version);
+		Mockito.when(param.getState()).thenReturn(state);
+		
+		runtime.fireRules(param);
+	}
+	
+	@Benchmark
+	public long fire_afterChange() {
+		state.value = (state.value + 1) % 200;
+		state.bucket = (state.bucket + 1) % 10;
+		version.incrementAndGet();
+		
+		runtime.fireRules(param);
+		return state.hits;
+	}
+	
+	@Benchmark
+	public long fire_unchanged() {
+		runtime.fireRules(param);
+		return state.hits;
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(DroolsRulesRuntimeBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,194 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.rules.drools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.drools.KnowledgeBase;
+import org.drools.builder.KnowledgeBuilder;
+import org.drools.builder.KnowledgeBuilderFactory;
+import org.drools.builder.ResourceType;
+import org.drools.io.ResourceFactory;
+import org.drools.runtime.StatefulKnowledgeSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.domain.cmd.Command;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.ExecutionModel;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.ExecutionRuntime;
+import com.antheminc.oss.nimbus.domain.model.state.RulesRuntime;
+import com.antheminc.oss.nimbus.domain.model.state.StateEventDelegator;
+import com.antheminc.oss.nimbus.domain.model.state.internal.DefaultExecutionRuntime;
+
+public class DroolsStatefulRulesRuntimeTest {
+
+	private static final String DRL = 
+			"package test.stateful\n"
+			+ "rule \"append\"\n"
+			+ "when\n"
+			+ "  $sb : StringBuilder()\n"
+			+ "then\n"
+			+ "  $sb.append(\"x\");\n"
+			+ "end\n";
+	
+	DroolsRulesConfig rulesConfig;
+	
+	AtomicLong version;
+	
+	Param<Object> param;
+	
+	StringBuilder state;
+	
+	static KnowledgeBase buildKnowledgeBase(String drl) {
+		KnowledgeBuilder kbBuilder = KnowledgeBuilderFactory.newKnowledgeBuilder();
+		kbBuilder.add(ResourceFactory.newByteArrayResource(drl.getBytes()), ResourceType.DRL);
+		
+		KnowledgeBase kb = kbBuilder.newKnowledgeBase();
+		kb.addKnowledgePackages(kbBuilder.getKnowledgePackages());
+		return kb;
+	}
+	
+	@SuppressWarnings("unchecked")
+	static Param<Object> mockParam(AtomicLong version) {
+		ExecutionRuntime execRt = Mockito.mock(ExecutionRuntime.class);
+		Mockito.when(execRt.getStateVersion()).thenAnswer(inv->version.get());
+		
+		ExecutionModel<Object> rootExecution = Mockito.mock(ExecutionModel.class);
+		Mockito.when(rootExecution.getExecutionRuntime()).thenReturn(execRt);
+		
+		Param<Object> param = Mockito.mock(Param.class);
+		Mockito.doReturn(rootExecution).when(param).getRootExecution();
+		return param;
+	}
+	
+	@Before
+	public void before() {
+		rulesConfig = new DroolsRulesConfig("test.drl", buildKnowledgeBase(DRL));
+		version = new AtomicLong();
+		param = mockParam(version);
+		
+		state = new StringBuilder();
+		Mockito.when(param.getState()).thenAnswer(inv->state);
+	}
+	
+	private RulesRuntime createRuntime(boolean stateful) {
+		RulesRuntime rt = new DroolsRulesEngineFactory(stateful).createRuntime(rulesConfig);
+		rt.start();
+		return rt;
+	}
+	
+	@Test
+	public void t01_statelessFiresEveryTime() {
+		RulesRuntime rt = createRuntime(false);
+		
+		rt.fireRules(param);
+		rt.fireRules(param);
+		
+		assertEquals("xx", state.toString());
+	}
+	
+	@Test
+	public void t02_statefulSkipsWhenUnchanged() {
+		DroolsStatefulRulesRuntime rt = (DroolsStatefulRulesRuntime)createRuntime(true);
+		
+		rt.fireRules(param);
+		rt.fireRules(param);
+		assertEquals("x", state.toString());
+		assertEquals(1, rt.getSkipCount());
+		
+		version.incrementAndGet();
+		rt.fireRules(param);
+		assertEquals("xx", state.toString());
+		assertEquals(2, rt.getFireCount());
+		
+		// same session throughout, holding param & its state
+		StatefulKnowledgeSession session = rt.unwrap(StatefulKnowledgeSession.class);
+		assertNotNull(session);
+		assertEquals(2, session.getFactCount());
+	}
+	
+	@Test
+	public void t03_replacedStateRetracted() {
+		DroolsStatefulRulesRuntime rt = (DroolsStatefulRulesRuntime)createRuntime(true);
+		rt.fireRules(param);
+		
+		StringBuilder previous = state;
+		state = new StringBuilder();
+		version.incrementAndGet();
+		rt.fireRules(param);
+		
+		assertEquals("x", previous.toString());
+		assertEquals("x", state.toString());
+		assertEquals(2, rt.unwrap(StatefulKnowledgeSession.class).getFactCount());
+	}
+	
+	@Test
+	public void t04_shutdownDisposesSession() {
+		DroolsStatefulRulesRuntime rt = (DroolsStatefulRulesRuntime)createRuntime(true);
+		rt.fireRules(param);
+		
+		rt.shutdown();
+		assertNull(rt.unwrap(StatefulKnowledgeSession.class));
+		
+		// fires afresh on next use, even if unchanged
+		rt.fireRules(param);
+		assertEquals("xx", state.toString());
+	}
+	
+	@Test
+	public void t05_sessionRegisteredWithExecutionRuntime() {
+		DroolsStatefulRulesRuntime rt = (DroolsStatefulRulesRuntime)createRuntime(true);
+		rt.fireRules(param);
+		version.incrementAndGet();
+		rt.fireRules(param);
+		
+		ExecutionRuntime execRt = param.getRootExecution().getExecutionRuntime();
+		Mockito.verify(execRt, Mockito.times(1)).registerRulesRuntime(rt);
+	}
+	
+	@Test
+	public void t06_executionRuntimeStopDisposesRegisteredSessions() {
+		DroolsStatefulRulesRuntime rt = (DroolsStatefulRulesRuntime)createRuntime(true);
+		rt.fireRules(param);
+		
+		DefaultExecutionRuntime execRt = new DefaultExecutionRuntime(Mockito.mock(Command.class), Mockito.mock(StateEventDelegator.class));
+		execRt.registerRulesRuntime(rt);
+		execRt.stop();
+		
+		assertNull(rt.unwrap(StatefulKnowledgeSession.class));
+	}
+	
+	@Test
+	public void t07_oneShotRuntimeStatelessInStatefulMode() {
+		RulesRuntime rt = new DroolsRulesEngineFactory(true).createStatelessRuntime(rulesConfig);
+		rt.start();
+		
+		assertFalse(rt instanceof DroolsStatefulRulesRuntime);
+		rt.fireRules(param);
+		rt.shutdown();
+		
+		assertEquals("x", state.toString());
+		ExecutionRuntime execRt = param.getRootExecution().getExecutionRuntime();
+		Mockito.verify(execRt, Mockito.never()).registerRulesRuntime(Mockito.any(RulesRuntime.class));
+	}
+}
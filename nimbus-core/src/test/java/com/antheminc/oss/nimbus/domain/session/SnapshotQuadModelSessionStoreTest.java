@@ -0,0 +1,318 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.antheminc.oss.nimbus.domain.cmd.Command;
+import com.antheminc.oss.nimbus.domain.cmd.CommandMessage;
+import com.antheminc.oss.nimbus.domain.cmd.exec.ExecutionContext;
+import com.antheminc.oss.nimbus.domain.model.state.ExecutionRuntime;
+import com.antheminc.oss.nimbus.domain.model.state.QuadModel;
+import com.antheminc.oss.nimbus.domain.model.state.StateEventDelegator;
+import com.antheminc.oss.nimbus.domain.model.state.StateEventListener;
+import com.antheminc.oss.nimbus.domain.model.state.builder.QuadModelBuilder;
+import com.antheminc.oss.nimbus.domain.model.state.internal.ExecutionEntity;
+import com.antheminc.oss.nimbus.support.metrics.MetricsRegistry;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class SnapshotQuadModelSessionStoreTest {
+
+	@Getter @Setter
+	public static class SampleCore {
+		private String name;
+		private List<Integer> values;
+	}
+	
+	SessionProvider sessionProvider;
+	
+	QuadModelBuilder quadModelBuilder;
+	
+	SnapshotQuadModelSessionStore store;
+	
+	List<StateEventListener> txnListeners;
+	
+	@Before
+	public void before() {
+		sessionProvider = Mockito.mock(SessionProvider.class);
+		Mockito.when(sessionProvider.getSessionId()).thenReturn("s1");
+		
+		quadModelBuilder = Mockito.mock(QuadModelBuilder.class);
+		
+		txnListeners = new ArrayList<>();
+		
+		store = new SnapshotQuadModelSessionStore(sessionProvider, quadModelBuilder, new MetricsRegistry());
+		store.setMaxLiveEntries(1);
+	}
+	
+	private static ExecutionEntity<?, ?> entity(String name) {
+		SampleCore core = new SampleCore();
+		core.setName(name);
+		core.setValues(new ArrayList<>(Arrays.asList(1, 2, 3)));
+		return ExecutionEntity.resolveAndInstantiate(null, core);
+	}
+	
+	private static QuadModel<?, ?> quadModel(ExecutionEntity<?, ?> eState, ExecutionRuntime execRt) {
+		ExecutionEntity.ExModel root = Mockito.mock(ExecutionEntity.ExModel.class);
+		Mockito.when(root.getState()).thenReturn(eState);
+		Mockito.when(root.getExecutionRuntime()).thenReturn(execRt);
+		
+		QuadModel q = Mockito.mock(QuadModel.class);
+		Mockito.when(q.getRoot()).thenReturn(root);
+		return q;
+	}
+	
+	private ExecutionRuntime executionRuntime() {
+		StateEventDelegator delegator = Mockito.mock(StateEventDelegator.class);
+		Mockito.doAnswer(i->txnListeners.add((StateEventListener)i.getArguments()[0]))
+			.when(delegator).addTxnScopedListener(Matchers.any(StateEventListener.class));
+		
+		ExecutionRuntime execRt = Mockito.mock(ExecutionRuntime.class);
+		Mockito.when(execRt.getExecutionLock()).thenReturn(new ReentrantLock());
+		Mockito.when(execRt.getEventDelegator()).thenReturn(delegator);
+		return execRt;
+	}
+	
+	/**
+	 * as done by the delegator on completion of the root command in the thread
+	 */
+	private void stopRootCommand() {
+		txnListeners.forEach(l->l.onStopRootCommandExecution(null, null));
+		txnListeners.clear();
+	}
+	
+	private static ExecutionContext context(String id, QuadModel<?, ?> q) {
+		ExecutionContext eCtx = Mockito.mock(ExecutionContext.class);
+		Mockito.when(eCtx.getId()).thenReturn(id);
+		Mockito.when(eCtx.getCommandMessage()).thenReturn(Mockito.mock(CommandMessage.class));
+		Mockito.when(eCtx.getQuadModel()).thenReturn(q);
+		return eCtx;
+	}
+	
+	@Test
+	public void t01_liveHit() {
+		QuadModel<?, ?> q = quadModel(entity("a"), executionRuntime());
+		ExecutionContext eCtx = context("/a", q);
+		
+		assertNull(store.get(eCtx));
+		store.put(eCtx);
+		
+		assertSame(q, store.get(eCtx));
+		assertEquals(1, store.getLiveHitCount());
+		assertEquals(1, store.getMissCount());
+	}
+	
+	@Test
+	public void t02_leastRecentlyUsedReducedToSnapshotAndRebuilt() {
+		ExecutionRuntime execRt = executionRuntime();
+		ExecutionContext eCtxA = context("/a", quadModel(entity("a"), execRt));
+		ExecutionContext eCtxB = context("/b", quadModel(entity("b"), executionRuntime()));
+		
+		store.put(eCtxA);
+		stopRootCommand();
+		store.put(eCtxB);
+		stopRootCommand();
+		
+		assertEquals(1, store.getLiveCount());
+		assertEquals(1, store.getStoredSnapshotCount());
+		Mockito.verify(execRt).stop();
+		
+		QuadModel<?, ?> rebuilt = quadModel(entity("ignored"), executionRuntime());
+		Mockito.when(quadModelBuilder.build(Matchers.any(Command.class), Matchers.any(ExecutionEntity.class))).thenReturn(rebuilt);
+		
+		assertSame(rebuilt, store.get(eCtxA));
+		assertEquals(1, store.getSnapshotHitCount());
+		
+		ArgumentCaptor<ExecutionEntity> captor = ArgumentCaptor.forClass(ExecutionEntity.class);
+		Mockito.verify(quadModelBuilder).build(Matchers.any(Command.class), captor.capture());
+		SampleCore core = (SampleCore)captor.getValue().getCore();
+		assertEquals("a", core.getName());
+		assertEquals(Arrays.asList(1, 2, 3), core.getValues());
+		stopRootCommand();
+		
+		// rebuilt now live, b reduced in turn
+		assertSame(rebuilt, store.get(eCtxA));
+		assertEquals(1, store.getLiveHitCount());
+		assertEquals(1, store.getStoredSnapshotCount());
+	}
+	
+	@Test
+	public void t03_executingRootKeptLive() throws Exception {
+		ExecutionRuntime execRt = executionRuntime();
+		ReentrantLock lock = execRt.getExecutionLock();
+		ExecutionContext eCtxA = context("/a", quadModel(entity("a"), execRt));
+		
+		store.put(eCtxA);
+		stopRootCommand();
+		
+		Thread executing = new Thread(lock::lock);
+		executing.start();
+		executing.join();
+		
+		store.put(context("/b", quadModel(entity("b"), executionRuntime())));
+		
+		assertEquals(2, store.getLiveCount());
+		assertEquals(0, store.getStoredSnapshotCount());
+		Mockito.verify(execRt, Mockito.never()).stop();
+	}
+	
+	@Test
+	public void t04_snapshotsEvictedBeyondMaxBytes() {
+		store.setMaxSnapshotBytes(1);
+		
+		ExecutionContext eCtxA = context("/a", quadModel(entity("a"), executionRuntime()));
+		store.put(eCtxA);
+		stopRootCommand();
+		store.put(context("/b", quadModel(entity("b"), executionRuntime())));
+		
+		assertEquals(0, store.getStoredSnapshotCount());
+		assertEquals(1, store.getEvictedCount());
+		assertNull(store.get(eCtxA));
+		Mockito.verifyZeroInteractions(quadModelBuilder);
+	}
+	
+	@Test
+	public void t05_remove() {
+		ExecutionContext eCtxA = context("/a", quadModel(entity("a"), executionRuntime()));
+		ExecutionContext eCtxB = context("/b", quadModel(entity("b"), executionRuntime()));
+		store.put(eCtxA);
+		stopRootCommand();
+		store.put(eCtxB);
+		
+		assertEquals(true, store.remove(eCtxA));
+		assertEquals(true, store.remove(eCtxB));
+		assertEquals(false, store.remove(eCtxA));
+		assertEquals(0, store.getSnapshotBytes());
+	}
+	
+	@Test
+	public void t06_codecRoundTrip() {
+		ExecutionEntitySnapshotCodec codec = new ExecutionEntitySnapshotCodec();
+		ExecutionEntity<?, ?> decoded = codec.decode(codec.encode(entity("a")));
+		
+		assertNotNull(decoded.getCore());
+		assertNull(decoded.getView());
+		assertEquals("a", ((SampleCore)decoded.getCore()).getName());
+	}
+	
+	@Test
+	public void t07_obtainedRootKeptLiveTillRootCommandStops() {
+		ExecutionRuntime execRt = executionRuntime();
+		ExecutionContext eCtxA = context("/a", quadModel(entity("a"), execRt));
+		
+		store.put(eCtxA);
+		stopRootCommand();
+		
+		// obtained by a command which has yet to take the execution lock of the root
+		QuadModel<?, ?> q = store.get(eCtxA);
+		store.put(context("/b", quadModel(entity("b"), executionRuntime())));
+		
+		assertEquals(2, store.getLiveCount());
+		assertEquals(0, store.getStoredSnapshotCount());
+		Mockito.verify(execRt, Mockito.never()).stop();
+		
+		stopRootCommand();
+		store.put(context("/c", quadModel(entity("c"), executionRuntime())));
+		
+		assertSame(q, eCtxA.getQuadModel());
+		assertEquals(1, store.getLiveCount());
+		assertEquals(2, store.getStoredSnapshotCount());
+		Mockito.verify(execRt).stop();
+	}
+	
+	@Test
+	public void t08_rootExecutingInCallingThreadKeptLive() {
+		ExecutionRuntime execRt = executionRuntime();
+		store.put(context("/a", quadModel(entity("a"), execRt)));
+		stopRootCommand();
+		
+		// e.g. a command on a loads b: the reentrant lock of a must not be taken for its reduction
+		execRt.getExecutionLock().lock();
+		try {
+			store.put(context("/b", quadModel(entity("b"), executionRuntime())));
+		} finally {
+			execRt.getExecutionLock().unlock();
+		}
+		
+		assertEquals(2, store.getLiveCount());
+		assertEquals(0, store.getStoredSnapshotCount());
+		Mockito.verify(execRt, Mockito.never()).stop();
+	}
+	
+	@Test
+	public void t09_clearScopedToCurrentSession() {
+		store.setMaxLiveEntries(2);
+		
+		store.put(context("/a", quadModel(entity("a"), executionRuntime())));
+		stopRootCommand();
+		store.put(context("/b", quadModel(entity("b"), executionRuntime())));
+		stopRootCommand();
+		ExecutionRuntime execRtC = executionRuntime();
+		store.put(context("/c", quadModel(entity("c"), execRtC)));
+		stopRootCommand();
+		assertEquals(1, store.getStoredSnapshotCount());
+		
+		// another user's session
+		Mockito.when(sessionProvider.getSessionId()).thenReturn("s10");
+		ExecutionRuntime execRtOther = executionRuntime();
+		ExecutionContext eCtxOther = context("/a", quadModel(entity("other"), execRtOther));
+		store.put(eCtxOther);
+		stopRootCommand();
+		
+		Mockito.when(sessionProvider.getSessionId()).thenReturn("s1");
+		store.clear();
+		
+		assertEquals(1, store.getLiveCount());
+		assertEquals(0, store.getStoredSnapshotCount());
+		assertEquals(0, store.getSnapshotBytes());
+		Mockito.verify(execRtC).stop();
+		Mockito.verify(execRtOther, Mockito.never()).stop();
+		
+		Mockito.when(sessionProvider.getSessionId()).thenReturn("s10");
+		assertNotNull(store.get(eCtxOther));
+	}
+	
+	@Test
+	public void t10_destroyedSessionEvicted() {
+		ExecutionRuntime execRt = executionRuntime();
+		ExecutionContext eCtxA = context("/a", quadModel(entity("a"), execRt));
+		store.put(eCtxA);
+		stopRootCommand();
+		
+		store.evictSession("s1");
+		
+		assertEquals(0, store.getLiveCount());
+		Mockito.verify(execRt).stop();
+		assertNull(store.get(eCtxA));
+	}
+}
@@ -15,7 +15,11 @@
  */
 package com.antheminc.oss.nimbus.support.expr;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.FixMethodOrder;
@@ -23,6 +27,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.MethodSorters;
 import org.mockito.Mockito;
+import org.springframework.expression.spel.SpelCompilerMode;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
@@ -161,4 +166,39 @@ public class SpelExpressionEvaluatorTest {
 		Boolean result = expressionEvaluator.getValue(expr, new ParamStateHolder<>(onChangeParam), Boolean.class);
 		assertTrue(result);
 	}
+	
+	@Test
+	public void t14_parsed_expression_cached_by_text() {
+		SpelExpressionEvaluator evaluator = new SpelExpressionEvaluator();
+		String expr = "state != null && state.length > 2";
+		
+		assertTrue(evaluator.getValue(expr, new Holder<>(strArr), Boolean.class));
+		assertFalse(evaluator.getValue(expr, new Holder<>(new String[]{"Apple"}), Boolean.class));
+		
+		assertEquals(1, evaluator.getExpressionCache().size());
+		assertSame(evaluator.getExpression(expr), evaluator.getExpressionCache().get(expr));
+	}
+	
+	@Test
+	public void t15_cache_evicts_least_recently_used_when_full() {
+		SpelExpressionEvaluator evaluator = new SpelExpressionEvaluator(SpelCompilerMode.OFF, 1);
+		
+		assertTrue(evaluator.getValue("state != null", new Holder<>(strArr), Boolean.class));
+		assertTrue(evaluator.getValue("state.length > 2", new Holder<>(strArr), Boolean.class));
+		
+		assertEquals(1, evaluator.getExpressionCache().size());
+		assertNull(evaluator.getExpressionCache().get("state != null"));
+		assertNotNull(evaluator.getExpressionCache().get("state.length > 2"));
+	}
+	
+	@Test
+	public void t16_compiled_mode_evaluates_same_result() {
+		SpelExpressionEvaluator evaluator = new SpelExpressionEvaluator(SpelCompilerMode.MIXED, SpelExpressionEvaluator.DEFAULT_MAX_CACHE_SIZE);
+		String expr = "state != null && state.length > 2";
+		
+		for(int i=0; i<10; i++) {
+			assertTrue(evaluator.getValue(expr, new Holder<>(strArr), Boolean.class));
+			assertFalse(evaluator.getValue(expr, new Holder<>(new String[]{"Apple"}), Boolean.class));
+		}
+	}
 }
@@ -0,0 +1,68 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.support.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void t01_bucketBoundaries() {
+		for(long v : new long[] {0, 1, 63, 64, 65, 127, 128, 1000, 123456789L, Long.MAX_VALUE / 3}) {
+			int idx = LatencyHistogram.indexOf(v);
+			long high = LatencyHistogram.highestValueAt(idx);
+			
+			assertTrue("value: "+v, v <= high);
+			assertTrue("value: "+v, idx == 0 || v > LatencyHistogram.highestValueAt(idx - 1));
+			assertTrue("value: "+v, high - v <= Math.max(0, v / LatencyHistogram.SUB_BUCKETS));
+		}
+		assertEquals(LatencyHistogram.indexOf(Long.MAX_VALUE), LatencyHistogram.indexOf(Long.MAX_VALUE - 1));
+	}
+	
+	@Test
+	public void t02_percentiles() {
+		LatencyHistogram h = new LatencyHistogram();
+		for(long i = 1; i <= 1000; i++)
+			h.record(i * 1000);
+		
+		assertEquals(1000, h.getCount());
+		assertEquals(1000, h.getMin());
+		assertEquals(1_000_000, h.getMax());
+		assertEquals(500_500, h.getMean(), 0.1);
+		
+		assertWithinPrecision(500_000, h.getValueAtPercentile(50));
+		assertWithinPrecision(990_000, h.getValueAtPercentile(99));
+		assertEquals(1_000_000, h.getValueAtPercentile(100));
+	}
+	
+	@Test
+	public void t03_reset() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(42);
+		h.reset();
+		
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getMin());
+		assertEquals(0, h.getValueAtPercentile(99));
+	}
+	
+	private static void assertWithinPrecision(long expected, long actual) {
+		assertTrue("expected: "+expected+" actual: "+actual, actual >= expected && actual - expected <= expected / LatencyHistogram.SUB_BUCKETS);
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.support.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+	@Test
+	public void t01_taggedTimersAndCounters() {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.record("nimbus.api", 2_000_000, "action", "_get", "domain", "petview");
+		registry.record("nimbus.api", 4_000_000, "action", "_get", "domain", "petview");
+		registry.record("nimbus.api", 1_000_000, "action", "_new", "domain", "petview");
+		registry.increment("nimbus.api.errors", "action", "_get");
+		
+		assertEquals("nimbus.api{action=_get,domain=petview}", MetricsRegistry.key("nimbus.api", "action", "_get", "domain", "petview"));
+		assertEquals(2, registry.getTimer("nimbus.api", "action", "_get", "domain", "petview").getCount());
+		assertEquals(1, registry.getCount("nimbus.api.errors", "action", "_get"));
+		
+		@SuppressWarnings("unchecked")
+		Map<String, Map<String, Object>> timers = (Map<String, Map<String, Object>>)registry.snapshot().get("timers");
+		assertEquals(2, timers.size());
+		assertEquals(4.0, timers.get("nimbus.api{action=_get,domain=petview}").get("max"));
+	}
+	
+	@Test
+	public void t02_maxMetricsGuard() {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.setMaxMetrics(2);
+		
+		registry.increment("a");
+		registry.increment("b");
+		registry.increment("c");
+		registry.increment("a");
+		
+		assertEquals(2, registry.getMetricCount());
+		assertEquals(1, registry.getDroppedCount());
+		assertEquals(2, registry.getCount("a"));
+		assertEquals(0, registry.getCount("c"));
+	}
+	
+	@Test
+	public void t03_disabled() {
+		MetricsRegistry.NOOP.record("a", 1);
+		MetricsRegistry.NOOP.increment("b");
+		
+		assertEquals(0, MetricsRegistry.NOOP.getMetricCount());
+		assertNull(MetricsRegistry.NOOP.getTimer("a"));
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.support.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import lombok.AllArgsConstructor;
+
+public class IndexedCollectionsTemplateTest {
+
+	@AllArgsConstructor
+	static class Elem {
+		String id;
+	}
+	
+	List<Elem> list;
+	
+	IndexedCollectionsTemplate<Elem> template;
+	
+	@Before
+	public void before() {
+		list = null;
+		template = new IndexedCollectionsTemplate<>(()->list, l->list=l, ArrayList::new, e->e.id, e->Integer.parseInt(e.id));
+	}
+	
+	private Elem add(String id) {
+		Elem e = new Elem(id);
+		template.add(e);
+		return e;
+	}
+	
+	@Test
+	public void t01_positionAndKeyLookup() {
+		Elem e0 = add("0");
+		Elem e1 = add("1");
+		Elem e2 = add("2");
+		
+		assertEquals(0, template.indexOf(e0));
+		assertEquals(2, template.indexOf(e2));
+		assertSame(e1, template.find("1"));
+		assertNull(template.find("3"));
+		assertEquals(2, template.getMaxOrdinal());
+		assertFalse(template.contains(new Elem("1")));
+	}
+	
+	@Test
+	public void t02_removeShiftsPositions() {
+		Elem e0 = add("0");
+		add("1");
+		Elem e2 = add("2");
+		Elem e3 = add("3");
+		
+		assertSame(e0, template.remove("0"));
+		
+		assertEquals(-1, template.indexOf(e0));
+		assertEquals(1, template.indexOf(e2));
+		assertEquals(2, template.indexOf(e3));
+		assertSame(e2, template.getElem(1));
+		assertNull(template.find("0"));
+	}
+	
+	@Test
+	public void t03_removeMaxRecomputesNextOrdinal() {
+		add("0");
+		add("1");
+		add("2");
+		
+		template.remove("2");
+		assertEquals(1, template.getMaxOrdinal());
+		
+		template.remove("0");
+		template.remove("1");
+		assertEquals(-1, template.getMaxOrdinal());
+	}
+	
+	@Test
+	public void t04_rebuiltWhenListChangedDirectly() {
+		Elem e0 = add("0");
+		
+		Elem e5 = new Elem("5");
+		list.add(0, e5);
+		
+		assertEquals(0, template.indexOf(e5));
+		assertEquals(1, template.indexOf(e0));
+		assertSame(e5, template.find("5"));
+		assertEquals(5, template.getMaxOrdinal());
+		
+		template.set(null);
+		assertTrue(template.isNullOrEmpty());
+		assertEquals(-1, template.indexOf(e0));
+	}
+}
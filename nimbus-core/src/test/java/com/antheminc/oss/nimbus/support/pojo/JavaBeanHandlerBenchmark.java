@@ -0,0 +1,97 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.support.pojo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.ValueAccessor;
+import com.antheminc.oss.nimbus.support.pojo.JavaBeanHandlerTest._SimplePojo;
+
+/**
+ * JMH comparison of {@link JavaBeanHandlerReflection} and {@link JavaBeanHandlerLambda}, with direct calls as baseline. <br>
+ * Not part of the unit test run; execute {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class JavaBeanHandlerBenchmark {
+
+	@Param({"reflection", "lambda"})
+	private String handlerType;
+	
+	private JavaBeanHandler handler;
+	
+	private ValueAccessor va;
+	
+	private _SimplePojo target;
+	
+	private String value = "A1";
+	
+	@Setup
+	public void setup() {
+		handler = "lambda".equals(handlerType) ? new JavaBeanHandlerLambda() : new JavaBeanHandlerReflection();
+		va = JavaBeanHandlerUtils.constructValueAccessor(_SimplePojo.class, "a1");
+		target = new _SimplePojo();
+		target.setA1(value);
+	}
+	
+	@Benchmark
+	public Object get() {
+		return handler.getValue(va, target);
+	}
+	
+	@Benchmark
+	public void set() {
+		handler.setValue(va, target, value);
+	}
+	
+	@Benchmark
+	public Object instantiate() {
+		return handler.instantiate(_SimplePojo.class);
+	}
+	
+	@Benchmark
+	public Object direct_get() {
+		return target.getA1();
+	}
+	
+	@Benchmark
+	public Object direct_instantiate() {
+		return new _SimplePojo();
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(JavaBeanHandlerBenchmark.class.getSimpleName()).build()).run();
+	}
+}
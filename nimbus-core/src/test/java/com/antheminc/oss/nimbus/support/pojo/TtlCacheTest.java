@@ -0,0 +1,68 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.support.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class TtlCacheTest {
+
+	AtomicLong now = new AtomicLong(1000);
+	
+	@Test
+	public void t01_entryExpiresAfterTtl() {
+		TtlCache<String, String> cache = new TtlCache<>(100, 10, now::get);
+		cache.put("k", "v");
+		
+		now.addAndGet(99);
+		assertEquals("v", cache.get("k"));
+		
+		now.addAndGet(1);
+		assertNull(cache.get("k"));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+	
+	@Test
+	public void t02_leastRecentlyUsedEvicted() {
+		TtlCache<String, String> cache = new TtlCache<>(100, 2, now::get);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		cache.get("a");
+		cache.put("c", "3");
+		
+		assertEquals("1", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("3", cache.get("c"));
+	}
+	
+	@Test
+	public void t03_disabledAlwaysLoads() {
+		TtlCache<String, String> cache = new TtlCache<>(0, 10, now::get);
+		AtomicLong loads = new AtomicLong();
+		
+		cache.getOrLoad("k", k->"v"+loads.incrementAndGet());
+		cache.getOrLoad("k", k->"v"+loads.incrementAndGet());
+		
+		assertEquals(2, loads.get());
+		assertEquals(0, cache.size());
+	}
+}
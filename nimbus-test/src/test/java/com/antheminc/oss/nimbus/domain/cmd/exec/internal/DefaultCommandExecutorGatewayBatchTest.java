@@ -0,0 +1,88 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.cmd.exec.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.antheminc.oss.nimbus.domain.AbstractFrameworkIngerationPersistableTests;
+import com.antheminc.oss.nimbus.domain.cmd.Action;
+import com.antheminc.oss.nimbus.domain.cmd.exec.CommandExecution.MultiOutput;
+import com.antheminc.oss.nimbus.domain.model.state.ModelEvent;
+import com.antheminc.oss.nimbus.domain.model.state.internal.DeferredEvaluator;
+import com.antheminc.oss.nimbus.domain.model.state.repo.db.ParamStateCoalescedPersistenceEventListener;
+import com.antheminc.oss.nimbus.domain.rules.RuleTestCoreModel;
+import com.antheminc.oss.nimbus.support.Holder;
+import com.antheminc.oss.nimbus.test.domain.support.utils.ExtractResponseOutputUtils;
+import com.antheminc.oss.nimbus.test.domain.support.utils.MockHttpRequestBuilder;
+
+public class DefaultCommandExecutorGatewayBatchTest extends AbstractFrameworkIngerationPersistableTests {
+
+	@Autowired DeferredEvaluator deferredEvaluator;
+	
+	@Autowired ParamStateCoalescedPersistenceEventListener coalescedPersistence;
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void t01_batchEvaluatedAndPersistedOnce() throws Exception {
+		MockHttpServletRequest newReq = MockHttpRequestBuilder.withUri(RULE_CORE_PARAM_ROOT)
+				.addAction(Action._new)
+				.getMock();
+		Holder<MultiOutput> holder = (Holder<MultiOutput>)controller.handlePost(newReq, null);
+		Long refId = ExtractResponseOutputUtils.extractDomainRootRefId(holder);
+		assertNotNull(refId);
+		
+		// test profile persists ATOMIC with deferred evaluation disabled
+		List<ModelEvent<String>> events = Arrays.asList(
+				updateEvent(refId, "/stateCheckParameter", "Checking"),
+				updateEvent(refId, "/triggeredParameter", "Pending"),
+				updateEvent(refId, "/triggerParameter", "Start"));
+		
+		final long evaluations = deferredEvaluator.getEvaluationCount();
+		final long flushes = coalescedPersistence.getFlushCount();
+		
+		HttpServletRequest batchReq = MockHttpRequestBuilder.withUri(PLATFORM_ROOT)
+				.addNested("/event/notify/batch")
+				.getMock();
+		assertNotNull(controller.handleEventNotifyBatch(batchReq, events));
+		
+		assertEquals(1, deferredEvaluator.getEvaluationCount() - evaluations);
+		assertEquals(1, coalescedPersistence.getFlushCount() - flushes);
+		
+		RuleTestCoreModel persisted = mongo.findById(refId, RuleTestCoreModel.class, RULE_CORE_DOMAIN_ALIAS);
+		assertEquals("Start", persisted.getTriggerParameter());
+		
+		// set by rules fired once on completion of the batch, after the commands setting it to "Pending"
+		assertEquals("Triggered", persisted.getTriggeredParameter());
+	}
+	
+	private ModelEvent<String> updateEvent(Long refId, String path, String value) throws Exception {
+		ModelEvent<String> event = new ModelEvent<>();
+		event.setId("/"+RULE_CORE_DOMAIN_ALIAS+":"+refId+path+"/_update");
+		event.setType(Action._update.name());
+		event.setPayload(json.write(value).getJson());
+		return event;
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.antheminc.oss.nimbus.domain.cmd.Command;
+import com.antheminc.oss.nimbus.domain.cmd.CommandBuilder;
+import com.antheminc.oss.nimbus.domain.model.state.AbstractStateEventHandlerTests;
+import com.antheminc.oss.nimbus.domain.model.state.EntityState.Param;
+import com.antheminc.oss.nimbus.domain.model.state.builder.internal.DefaultQuadModelBuilder;
+import com.antheminc.oss.nimbus.entity.audit.AuditEntry;
+
+/**
+ * Builds the {@code sample_view} quad model with lazily built nested models and verifies that OnStateChange handlers of 
+ * mapped view params react to changes of their core params, whether the view side was accessed before or not.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class LazyDomainsQuadModelTest extends AbstractStateEventHandlerTests {
+
+	private static final String CORE_PARAM_PATH = "/sample_core/for_mapped_state_change_attr";
+	private static final String VIEW_PARAM_PATH = "/sample_view/page_green/tile/for_mapped_state_change_attr";
+	
+	@Autowired QuadModelBuilder quadModelBuilder;
+	
+	@Override
+	protected Command createCommand() {
+		return CommandBuilder.withUri("/hooli/thebox/p/sample_view/_new").getCommand();
+	}
+	
+	@Override
+	public void before() {
+		DefaultQuadModelBuilder builder = (DefaultQuadModelBuilder)quadModelBuilder;
+		Set<String> lazyDomains = builder.getLazyDomains();
+		
+		builder.setLazyDomains(Collections.singleton("sample_view"));
+		try {
+			super.before();
+		} finally {
+			builder.setLazyDomains(lazyDomains);
+		}
+	}
+	
+	@Test
+	public void t00_nestedModelsWithoutMappedStateChangeHandlersAreLazy() {
+		Param<?> pageOrange = _q.getRoot().findParamByPath("/sample_view/page_orange");
+		assertFalse(pageOrange.getType().findIfNested().isMaterialized());
+		
+		Param<?> pageGreen = _q.getRoot().findParamByPath("/sample_view/page_green");
+		assertTrue(pageGreen.getType().findIfNested().isMaterialized());
+	}
+	
+	@Test
+	public void t01_coreChangedBeforeViewAccessed() {
+		Param<String> cp = _q.getRoot().findParamByPath(CORE_PARAM_PATH);
+		cp.setState("Y");
+		
+		assertAuditEntries(1);
+		
+		Param<String> vp = _q.getRoot().findParamByPath(VIEW_PARAM_PATH);
+		assertNotNull(vp);
+		assertSame("Y", vp.getState());
+	}
+	
+	@Test
+	public void t02_coreChangedAfterViewAccessed() {
+		Param<String> vp = _q.getRoot().findParamByPath(VIEW_PARAM_PATH);
+		assertNotNull(vp);
+		
+		Param<String> cp = _q.getRoot().findParamByPath(CORE_PARAM_PATH);
+		cp.setState("Y");
+		
+		assertSame("Y", vp.getState());
+		assertAuditEntries(1);
+	}
+	
+	private void assertAuditEntries(int expected) {
+		List<AuditEntry> audit = mongo.findAll(AuditEntry.class, "sample_view_audit_history");
+		assertEquals(expected, audit.size());
+		assertEquals(_q.getCore().getState().getId(), audit.get(0).getDomainRootRefId());
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ *  Copyright 2016-2018 the original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.antheminc.oss.nimbus.domain.model.state.repo.db;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.script.Bindings;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.querydsl.SimpleEntityPathResolver;
+
+import com.antheminc.oss.nimbus.domain.model.config.ParamValue;
+import com.antheminc.oss.nimbus.domain.model.state.repo.db.SearchCriteria.QuerySearchCriteria;
+import com.antheminc.oss.nimbus.entity.StaticCodeValue;
+import com.antheminc.oss.nimbus.test.domain.support.AbstractFrameworkIntegrationTests;
+import com.antheminc.oss.nimbus.test.scenarios.s0.core.SampleCoreEntityAccess;
+
+/**
+ * Runs the criteria forms used by search configs through {@link MongoSearchByQuery} and checks that they are served by 
+ * {@link QuerydslCriteriaCompiler} with the same result as the groovy evaluation, and that other forms still fall back to groovy.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("unchecked")
+public class MongoSearchByQueryTest extends AbstractFrameworkIntegrationTests {
+
+	private static final String SAMPLE_CORE_ENTITY_ACCESS_ALIAS = "sample_core_access";
+	private static final String STATIC_CODE_VALUE_ALIAS = "staticCodeValue";
+	
+	private static final ScriptEngine groovyEngine = new ScriptEngineManager().getEngineByName("groovy");
+	
+	@Autowired
+	@Qualifier("searchByQuery")
+	DBSearch searchByQuery;
+	
+	@Autowired
+	QuerydslCriteriaCompiler criteriaCompiler;
+	
+	@Test
+	public void t01_compiled_matches_groovy() throws Exception {
+		String[] criteria = {
+			"sample_core_access.attr_String.eq('2')",
+			"sample_core_access.id.eq(1)",
+			"sample_core_access.attr_String.eq('1').and(sample_core_access.attr_String2.eq('b'))",
+			"sample_core_access.attr_String.in('1', '3')",
+			"sample_core_access.attr_String.desc()"
+		};
+		
+		long fallbacks = criteriaCompiler.getFallbackCount();
+		for(String c : criteria) {
+			assertEquals(c, groovy(SampleCoreEntityAccess.class, SAMPLE_CORE_ENTITY_ACCESS_ALIAS, c), 
+					criteriaCompiler.evaluate(SampleCoreEntityAccess.class, SAMPLE_CORE_ENTITY_ACCESS_ALIAS, c));
+		}
+		
+		String elemMatch = "staticCodeValue.paramValues.any().code.eq('ACL')";
+		assertEquals(groovy(StaticCodeValue.class, STATIC_CODE_VALUE_ALIAS, elemMatch), 
+				criteriaCompiler.evaluate(StaticCodeValue.class, STATIC_CODE_VALUE_ALIAS, elemMatch));
+		
+		assertEquals(fallbacks, criteriaCompiler.getFallbackCount());
+	}
+	
+	@Test
+	public void t02_search_where() {
+		insertSampleCoreAccess();
+		
+		long fallbacks = criteriaCompiler.getFallbackCount();
+		
+		assertEquals(Arrays.asList(2L), searchIds("sample_core_access.attr_String.eq('2')", null));
+		assertEquals(Arrays.asList(1L), searchIds("sample_core_access.id.eq(1)", null));
+		assertEquals(Arrays.asList(1L), searchIds("sample_core_access.attr_String.eq('1').and(sample_core_access.attr_String2.eq('a'))", null));
+		assertEquals(Arrays.asList(1L, 3L), searchIds("sample_core_access.attr_String.in('1', '3')", null));
+		
+		assertEquals(fallbacks, criteriaCompiler.getFallbackCount());
+	}
+	
+	@Test
+	public void t03_search_where_literals_share_template() {
+		insertSampleCoreAccess();
+		
+		long fallbacks = criteriaCompiler.getFallbackCount();
+		
+		assertEquals(Arrays.asList(1L), searchIds("sample_core_access.attr_String.eq('1')", null));
+		
+		long hits = criteriaCompiler.getHitCount();
+		assertEquals(Arrays.asList(3L), searchIds("sample_core_access.attr_String.eq('3')", null));
+		
+		assertEquals(hits + 1, criteriaCompiler.getHitCount());
+		assertEquals(fallbacks, criteriaCompiler.getFallbackCount());
+	}
+	
+	@Test
+	public void t04_search_orderby() {
+		insertSampleCoreAccess();
+		
+		long fallbacks = criteriaCompiler.getFallbackCount();
+		
+		assertEquals(Arrays.asList(3L, 2L, 1L), searchIds(null, "sample_core_access.attr_String.desc()"));
+		assertEquals(Arrays.asList(3L, 1L), searchIds("sample_core_access.attr_String.in('1', '3')", "sample_core_access.id.desc()"));
+		
+		assertEquals(fallbacks, criteriaCompiler.getFallbackCount());
+	}
+	
+	@Test
+	public void t05_search_collection_element() {
+		mongo.dropCollection(STATIC_CODE_VALUE_ALIAS);
+		
+		StaticCodeValue acl = new StaticCodeValue("/labTest", Arrays.asList(new ParamValue("ACL", "Anticardiolpin Antibodies", null)));
+		acl.setId(1L);
+		mongo.insert(acl, STATIC_CODE_VALUE_ALIAS);
+		
+		StaticCodeValue other = new StaticCodeValue("/status", Arrays.asList(new ParamValue("open", "Open", null)));
+		other.setId(2L);
+		mongo.insert(other, STATIC_CODE_VALUE_ALIAS);
+		
+		long fallbacks = criteriaCompiler.getFallbackCount();
+		
+		List<StaticCodeValue> values = (List<StaticCodeValue>)search(StaticCodeValue.class, STATIC_CODE_VALUE_ALIAS, 
+				"staticCodeValue.paramValues.any().code.eq('ACL')", null);
+		
+		assertEquals(1, values.size());
+		assertEquals("/labTest", values.get(0).getParamCode());
+		assertEquals(fallbacks, criteriaCompiler.getFallbackCount());
+	}
+	
+	@Test
+	public void t06_search_unsupported_falls_back_to_groovy() {
+		insertSampleCoreAccess();
+		
+		long fallbacks = criteriaCompiler.getFallbackCount();
+		
+		assertEquals(Arrays.asList(2L, 3L), searchIds("sample_core_access.attr_LocalDateTime1.goe(java.time.LocalDateTime.of(2017, 1, 1, 0, 0))", null));
+		assertEquals(fallbacks + 1, criteriaCompiler.getFallbackCount());
+	}
+	
+	private List<Long> searchIds(String where, String orderby) {
+		List<SampleCoreEntityAccess> values = (List<SampleCoreEntityAccess>)search(SampleCoreEntityAccess.class, SAMPLE_CORE_ENTITY_ACCESS_ALIAS, where, orderby);
+		List<Long> ids = values.stream().map(SampleCoreEntityAccess::getId).collect(Collectors.toList());
+		
+		// natural order unless sorted by the criteria
+		if(orderby == null) 
+			ids.sort(null);
+		
+		return ids;
+	}
+	
+	private Object search(Class<?> referredClass, String alias, String where, String orderby) {
+		QuerySearchCriteria criteria = new QuerySearchCriteria();
+		criteria.setWhere(where);
+		criteria.setOrderby(orderby);
+		
+		return searchByQuery.search(referredClass, alias, criteria);
+	}
+	
+	private Object groovy(Class<?> referredClass, String alias, String criteria) throws Exception {
+		Bindings b = groovyEngine.createBindings();
+		b.put(alias, SimpleEntityPathResolver.INSTANCE.createPath(referredClass));
+		
+		return groovyEngine.eval(criteria, b);
+	}
+	
+	private void insertSampleCoreAccess() {
+		mongo.dropCollection(SAMPLE_CORE_ENTITY_ACCESS_ALIAS);
+		
+		String[] attr_String = {"1", "2", "3"};
+		String[] attr_String2 = {"a", "b", "b"};
+		
+		for(int i=0; i < attr_String.length; i++) {
+			SampleCoreEntityAccess scea = new SampleCoreEntityAccess();
+			scea.setId(Long.valueOf(i+1));
+			scea.setAttr_String(attr_String[i]);
+			scea.setAttr_String2(attr_String2[i]);
+			scea.setAttr_LocalDateTime1(LocalDateTime.of(2016 + i, 6, 1, 0, 0));
+			mongo.insert(scea, SAMPLE_CORE_ENTITY_ACCESS_ALIAS);
+		}
+	}
+}